@@ -0,0 +1,66 @@
+package benchmark;
+
+import backend.ir.Function;
+import backend.ir.Module;
+import backend.target.Target;
+import backend.target.Translator;
+import backend.target.ValueManager;
+import exception.LexerException;
+import exception.ParserException;
+import midend.Optimizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后端：寄存器分配（ValueManager.putLocal）、翻译为目标代码（Translator.translate）和输出（Target.dump）
+ *
+ * 输入均为优化后的中间代码，这几步不修改中间代码，整个测试共用一份模块
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackendBenchmark {
+    @Param({"testfile1", "testfile2", "testfile3", "testfile4", "testfile5", "testfile6", "gen-100", "gen-1000"})
+    public String source;
+
+    private Module module;
+    private Target target;
+    private final PrintStream nullOut = new PrintStream(OutputStream.nullOutputStream());
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, LexerException, ParserException {
+        module = Optimizer.optimize(Workload.generateIR(Workload.parse(Workload.lex(Workload.load(source)))));
+        Translator translator = new Translator();
+        translator.translate(module);
+        target = translator.getAsmTarget();
+    }
+
+    @Benchmark
+    public void registerAllocation(Blackhole blackhole) {
+        ValueManager valueManager = new ValueManager();
+        for (Function function : module.getFunctions()) {
+            blackhole.consume(valueManager.putLocal(function));
+            valueManager.clearLocals();
+        }
+    }
+
+    @Benchmark
+    public Target translate() {
+        Translator translator = new Translator();
+        translator.translate(module);
+        return translator.getAsmTarget();
+    }
+
+    @Benchmark
+    public void dump() {
+        target.dump(nullOut, false);
+    }
+}
@@ -0,0 +1,30 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行全部基准测试，输出每个阶段的 ops/s，并附带 gc 分析器给出的分配速率（gc.alloc.rate.norm 即每次操作分配的字节数）
+ *
+ * 依赖 jmh-core 与 jmh-generator-annprocess（1.37），在 Lab2 目录下：
+ *   javac -cp <jmh jars> -d out/bench $(find src bench -name "*.java")
+ *   java -cp out/bench:<jmh jars> benchmark.BenchmarkMain [JMH 参数，如 Frontend -p source=gen-1000]
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        // 没有指定要运行的测试时运行全部
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include("benchmark\\..*Benchmark");
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import backend.ir.Module;
+import exception.LexerException;
+import exception.ParserException;
+import frontend.lexer.TokenList;
+import frontend.parser.node.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 前端各阶段：词法分析（Lexer.next）、语法分析（Parser.parse）、语义分析与中间代码生成（Visitor.generateIR）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontendBenchmark {
+    @Param({"testfile1", "testfile2", "testfile3", "testfile4", "testfile5", "testfile6", "gen-100", "gen-1000"})
+    public String source;
+
+    private String code;
+    private TokenList tokenList;
+    private Node root;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, LexerException, ParserException {
+        code = Workload.load(source);
+        tokenList = Workload.lex(code);
+        root = Workload.parse(tokenList);
+    }
+
+    @Benchmark
+    public TokenList lexer() throws IOException, LexerException {
+        return Workload.lex(code);
+    }
+
+    @Benchmark
+    public Node parser() throws IOException, LexerException, ParserException {
+        return Workload.parse(tokenList);
+    }
+
+    @Benchmark
+    public Module visitor() {
+        return Workload.generateIR(root);
+    }
+}
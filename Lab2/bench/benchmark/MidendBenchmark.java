@@ -0,0 +1,45 @@
+package benchmark;
+
+import backend.ir.Module;
+import exception.LexerException;
+import exception.ParserException;
+import frontend.parser.node.Node;
+import midend.Optimizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 中端：完整的优化流程（Optimizer.optimize），包含的优化遍见 Optimizer
+ *
+ * 优化遍会原地修改中间代码，所以每次调用前都重新生成一份未优化的模块
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MidendBenchmark {
+    @Param({"testfile1", "testfile2", "testfile3", "testfile4", "testfile5", "testfile6", "gen-100", "gen-1000"})
+    public String source;
+
+    private Node root;
+    private Module module;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, LexerException, ParserException {
+        root = Workload.parse(Workload.lex(Workload.load(source)));
+    }
+
+    @Setup(Level.Invocation)
+    public void freshModule() {
+        module = Workload.generateIR(root);
+    }
+
+    @Benchmark
+    public Module optimize() {
+        return Optimizer.optimize(module);
+    }
+}
@@ -0,0 +1,69 @@
+package benchmark;
+
+import backend.ir.Module;
+import exception.LexerException;
+import exception.ParserException;
+import frontend.parser.node.Node;
+import midend.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 中端：每个优化遍单独运行。与 Optimizer 中一样，Inline 和 Mem2Reg 的输入是未优化的中间代码，其他遍的输入是经过 Mem2Reg 的中间代码
+ *
+ * 优化遍会原地修改中间代码，所以每次调用前都重新生成一份模块
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PassBenchmark {
+    @Param({"testfile1", "testfile2", "testfile3", "testfile4", "testfile5", "testfile6", "gen-100", "gen-1000"})
+    public String source;
+
+    @Param({"Inline", "Mem2Reg", "SCCP", "GVN", "LICM", "StrengthReduce", "LoopUnroll", "LVN", "DeadStore", "DeadCode", "PeepHole"})
+    public String pass;
+
+    private Node root;
+    private Module module;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, LexerException, ParserException {
+        root = Workload.parse(Workload.lex(Workload.load(source)));
+    }
+
+    @Setup(Level.Invocation)
+    public void freshModule() {
+        module = Workload.generateIR(root);
+        if (!pass.equals("Inline") && !pass.equals("Mem2Reg")) {
+            new Mem2RegPass().run(module);
+        }
+    }
+
+    @Benchmark
+    public Module singlePass() {
+        createPass().run(module);
+        return module;
+    }
+
+    private Pass createPass() {
+        return switch (pass) {
+            case "Inline" -> new InlinePass(new OptimizeOptions());
+            case "Mem2Reg" -> new Mem2RegPass();
+            case "SCCP" -> new SCCPPass();
+            case "GVN" -> new GVNPass();
+            case "LICM" -> new LICMPass();
+            case "StrengthReduce" -> new StrengthReducePass();
+            case "LoopUnroll" -> new LoopUnrollPass(new OptimizeOptions());
+            case "LVN" -> new LVNPass();
+            case "DeadStore" -> new DeadStorePass();
+            case "DeadCode" -> new DeadCodePass();
+            case "PeepHole" -> new PeepHolePass();
+            default -> throw new IllegalArgumentException(pass);
+        };
+    }
+}
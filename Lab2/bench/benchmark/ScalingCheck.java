@@ -0,0 +1,228 @@
+package benchmark;
+
+import backend.ir.Module;
+import backend.target.Target;
+import backend.target.Translator;
+import frontend.lexer.TokenList;
+import frontend.parser.node.Node;
+import midend.Optimizer;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * 规模扩展测试：用 SysYGenerator 生成一组规模递增的程序，测量每个阶段的耗时和分配的内存，
+ * 在双对数坐标下对输入规模（token 数）做最小二乘拟合得到增长指数，超过上限的阶段判为失败
+ *
+ * 耗时取当前线程的 CPU 时间，不计入 GC 和 JIT 线程占用的时间，核数少的机器上也比较稳定
+ *
+ * java benchmark.ScalingCheck [-scale functions|statements] [-sizes 50,100,200,400]
+ *                             [-functions N] [-statements N] [-depth N] [-arrays N] [-array-length N] [-loop-density P]
+ *                             [-reps N] [-max-exponent E] [-bound 阶段=E ...]
+ *
+ * 全部阶段都不超过上限时退出码为 0，否则为 1
+ */
+public class ScalingCheck {
+    private static final List<String> PHASES = List.of("lexer", "parser", "visitor", "optimize", "translate", "dump");
+
+    private String scale = "functions";
+    private int[] sizes = {50, 100, 200, 400};
+    private int functionNum = 20;
+    private int statementNum = 20;
+    private int maxDepth = 3;
+    private int arrayNum = 1;
+    private int arrayLength = 8;
+    private double loopDensity = 0.3;
+    private int reps = 5;
+    private double maxExponent = 1.3;
+    private final Map<String, Double> bounds = new HashMap<>();
+
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final PrintStream nullOut = new PrintStream(OutputStream.nullOutputStream());
+
+    // 每个规模下各阶段的最短 CPU 时间（纳秒）和分配字节数
+    private final Map<String, long[]> times = new LinkedHashMap<>();
+    private final Map<String, long[]> bytes = new LinkedHashMap<>();
+    private long[] tokenNums;
+
+    public static void main(String[] args) throws Throwable {
+        ScalingCheck check = new ScalingCheck();
+        check.parseArgs(args);
+
+        // 较大的输入会让递归实现的遍走得很深，放到栈足够大的线程里运行
+        boolean[] passed = new boolean[1];
+        Throwable[] error = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                passed[0] = check.run();
+            } catch (Throwable e) {
+                error[0] = e;
+            }
+        }, "scaling-check", 1L << 30);
+        thread.start();
+        thread.join();
+
+        if (error[0] != null) {
+            throw error[0];
+        }
+        System.exit(passed[0] ? 0 : 1);
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-scale" -> scale = args[++i];
+                case "-sizes" -> sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "-functions" -> functionNum = Integer.parseInt(args[++i]);
+                case "-statements" -> statementNum = Integer.parseInt(args[++i]);
+                case "-depth" -> maxDepth = Integer.parseInt(args[++i]);
+                case "-arrays" -> arrayNum = Integer.parseInt(args[++i]);
+                case "-array-length" -> arrayLength = Integer.parseInt(args[++i]);
+                case "-loop-density" -> loopDensity = Double.parseDouble(args[++i]);
+                case "-reps" -> reps = Integer.parseInt(args[++i]);
+                case "-max-exponent" -> maxExponent = Double.parseDouble(args[++i]);
+                case "-bound" -> {
+                    String[] bound = args[++i].split("=");
+                    bounds.put(bound[0], Double.parseDouble(bound[1]));
+                }
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (!scale.equals("functions") && !scale.equals("statements")) {
+            throw new IllegalArgumentException("-scale must be functions or statements");
+        }
+    }
+
+    private boolean run() throws Exception {
+        for (String phase : PHASES) {
+            times.put(phase, new long[sizes.length]);
+            bytes.put(phase, new long[sizes.length]);
+        }
+        tokenNums = new long[sizes.length];
+
+        String[] sources = new String[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            sources[i] = generate(sizes[i]);
+        }
+
+        // 每个规模先完整跑一遍预热，让 JIT 编译完热点代码
+        for (String source : sources) {
+            measure(source, -1);
+        }
+
+        for (int i = 0; i < sizes.length; i++) {
+            for (int rep = 0; rep < reps; rep++) {
+                measure(sources[i], i);
+            }
+        }
+
+        return report();
+    }
+
+    private String generate(int size) {
+        SysYGenerator generator = new SysYGenerator()
+                .functions(functionNum)
+                .statements(statementNum)
+                .depth(maxDepth)
+                .arrays(arrayNum, arrayLength)
+                .loopDensity(loopDensity);
+        if (scale.equals("functions")) {
+            generator.functions(size);
+        } else {
+            generator.statements(size);
+        }
+        return generator.generate();
+    }
+
+    // 完整跑一遍编译流程，记录每个阶段的耗时和分配量；index 为 -1 时只预热不记录
+    private void measure(String source, int index) throws Exception {
+        // 尽量让上一轮产生的垃圾不在本轮的计时区间内回收
+        System.gc();
+        Object[] result = new Object[1];
+
+        record("lexer", index, () -> result[0] = Workload.lex(source));
+        TokenList tokenList = (TokenList) result[0];
+        if (index >= 0) {
+            tokenNums[index] = tokenList.size();
+        }
+
+        record("parser", index, () -> result[0] = Workload.parse(tokenList));
+        Node root = (Node) result[0];
+
+        record("visitor", index, () -> result[0] = Workload.generateIR(root));
+        Module module = (Module) result[0];
+
+        record("optimize", index, () -> result[0] = Optimizer.optimize(module));
+        Module optimized = (Module) result[0];
+
+        record("translate", index, () -> {
+            Translator translator = new Translator();
+            translator.translate(optimized);
+            result[0] = translator.getAsmTarget();
+        });
+        Target target = (Target) result[0];
+
+        record("dump", index, () -> target.dump(nullOut, false));
+    }
+
+    private interface Phase {
+        void run() throws Exception;
+    }
+
+    private void record(String phase, int index, Phase body) throws Exception {
+        long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+        long start = threadBean.getCurrentThreadCpuTime();
+        body.run();
+        long time = threadBean.getCurrentThreadCpuTime() - start;
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+
+        if (index >= 0) {
+            long[] phaseTimes = times.get(phase);
+            long[] phaseBytes = bytes.get(phase);
+            phaseTimes[index] = phaseTimes[index] == 0 ? time : Math.min(phaseTimes[index], time);
+            phaseBytes[index] = phaseBytes[index] == 0 ? allocated : Math.min(phaseBytes[index], allocated);
+        }
+    }
+
+    private boolean report() {
+        boolean passed = true;
+
+        System.out.printf("scale=%s sizes=%s tokens=%s%n", scale, Arrays.toString(sizes), Arrays.toString(tokenNums));
+        System.out.printf("%-10s %-40s %-40s %6s %6s %6s%n", "phase", "cpu(ms)", "alloc(MB)", "t-exp", "m-exp", "bound");
+        for (String phase : PHASES) {
+            double timeExponent = fitExponent(tokenNums, times.get(phase));
+            double memoryExponent = fitExponent(tokenNums, bytes.get(phase));
+            double bound = bounds.getOrDefault(phase, maxExponent);
+            boolean ok = timeExponent <= bound && memoryExponent <= bound;
+            passed &= ok;
+
+            StringJoiner timeCol = new StringJoiner(" ");
+            StringJoiner memoryCol = new StringJoiner(" ");
+            for (int i = 0; i < sizes.length; i++) {
+                timeCol.add(String.format("%.2f", times.get(phase)[i] / 1e6));
+                memoryCol.add(String.format("%.2f", bytes.get(phase)[i] / 1e6));
+            }
+            System.out.printf("%-10s %-40s %-40s %6.2f %6.2f %6.2f %s%n",
+                    phase, timeCol, memoryCol, timeExponent, memoryExponent, bound, ok ? "ok" : "FAIL");
+        }
+        return passed;
+    }
+
+    // y = c * x^k 两边取对数后做最小二乘，返回 k
+    private static double fitExponent(long[] x, long[] y) {
+        int n = x.length;
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int i = 0; i < n; i++) {
+            double lx = Math.log(x[i]);
+            double ly = Math.log(Math.max(y[i], 1));
+            sumX += lx;
+            sumY += ly;
+            sumXX += lx * lx;
+            sumXY += lx * ly;
+        }
+        return (n * sumXY - sumX * sumY) / (n * sumXX - sumX * sumX);
+    }
+}
@@ -0,0 +1,227 @@
+package benchmark;
+
+import java.util.Random;
+
+/**
+ * 生成规模可控的合法 SysY 程序，用于基准测试和规模扩展测试
+ *
+ * 可调的参数：函数个数、每个函数的语句数、语句块最大嵌套深度、数组个数与长度、循环所占比例。
+ * 文法只支持一维数组，所以数组的“维度”体现为每个函数的局部数组个数和数组长度。
+ *
+ * 生成的程序保证能正常运行结束、结果确定：
+ * 循环都是固定次数的计数循环，所有变量赋值后对 MOD 取模、数组下标取模后落在界内、除数恒不为零，
+ * 函数只调用编号更小的函数且不在循环内调用，避免运行时间随规模指数增长
+ */
+public class SysYGenerator {
+    private static final int MOD = 10007;
+    private static final int VAR_NUM = 4; // 每个函数的局部变量 v0..v3
+
+    private int functionNum = 10;
+    private int statementNum = 20;
+    private int maxDepth = 3;
+    private int arrayNum = 1;
+    private int arrayLength = 8;
+    private double loopDensity = 0.3;
+    private long seed = 2024;
+
+    private Random random;
+    private StringBuilder out;
+    private int remaining; // 当前函数还可以生成的语句数
+    private int firstVar = 0; // 表达式中可以引用的第一个局部变量编号
+
+    public SysYGenerator functions(int functionNum) {
+        this.functionNum = functionNum;
+        return this;
+    }
+
+    public SysYGenerator statements(int statementNum) {
+        this.statementNum = statementNum;
+        return this;
+    }
+
+    public SysYGenerator depth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public SysYGenerator arrays(int arrayNum, int arrayLength) {
+        this.arrayNum = arrayNum;
+        this.arrayLength = arrayLength;
+        return this;
+    }
+
+    public SysYGenerator loopDensity(double loopDensity) {
+        this.loopDensity = loopDensity;
+        return this;
+    }
+
+    public SysYGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public String generate() {
+        random = new Random(seed);
+        out = new StringBuilder();
+
+        out.append("const int L = ").append(arrayLength).append(";\n");
+        out.append("int g_arr[L];\n");
+        out.append("int g_sum = 0;\n\n");
+
+        for (int i = 0; i < functionNum; i++) {
+            generateFunction(i);
+        }
+
+        out.append("int main()\n{\n");
+        out.append("    int i;\n");
+        out.append("    int x = getint();\n");
+        out.append("    for (i = 0; i < L; i = i + 1) {\n");
+        out.append("        g_arr[i] = i * x % ").append(MOD).append(";\n");
+        out.append("    }\n");
+        for (int i = 0; i < functionNum; i++) {
+            out.append("    x = f").append(i).append("(x, ").append(i).append(", g_arr);\n");
+        }
+        out.append("    printf(\"%d %d\\n\", x, g_sum);\n");
+        out.append("    return 0;\n}\n");
+        return out.toString();
+    }
+
+    // int fK(int a, int b, int p[])：局部变量 v0..v3、数组 arr0..，第 d 层循环使用循环变量 id，i0 用于初始化数组
+    private void generateFunction(int index) {
+        remaining = statementNum;
+
+        out.append("int f").append(index).append("(int a, int b, int p[])\n{\n");
+        out.append("    const int c = ").append(random.nextInt(100) + 1).append(";\n");
+        out.append("    int v0 = a % ").append(MOD).append(", v1 = b, v2 = c, v3 = 0;\n");
+        indent(1).append("int i0");
+        for (int d = 1; d <= maxDepth; d++) {
+            out.append(", i").append(d);
+        }
+        out.append(";\n");
+        for (int k = 0; k < arrayNum; k++) {
+            indent(1).append("int arr").append(k).append("[L];\n");
+            indent(1).append("for (i0 = 0; i0 < L; i0 = i0 + 1) {\n");
+            indent(2).append("arr").append(k).append("[i0] = p[i0] + ").append(k).append(";\n");
+            indent(1).append("}\n");
+        }
+
+        while (remaining > 0) {
+            generateStmt(1, false);
+        }
+
+        // 调用一个编号更小的函数，形成调用图
+        if (index > 0) {
+            indent(1).append("v3 = (v3 + f").append(random.nextInt(index))
+                    .append("(v0, v1, ").append(arrayNum > 0 ? "arr0" : "p").append(")) % ").append(MOD).append(";\n");
+        }
+        indent(1).append("g_sum = (g_sum + v3) % ").append(MOD).append(";\n");
+        indent(1).append("return (v0 + v1 + v2 + v3) % ").append(MOD).append(";\n");
+        out.append("}\n\n");
+    }
+
+    private void generateStmt(int depth, boolean inLoop) {
+        remaining--;
+        double choice = random.nextDouble();
+        boolean canNest = depth <= maxDepth;
+
+        if (canNest && choice < loopDensity) {
+            // 固定次数的计数循环，循环变量只在循环头里修改
+            String loopVar = "i" + depth;
+            indent(depth).append("for (").append(loopVar).append(" = 0; ").append(loopVar).append(" < ")
+                    .append(random.nextInt(3) + 2).append("; ").append(loopVar).append(" = ").append(loopVar).append(" + 1) {\n");
+            generateBody(depth + 1, true);
+            indent(depth).append("}\n");
+        } else if (canNest && choice < loopDensity + 0.2) {
+            indent(depth).append("if (").append(cond()).append(") {\n");
+            generateBody(depth + 1, inLoop);
+            if (random.nextBoolean()) {
+                indent(depth).append("} else {\n");
+                generateBody(depth + 1, inLoop);
+            }
+            indent(depth).append("}\n");
+        } else if (canNest && choice < loopDensity + 0.3) {
+            // 嵌套语句块，块内声明的变量会遮蔽外层同名变量
+            // 新的 v0 在自己的初始化表达式中已经可见但尚未初始化，所以初始化时不能引用 v0
+            indent(depth).append("{\n");
+            firstVar = 1;
+            indent(depth + 1).append("int v0 = (").append(expr()).append(") % ").append(MOD).append(";\n");
+            firstVar = 0;
+            generateBody(depth + 1, inLoop);
+            indent(depth).append("}\n");
+        } else if (inLoop && choice > 0.97) {
+            indent(depth).append("if (").append(cond()).append(") {\n");
+            indent(depth + 1).append(random.nextBoolean() ? "break;\n" : "continue;\n");
+            indent(depth).append("}\n");
+        } else if (arrayNum > 0 && choice > 0.8) {
+            indent(depth).append(arrayElem()).append(" = (").append(expr()).append(") % ").append(MOD).append(";\n");
+        } else {
+            indent(depth).append(var()).append(" = (").append(expr()).append(") % ").append(MOD).append(";\n");
+        }
+    }
+
+    private void generateBody(int depth, boolean inLoop) {
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count && remaining > 0; i++) {
+            generateStmt(depth, inLoop);
+        }
+    }
+
+    // 最多三项相加减，每项的绝对值不超过 MOD * MOD，不会溢出
+    private String expr() {
+        StringBuilder builder = new StringBuilder(term());
+        int termNum = random.nextInt(3);
+        for (int i = 0; i < termNum; i++) {
+            builder.append(random.nextBoolean() ? " + " : " - ").append(term());
+        }
+        return builder.toString();
+    }
+
+    private String term() {
+        return switch (random.nextInt(4)) {
+            case 0 -> atom() + " * " + atom();
+            case 1 -> atom() + " / (" + atom() + " % 7 + 8)";
+            case 2 -> "(" + atom() + " % " + (random.nextInt(9) + 2) + ")";
+            default -> atom();
+        };
+    }
+
+    private String atom() {
+        int choice = random.nextInt(10);
+        if (choice < 2) {
+            return Integer.toString(random.nextInt(100));
+        } else if (choice < 3) {
+            return "c";
+        } else if (choice < 4 && arrayNum > 0) {
+            return arrayElem();
+        } else if (choice < 5) {
+            return random.nextBoolean() ? "a" : "b";
+        }
+        return var();
+    }
+
+    private String cond() {
+        String[] relations = {"<", ">", "<=", ">=", "==", "!="};
+        String cond = atom() + " " + relations[random.nextInt(relations.length)] + " " + atom();
+        return switch (random.nextInt(4)) {
+            case 0 -> cond + " && " + atom() + " != 0";
+            case 1 -> cond + " || !" + atom();
+            default -> cond;
+        };
+    }
+
+    private String var() {
+        return "v" + (firstVar + random.nextInt(VAR_NUM - firstVar));
+    }
+
+    // 下标先取模再加 L 再取模，负数下标也落在 [0, L) 内
+    private String arrayElem() {
+        return "arr" + random.nextInt(arrayNum) + "[(" + var() + " % L + L) % L]";
+    }
+
+    private StringBuilder indent(int depth) {
+        for (int i = 0; i < depth; i++) {
+            out.append("    ");
+        }
+        return out;
+    }
+}
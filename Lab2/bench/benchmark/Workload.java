@@ -0,0 +1,43 @@
+package benchmark;
+
+import backend.ir.Module;
+import error.ErrorRecorder;
+import exception.LexerException;
+import exception.ParserException;
+import frontend.lexer.Lexer;
+import frontend.lexer.TokenList;
+import frontend.parser.Parser;
+import frontend.parser.node.Node;
+import frontend.visitor.Visitor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 基准测试的输入与各阶段的准备工作
+ *
+ * 输入名为 testfile1 ~ testfile6 时读取 Lab1 下的测试程序（目录由 -Dsysy.testdir 指定，默认 ../Lab1），
+ * 输入名为 gen-N 时由 SysYGenerator 按默认参数生成含 N 个函数的程序
+ */
+public class Workload {
+    public static String load(String name) throws IOException {
+        if (name.startsWith("gen-")) {
+            return new SysYGenerator().functions(Integer.parseInt(name.substring(4))).generate();
+        }
+        Path dir = Path.of(System.getProperty("sysy.testdir", "../Lab1"));
+        return Files.readString(dir.resolve(name + ".c"));
+    }
+
+    public static TokenList lex(String source) throws IOException, LexerException {
+        return new Lexer(source.getBytes(), new ErrorRecorder()).tokenize();
+    }
+
+    public static Node parse(TokenList tokenList) throws IOException, LexerException, ParserException {
+        return new Parser(tokenList, new ErrorRecorder()).parse();
+    }
+
+    public static Module generateIR(Node root) {
+        return new Visitor(new ErrorRecorder()).generateIR(root);
+    }
+}
@@ -0,0 +1,46 @@
+// 全局值编号：支配的块中相同的计算可以共用，兄弟分支中的计算不能在汇合之后使用，
+// 交换律的运算（a + b 与 b + a）相同，减法和比较的操作数顺序不同时不相同
+int main() {
+    int a = getint();
+    int b = getint();
+    int s = 0;
+    int x = a * b + 3;
+    if (a > b) {
+        s = a * b + 3;
+        s = s + (b * a + 3);
+    } else {
+        s = a - b;
+        s = s * (b - a);
+    }
+    int y = a - b;
+    int z = b - a;
+    printf("%d %d %d %d\n", x, s, y, z);
+    int c;
+    if (a < b) {
+        c = a + b;
+    } else {
+        c = b + a + 1;
+    }
+    int d = a + b;
+    int lt = 0;
+    int gt = 0;
+    if (a < b) {
+        lt = 1;
+    }
+    if (b < a) {
+        gt = 1;
+    }
+    printf("%d %d %d %d\n", c, d, lt, gt);
+    int i;
+    int t = 0;
+    for (i = 0; i < a; i = i + 1) {
+        int u = a * 7 + i;
+        if (i % 2 == 0) {
+            t = t + a * 7 + i;
+        } else {
+            t = t - u;
+        }
+    }
+    printf("%d %d\n", t, a * 7);
+    return 0;
+}
@@ -0,0 +1,33 @@
+// 全局值编号：地址计算相同的 load 之间有 store 或者调用时不能共用读出的值
+int g[10];
+int cnt;
+
+void touch(int i) {
+    g[i] = g[i] + 10;
+    cnt = cnt + 1;
+}
+
+int main() {
+    int n = getint();
+    int i;
+    for (i = 0; i < 10; i = i + 1) {
+        g[i] = i * i;
+    }
+    int a = g[n] + g[n + 1];
+    g[n] = a;
+    int b = g[n] + g[n + 1];
+    touch(n + 1);
+    int c = g[n] + g[n + 1];
+    printf("%d %d %d\n", a, b, c);
+    int k = cnt;
+    touch(n);
+    printf("%d %d %d\n", k, cnt, g[n]);
+    int s = 0;
+    for (i = 0; i < n; i = i + 1) {
+        s = s + g[i] * g[i];
+        g[i] = s;
+        s = s + g[i];
+    }
+    printf("%d %d\n", s, g[n - 1]);
+    return 0;
+}
@@ -0,0 +1,41 @@
+// 内联：递归函数不能无限展开，调用递归函数的包装函数可以内联
+int fact(int n) {
+    if (n <= 1) {
+        return 1;
+    }
+    return n * fact(n - 1);
+}
+
+int isEven(int n) {
+    if (n == 0) {
+        return 1;
+    }
+    if (n == 1) {
+        return 0;
+    }
+    return isEven(n - 2);
+}
+
+int wrap(int n) {
+    return fact(n) + 1;
+}
+
+int fib(int n) {
+    if (n < 2) {
+        return n;
+    }
+    return fib(n - 1) + fib(n - 2);
+}
+
+int main() {
+    int n;
+    n = getint();
+    printf("fact=%d\n", fact(n));
+    printf("wrap=%d\n", wrap(n - 2));
+    printf("even=%d %d\n", isEven(n), isEven(n + 1));
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        printf("fib(%d)=%d\n", i, fib(i));
+    }
+    return 0;
+}
@@ -0,0 +1,46 @@
+// 内联：被调函数有多个 return（分支中、循环中提前返回），返回值在调用处参与运算
+int counter = 0;
+
+int classify(int x) {
+    if (x < 0) {
+        return -1;
+    } else if (x == 0) {
+        return 0;
+    }
+    if (x > 100) {
+        return 100;
+    }
+    return 1;
+}
+
+int firstDivisor(int n) {
+    int d;
+    for (d = 2; d * d <= n; d = d + 1) {
+        if (n % d == 0) {
+            return d;
+        }
+    }
+    return n;
+}
+
+void bump(int x) {
+    if (x % 2 == 0) {
+        counter = counter + x;
+        return;
+    }
+    counter = counter - 1;
+}
+
+int main() {
+    int n;
+    int i;
+    int sum = 0;
+    n = getint();
+    for (i = -3; i <= n; i = i + 1) {
+        sum = sum * 3 + classify(i * 25) + firstDivisor(i + 10);
+        bump(i);
+    }
+    printf("sum=%d counter=%d\n", sum, counter);
+    printf("%d %d %d\n", classify(-n) + classify(0), firstDivisor(91), firstDivisor(97));
+    return 0;
+}
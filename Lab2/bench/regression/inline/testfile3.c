@@ -0,0 +1,49 @@
+// 内联：数组参数，被调函数读写调用者的局部数组和全局数组，同一个数组可以作为两个参数
+int g[8];
+
+void fill(int a[], int n, int base) {
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        a[i] = base + i * i;
+    }
+}
+
+int sum(int a[], int n) {
+    int i;
+    int s = 0;
+    for (i = 0; i < n; i = i + 1) {
+        s = s + a[i];
+    }
+    return s;
+}
+
+void addTo(int dst[], int src[], int n) {
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        dst[i] = dst[i] + src[i];
+    }
+}
+
+int swapFirst(int a[], int b[]) {
+    int t = a[0];
+    a[0] = b[0];
+    b[0] = t;
+    return a[0] - b[0];
+}
+
+int main() {
+    int a[8];
+    int n;
+    n = getint();
+    fill(a, 8, n);
+    fill(g, 8, -n);
+    printf("%d %d\n", sum(a, 8), sum(g, 8));
+    addTo(a, g, 8);
+    printf("%d %d %d\n", a[0], a[7], sum(a, 8));
+    addTo(a, a, 8);
+    printf("%d %d\n", a[3], sum(a, 8));
+    int d = swapFirst(a, g);
+    printf("%d %d %d\n", d, a[0], g[0]);
+    printf("%d\n", swapFirst(g, g));
+    return 0;
+}
@@ -0,0 +1,69 @@
+// 循环不变量外提：除数是循环不变量但可能为 0 的除法和取余，只在保护它的分支成立时执行，不能提到循环之前
+int guarded(int x, int d, int n) {
+    int s = 0;
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        if (d != 0) {
+            s = s + x / d + x % d;
+        } else {
+            s = s + i;
+        }
+    }
+    return s;
+}
+
+// 循环体一次都不执行时，其中的除法也不能执行
+int zeroTrip(int x, int d, int n) {
+    int s = 0;
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        s = s + x / d;
+    }
+    return s;
+}
+
+// 循环中先判断后返回，除法所在的块支配 break 所在的块，但返回也是离开循环的路径
+int earlyReturn(int x, int d, int n) {
+    int s = 0;
+    int i = 0;
+    for (;;) {
+        if (d == 0) {
+            return -1;
+        }
+        s = s + x / d;
+        i = i + 1;
+        if (i >= n) {
+            break;
+        }
+    }
+    return s;
+}
+
+// 内层循环的除法由外层循环中的条件保护
+int nested(int x, int d, int n) {
+    int s = 0;
+    int i;
+    int j;
+    for (i = 0; i < n; i = i + 1) {
+        if (i > d) {
+            for (j = 0; j < n; j = j + 1) {
+                s = s + x / (i - d) + j;
+            }
+        }
+    }
+    return s;
+}
+
+int main() {
+    int x;
+    int d;
+    int n;
+    x = getint();
+    d = getint();
+    n = getint();
+    printf("%d %d\n", guarded(x, d, n), guarded(x, d + 3, n));
+    printf("%d %d\n", zeroTrip(x, d, 0), zeroTrip(x, d - 2, n));
+    printf("%d %d\n", earlyReturn(x, d, n), earlyReturn(x, d + 7, n));
+    printf("%d %d\n", nested(x, d, n), nested(x, d + 2, n));
+    return 0;
+}
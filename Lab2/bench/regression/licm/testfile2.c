@@ -0,0 +1,72 @@
+// 循环不变量外提：地址不变的 load，循环中有可能写同一个对象的 store 或者会修改它的调用时不能外提
+int g[4];
+int counter;
+
+void tick() {
+    counter = counter + 1;
+}
+
+// a 与 g 可能是同一个数组
+int paramAlias(int a[], int n) {
+    int s = 0;
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        s = s + g[0];
+        a[0] = a[0] + i;
+    }
+    return s;
+}
+
+// 两个数组参数可能是同一个数组
+int twoParams(int a[], int b[], int n) {
+    int s = 0;
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        s = s + a[1];
+        b[i % 2] = s;
+    }
+    return s;
+}
+
+// 调用修改了循环中读取的全局变量
+int withCall(int n) {
+    int s = 0;
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        s = s + counter;
+        tick();
+    }
+    return s;
+}
+
+// 下标不变的 load 与下标变化的 store 访问同一个局部数组
+int localArray(int k, int n) {
+    int b[8] = {1, 2, 3, 4, 5, 6, 7, 8};
+    int s = 0;
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        s = s + b[k];
+        b[i] = s;
+    }
+    return s;
+}
+
+int main() {
+    int n;
+    int h[4] = {5, 6, 7, 8};
+    n = getint();
+    g[0] = 10;
+    int r = paramAlias(g, n);
+    printf("%d %d\n", r, g[0]);
+    r = paramAlias(h, n);
+    printf("%d %d\n", r, h[0]);
+    r = twoParams(h, h, n);
+    printf("%d %d %d\n", r, h[0], h[1]);
+    r = twoParams(g, h, n);
+    printf("%d %d %d\n", r, h[0], h[1]);
+    counter = 3;
+    r = withCall(n);
+    printf("%d %d\n", r, counter);
+    printf("%d\n", localArray(2, n));
+    return 0;
+}
@@ -0,0 +1,45 @@
+// 提升标量局部变量：只在部分分支中赋值、在循环中更新、嵌套循环中跨层使用的变量，phi 放在汇合处
+int main() {
+    int n;
+    int x = 1;
+    int y;
+    int i;
+    int j;
+    n = getint();
+    y = n;
+    if (n > 3) {
+        x = n * 2;
+    } else if (n > 1) {
+        x = n + 100;
+        y = 0;
+    }
+    printf("%d %d\n", x, y);
+    int s = 0;
+    int t = 1;
+    for (i = 0; i < n; i = i + 1) {
+        if (i % 3 == 0) {
+            s = s + i;
+        } else {
+            t = t * 2 % 1000;
+            if (t > 500) {
+                continue;
+            }
+            s = s - t;
+        }
+        if (s < -100) {
+            break;
+        }
+    }
+    printf("%d %d %d\n", s, t, i);
+    int last = -1;
+    for (i = 0; i < n; i = i + 1) {
+        int k = i;
+        for (j = 0; j < i; j = j + 1) {
+            k = k + j;
+            last = j;
+        }
+        s = s + k;
+    }
+    printf("%d %d %d %d\n", s, last, i, j);
+    return 0;
+}
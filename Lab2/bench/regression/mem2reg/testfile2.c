@@ -0,0 +1,39 @@
+// 提升标量局部变量：内层块中同名的变量是不同的变量；数组、全局变量和形参不提升，
+// 函数调用修改的全局变量在调用之后重新读取
+int g = 5;
+
+int addG(int v) {
+    g = g + v;
+    v = v * 2;
+    return v;
+}
+
+int main() {
+    int a = getint();
+    int b = a;
+    int arr[3] = {1, 2, 3};
+    {
+        int a = b * 10;
+        b = a + 1;
+        {
+            int b = a + 2;
+            a = b;
+        }
+        arr[0] = a;
+    }
+    printf("%d %d %d\n", a, b, arr[0]);
+    int r = addG(a);
+    int h = g;
+    r = r + addG(b);
+    printf("%d %d %d\n", r, h, g);
+    int p = 0;
+    int q = 1;
+    int c;
+    for (c = 0; c < a; c = c + 1) {
+        arr[c % 3] = arr[c % 3] + p;
+        p = q;
+        q = arr[c % 3];
+    }
+    printf("%d %d %d %d %d\n", p, q, arr[0], arr[1], arr[2]);
+    return 0;
+}
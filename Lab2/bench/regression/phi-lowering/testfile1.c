@@ -0,0 +1,39 @@
+// phi 的消除：循环中交换两个变量、三个变量轮换（并行复制中的环），
+// 循环结束后使用循环中更新前的值（lost copy）
+int main() {
+    int n;
+    int a = 1;
+    int b = 2;
+    int c = 3;
+    int i;
+    n = getint();
+    for (i = 0; i < n; i = i + 1) {
+        int t = a;
+        a = b;
+        b = t;
+    }
+    printf("%d %d\n", a, b);
+    for (i = 0; i < n; i = i + 1) {
+        int t = a;
+        a = b;
+        b = c;
+        c = t;
+    }
+    printf("%d %d %d\n", a, b, c);
+    int x = 0;
+    int prev = 0;
+    for (i = 0; i < n; i = i + 1) {
+        prev = x;
+        x = x + i;
+    }
+    printf("%d %d\n", prev, x);
+    int f0 = 0;
+    int f1 = 1;
+    for (i = 0; i < n; i = i + 1) {
+        int f2 = f0 + f1;
+        f0 = f1;
+        f1 = f2;
+    }
+    printf("%d %d\n", f0, f1);
+    return 0;
+}
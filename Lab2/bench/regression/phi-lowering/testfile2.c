@@ -0,0 +1,58 @@
+// phi 的消除：条件跳转的边上需要复制（关键边），同一个值流入多个 phi，
+// 同时活跃的 phi 多于寄存器时溢出到栈上
+int main() {
+    int n;
+    int i;
+    n = getint();
+    int x = 0;
+    int y = 0;
+    for (i = 0; i < n; i = i + 1) {
+        if (i % 2 == 0) {
+            x = i;
+            y = i;
+        }
+        x = x + 1;
+    }
+    printf("%d %d\n", x, y);
+    int v0 = 1;
+    int v1 = 2;
+    int v2 = 3;
+    int v3 = 4;
+    int v4 = 5;
+    int v5 = 6;
+    int v6 = 7;
+    int v7 = 8;
+    int v8 = 9;
+    int v9 = 10;
+    int v10 = 11;
+    int v11 = 12;
+    for (i = 0; i < n; i = i + 1) {
+        int t = v0;
+        v0 = v1 + i;
+        v1 = v2;
+        v2 = v3 * 3 % 101;
+        v3 = v4;
+        v4 = v5 - i;
+        v5 = v6;
+        v6 = v7;
+        v7 = v8 + v0;
+        v8 = v9;
+        v9 = v10;
+        v10 = v11 % 97;
+        v11 = t + v5;
+    }
+    printf("%d %d %d %d %d %d\n", v0, v1, v2, v3, v4, v5);
+    printf("%d %d %d %d %d %d\n", v6, v7, v8, v9, v10, v11);
+    int m = 0;
+    int k = 0;
+    for (i = 0; i < n; i = i + 1) {
+        if (i > 3 && i < 8) {
+            m = k;
+            k = i;
+        } else if (i >= 8) {
+            k = m;
+        }
+    }
+    printf("%d %d\n", m, k);
+    return 0;
+}
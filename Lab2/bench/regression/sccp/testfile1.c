@@ -0,0 +1,45 @@
+// 稀疏条件常量传播：经过分支和 phi 仍是常数的值，不可达的分支，循环中保持不变的常数，
+// 负数的除法和取余按 C 的规则向零取整
+int five() {
+    return 5;
+}
+
+int pick(int x) {
+    if (1) {
+        return x;
+    }
+    return 2;
+}
+
+int main() {
+    int n = getint();
+    int a = 3;
+    int b;
+    if (a > 2) {
+        b = a * 4;
+    } else {
+        b = n;
+    }
+    int c;
+    if (n > 0) {
+        c = b - 2;
+    } else {
+        c = 10;
+    }
+    printf("%d %d %d\n", a, b, c);
+    int k = 7;
+    int i;
+    int s = 0;
+    for (i = 0; i < n; i = i + 1) {
+        if (k != 7) {
+            k = k + i;
+        }
+        s = s + k;
+    }
+    printf("%d %d\n", k, s);
+    printf("%d %d %d %d\n", -7 / 2, -7 % 2, 7 / -2, 7 % -2);
+    int m = -17;
+    printf("%d %d %d\n", m / 5, m % 5, (m * 3 + 1) / 4);
+    printf("%d %d\n", pick(n), five() * 2);
+    return 0;
+}
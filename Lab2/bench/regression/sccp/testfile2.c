@@ -0,0 +1,42 @@
+// 稀疏条件常量传播：条件是常数的 && 和 || 仍然短路，右边的调用不能执行；
+// 条件常数为假的循环不执行，只在不可达路径上改变的变量仍是常数
+int calls;
+
+int f(int x) {
+    calls = calls + 1;
+    return x;
+}
+
+int main() {
+    int n = getint();
+    int r = 0;
+    if (0 && f(1)) {
+        r = 1;
+    }
+    if (1 || f(2)) {
+        r = r + 10;
+    }
+    if (n > 0 && f(n) > 3) {
+        r = r + 100;
+    }
+    if (n < 0 || f(0)) {
+        r = r + 1000;
+    }
+    printf("%d %d\n", r, calls);
+    int i;
+    int x = 4;
+    for (i = 0; 0; i = i + 1) {
+        x = f(x);
+    }
+    int y = 1;
+    int j = 0;
+    for (i = 0; i < n; i = i + 1) {
+        if (y == 2) {
+            y = 3;
+            j = j + 1;
+        }
+        j = j + y;
+    }
+    printf("%d %d %d %d %d\n", x, i, y, j, calls);
+    return 0;
+}
@@ -0,0 +1,69 @@
+// 强度削弱：循环体一次都不执行（初值已经越过边界）时结果不变；初值和边界是常数的循环退出条件换成指针比较，
+// 循环结束后还使用归纳变量时不能替换
+int a[32];
+
+int sumRange(int lo, int hi) {
+    int s = 0;
+    int i;
+    for (i = lo; i < hi; i = i + 1) {
+        s = s + a[i];
+    }
+    return s;
+}
+
+int sumInclusive(int lo, int hi) {
+    int s = 0;
+    int i;
+    for (i = lo; i <= hi; i = i + 1) {
+        s = s + a[i] * i;
+    }
+    return s;
+}
+
+// 步长为 2，边界与初值的差不是步长的倍数
+int sumStep(int lo, int hi) {
+    int s = 0;
+    int i;
+    for (i = lo; i < hi; i = i + 2) {
+        s = s + a[i] + a[i + 1];
+    }
+    return s;
+}
+
+int main() {
+    int n;
+    int i;
+    n = getint();
+    for (i = 0; i < 32; i = i + 1) {
+        a[i] = i * i - 3 * i;
+    }
+    printf("%d %d %d\n", sumRange(0, n), sumRange(n, n), sumRange(n, n - 7));
+    printf("%d %d %d\n", sumInclusive(3, n), sumInclusive(n, n - 1), sumInclusive(n + 4, n));
+    printf("%d %d %d\n", sumStep(1, n), sumStep(n, n), sumStep(n - 1, n - 9));
+    int m = 0;
+    for (i = n; i < m; i = i + 1) {
+        a[i] = -1;
+    }
+    printf("%d %d\n", i, a[n]);
+    int s = 0;
+    for (i = 0; i < 30; i = i + 1) {
+        s = s * 3 % 1009 + a[i] + a[i + 2];
+    }
+    printf("%d\n", s);
+    s = 0;
+    for (i = 2; i <= 29; i = i + 3) {
+        s = s * 5 % 1013 + a[i] - a[i - 1];
+    }
+    printf("%d %d\n", s, i);
+    int j;
+    for (i = 0; i < 3; i = i + 1) {
+        for (j = 10; j < 10; j = j + 1) {
+            a[j] = 0;
+        }
+        for (j = 31; j < 32 - i; j = j + 1) {
+            a[j] = a[j] + 1;
+        }
+    }
+    printf("%d %d %d\n", a[10], a[31], j);
+    return 0;
+}
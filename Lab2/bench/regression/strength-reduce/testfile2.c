@@ -0,0 +1,58 @@
+// 强度削弱：有 break 的循环有不止一个出口，不能只按指针比较决定是否退出
+int a[16];
+
+int find(int x, int n) {
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        if (a[i] == x) {
+            break;
+        }
+    }
+    return i;
+}
+
+int prefixSum(int limit, int n) {
+    int s = 0;
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        if (s + a[i] > limit) {
+            break;
+        }
+        s = s + a[i];
+        a[i] = s;
+    }
+    return s * 100 + i;
+}
+
+int skipOdd(int n) {
+    int s = 0;
+    int i;
+    for (i = 0; i < n; i = i + 1) {
+        if (a[i] % 2 != 0) {
+            continue;
+        }
+        if (a[i] > 40) {
+            break;
+        }
+        s = s + a[i];
+    }
+    return s;
+}
+
+int main() {
+    int n;
+    int i;
+    n = getint();
+    for (i = 0; i < 16; i = i + 1) {
+        a[i] = (i * 7) % 11 + i;
+    }
+    printf("%d %d %d\n", find(17, n), find(100, n), find(a[0], n));
+    printf("%d\n", skipOdd(n));
+    int p = prefixSum(50, n);
+    printf("%d %d\n", p, prefixSum(1000, n));
+    for (i = 0; i < n; i = i + 1) {
+        printf("%d ", a[i]);
+    }
+    printf("\n");
+    return 0;
+}
@@ -0,0 +1,39 @@
+// 强度削弱：负步长的归纳变量，以及随归纳变量反向变化的下标
+int a[40];
+int b[40];
+
+int main() {
+    int n;
+    int i;
+    int s = 0;
+    n = getint();
+    for (i = 0; i < n; i = i + 1) {
+        a[i] = i * 3 - 20;
+    }
+    for (i = n - 1; i >= 0; i = i - 1) {
+        s = s * 2 % 10007 + a[i];
+    }
+    printf("%d\n", s);
+    for (i = 0; i < n; i = i + 1) {
+        b[n - 1 - i] = a[i];
+    }
+    printf("%d %d %d\n", b[0], b[n / 2], b[n - 1]);
+    s = 0;
+    for (i = n - 1; i > 2; i = i - 3) {
+        s = s + a[i] * b[i - 1];
+    }
+    printf("%d %d\n", s, i);
+    s = 0;
+    for (i = n; i > n; i = i - 1) {
+        s = s + a[i - 1];
+    }
+    printf("%d %d\n", s, i);
+    for (i = n - 2; i >= 2; i = i - 2) {
+        a[i] = a[i + 1] + a[i - 2];
+    }
+    for (i = 0; i < n; i = i + 1) {
+        printf("%d ", a[i]);
+    }
+    printf("\n");
+    return 0;
+}
@@ -0,0 +1,45 @@
+// 循环展开：次数在运行时才知道，可能不是展开因子的倍数，也可能为 0；循环结束后继续使用归纳变量
+int a[64];
+
+int up(int lo, int hi) {
+    int s = 0;
+    int i;
+    for (i = lo; i < hi; i = i + 1) {
+        s = s * 7 % 10007 + a[i];
+    }
+    return s * 100 + i;
+}
+
+int upInclusive(int lo, int hi) {
+    int s = 0;
+    int i;
+    for (i = lo; i <= hi; i = i + 3) {
+        s = s * 7 % 10007 + a[i];
+    }
+    return s * 100 + i;
+}
+
+int down(int hi, int lo) {
+    int s = 0;
+    int i;
+    for (i = hi; i > lo; i = i - 2) {
+        s = s * 7 % 10007 + a[i];
+    }
+    return s * 100 + i;
+}
+
+int main() {
+    int n;
+    int k;
+    int i;
+    n = getint();
+    for (i = 0; i < 64; i = i + 1) {
+        a[i] = i * 5 % 17;
+    }
+    for (k = 0; k <= 9; k = k + 1) {
+        printf("%d: %d %d %d\n", k, up(0, n + k), upInclusive(1, n + k), down(n + k, 2));
+    }
+    printf("%d %d %d\n", up(n, n), upInclusive(n, n - 1), down(n, n));
+    printf("%d %d %d\n", up(n, 0), upInclusive(n + 5, n), down(0, n));
+    return 0;
+}
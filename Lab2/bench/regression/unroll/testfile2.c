@@ -0,0 +1,41 @@
+// 循环展开：次数是常数时完全展开或者按因子展开后剩下余数次，次数为 0 和 1 的循环，循环结束后使用归纳变量
+int a[64];
+
+int main() {
+    int n;
+    int i;
+    int j;
+    int s = 0;
+    n = getint();
+    for (i = 0; i < 7; i = i + 1) {
+        a[i] = i + n;
+    }
+    printf("%d %d\n", a[6], i);
+    for (i = 5; i < 5; i = i + 1) {
+        a[i] = 0;
+    }
+    printf("%d %d\n", a[5], i);
+    for (i = 3; i <= 3; i = i + 1) {
+        a[i] = a[i] * 2;
+    }
+    printf("%d %d\n", a[3], i);
+    for (i = 0; i < 30; i = i + 1) {
+        a[i + 7] = a[i] + n * i;
+    }
+    printf("%d %d %d\n", a[35], a[36], i);
+    for (i = 1; i < 38; i = i + 3) {
+        s = s * 3 % 997 + a[i];
+    }
+    printf("%d %d\n", s, i);
+    for (i = 40; i >= 0; i = i - 7) {
+        s = s * 5 % 991 + a[i];
+    }
+    printf("%d %d\n", s, i);
+    for (i = 0; i < 6; i = i + 1) {
+        for (j = 0; j < i; j = j + 1) {
+            s = s + a[i * 6 + j];
+        }
+    }
+    printf("%d %d %d\n", s, i, j);
+    return 0;
+}
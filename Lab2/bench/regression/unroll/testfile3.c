@@ -0,0 +1,29 @@
+// 循环展开：边界不是常数时，主循环比较的 bound - (因子 - 1) * 步长 可能溢出，这时只执行余数循环
+int countUp(int lo, int hi) {
+    int s = 0;
+    int i;
+    for (i = lo; i < hi; i = i + 1) {
+        s = s + 1;
+    }
+    return s;
+}
+
+int countDown(int hi, int lo) {
+    int s = 0;
+    int i;
+    for (i = hi; i > lo; i = i - 1) {
+        s = s + 2;
+    }
+    return s;
+}
+
+int main() {
+    int min;
+    int max;
+    min = getint();
+    max = getint();
+    printf("%d %d\n", countUp(min, min + 1), countUp(min, min + 6));
+    printf("%d %d\n", countDown(max, max - 1), countDown(max, max - 6));
+    printf("%d %d\n", countUp(max - 9, max), countDown(min + 9, min));
+    return 0;
+}
@@ -0,0 +1,141 @@
+import java.io.*;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量 / 常驻编译模式：一个 JVM 进程内用线程池并发编译多个源文件，
+ * 省去每个文件单独启动 JVM 和重新预热 JIT 的开销。
+ *
+ * java Compiler -batch <dir> [-j N] [-O0]   编译目录下所有 .c / .sy 文件，结果写到同名子目录
+ * java Compiler -server [-j N] [-O0]        从标准输入逐行读取任务：<源文件> [输出目录]
+ * 可以附加 -lexer -parser -symbol -llvm -mips 选择输出的产物，默认输出 llvm_ir.txt 和 mips.txt
+ */
+public class BatchCompiler {
+    private final ExecutorService workers;
+    private final Set<Compiler.Artifact> artifacts;
+    private final boolean optimize;
+    private final PrintStream log;
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public BatchCompiler(int threadNum, Set<Compiler.Artifact> artifacts, boolean optimize, PrintStream log) {
+        this.workers = Executors.newFixedThreadPool(threadNum);
+        this.artifacts = artifacts;
+        this.optimize = optimize;
+        this.log = log;
+    }
+
+    public static int run(String[] args) throws IOException, InterruptedException {
+        String mode = null;
+        File dir = null;
+        int threadNum = Runtime.getRuntime().availableProcessors();
+        EnumSet<Compiler.Artifact> artifacts = EnumSet.noneOf(Compiler.Artifact.class);
+        boolean optimize = true;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-batch" -> {
+                    mode = "batch";
+                    dir = new File(args[++i]);
+                }
+                case "-server" -> mode = "server";
+                case "-j" -> threadNum = Integer.parseInt(args[++i]);
+                case "-O0" -> optimize = false;
+                default -> {
+                    Compiler.Artifact artifact = Compiler.Artifact.ofFlag(args[i]);
+                    if (artifact == null) {
+                        printUsage();
+                        return 2;
+                    }
+                    artifacts.add(artifact);
+                }
+            }
+        }
+
+        if (mode == null) {
+            printUsage();
+            return 2;
+        }
+
+        if (artifacts.isEmpty()) {
+            artifacts = EnumSet.of(Compiler.Artifact.LLVM, Compiler.Artifact.MIPS);
+        }
+
+        BatchCompiler batchCompiler = new BatchCompiler(threadNum, artifacts, optimize, System.out);
+        if (mode.equals("batch")) {
+            batchCompiler.compileDirectory(dir);
+        } else {
+            batchCompiler.serve(new BufferedReader(new InputStreamReader(System.in)));
+        }
+        return batchCompiler.shutdown() == 0 ? 0 : 1;
+    }
+
+    private static void printUsage() {
+        System.err.println("usage: java Compiler -batch <dir> [-j N] [-O0] [-lexer] [-parser] [-symbol] [-llvm] [-mips]");
+        System.err.println("       java Compiler -server [-j N] [-O0] [...]   (stdin: <source> [outputDir] per line)");
+    }
+
+    // 目录模式：每个源文件对应一个任务，输出到与源文件同名（去掉扩展名）的子目录
+    public void compileDirectory(File dir) {
+        File[] sources = dir.listFiles((d, name) -> name.endsWith(".c") || name.endsWith(".sy"));
+        if (sources == null) {
+            log.println("fail " + dir + ": not a directory");
+            failures.incrementAndGet();
+            return;
+        }
+        Arrays.sort(sources);
+
+        for (File source : sources) {
+            submit(source, defaultOutputDir(source));
+        }
+    }
+
+    // 常驻模式：逐行读取任务直到输入结束，每个任务完成后立即输出一行结果
+    public void serve(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            File source = new File(parts[0]);
+            File outputDir = parts.length > 1 ? new File(parts[1]) : defaultOutputDir(source);
+            submit(source, outputDir);
+        }
+    }
+
+    private static File defaultOutputDir(File source) {
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(source.getAbsoluteFile().getParentFile(), dot > 0 ? name.substring(0, dot) : name + ".out");
+    }
+
+    public Future<?> submit(File source, File outputDir) {
+        return workers.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+                    throw new IOException("cannot create " + outputDir);
+                }
+                Compiler compiler = new Compiler(source, outputDir);
+                compiler.setParallel(false);
+                compiler.compile(artifacts, optimize);
+                log.printf("ok %s %dms%n", source, (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception | StackOverflowError e) {
+                failures.incrementAndGet();
+                log.printf("fail %s: %s%n", source, e);
+            }
+        });
+    }
+
+    // 等待所有已提交的任务结束，返回失败任务数
+    public int shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        log.flush();
+        return failures.get();
+    }
+}
@@ -1,206 +1,360 @@
+import backend.Emitter;
+import backend.ir.Function;
 import backend.ir.Module;
+import backend.target.Target;
 import backend.target.Translator;
 import error.CompileError;
 import error.ErrorRecorder;
 import exception.LexerException;
 import exception.ParserException;
 import frontend.lexer.Lexer;
-import frontend.lexer.Token;
 import frontend.lexer.TokenList;
 import frontend.parser.Parser;
 import frontend.parser.node.CompUnit;
 import frontend.parser.node.Node;
 import frontend.symtable.SymbolTable;
 import frontend.visitor.Visitor;
+import incremental.FunctionCache;
 import midend.*;
+import stats.CompileStatistics;
 
 import java.io.*;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.Consumer;
 
 public class Compiler {
-    private static ErrorRecorder errorRecorder = new ErrorRecorder();
-    private static TokenList tokenList = new TokenList();
+    // 可以输出的各阶段产物，声明顺序即流水线顺序
+    public enum Artifact {
+        LEXER("-lexer", "lexer.txt"),
+        PARSER("-parser", "parser.txt"),
+        SYMBOL("-symbol", "symbol.txt"),
+        LLVM("-llvm", "llvm_ir.txt"),
+        MIPS("-mips", "mips.txt");
 
-    public static void main(String[] args) throws IOException, ParserException, LexerException {
-        String filePath = Compiler.class.getResource("/testfile.txt").getPath();
-        //String filePath = "testfile.txt";
-        // 输入的代码文件
-        FileInputStream fileInputStream = new FileInputStream(filePath);
-        // 分词器
-        Lexer lexer = new Lexer(new InputStreamReader(fileInputStream), errorRecorder);
+        private final String flag;
+        private final String fileName;
 
-        //printLexerResult(lexer);
-        // 语法分析器
-        Parser parser = new Parser(lexer, errorRecorder);
+        Artifact(String flag, String fileName) {
+            this.flag = flag;
+            this.fileName = fileName;
+        }
 
-        // 语法分析
-        //parser(parser);
-        //parser.parse();
+        // 命令行参数对应的产物，不是产物参数时返回null
+        public static Artifact ofFlag(String flag) {
+            for (Artifact artifact : values()) {
+                if (artifact.flag.equals(flag)) {
+                    return artifact;
+                }
+            }
+            return null;
+        }
+    }
 
-        // 语义分析
-        //visit(parser);
+    // 每次编译各自持有的状态，保证批量模式下多个任务可以并发执行
+    private final ErrorRecorder errorRecorder = new ErrorRecorder();
+    private TokenList tokenList = new TokenList();
+    private final File sourceFile;
+    private final File outputDir;
+    private CompileStatistics statistics = null;
+    private File cacheDir = null;
+    private boolean parallel = true;
+    private OptimizeOptions optimizeOptions = new OptimizeOptions();
 
-        // 代码生成一
-        //generateLLVM(parser);
+    public Compiler(File sourceFile, File outputDir) {
+        this.sourceFile = sourceFile;
+        this.outputDir = outputDir;
+    }
 
-        // 代码生成二
-        generateMIPS(parser, true );
+    /**
+     * java Compiler [-lexer] [-parser] [-symbol] [-llvm] [-mips] [-O0] [-time-passes] [-stats] [-incremental 缓存目录] [-o 输出目录] [优化参数] [源文件]
+     * 不指定产物时只生成 mips.txt，不指定源文件时读取 classpath 下的 testfile.txt
+     * -time-passes 在标准错误输出各阶段、各优化遍的耗时和内存分配，-stats 输出中间代码的变化量和后端统计
+     * -incremental 把每个函数的汇编缓存到目录中，下次编译时没有改动的函数不再优化和翻译
+     * 优化参数形如 -inline-threshold N、-unroll-factor N，见 OptimizeOptions
+     */
+    public static void main(String[] args) throws IOException, LexerException, InterruptedException {
+        List<String> argList = Arrays.asList(args);
+        if (argList.contains("-batch") || argList.contains("-server")) {
+            System.exit(BatchCompiler.run(args));
+        }
 
-        printError();
-    }
+        EnumSet<Artifact> artifacts = EnumSet.noneOf(Artifact.class);
+        boolean optimize = true;
+        boolean timePasses = false;
+        boolean printStats = false;
+        File cacheDir = null;
+        File sourceFile = null;
+        File outputDir = new File(".");
+        OptimizeOptions optimizeOptions = new OptimizeOptions();
+        for (int i = 0; i < args.length; i++) {
+            Artifact artifact = Artifact.ofFlag(args[i]);
+            if (artifact != null) {
+                artifacts.add(artifact);
+            } else if (args[i].equals("-O0")) {
+                optimize = false;
+            } else if (args[i].equals("-time-passes")) {
+                timePasses = true;
+            } else if (args[i].equals("-stats")) {
+                printStats = true;
+            } else if (args[i].equals("-incremental") && i + 1 < args.length) {
+                cacheDir = new File(args[++i]);
+            } else if (args[i].equals("-o") && i + 1 < args.length) {
+                outputDir = new File(args[++i]);
+            } else if (i + 1 < args.length && optimizeOptions.set(args[i], args[i + 1])) {
+                i++;
+            } else if (!args[i].startsWith("-") && sourceFile == null) {
+                sourceFile = new File(args[i]);
+            } else {
+                System.err.println("usage: java Compiler [-lexer] [-parser] [-symbol] [-llvm] [-mips] [-O0] [-time-passes] [-stats] [-incremental dir] [-o dir] [-inline-threshold N] [-unroll-factor N] [source]");
+                System.err.println("       java Compiler -batch <dir> | -server [-j N] [-O0] [stage flags]");
+                System.exit(2);
+            }
+        }
 
-    public static void lexer(Lexer lexer) throws LexerException, IOException {
-        while (lexer.next()){
-            Token token = lexer.getToken();
-            System.out.println("读取到Token: " + token.getTokenType().name() + " " + token.getTokenContent());
-            tokenList.addToken(token);
+        if (artifacts.isEmpty()) {
+            artifacts.add(Artifact.MIPS);
+        }
+        if (sourceFile == null) {
+            sourceFile = new File(Compiler.class.getResource("/testfile.txt").getPath());
+        }
+
+        Compiler compiler = new Compiler(sourceFile, outputDir);
+        CompileStatistics statistics = timePasses || printStats ? new CompileStatistics() : null;
+        compiler.setStatistics(statistics);
+        compiler.setIncrementalCache(cacheDir);
+        compiler.setOptimizeOptions(optimizeOptions);
+        boolean syntaxError = false;
+        try {
+            compiler.compile(artifacts, optimize);
+        } catch (ParserException e) {
+            System.err.println(sourceFile + ": " + e.getMessage());
+            syntaxError = true;
+        } finally {
+            if (timePasses) {
+                statistics.printTimeReport(System.err);
+            }
+            if (printStats) {
+                statistics.printStatistics(System.err);
+            }
+        }
+        if (syntaxError) {
+            System.exit(1);
         }
     }
 
-    //输出分词结果到文件中
-    public static void printLexerResult(Lexer lexer) throws IOException{
-        // 将所有需要自动关闭的流都放在try的括号中
-        try(
-                FileOutputStream lexerOutputStream = new FileOutputStream("lexer.txt");
-                PrintStream lexerPrintStream = new PrintStream(lexerOutputStream);
-                FileOutputStream errorOutputStream = new FileOutputStream("error.txt");
-                PrintStream errorPrintStream = new PrintStream(errorOutputStream);
-        ){
-            //进行分词
-            lexer(lexer);
+    /**
+     * 一次编译：词法、语法、语义分析都只做一遍，
+     * 各阶段的结果按需交给对应的输出，最后总是输出 error.txt
+     */
+    public void compile(Set<Artifact> artifacts, boolean optimize) throws IOException, LexerException, ParserException {
+        CompileStatistics.Timer total = startTimer("total");
 
-            //错误信息
-            if(errorRecorder.hasErrors()){
-                for(CompileError error : errorRecorder.getErrors()){
-                    errorPrintStream.printf("%d %s\n", error.getLineNum(), error.getType());
-                }
+        try {
+            // 词法分析
+            CompileStatistics.Timer timer = startTimer("lexer");
+            Lexer lexer = new Lexer(Files.readAllBytes(sourceFile.toPath()), errorRecorder);
+            tokenList = lexer.tokenize();
+            stopTimer(timer);
+            if (artifacts.contains(Artifact.LEXER)) {
+                writeArtifact(Artifact.LEXER, this::printLexerResult);
             }
-            errorPrintStream.flush();
 
-            //分词结果
-            if(!errorRecorder.hasErrors()){
-                for(Token token : tokenList.getTokenList()) {
-                    lexerPrintStream.printf("%s %s\n", token.getTokenType().name(), token.getTokenContent());
-                }
+            // 只需要走到最后一个被请求的阶段
+            Artifact last = Collections.max(artifacts);
+            if (last.compareTo(Artifact.PARSER) < 0) {
+                return;
             }
-            lexerPrintStream.flush();
-        } catch (LexerException | FileNotFoundException e) {
-            throw new RuntimeException(e);
-        }
-    }
 
-    public static void parser(Parser parser) throws IOException, LexerException, LexerException, ParserException {
-        try(
-            FileOutputStream fileOutputStream = new FileOutputStream("parser.txt")){
-            PrintStream out = new PrintStream(fileOutputStream);
-            Node result = parser.parse();
-
-            result.walk(
-                    // Consumer 负责遇到节点时“做什么”
-                    out::println, // 对终端符号的操作是 out::println（打印终端符号到文件）
-                    nonTerminalSymbol -> { // 对非终端符号的操作是 “过滤掉 BlockItem、Decl、BType 后打印”
-                        String type = nonTerminalSymbol.getType();
-                        if(!type.equals("BlockItem")
-                            && !type.equals("Decl")
-                            && !type.equals("BType")
-                        ){
-                            out.println(nonTerminalSymbol);
+            // 语法分析
+            timer = startTimer("parser");
+            Parser parser = new Parser(tokenList, errorRecorder);
+            Node root;
+            try {
+                root = parser.parse();
+            } catch (ParserException e) {
+                // 无法恢复的语法错误不属于 error.txt 中的任何一类，带上行号交给调用者报告，之后的阶段都不再进行
+                throw new ParserException("syntax error near line " + parser.getCurrentLine());
+            } finally {
+                stopTimer(timer);
+            }
+            if (artifacts.contains(Artifact.PARSER)) {
+                writeArtifact(Artifact.PARSER, out -> printParserResult(root, out));
+            }
+            if (last.compareTo(Artifact.SYMBOL) < 0) {
+                return;
+            }
+
+            // 语义分析与中间代码生成在同一遍遍历中完成
+            timer = startTimer("visitor");
+            Visitor visitor = new Visitor(errorRecorder);
+            Module module = visitor.generateIR(root);
+            stopTimer(timer);
+            if (artifacts.contains(Artifact.SYMBOL)) {
+                writeArtifact(Artifact.SYMBOL, out -> printSymbolTable(visitor.getSymbolTable(), out));
+            }
+            if (artifacts.contains(Artifact.LLVM)) {
+                emitArtifact(Artifact.LLVM, out -> printLLVM(module, out));
+            }
+
+            // 代码生成
+            if (artifacts.contains(Artifact.MIPS)) {
+                // 有错误时输出的汇编没有意义，不读写缓存
+                FunctionCache cache = null;
+                Map<Function, byte[]> precompiled = new HashMap<>();
+                List<Function> toCompile = module.getFunctions();
+                if (cacheDir != null && !errorRecorder.hasErrors()) {
+                    timer = startTimer("incremental lookup");
+                    cache = new FunctionCache(cacheDir, tokenList, (CompUnit) root, optimize ? optimizeOptions : null);
+                    toCompile = new ArrayList<>();
+                    int compiledNum = 0;
+                    for (Function function : module.getFunctions()) {
+                        // getint 等库函数没有函数体，每次直接生成
+                        byte[] text = function.getBasicBlocks().isEmpty() ? null : cache.load(function.getName().substring(1));
+                        if (text != null) {
+                            precompiled.put(function, text);
+                        } else {
+                            toCompile.add(function);
+                            compiledNum += function.getBasicBlocks().isEmpty() ? 0 : 1;
                         }
                     }
-            );
+                    stopTimer(timer);
+                    if (statistics != null) {
+                        statistics.count("incremental", "functions reused", precompiled.size());
+                        statistics.count("incremental", "functions compiled", compiledNum);
+                    }
+                }
+
+                if (optimize) {
+                    timer = startTimer("optimize");
+                    Optimizer.optimize(cache == null ? module : module.withFunctions(toCompile), optimizeOptions, statistics, parallel);
+                    stopTimer(timer);
+                }
+
+                timer = startTimer("translate");
+                Translator translator = new Translator();
+                translator.setStatistics(statistics);
+                translator.setParallel(parallel);
+                translator.setPrecompiled(precompiled);
+                translator.translate(module);
+                stopTimer(timer);
+                emitArtifact(Artifact.MIPS, out -> translator.getAsmTarget().dump(out, false));
+
+                if (cache != null) {
+                    timer = startTimer("incremental store");
+                    storeFunctions(cache, translator);
+                    stopTimer(timer);
+                }
+            }
+        } finally {
+            printError();
+            stopTimer(total);
         }
     }
 
-    public static void visit(Parser parser) throws FileNotFoundException {
-        try(
-                FileOutputStream fileOutputStream = new FileOutputStream("symbol.txt")
-        ){
-            PrintStream out = new PrintStream(fileOutputStream);
-            Node result = parser.parse(); // 进行语义分析
-
-            Visitor visitor = new Visitor(errorRecorder);
-            SymbolTable symbolTable = visitor.visitCompUnit((CompUnit) result);
+    // -time-passes / -stats 时记录统计信息，输出由调用者负责
+    public void setStatistics(CompileStatistics statistics) {
+        this.statistics = statistics;
+    }
 
-            // 全局作用域序号为1
-            int[] initScopeId = {1};
-            symbolTable.printSymbolTable(out, 0, initScopeId);
+    // 为 true 时（默认）按函数并行优化和翻译；批量模式下多个文件已经并发编译，关闭以免线程过多
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (ParserException e) {
-            throw new RuntimeException(e);
-        } catch (LexerException e) {
-            throw new RuntimeException(e);
-        }
+    public void setOptimizeOptions(OptimizeOptions optimizeOptions) {
+        this.optimizeOptions = optimizeOptions;
     }
 
-    public static void generateLLVM(Parser parser) throws IOException {
-        try(
-                FileOutputStream fileOutputStream = new FileOutputStream("llvm_ir.txt")
-        ){
-            PrintStream out = new PrintStream(fileOutputStream);
-            Node result = parser.parse();
+    // 不为 null 时使用增量编译，函数级缓存放在该目录下
+    public void setIncrementalCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
 
-            Visitor visitor = new Visitor(errorRecorder);
-            Module module = visitor.generateIR(result);
-
-            out.print("""
-                    declare i32 @getint()
-                    declare void @putint(i32)
-                    declare void @putch(i32)
-                    declare void @putstr(i8*)
-                    
-                    """);
-            module.dump(out);
-        } catch (ParserException e) {
-            throw new RuntimeException(e);
-        } catch (LexerException e) {
-            throw new RuntimeException(e);
+    // 缓存中的文本与 Target 输出的一致：每条一行，最后一行不带换行（拼接时由 Target 补上）
+    private static void storeFunctions(FunctionCache cache, Translator translator) throws IOException {
+        for (Function function : translator.getTranslatedFunctions()) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (Emitter out = new Emitter(outputStream)) {
+                Target.dumpText(out, translator.getFunctionText(function), false);
+            }
+            byte[] text = outputStream.toByteArray();
+            cache.store(function.getName().substring(1), Arrays.copyOf(text, text.length - 1));
         }
     }
 
-    private static void generateMIPS(Parser parser, boolean optimize) throws IOException, LexerException, LexerException, ParserException {
-        try(
-                FileOutputStream fileOutputStream = new FileOutputStream("mips.txt")
-        ){
-            PrintStream out = new PrintStream(fileOutputStream);
-            Node result = parser.parse();
-            Visitor visitor = new Visitor(errorRecorder);
-            Module module = visitor.generateIR(result);
+    private CompileStatistics.Timer startTimer(String name) {
+        return statistics == null ? null : statistics.start(name);
+    }
 
-            if (optimize){
-                module = optimize(module);
-            }
+    private static void stopTimer(CompileStatistics.Timer timer) {
+        if (timer != null) {
+            timer.stop();
+        }
+    }
 
-            Translator translator = new Translator();
-            translator.translate(module);
-            translator.getAsmTarget().dump(out, false);
+    private void writeArtifact(Artifact artifact, Consumer<PrintStream> writer) throws FileNotFoundException {
+        CompileStatistics.Timer timer = startTimer("emit " + artifact.fileName);
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(new File(outputDir, artifact.fileName))))) {
+            writer.accept(out);
         }
+        stopTimer(timer);
     }
 
-    private static Module optimize(Module module) {
-        while (true){
-            ConstPropagatePass pass1 = new ConstPropagatePass(module);
-            module = pass1.pass();
-            ConstFoldPass pass2 = new ConstFoldPass(module);
-            module = pass2.pass();
+    // 中间代码和汇编体积大，直接写字节缓冲区，经 FileChannel 输出
+    private void emitArtifact(Artifact artifact, Consumer<Emitter> writer) throws IOException {
+        CompileStatistics.Timer timer = startTimer("emit " + artifact.fileName);
+        try (Emitter out = Emitter.open(new File(outputDir, artifact.fileName))) {
+            writer.accept(out);
+        }
+        stopTimer(timer);
+    }
 
-            if (!pass1.isImprove() && !pass2.isImprove()) {
-                break;
+    //输出分词结果，有错误时不输出
+    private void printLexerResult(PrintStream out) {
+        if (!errorRecorder.hasErrors()) {
+            for (int i = 0; i < tokenList.size(); i++) {
+                out.printf("%s %s\n", tokenList.getType(i).name(), tokenList.getContent(i));
             }
         }
-        module = new LVNPass(module).pass();
-        module = new DeadStorePass(module).pass();
-        module = new DeadCodePass(module).pass();
+    }
+
+    private static void printParserResult(Node root, PrintStream out) {
+        root.walk(
+                // Consumer 负责遇到节点时“做什么”
+                out::println, // 对终端符号的操作是 out::println（打印终端符号到文件）
+                nonTerminalSymbol -> { // 对非终端符号的操作是 “过滤掉 BlockItem、Decl、BType 后打印”
+                    String type = nonTerminalSymbol.getType();
+                    if(!type.equals("BlockItem")
+                        && !type.equals("Decl")
+                        && !type.equals("BType")
+                    ){
+                        out.println(nonTerminalSymbol);
+                    }
+                }
+        );
+    }
+
+    private static void printSymbolTable(SymbolTable symbolTable, PrintStream out) {
+        // 全局作用域序号为1
+        int[] initScopeId = {1};
+        symbolTable.printSymbolTable(out, 0, initScopeId);
+    }
 
-        return module;
+    private static void printLLVM(Module module, Emitter out) {
+        out.write("""
+                declare i32 @getint()
+                declare void @putint(i32)
+                declare void @putch(i32)
+                declare void @putstr(i8*)
+                
+                """);
+        module.dump(out);
     }
 
-    public static void printError() throws IOException{
+    public void printError() throws IOException{
         try(
-                FileOutputStream errorOutputStream = new FileOutputStream("error.txt");
+                FileOutputStream errorOutputStream = new FileOutputStream(new File(outputDir, "error.txt"));
                 PrintStream errorPrintStream = new PrintStream(errorOutputStream);
         ) {
             //错误信息
@@ -0,0 +1,138 @@
+package backend;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 输出中间代码和汇编用的字节缓冲区：字符直接写进一块可重复使用的大缓冲区，写满后整块交给通道，
+ * 不经过 PrintStream 的格式化和编码，输出一条指令不需要创建 String 或 Formatter
+ *
+ * 非 ASCII 字符按平台默认编码写出，与 PrintStream 的输出逐字节相同
+ */
+public class Emitter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer byteBuffer;
+    private int position = 0;
+    private final byte[] digits = new byte[11];
+
+    public Emitter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = new byte[bufferSize];
+        this.byteBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    public Emitter(WritableByteChannel channel) {
+        this(channel, BUFFER_SIZE);
+    }
+
+    // 写到已有的输出流，例如标准输出或者调试用的 PrintStream
+    public Emitter(OutputStream out) {
+        this(Channels.newChannel(out));
+    }
+
+    public static Emitter open(File file) throws IOException {
+        return new Emitter(FileChannel.open(file.toPath(),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    public Emitter write(byte[] bytes) {
+        if (bytes.length > buffer.length - position) {
+            flush();
+            if (bytes.length > buffer.length) {
+                writeToChannel(ByteBuffer.wrap(bytes));
+                return this;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+    }
+
+    // 只用于 ASCII 字符
+    public Emitter write(char c) {
+        if (position == buffer.length) {
+            flush();
+        }
+        buffer[position++] = (byte) c;
+        return this;
+    }
+
+    public Emitter write(String s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                return write(s.substring(i).getBytes(Charset.defaultCharset()));
+            }
+            write(c);
+        }
+        return this;
+    }
+
+    // 指令名、比较条件等枚举名以小写形式输出
+    public Emitter writeLowerCase(String s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            write(Character.toLowerCase(s.charAt(i)));
+        }
+        return this;
+    }
+
+    public Emitter write(int value) {
+        if (value == Integer.MIN_VALUE) {
+            return write(Integer.toString(value));
+        }
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            write((char) digits[--count]);
+        }
+        return this;
+    }
+
+    public Emitter write(Object object) {
+        if (object instanceof Integer integer) {
+            return write(integer.intValue());
+        }
+        return write(object.toString());
+    }
+
+    public void flush() {
+        if (position > 0) {
+            byteBuffer.clear().limit(position);
+            writeToChannel(byteBuffer);
+            position = 0;
+        }
+    }
+
+    private void writeToChannel(ByteBuffer bytes) {
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,33 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * 按函数并行的优化和代码生成：每一项是一个独立的任务，在 ForkJoinPool 公共池中执行，
+ * 结果按输入的顺序返回，由调用者依次合并，输出与串行执行时相同
+ */
+public class Parallel {
+    // parallel 为 false 或只有一项时在当前线程中依次执行；任务抛出的异常由 join 重新抛出
+    public static <T, R> List<R> map(List<T> items, boolean parallel, Function<T, R> task) {
+        List<R> results = new ArrayList<>(items.size());
+        if (!parallel || items.size() <= 1) {
+            for (T item : items) {
+                results.add(task.apply(item));
+            }
+            return results;
+        }
+
+        List<ForkJoinTask<R>> tasks = new ArrayList<>(items.size());
+        for (T item : items) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> task.apply(item)));
+        }
+        for (ForkJoinTask<R> forkJoinTask : tasks) {
+            results.add(forkJoinTask.join());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,25 @@
+package backend.ir;
+
+/**
+ * 缓存在 Function 上的分析结果的键，用对象身份区分。
+ * 所有分析在控制流图变化时都会失效；cfgOnly 的分析只依赖控制流图（支配树等），只改指令时仍然有效，
+ * 其余分析（活跃变量等）在优化遍修改了函数、又没有声明保留它们时失效
+ */
+public final class AnalysisKey {
+    private final String name;
+    private final boolean cfgOnly;
+
+    public AnalysisKey(String name, boolean cfgOnly) {
+        this.name = name;
+        this.cfgOnly = cfgOnly;
+    }
+
+    public boolean isCfgOnly() {
+        return cfgOnly;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,5 +1,7 @@
 package backend.ir;
 
+import backend.Emitter;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -108,6 +110,20 @@ public class ArrayIRType extends IRType{
         return sb.toString();
     }
 
+    @Override
+    public void emit(Emitter out, int ptrNum) {
+        for (Integer dim : arrayDims) {
+            out.write('[').write(dim.intValue()).write(" x ");
+        }
+        elementType.emit(out);
+        for (int i = 0; i < arrayDims.size(); i++) {
+            out.write(']');
+        }
+        for (int i = 0; i < ptrNum; i++) {
+            out.write('*');
+        }
+    }
+
     @Override
     public IRTypeEnum getType(){
         return IRTypeEnum.ARRAY;
@@ -1,36 +1,43 @@
 package backend.ir;
 
+import backend.Emitter;
 import backend.ir.inst.*;
 
-import java.io.PrintStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 public class BasicBlock extends Value{
-    private final List<Instruction> instructions = new ArrayList<>();
+    // 指令组成双向链表，插入和删除都是 O(1)
+    private Instruction firstInstruction = null;
+    private Instruction lastInstruction = null;
+    private int instructionNum = 0;
     private final Function function;
-    private int loopNum = 0;
+
+    // 控制流图：块中第一条 br / ret 是终结指令，之后的指令不会执行；
+    // 前驱表随终结指令的插入、删除和跳转目标的修改同步更新，同一个前驱可能出现多次
+    private int index = -1; // 在函数中的位置，由 Function 维护
+    private Instruction terminator = null;
+    private final List<BasicBlock> predecessors = new ArrayList<>();
 
     public BasicBlock(Function belongFunc){
         super(new BasicIRType(IRTypeEnum.LABEL));
         this.function = belongFunc;
     }
 
-    public int getLoopNum(){
-        return loopNum;
+    public Function getFunction(){
+        return function;
     }
 
-    public void setLoopNum(int loopNum){
-        this.loopNum = loopNum;
+    public int getIndex(){
+        return index;
     }
 
-    public Function getFunction(){
-        return function;
+    void setIndex(int index){
+        this.index = index;
     }
 
+    // 布局中的下一个块，O(1)
     public BasicBlock getNextBasicBlock(){
         List<BasicBlock> basicBlocks = function.getBasicBlocks();
-        int index = basicBlocks.indexOf(this);
         if(index == -1 || index == basicBlocks.size() - 1){
             return null;
         }else {
@@ -38,12 +45,124 @@ public class BasicBlock extends Value{
         }
     }
 
+    public Instruction getTerminator(){
+        return terminator;
+    }
+
+    public List<BasicBlock> getPredecessors(){
+        return Collections.unmodifiableList(predecessors);
+    }
+
+    // 终结指令是 ret 或者没有终结指令时为空
+    public List<BasicBlock> getSuccessors(){
+        if (terminator instanceof BrInst brInst){
+            return brInst.getSuccessors();
+        }
+        return List.of();
+    }
+
+    private static boolean isTerminator(Instruction inst){
+        return inst instanceof BrInst || inst instanceof ReturnInst;
+    }
+
+    private void setTerminator(Instruction newTerminator){
+        unlinkSuccessors(terminator);
+        terminator = newTerminator;
+        linkSuccessors(terminator);
+    }
+
+    // 由 BrInst 在修改跳转目标前调用：inst 是本块的终结指令时删除它产生的边
+    public void unlinkSuccessors(Instruction inst){
+        if (inst == null || inst != terminator){
+            return;
+        }
+        for (BasicBlock successor : getSuccessors()){
+            successor.predecessors.remove(this);
+        }
+        function.invalidateCfg();
+    }
+
+    // 由 BrInst 在修改跳转目标后调用：inst 是本块的终结指令时加上它产生的边
+    public void linkSuccessors(Instruction inst){
+        if (inst == null || inst != terminator){
+            return;
+        }
+        for (BasicBlock successor : getSuccessors()){
+            successor.predecessors.add(this);
+        }
+        function.invalidateCfg();
+    }
+
     private Value insertInstruction(Instruction inst){
-        instructions.add(inst);
-        inst.setBasicBlock(this);
+        addInstruction(inst);
         return inst;
     }
 
+    // 把 inst 加到块末尾
+    public void addInstruction(Instruction inst){
+        addInstructionBefore(inst, null);
+    }
+
+    // 把 inst 插到 before 之前，before 为 null 时加到块末尾
+    public void addInstructionBefore(Instruction inst, Instruction before){
+        Instruction prev = before == null ? lastInstruction : before.getPrev();
+        inst.setPrev(prev);
+        inst.setNext(before);
+        if (prev == null){
+            firstInstruction = inst;
+        }else {
+            prev.setNext(inst);
+        }
+        if (before == null){
+            lastInstruction = inst;
+        }else {
+            before.setPrev(inst);
+        }
+        inst.setBasicBlock(this);
+        instructionNum++;
+
+        // 追加到末尾时 inst 后面没有指令，判断是否在原终结指令之前是 O(1) 的
+        if (isTerminator(inst) && (terminator == null || precedes(inst, terminator))){
+            setTerminator(inst);
+        }
+    }
+
+    private static boolean precedes(Instruction inst, Instruction other){
+        for (Instruction curr = inst.getNext(); curr != null; curr = curr.getNext()){
+            if (curr == other){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 由 Instruction.removeFromParent 调用
+    public void removeInstruction(Instruction inst){
+        if (inst == terminator){
+            Instruction newTerminator = inst.getNext();
+            while (newTerminator != null && !isTerminator(newTerminator)){
+                newTerminator = newTerminator.getNext();
+            }
+            setTerminator(newTerminator);
+        }
+
+        Instruction prev = inst.getPrev(), next = inst.getNext();
+        if (prev == null){
+            firstInstruction = next;
+        }else {
+            prev.setNext(next);
+        }
+        if (next == null){
+            lastInstruction = prev;
+        }else {
+            next.setPrev(prev);
+        }
+        inst.setPrev(null);
+        inst.setNext(null);
+        inst.setBasicBlock(null);
+        instructionNum--;
+    }
+
     private Integer getImmediateValue(Value value){
         if(value instanceof ImmediateValue iValue){
             return iValue.getValue();
@@ -154,13 +273,25 @@ public class BasicBlock extends Value{
 
     public Value createAllocInstAndInsert(IRType type){
         AllocInst allocInst = new AllocInst(type);
-        int insertPos;
-        for (insertPos = 0; insertPos < instructions.size() && instructions.get(insertPos) instanceof AllocInst; insertPos++);
-        instructions.add(insertPos, allocInst);
-        allocInst.setBasicBlock(this);
+        Instruction insertPos = firstInstruction;
+        while (insertPos instanceof AllocInst){
+            insertPos = insertPos.getNext();
+        }
+        addInstructionBefore(allocInst, insertPos);
         return allocInst;
     }
 
+    // phi 插在块开头已有的 phi 之后
+    public PhiInst createPhiInst(IRType type){
+        PhiInst phi = new PhiInst(type);
+        Instruction insertPos = firstInstruction;
+        while (insertPos instanceof PhiInst){
+            insertPos = insertPos.getNext();
+        }
+        addInstructionBefore(phi, insertPos);
+        return phi;
+    }
+
     public Value createICmpInst(ICmpInstCond cond, Value left, Value right){
         return insertInstruction(new ICmpInst(cond, left, right));
     }
@@ -181,8 +312,47 @@ public class BasicBlock extends Value{
         return insertInstruction(new ZExtInst(dstType, value));
     }
 
-    public List<Instruction> getInstructions(){
-        return instructions;
+    // 按顺序遍历指令，遍历过程中可以删除当前指令
+    public Iterable<Instruction> getInstructions(){
+        return () -> new Iterator<>() {
+            private Instruction next = firstInstruction;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Instruction next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Instruction curr = next;
+                next = curr.getNext();
+                return curr;
+            }
+        };
+    }
+
+    // 块开头的所有 phi
+    public List<PhiInst> getPhis(){
+        List<PhiInst> phis = new ArrayList<>();
+        for (Instruction inst = firstInstruction; inst instanceof PhiInst phi; inst = inst.getNext()){
+            phis.add(phi);
+        }
+        return phis;
+    }
+
+    public Instruction getFirstInstruction(){
+        return firstInstruction;
+    }
+
+    public Instruction getLastInstruction(){
+        return lastInstruction;
+    }
+
+    public int getInstructionNum(){
+        return instructionNum;
     }
 
     @Override
@@ -190,13 +360,23 @@ public class BasicBlock extends Value{
         return "%b" + super.getName();
     }
 
-    public void dump(PrintStream out){
-        out.printf("b%s:\n", super.getName());
+    @Override
+    protected NameAllocator getNameAllocator(){
+        return function.getNameAllocator();
+    }
+
+    @Override
+    public void emitName(Emitter out){
+        out.write("%b").write(super.getName());
+    }
+
+    public void dump(Emitter out){
+        out.write('b').write(super.getName()).write(":\n");
 
-        for (Instruction instruction : instructions){
+        for (Instruction instruction = firstInstruction; instruction != null; instruction = instruction.getNext()){
             instruction.dump(out);
         }
 
-        out.print("\n");
+        out.write('\n');
     }
 }
@@ -1,5 +1,7 @@
 package backend.ir;
 
+import backend.Emitter;
+
 import java.util.List;
 
 public class BasicIRType extends IRType{
@@ -26,6 +28,14 @@ public class BasicIRType extends IRType{
         return sb;
     }
 
+    @Override
+    public void emit(Emitter out, int ptrNum) {
+        out.write(type.toString());
+        for (int i = 0; i < ptrNum; i++) {
+            out.write('*');
+        }
+    }
+
     @Override
     public IRTypeEnum getType() {
         return type;
@@ -1,8 +1,10 @@
 package backend.ir;
 
-import java.io.PrintStream;
-import java.util.ArrayList;
-import java.util.List;
+import backend.Emitter;
+import backend.ir.inst.Instruction;
+
+import java.util.*;
+import java.util.function.Supplier;
 
 public class Function extends Value{
     private boolean isLibrary = false;
@@ -11,17 +13,13 @@ public class Function extends Value{
     private final List<FunctionArgument> arguments = new ArrayList<>();
     private final List<BasicBlock> basicBlocks = new ArrayList<>();
 
-    public static Function BUILD_IN_GETINT = new Function(IRType.getInt(), List.of());
-    public static Function BUILD_IN_PUTINT = new Function(IRType.getVoid(), List.of(IRType.getInt()));
-    public static Function BUILD_IN_PUTCH = new Function(IRType.getVoid(), List.of(IRType.getInt()));
-    public static Function BUILD_IN_PUTSTR = new Function(IRType.getVoid(), List.of(IRType.getChar().ptr(1)));
-
-    static {
-        BUILD_IN_GETINT.setName("getint");
-        BUILD_IN_PUTINT.setName("putint");
-        BUILD_IN_PUTCH.setName("putch");
-        BUILD_IN_PUTSTR.setName("putstr");
-    }
+    // 控制流图每次变化时加一，据此判断缓存的遍历顺序（以及其他分析结果）是否过期
+    private int cfgVersion = 0;
+    private List<BasicBlock> postOrder = null;
+    private List<BasicBlock> reversePostOrder = null;
+    // 缓存的分析结果，见 AnalysisKey
+    private final Map<AnalysisKey, Object> analyses = new HashMap<>();
+    private final NameAllocator nameAllocator = new NameAllocator();
 
     public boolean isLibrary() {
         return isLibrary;
@@ -35,7 +33,7 @@ public class Function extends Value{
         super(retType);
         this.retType = retType;
         for(IRType argType : argTypes){
-            arguments.add(new FunctionArgument(argType));
+            arguments.add(new FunctionArgument(this, argType));
         }
     }
 
@@ -55,41 +53,183 @@ public class Function extends Value{
         return arguments;
     }
 
+    // 按布局顺序，只读
     public List<BasicBlock> getBasicBlocks(){
-        return basicBlocks;
+        return Collections.unmodifiableList(basicBlocks);
     }
 
     public BasicBlock createBasicBlock(){
         BasicBlock basicBlock = new BasicBlock(this);
+        basicBlock.setIndex(basicBlocks.size());
         basicBlocks.add(basicBlock);
+        invalidateCfg();
         return basicBlock;
     }
 
+    // 在 after 之后按顺序插入 count 个新块，用于把一段代码放在原来的位置附近（函数内联）
+    public List<BasicBlock> createBasicBlocksAfter(BasicBlock after, int count){
+        List<BasicBlock> newBlocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            newBlocks.add(new BasicBlock(this));
+        }
+        basicBlocks.addAll(after.getIndex() + 1, newBlocks);
+        for (int i = after.getIndex() + 1; i < basicBlocks.size(); i++){
+            basicBlocks.get(i).setIndex(i);
+        }
+        invalidateCfg();
+        return newBlocks;
+    }
+
+    // 删除一组块（不能包含入口块）：先删掉它们发出的边，有结果的指令的使用换成 0，
+    // 其余块中 phi 从这些块流入的项由调用者处理
+    public void removeBasicBlocks(Set<BasicBlock> blocksToRemove){
+        if (blocksToRemove.isEmpty()){
+            return;
+        }
+        for (BasicBlock block : blocksToRemove){
+            for (Instruction inst : block.getInstructions()){
+                if (inst.isUsed()){
+                    inst.replaceAllUsesWith(new ImmediateValue(0));
+                }
+                inst.eraseFromParent();
+            }
+        }
+        basicBlocks.removeAll(blocksToRemove);
+        for (int i = 0; i < basicBlocks.size(); i++){
+            basicBlocks.get(i).setIndex(i);
+        }
+        for (BasicBlock block : blocksToRemove){
+            block.setIndex(-1);
+        }
+        invalidateCfg();
+    }
+
+    public NameAllocator getNameAllocator(){
+        return nameAllocator;
+    }
+
+    // 函数和全局变量被所有函数中的指令使用，并行处理不同函数时 use 链表的修改需要同步
+    @Override
+    synchronized void addUse(Use use){
+        super.addUse(use);
+    }
+
+    @Override
+    synchronized void removeUse(Use use){
+        super.removeUse(use);
+    }
+
+    public int getCfgVersion(){
+        return cfgVersion;
+    }
+
+    // 块或边发生变化时调用；BasicBlock、BrInst 修改边时会自动调用，所有分析结果都失效
+    public void invalidateCfg(){
+        cfgVersion++;
+        postOrder = null;
+        reversePostOrder = null;
+        analyses.clear();
+    }
+
+    // 修改了指令之后调用（由 PassManager 根据优化遍声明保留的分析调用）：只依赖控制流图的分析和 preserved 中的分析保留
+    public void invalidateAnalyses(Set<AnalysisKey> preserved){
+        analyses.keySet().removeIf(key -> !key.isCfgOnly() && !preserved.contains(key));
+    }
+
+    // 取缓存的分析结果，没有或已失效时用 compute 重新计算
+    @SuppressWarnings("unchecked")
+    public <T> T getAnalysis(AnalysisKey key, Supplier<T> compute){
+        Object result = analyses.get(key);
+        if (result == null){
+            result = compute.get();
+            analyses.put(key, result);
+        }
+        return (T) result;
+    }
+
+    // 从入口可达的块的后序，控制流图不变时复用上次的结果
+    public List<BasicBlock> getPostOrder(){
+        if (postOrder == null){
+            postOrder = Collections.unmodifiableList(computePostOrder());
+        }
+        return postOrder;
+    }
+
+    // 从入口可达的块的逆后序，前驱（回边除外）都排在块之前
+    public List<BasicBlock> getReversePostOrder(){
+        if (reversePostOrder == null){
+            List<BasicBlock> order = new ArrayList<>(getPostOrder());
+            Collections.reverse(order);
+            reversePostOrder = Collections.unmodifiableList(order);
+        }
+        return reversePostOrder;
+    }
+
+    // 用显式栈做深度优先遍历，块很多时也不会栈溢出
+    private List<BasicBlock> computePostOrder(){
+        List<BasicBlock> order = new ArrayList<>(basicBlocks.size());
+        if (basicBlocks.isEmpty()){
+            return order;
+        }
+        boolean[] visited = new boolean[basicBlocks.size()];
+        Deque<BasicBlock> blockStack = new ArrayDeque<>();
+        Deque<Iterator<BasicBlock>> successorStack = new ArrayDeque<>();
+
+        BasicBlock entry = basicBlocks.get(0);
+        visited[entry.getIndex()] = true;
+        blockStack.push(entry);
+        successorStack.push(entry.getSuccessors().iterator());
+        while (!blockStack.isEmpty()){
+            Iterator<BasicBlock> successors = successorStack.peek();
+            if (successors.hasNext()){
+                BasicBlock successor = successors.next();
+                if (!visited[successor.getIndex()]){
+                    visited[successor.getIndex()] = true;
+                    blockStack.push(successor);
+                    successorStack.push(successor.getSuccessors().iterator());
+                }
+            }else {
+                order.add(blockStack.pop());
+                successorStack.pop();
+            }
+        }
+        return order;
+    }
+
     @Override
     public String getName(){
         return "@" + super.getName();
     }
 
-    public void dump(PrintStream out){
-         out.printf("define dso_local %s %s(", retType.toString(), getName());
+    @Override
+    public void emitName(Emitter out){
+        out.write('@').write(super.getName());
+    }
+
+    public void dump(Emitter out){
+         out.write("define dso_local ");
+         retType.emit(out);
+         out.write(' ');
+         emitName(out);
+         out.write('(');
 
          boolean isFirst = true;
          for(FunctionArgument arg : arguments){
              if(isFirst){
                  isFirst = false;
              }else {
-                 out.print(", ");
+                 out.write(", ");
              }
              arg.dump(out);
          }
 
-        out.print(") {\n");
+        out.write(") {\n");
 
          for(BasicBlock block : basicBlocks){
              block.dump(out);
          }
 
-         out.print("}\n");
+         out.write("}\n");
     }
 
     public int calcParamSpace(){
@@ -1,10 +1,18 @@
 package backend.ir;
 
-import java.io.PrintStream;
+import backend.Emitter;
 
 public class FunctionArgument extends Value{
-    public FunctionArgument(IRType type){
+    private final Function function;
+
+    public FunctionArgument(Function function, IRType type){
         super(type);
+        this.function = function;
+    }
+
+    @Override
+    protected NameAllocator getNameAllocator(){
+        return function.getNameAllocator();
     }
 
     @Override
@@ -12,7 +20,12 @@ public class FunctionArgument extends Value{
         return "%" + super.getName();
     }
 
-    public void dump(PrintStream out){
-        out.printf("%s %s", getType().toString(), getName());
+    @Override
+    public void emitName(Emitter out){
+        out.write('%').write(super.getName());
+    }
+
+    public void dump(Emitter out){
+        emit(out);
     }
 }
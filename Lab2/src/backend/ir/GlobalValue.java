@@ -1,6 +1,7 @@
 package backend.ir;
 
-import java.io.PrintStream;
+import backend.Emitter;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,12 +23,29 @@ public class GlobalValue extends Value{
         return initVals;
     }
 
+    // 与 Function 相同，use 链表可能被多个线程修改
+    @Override
+    synchronized void addUse(Use use){
+        super.addUse(use);
+    }
+
+    @Override
+    synchronized void removeUse(Use use){
+        super.removeUse(use);
+    }
+
     @Override
     public String getName(){
         return "@" + super.getName();
     }
 
-    public void dump(PrintStream out){
-        out.printf("%s = dso_local global %s\n", getName(), dataType.initValsToString(initVals));
+    @Override
+    public void emitName(Emitter out){
+        out.write('@').write(super.getName());
+    }
+
+    public void dump(Emitter out){
+        emitName(out);
+        out.write(" = dso_local global ").write(dataType.initValsToString(initVals)).write('\n');
     }
 }
@@ -1,5 +1,7 @@
 package backend.ir;
 
+import backend.Emitter;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,6 +39,13 @@ public abstract class IRType implements Cloneable{
 
     public abstract String initValsToString(List<Integer> initVals);
 
+    // 按 ptrNum 层指针输出类型，去掉一层指针输出时不必先复制一个类型
+    public abstract void emit(Emitter out, int ptrNum);
+
+    public void emit(Emitter out) {
+        emit(out, ptrNum);
+    }
+
     public abstract IRTypeEnum getType();
 
     @Override
@@ -1,5 +1,7 @@
 package backend.ir;
 
+import backend.Emitter;
+
 public class ImmediateValue extends Value{
     private int value;
 
@@ -16,4 +18,9 @@ public class ImmediateValue extends Value{
     public String getName(){
         return Integer.toString(value);
     }
+
+    @Override
+    public void emitName(Emitter out){
+        out.write(value);
+    }
 }
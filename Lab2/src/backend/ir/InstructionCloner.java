@@ -0,0 +1,83 @@
+package backend.ir;
+
+import backend.ir.inst.*;
+
+import java.util.*;
+
+/**
+ * 复制指令，用于函数内联和循环展开。valueMap 把原来的块映射到副本中的块，复制过程中还会记下新建的立即数。
+ *
+ * 通常先用 copyInstruction 复制一段代码中的所有指令，同时把每条原指令映射到它的副本，再调用 remapOperands，
+ * 这样使用后面的块中定义的值（如 phi 的回边）也能替换成副本
+ */
+public class InstructionCloner {
+    private InstructionCloner() {
+    }
+
+    // 跳转目标和 phi 的入口块换成副本中的块，立即数换成新的立即数，其余操作数保持不变
+    public static Instruction copyInstruction(Instruction inst, Map<Value, Value> valueMap) {
+        if (inst instanceof BinaryInst binaryInst) {
+            return new BinaryInst(binaryInst.getOp(), copyOperand(binaryInst.getLeftValue(), valueMap),
+                    copyOperand(binaryInst.getRightValue(), valueMap));
+        } else if (inst instanceof ICmpInst iCmpInst) {
+            ICmpInst copy = new ICmpInst(iCmpInst.getCond(), copyOperand(iCmpInst.getLeftValue(), valueMap),
+                    copyOperand(iCmpInst.getRightValue(), valueMap));
+            copy.setLogicOp(iCmpInst.getLogicOp());
+            return copy;
+        } else if (inst instanceof LoadInst loadInst) {
+            return new LoadInst(loadInst.getPtr());
+        } else if (inst instanceof StoreInst storeInst) {
+            return new StoreInst(copyOperand(storeInst.getValue(), valueMap), storeInst.getPtr());
+        } else if (inst instanceof GetElementPtrInst gepInst) {
+            return new GetElementPtrInst(gepInst.getElementBase(), copyOperands(gepInst.getOffsets(), valueMap));
+        } else if (inst instanceof ZExtInst zExtInst) {
+            return new ZExtInst(zExtInst.getDstType(), copyOperand(zExtInst.getValue(), valueMap));
+        } else if (inst instanceof CallInst callInst) {
+            return new CallInst(callInst.getFunction(), copyOperands(callInst.getParams(), valueMap));
+        } else if (inst instanceof BrInst brInst) {
+            if (brInst.getCond() == null) {
+                return new BrInst((BasicBlock) valueMap.get(brInst.getDest()));
+            }
+            return new BrInst(brInst.getCond(), (BasicBlock) valueMap.get(brInst.getTrueBranch()),
+                    (BasicBlock) valueMap.get(brInst.getFalseBranch()));
+        } else if (inst instanceof PhiInst phi) {
+            PhiInst copy = new PhiInst(phi.getType());
+            for (int i = 0; i < phi.getIncomingNum(); i++) {
+                copy.addIncoming(copyOperand(phi.getIncomingValue(i), valueMap), (BasicBlock) valueMap.get(phi.getIncomingBlock(i)));
+            }
+            return copy;
+        }
+        throw new IllegalStateException("cannot copy " + inst.getClass().getSimpleName());
+    }
+
+    /**
+     * 立即数也有使用链（Value.addUse/removeUse，没有同步），副本直接使用原来的立即数时，
+     * 之后并行优化两个函数会同时修改同一条使用链。所以每个副本使用新的立即数，同一次复制中相同的立即数共用一个
+     */
+    public static Value copyOperand(Value value, Map<Value, Value> valueMap) {
+        if (value instanceof ImmediateValue immediate) {
+            return valueMap.computeIfAbsent(value, v -> new ImmediateValue(immediate.getValue()));
+        }
+        return value;
+    }
+
+    // 副本的操作数中在 valueMap 里有映射的值换成映射后的值
+    public static void remapOperands(List<Instruction> copies, Map<Value, Value> valueMap) {
+        for (Instruction copy : copies) {
+            for (int pos = 0; pos < copy.getOperandNum(); pos++) {
+                Value mapped = valueMap.get(copy.getOperand(pos));
+                if (mapped != null) {
+                    copy.replaceOperand(pos, mapped);
+                }
+            }
+        }
+    }
+
+    private static List<Value> copyOperands(List<Value> values, Map<Value, Value> valueMap) {
+        List<Value> copies = new ArrayList<>();
+        for (Value value : values) {
+            copies.add(copyOperand(value, valueMap));
+        }
+        return copies;
+    }
+}
@@ -1,5 +1,6 @@
 package backend.ir;
 
+import backend.Emitter;
 import backend.ir.inst.BrInst;
 import backend.ir.inst.ICmpInstCond;
 
@@ -11,6 +12,35 @@ public class Module {
     List<GlobalValue> globalValues = new ArrayList<GlobalValue>();
     List<Function> functions = new ArrayList<>();
 
+    // 运行时库函数，每个模块各自持有一份，CallInst 登记的 use 随模块一起回收
+    private final Function buildInGetInt = createBuildIn("getint", IRType.getInt(), List.of());
+    private final Function buildInPutInt = createBuildIn("putint", IRType.getVoid(), List.of(IRType.getInt()));
+    private final Function buildInPutCh = createBuildIn("putch", IRType.getVoid(), List.of(IRType.getInt()));
+    private final Function buildInPutStr = createBuildIn("putstr", IRType.getVoid(), List.of(IRType.getChar().ptr(1)));
+
+    private static Function createBuildIn(String name, IRType retType, List<IRType> argTypes) {
+        Function function = new Function(retType, argTypes);
+        function.setName(name);
+        function.setLibrary(true);
+        return function;
+    }
+
+    public Function getBuildInGetInt() {
+        return buildInGetInt;
+    }
+
+    public Function getBuildInPutInt() {
+        return buildInPutInt;
+    }
+
+    public Function getBuildInPutCh() {
+        return buildInPutCh;
+    }
+
+    public Function getBuildInPutStr() {
+        return buildInPutStr;
+    }
+
     public List<GlobalValue> getGlobalValues() {
         return globalValues;
     }
@@ -31,7 +61,21 @@ public class Module {
         return function;
     }
 
+    // 只包含部分函数的模块，全局变量与原模块共用；增量编译时只优化需要重新编译的函数
+    public Module withFunctions(List<Function> functions) {
+        Module module = new Module();
+        module.globalValues = globalValues;
+        module.functions = functions;
+        return module;
+    }
+
     public void dump(PrintStream out){
+        Emitter emitter = new Emitter(out);
+        dump(emitter);
+        emitter.flush();
+    }
+
+    public void dump(Emitter out){
         for(GlobalValue globalValue : globalValues){
             globalValue.dump(out);
         }
@@ -39,7 +83,6 @@ public class Module {
         for(Function function : functions){
             if (!function.isLibrary()) {
                 function.dump(out);
-                NameAllocator.getInstance().reset();
             }
         }
     }
@@ -1,16 +1,8 @@
 package backend.ir;
 
+// 值的编号，每个函数各有一个（见 Function.getNameAllocator），不同函数可以在不同线程中处理
 public class NameAllocator {
     private int count = 0;
-    private static final NameAllocator instance = new NameAllocator();
-
-    public static NameAllocator getInstance() {
-        return instance;
-    }
-
-    public void reset(){
-        count = 0;
-    }
 
     public String alloc(){
         String name = Integer.toString(count);
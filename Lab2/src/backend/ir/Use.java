@@ -1,13 +1,21 @@
 package backend.ir;
 
+/**
+ * user 的第 pos 个操作数，同时是被使用的值的 use 链表中的一个结点
+ *
+ * 操作数改变时，use 从旧值的链表摘下再挂到新值的链表上，两边始终一致
+ */
 public class Use {
     private final User user;
-    private Value value;
     private int pos;
+    private Value value = null;
 
-    public Use(User user, Value value, int pos) {
+    // 同一个值的 use 链表
+    Use prev = null;
+    Use next = null;
+
+    Use(User user, int pos) {
         this.user = user;
-        this.value = value;
         this.pos = pos;
     }
 
@@ -23,7 +31,19 @@ public class Use {
         return pos;
     }
 
-    public void setValue(Value value){
-        this.value = value;
+    // 前面的操作数被删除时由 User 调整
+    void setPos(int pos){
+        this.pos = pos;
+    }
+
+    // 改为使用 newValue，O(1)
+    void setValue(Value newValue){
+        if (value != null){
+            value.removeUse(this);
+        }
+        value = newValue;
+        if (newValue != null){
+            newValue.addUse(this);
+        }
     }
 }
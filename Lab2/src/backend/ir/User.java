@@ -1,29 +1,74 @@
 package backend.ir;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 public class User extends Value{
-    protected final List<Value> operands = new ArrayList<>();
+    // 每个操作数对应一个 Use，操作数为 null 时 Use 不在任何链表中
+    private Use[] operandUses;
 
     public User(IRType type, Value... operands){
         super(type);
 
-        int pos = 0;
-        for(Value operand : operands){
-            if (operand != null){
-                operand.addUse(this, pos);
-            }
-            this.operands.add(operand);
-            pos++;
+        operandUses = new Use[operands.length];
+        for (int pos = 0; pos < operands.length; pos++){
+            operandUses[pos] = new Use(this, pos);
+            operandUses[pos].setValue(operands[pos]);
         }
     }
 
     public List<Value> getOperands(){
-        return operands;
+        return new AbstractList<>() {
+            @Override
+            public Value get(int index) {
+                return operandUses[index].getValue();
+            }
+
+            @Override
+            public int size() {
+                return operandUses.length;
+            }
+        };
     }
 
+    public Value getOperand(int pos){
+        return operandUses[pos].getValue();
+    }
+
+    public int getOperandNum(){
+        return operandUses.length;
+    }
+
+    // 替换操作数时同步维护新旧操作数的 use 链表，之后对新操作数的替换才能找到这里
+    // 子类保存了操作数的字段时需要覆盖此方法同步更新
     public void replaceOperand(int pos, Value newOperand){
-        operands.set(pos, newOperand);
+        operandUses[pos].setValue(newOperand);
+    }
+
+    // 操作数个数可变的指令（phi）追加操作数
+    protected void addOperand(Value operand){
+        operandUses = Arrays.copyOf(operandUses, operandUses.length + 1);
+        operandUses[operandUses.length - 1] = new Use(this, operandUses.length - 1);
+        operandUses[operandUses.length - 1].setValue(operand);
+    }
+
+    // 删除第 pos 个操作数，后面的操作数前移
+    protected void removeOperand(int pos){
+        operandUses[pos].setValue(null);
+        for (int i = pos + 1; i < operandUses.length; i++){
+            operandUses[i].setPos(i - 1);
+            operandUses[i - 1] = operandUses[i];
+        }
+        operandUses = Arrays.copyOf(operandUses, operandUses.length - 1);
+    }
+
+    // 放弃所有操作数，从它们的 use 链表中摘下，用于删除指令
+    public void dropAllReferences(){
+        for (int pos = 0; pos < operandUses.length; pos++){
+            if (operandUses[pos].getValue() != null){
+                replaceOperand(pos, null);
+            }
+        }
     }
 }
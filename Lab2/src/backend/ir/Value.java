@@ -1,12 +1,16 @@
 package backend.ir;
 
+import backend.Emitter;
+
 import java.util.ArrayList;
 import java.util.List;
 
 public class Value {
     private String name = null;
     private final IRType type;
-    private final List<Use> useList = new ArrayList<>();
+    // 使用这个值的所有 use 组成的双向链表，由 Use 维护
+    private Use firstUse = null;
+    private int useNum = 0;
 
     public Value(IRType type){
         this.type = type;
@@ -17,18 +21,70 @@ public class Value {
     }
     public String getName(){
         if(name == null){
-            name = NameAllocator.getInstance().alloc();
+            name = getNameAllocator().alloc();
         }
         return name;
     }
 
-    public void addUse(User user, int pos){
-        useList.add(new Use(user, this, pos));
+    // 没有名字的值第一次取名字时使用的编号，函数内的值（参数、基本块、指令）由所在函数编号
+    protected NameAllocator getNameAllocator(){
+        throw new IllegalStateException("value outside a function has no name");
+    }
+
+    void addUse(Use use){
+        use.prev = null;
+        use.next = firstUse;
+        if (firstUse != null){
+            firstUse.prev = use;
+        }
+        firstUse = use;
+        useNum++;
     }
+
+    void removeUse(Use use){
+        if (use.prev != null){
+            use.prev.next = use.next;
+        }else {
+            firstUse = use.next;
+        }
+        if (use.next != null){
+            use.next.prev = use.prev;
+        }
+        use.prev = null;
+        use.next = null;
+        useNum--;
+    }
+
+    // 当前所有 use 的快照，遍历时可以修改操作数
     public List<Use> getUseList(){
+        List<Use> useList = new ArrayList<>(useNum);
+        for (Use use = firstUse; use != null; use = use.next){
+            useList.add(use);
+        }
         return useList;
     }
 
+    public boolean isUsed(){
+        return firstUse != null;
+    }
+
+    public int getUseNum(){
+        return useNum;
+    }
+
+    // 把所有使用这个值的地方改为使用 newValue，耗时与 use 数成正比
+    public void replaceAllUsesWith(Value newValue){
+        if (newValue == this){
+            return;
+        }
+        Use use = firstUse;
+        while (use != null){
+            Use next = use.next;
+            use.getUser().replaceOperand(use.getPos(), newValue);
+            use = next;
+        }
+    }
+
     public IRType getType() {
         return type;
     }
@@ -37,4 +93,16 @@ public class Value {
     public String toString(){
         return getType() + " " + getName();
     }
+
+    // 与 getName() 输出相同，子类的名字前缀直接写出，不拼接字符串
+    public void emitName(Emitter out){
+        out.write(getName());
+    }
+
+    // 与 toString() 输出相同
+    public void emit(Emitter out){
+        getType().emit(out);
+        out.write(' ');
+        emitName(out);
+    }
 }
@@ -1,10 +1,9 @@
 package backend.ir.inst;
 
+import backend.Emitter;
 import backend.ir.IRType;
 import backend.ir.Value;
 
-import java.io.PrintStream;
-
 public class AllocInst extends Instruction{
     public AllocInst(IRType dataType) {
         super(dataType.clone().ptr(dataType.getPtrNum() + 1)); // the type of alloc var is actually the address of the data
@@ -16,9 +15,12 @@ public class AllocInst extends Instruction{
     }
 
     @Override
-    public void dump(PrintStream out){
-        IRType dataType = getType().clone().ptr(getType().getPtrNum() - 1); // remove pointer
-        out.printf("  %s = alloca %s\n", getName(), dataType);
+    public void dump(Emitter out){
+        out.write("  ");
+        emitName(out);
+        out.write(" = alloca ");
+        getType().emit(out, getType().getPtrNum() - 1); // remove pointer
+        out.write('\n');
     }
 
     @Override
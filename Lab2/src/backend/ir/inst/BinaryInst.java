@@ -1,9 +1,8 @@
 package backend.ir.inst;
 
+import backend.Emitter;
 import backend.ir.Value;
 
-import java.io.PrintStream;
-
 public class BinaryInst extends Instruction{
     private BinaryInstOp op;
     private Value leftValue;
@@ -31,13 +30,16 @@ public class BinaryInst extends Instruction{
     }
 
     @Override
-    public void dump(PrintStream out) {
-        out.printf("  %s = %s %s %s, %s\n",
-                getName(),
-                op.name().toLowerCase(),
-                getType().toString(),
-                leftValue.getName(),
-                rightValue.getName());
+    public void dump(Emitter out) {
+        out.write("  ");
+        emitName(out);
+        out.write(" = ").writeLowerCase(op.name()).write(' ');
+        getType().emit(out);
+        out.write(' ');
+        leftValue.emitName(out);
+        out.write(", ");
+        rightValue.emitName(out);
+        out.write('\n');
     }
 
     @Override
@@ -1,10 +1,12 @@
 package backend.ir.inst;
 
+import backend.Emitter;
 import backend.ir.BasicBlock;
 import backend.ir.IRType;
 import backend.ir.Value;
 
-import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
 public class BrInst extends Instruction{
     private Value cond;
@@ -28,16 +30,43 @@ public class BrInst extends Instruction{
         this.falseBranch = null;
     }
 
+    // 修改跳转目标时同步更新所在块的控制流边
     public void setTrueBranch(BasicBlock trueBranch){
-        this.trueBranch = trueBranch;
+        retarget(() -> this.trueBranch = trueBranch);
     }
 
     public void setFalseBranch(BasicBlock falseBranch){
-        this.falseBranch = falseBranch;
+        retarget(() -> this.falseBranch = falseBranch);
     }
 
     public void setDest(BasicBlock dest){
-        this.dest = dest;
+        retarget(() -> this.dest = dest);
+    }
+
+    private void retarget(Runnable change){
+        BasicBlock block = getBasicBlock();
+        if (block != null){
+            block.unlinkSuccessors(this);
+        }
+        change.run();
+        if (block != null){
+            block.linkSuccessors(this);
+        }
+    }
+
+    // 跳转目标，条件跳转为 [真, 假]；语义分析回填之前的目标为 null，不计入
+    public List<BasicBlock> getSuccessors(){
+        if (dest != null){
+            return List.of(dest);
+        }
+        List<BasicBlock> successors = new ArrayList<>(2);
+        if (trueBranch != null){
+            successors.add(trueBranch);
+        }
+        if (falseBranch != null){
+            successors.add(falseBranch);
+        }
+        return successors;
     }
 
     public Value getCond() {
@@ -57,15 +86,18 @@ public class BrInst extends Instruction{
     }
 
     @Override
-    public void dump(PrintStream out){
+    public void dump(Emitter out){
+        out.write("  br ");
         if(cond != null){
-            out.printf("  br %s, %s, %s\n",
-                    cond,
-                    trueBranch.toString(),
-                    falseBranch.toString());
+            cond.emit(out);
+            out.write(", ");
+            trueBranch.emit(out);
+            out.write(", ");
+            falseBranch.emit(out);
         }else {
-            out.printf("  br %s\n", dest.toString());
+            dest.emit(out);
         }
+        out.write('\n');
     }
 
     @Override
@@ -1,10 +1,10 @@
 package backend.ir.inst;
 
+import backend.Emitter;
 import backend.ir.Function;
 import backend.ir.IRTypeEnum;
 import backend.ir.Value;
 
-import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,23 +27,25 @@ public class CallInst extends Instruction{
     }
 
     @Override
-    public void dump(PrintStream out) {
-        out.print("  ");
+    public void dump(Emitter out) {
+        out.write("  ");
         if (function.getRetType().getType() != IRTypeEnum.VOID) {
-            out.printf("%s = ", getName());
+            emitName(out);
+            out.write(" = ");
         }
-        out.printf("call %s(", function);
+        out.write("call ");
+        function.emit(out);
+        out.write('(');
 
         assert params.size() == function.getArguments().size();
         for (int i = 0; i < params.size(); i++) {
             if (i != 0) {
-                out.print(", ");
+                out.write(", ");
             }
-            var currParam = params.get(i);
-            out.printf("%s", currParam.toString());
+            params.get(i).emit(out);
         }
 
-        out.print(")\n");
+        out.write(")\n");
     }
 
     @Override
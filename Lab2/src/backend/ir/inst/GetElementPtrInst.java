@@ -1,11 +1,11 @@
 package backend.ir.inst;
 
+import backend.Emitter;
 import backend.ir.ArrayIRType;
 import backend.ir.BasicIRType;
 import backend.ir.IRType;
 import backend.ir.Value;
 
-import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -51,17 +51,20 @@ public class GetElementPtrInst extends Instruction{
     }
 
     @Override
-    public void dump(PrintStream out) {
-        var dataType = elementBase.getType().clone().ptr(elementBase.getType().getPtrNum()-1);
-        out.printf("  %s = getelementptr %s, %s",
-                getName(),
-                dataType,
-                elementBase);
+    public void dump(Emitter out) {
+        IRType baseType = elementBase.getType();
+        out.write("  ");
+        emitName(out);
+        out.write(" = getelementptr ");
+        baseType.emit(out, baseType.getPtrNum() - 1);
+        out.write(", ");
+        elementBase.emit(out);
 
         for (Value offset : offsets) {
-            out.printf(", %s", offset.toString());
+            out.write(", ");
+            offset.emit(out);
         }
-        out.print("\n");
+        out.write('\n');
     }
 
     @Override
@@ -1,10 +1,9 @@
 package backend.ir.inst;
 
+import backend.Emitter;
 import backend.ir.IRType;
 import backend.ir.Value;
 
-import java.io.PrintStream;
-
 public class ICmpInst extends Instruction{
     private ICmpInstCond cond;
     private Value leftValue;
@@ -42,14 +41,16 @@ public class ICmpInst extends Instruction{
     }
 
     @Override
-    public void dump(PrintStream out) {
-        var type = leftValue.getType();
-        out.printf("  %s = icmp %s %s %s, %s\n",
-                getName(),
-                cond.name().toLowerCase(),
-                type.toString(),
-                leftValue.getName(),
-                rightValue.getName());
+    public void dump(Emitter out) {
+        out.write("  ");
+        emitName(out);
+        out.write(" = icmp ").writeLowerCase(cond.name()).write(' ');
+        leftValue.getType().emit(out);
+        out.write(' ');
+        leftValue.emitName(out);
+        out.write(", ");
+        rightValue.emitName(out);
+        out.write('\n');
     }
 
     @Override
@@ -7,4 +7,40 @@ public enum ICmpInstCond {
     SGT, // signed greater than
     SLE, // signed less eq
     SGE, // signed greater eq
+    ;
+
+    // 两个常数比较的结果
+    public boolean evaluate(int left, int right) {
+        return switch (this) {
+            case EQ -> left == right;
+            case NE -> left != right;
+            case SLT -> left < right;
+            case SGT -> left > right;
+            case SLE -> left <= right;
+            case SGE -> left >= right;
+        };
+    }
+
+    // 结果取反的条件：!(a < b) 即 a >= b
+    public ICmpInstCond inverse() {
+        return switch (this) {
+            case EQ -> NE;
+            case NE -> EQ;
+            case SLT -> SGE;
+            case SGT -> SLE;
+            case SLE -> SGT;
+            case SGE -> SLT;
+        };
+    }
+
+    // 交换两个操作数后的条件：a < b 即 b > a
+    public ICmpInstCond swap() {
+        return switch (this) {
+            case EQ, NE -> this;
+            case SLT -> SGT;
+            case SGT -> SLT;
+            case SLE -> SGE;
+            case SGE -> SLE;
+        };
+    }
 }
@@ -1,11 +1,13 @@
 package backend.ir.inst;
 
+import backend.Emitter;
 import backend.ir.*;
 
-import java.io.PrintStream;
-
 public abstract class Instruction extends User {
     private BasicBlock basicBlock;
+    // 所在基本块的指令链表，由 BasicBlock 维护
+    private Instruction prev = null;
+    private Instruction next = null;
 
     public Instruction(IRType type, Value... operands){
         super(type, operands);
@@ -19,24 +21,31 @@ public abstract class Instruction extends User {
         this.basicBlock = basicBlock;
     }
 
-    public void replaceAllUseWith(Value newValue, boolean needInsert){
-        int index = basicBlock.getInstructions().indexOf(this);
-        if (index < 0){
-            throw new RuntimeException();
-        }
-        if (needInsert){
-            if (newValue instanceof Instruction newInst){
-                basicBlock.getInstructions().set(index, newInst);
-            }else {
-                throw new RuntimeException();
-            }
-        }else {
-            basicBlock.getInstructions().remove(index);
-        }
+    public Instruction getPrev() {
+        return prev;
+    }
+
+    public Instruction getNext() {
+        return next;
+    }
+
+    public void setPrev(Instruction prev) {
+        this.prev = prev;
+    }
+
+    public void setNext(Instruction next) {
+        this.next = next;
+    }
+
+    // 从基本块中摘下，操作数保持不变，之后可以插入到别处
+    public void removeFromParent(){
+        basicBlock.removeInstruction(this);
+    }
 
-        for (Use use : getUseList()){
-            use.getUser().replaceOperand(use.getPos(), newValue);
-        }
+    // 从基本块中删除并放弃所有操作数；调用前应先用 replaceAllUsesWith 处理掉对它的使用
+    public void eraseFromParent(){
+        removeFromParent();
+        dropAllReferences();
     }
 
     @Override
@@ -44,7 +53,19 @@ public abstract class Instruction extends User {
         return "%t" + super.getName();
     }
 
-    public void dump(PrintStream out){
-        out.printf("  %%%s = undefined\n", getName());
+    @Override
+    protected NameAllocator getNameAllocator(){
+        return basicBlock == null ? super.getNameAllocator() : basicBlock.getFunction().getNameAllocator();
+    }
+
+    @Override
+    public void emitName(Emitter out){
+        out.write("%t").write(super.getName());
+    }
+
+    public void dump(Emitter out){
+        out.write("  %");
+        emitName(out);
+        out.write(" = undefined\n");
     }
 }
@@ -1,9 +1,9 @@
 package backend.ir.inst;
 
+import backend.Emitter;
+import backend.ir.IRType;
 import backend.ir.Value;
 
-import java.io.PrintStream;
-
 public class LoadInst extends Instruction{
     Value ptr;
 
@@ -17,9 +17,15 @@ public class LoadInst extends Instruction{
     }
 
     @Override
-    public void dump(PrintStream out) {
-        var dataType = ptr.getType().clone().ptr(ptr.getType().getPtrNum()-1); // remove the pointer
-        out.printf("  %s = load %s, %s\n", getName(), dataType.toString(), ptr.toString());
+    public void dump(Emitter out) {
+        IRType ptrType = ptr.getType();
+        out.write("  ");
+        emitName(out);
+        out.write(" = load ");
+        ptrType.emit(out, ptrType.getPtrNum() - 1); // remove the pointer
+        out.write(", ");
+        ptr.emit(out);
+        out.write('\n');
     }
 
     @Override
@@ -0,0 +1,73 @@
+package backend.ir.inst;
+
+import backend.Emitter;
+import backend.ir.BasicBlock;
+import backend.ir.IRType;
+import backend.ir.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * phi 指令，只出现在基本块开头；第 i 个操作数是从 incomingBlocks 中第 i 个前驱流入的值。
+ * 同一个前驱有两条边到这个块时（两个分支目标相同）对应两项，值相同
+ */
+public class PhiInst extends Instruction{
+    private final List<BasicBlock> incomingBlocks = new ArrayList<>();
+
+    public PhiInst(IRType type) {
+        super(type);
+    }
+
+    public void addIncoming(Value value, BasicBlock block){
+        addOperand(value);
+        incomingBlocks.add(block);
+    }
+
+    public void removeIncoming(int index){
+        removeOperand(index);
+        incomingBlocks.remove(index);
+    }
+
+    public int getIncomingNum(){
+        return incomingBlocks.size();
+    }
+
+    public Value getIncomingValue(int index){
+        return getOperand(index);
+    }
+
+    public BasicBlock getIncomingBlock(int index){
+        return incomingBlocks.get(index);
+    }
+
+    public void setIncomingValue(int index, Value value){
+        replaceOperand(index, value);
+    }
+
+    public void setIncomingBlock(int index, BasicBlock block){
+        incomingBlocks.set(index, block);
+    }
+
+    // 从 block 流入的值，block 不是前驱时返回 null
+    public Value getIncomingValueFor(BasicBlock block){
+        int index = incomingBlocks.indexOf(block);
+        return index == -1 ? null : getOperand(index);
+    }
+
+    @Override
+    public void dump(Emitter out) {
+        out.write("  ");
+        emitName(out);
+        out.write(" = phi ");
+        getType().emit(out);
+        for (int i = 0; i < incomingBlocks.size(); i++){
+            out.write(i == 0 ? " [ " : ", [ ");
+            getOperand(i).emitName(out);
+            out.write(", ");
+            incomingBlocks.get(i).emitName(out);
+            out.write(" ]");
+        }
+        out.write('\n');
+    }
+}
@@ -1,10 +1,9 @@
 package backend.ir.inst;
 
+import backend.Emitter;
 import backend.ir.IRType;
 import backend.ir.Value;
 
-import java.io.PrintStream;
-
 public class ReturnInst extends Instruction{
     private Value value;
 
@@ -23,14 +22,14 @@ public class ReturnInst extends Instruction{
     }
 
     @Override
-    public void dump(PrintStream out) {
-        out.print("  ret ");
+    public void dump(Emitter out) {
+        out.write("  ret ");
         if (value == null) {
-            out.print("void");
+            out.write("void");
         } else {
-            out.printf("%s", value);
+            value.emit(out);
         }
-        out.print("\n");
+        out.write('\n');
     }
 
     @Override
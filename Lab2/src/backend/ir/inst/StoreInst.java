@@ -1,10 +1,9 @@
 package backend.ir.inst;
 
+import backend.Emitter;
 import backend.ir.IRType;
 import backend.ir.Value;
 
-import java.io.PrintStream;
-
 public class StoreInst extends Instruction{
     Value value;
     Value ptr;
@@ -24,8 +23,12 @@ public class StoreInst extends Instruction{
     }
 
     @Override
-    public void dump(PrintStream out) {
-        out.printf("  store %s, %s\n", value.toString(), ptr.toString());
+    public void dump(Emitter out) {
+        out.write("  store ");
+        value.emit(out);
+        out.write(", ");
+        ptr.emit(out);
+        out.write('\n');
     }
 
     @Override
@@ -1,10 +1,9 @@
 package backend.ir.inst;
 
+import backend.Emitter;
 import backend.ir.IRType;
 import backend.ir.Value;
 
-import java.io.PrintStream;
-
 public class ZExtInst extends Instruction{
     private IRType dstType;
     private Value value;
@@ -24,8 +23,14 @@ public class ZExtInst extends Instruction{
     }
 
     @Override
-    public void dump(PrintStream out) {
-        out.printf("  %s = zext %s to %s\n", getName(), value.toString(), dstType);
+    public void dump(Emitter out) {
+        out.write("  ");
+        emitName(out);
+        out.write(" = zext ");
+        value.emit(out);
+        out.write(" to ");
+        dstType.emit(out);
+        out.write('\n');
     }
 
     @Override
@@ -1,35 +1,33 @@
 package backend.optimize;
 
-import backend.ir.inst.AllocInst;
-
 import java.util.*;
 
-public class ConflictGraph {
-    private Map<AllocInst, Set<AllocInst>> conflict = new HashMap<AllocInst, Set<AllocInst>>();
+public class ConflictGraph<T> {
+    private Map<T, Set<T>> conflict = new LinkedHashMap<T, Set<T>>();
 
-    public ConflictGraph(List<AllocInst> elements) {
-        for (AllocInst element : elements) {
-            conflict.put(element, new HashSet<AllocInst>());
+    public ConflictGraph(List<T> elements) {
+        for (T element : elements) {
+            conflict.put(element, new HashSet<T>());
         }
     }
 
-    public void addConflict(AllocInst element1, AllocInst element2) {
+    public void addConflict(T element1, T element2) {
         conflict.get(element1).add(element2);
         conflict.get(element2).add(element1);
     }
 
-    public void removeNode(AllocInst element) {
-        conflict.remove(element);
-        for (AllocInst node : conflict.keySet()){
+    // 只需要从相邻结点的集合中删除
+    public void removeNode(T element) {
+        for (T node : conflict.remove(element)){
             conflict.get(node).remove(element);
         }
     }
 
-    public ConflictGraph copy(){
-        ConflictGraph newGraph = new ConflictGraph(this.conflict.keySet().stream().toList());
+    public ConflictGraph<T> copy(){
+        ConflictGraph<T> newGraph = new ConflictGraph<>(this.conflict.keySet().stream().toList());
 
-        for (AllocInst element : this.conflict.keySet()){
-            Set<AllocInst> newSet = new HashSet<>(this.conflict.get(element));
+        for (T element : this.conflict.keySet()){
+            Set<T> newSet = new HashSet<>(this.conflict.get(element));
             newGraph.conflict.put(element, newSet);
         }
 
@@ -40,11 +38,11 @@ public class ConflictGraph {
         return conflict.isEmpty();
     }
 
-    public Set<AllocInst> getConflict(AllocInst element){
+    public Set<T> getConflict(T element){
         return conflict.get(element);
     }
 
-    public Set<AllocInst> getNodes(){
+    public Set<T> getNodes(){
         return conflict.keySet();
     }
 }
@@ -1,40 +1,61 @@
 package backend.optimize;
 
 import backend.ir.BasicBlock;
-import backend.ir.inst.AllocInst;
+import backend.ir.FunctionArgument;
+import backend.ir.Value;
+import backend.ir.inst.*;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 public class ConflictGraphBuilder {
-    private ConflictGraph graph;
+    private ConflictGraph<AllocInst> graph;
 
-    public ConflictGraph getGraph(){
+    public ConflictGraph<AllocInst> getGraph(){
         return graph;
     }
 
-    public ConflictGraphBuilder(List<AllocInst> allocInsts, Map<BasicBlock, Set<AllocInst>> activeSets, Map<BasicBlock, Set<AllocInst>> inSets){
-        Set<BasicBlock> basicBlocks = activeSets.keySet();
-        graph = new ConflictGraph(allocInsts);
+    // 从后往前扫描每个块：store 定义变量时与此时活跃的其他变量冲突（形参的初始 store 不算定义）。
+    // 分到寄存器的变量被 load 时结果直接使用变量的寄存器（见 Translator.findLoadsToCopy），
+    // 所以 load 的结果在块内还会被使用时变量仍然活跃
+    public ConflictGraphBuilder(List<AllocInst> allocInsts, List<BasicBlock> basicBlocks, Map<BasicBlock, Set<AllocInst>> outSets){
+        graph = new ConflictGraph<>(allocInsts);
+        Set<AllocInst> candidates = new HashSet<>(allocInsts);
 
         for (BasicBlock block : basicBlocks){
-            Set<AllocInst> defSet = activeSets.get(block);
-            Set<AllocInst> inSet = inSets.get(block);
+            Set<AllocInst> live = new HashSet<>(outSets.get(block));
+            live.retainAll(candidates);
+            for (BasicBlock successor : block.getSuccessors()){
+                for (PhiInst phi : successor.getPhis()){
+                    addLoadedVariable(phi.getIncomingValueFor(block), block, candidates, live);
+                }
+            }
 
-            for (AllocInst def : defSet){
-                if(!allocInsts.contains(def)){
+            for (Instruction inst = block.getLastInstruction(); inst != null; inst = inst.getPrev()){
+                if (inst instanceof StoreInst storeInst && !(storeInst.getValue() instanceof FunctionArgument)
+                        && storeInst.getPtr() instanceof AllocInst def && candidates.contains(def)){
+                    for (AllocInst other : live){
+                        if (other != def){
+                            graph.addConflict(def, other);
+                        }
+                    }
+                    live.remove(def);
+                }else if (inst instanceof LoadInst loadInst){
+                    addLoadedVariable(loadInst, block, candidates, live);
+                }
+                if (inst instanceof PhiInst){
                     continue;
                 }
-                for (AllocInst in : inSet){
-                    if (!allocInsts.contains(in)){
-                        continue;
-                    }
-                    if (def != in){
-                        graph.addConflict(def, in);
-                    }
+                for (Value operand : inst.getOperands()){
+                    addLoadedVariable(operand, block, candidates, live);
                 }
             }
         }
     }
+
+    private static void addLoadedVariable(Value value, BasicBlock block, Set<AllocInst> candidates, Set<AllocInst> live){
+        if (value instanceof LoadInst loadInst && loadInst.getBasicBlock() == block
+                && loadInst.getPtr() instanceof AllocInst allocInst && candidates.contains(allocInst)){
+            live.add(allocInst);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package backend.target;
 
+import backend.Emitter;
 import backend.target.value.Label;
 
 import java.util.ArrayList;
@@ -26,4 +27,15 @@ public class Data {
                 String.join(", ", values.stream().map(Object::toString).toList());
         return sb;
     }
+
+    public void emit(Emitter out) {
+        label.emit(out);
+        out.write(": .").write(type).write(' ');
+        for (int i = 0; i < values.size(); i++) {
+            if (i != 0) {
+                out.write(", ");
+            }
+            out.write(values.get(i));
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package backend.target;
 
+import backend.Emitter;
 import backend.target.inst.MipsComment;
 import backend.target.inst.MipsInst;
 import backend.target.inst.MipsText;
@@ -20,27 +21,46 @@ public class Target {
         textList.add(text);
     }
 
+    public void addTexts(List<MipsText> texts) {
+        textList.addAll(texts);
+    }
+
+    public List<MipsText> getTextList() {
+        return textList;
+    }
+
     public void dump(PrintStream out, boolean debug) {
-        out.print(".data\n");
+        Emitter emitter = new Emitter(out);
+        dump(emitter, debug);
+        emitter.flush();
+    }
+
+    public void dump(Emitter out, boolean debug) {
+        out.write(".data\n");
         for (var data: dataList) {
-            out.print(data);
-            out.print("\n");
+            data.emit(out);
+            out.write('\n');
         }
-        out.println();
+        out.write('\n');
 
-        out.print(".text\n");
-        out.print("\tla $ra end.end\n");
-        out.print("\tj main\n");
+        out.write(".text\n");
+        out.write("\tla $ra end.end\n");
+        out.write("\tj main\n");
+
+        dumpText(out, textList, debug);
+        out.write("end.end:");
+    }
 
-        for (var text : textList) {
+    // 代码段中的一段，每条占一行
+    public static void dumpText(Emitter out, List<MipsText> texts, boolean debug) {
+        for (var text : texts) {
             if (text instanceof MipsComment && !debug) {
                 continue;
             }
             if (text instanceof MipsInst || text instanceof MipsComment)
-                out.print("\t");
-            out.print(text);
-            out.print("\n");
+                out.write('\t');
+            text.emit(out);
+            out.write('\n');
         }
-        out.print("end.end:");
     }
 }
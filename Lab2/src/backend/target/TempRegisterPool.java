@@ -58,6 +58,14 @@ public class TempRegisterPool {
         return regToAlloc;
     }
 
+    // offset 缓存在寄存器中时写回内存，寄存器继续保留该值
+    public void writeBackToMemory(Offset offset){
+        Register reg = addrRegisterMap.get(offset);
+        if (reg != null) {
+            target.addText(new MipsInst("sw", reg, offset));
+        }
+    }
+
     public void writeBackToMemoryForAll(){
         while (!timeQueue.isEmpty()){
             Register reg = timeQueue.poll();
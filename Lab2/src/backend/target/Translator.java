@@ -1,19 +1,23 @@
 package backend.target;
 
+import backend.Parallel;
 import backend.ir.*;
 import backend.ir.Module;
 import backend.ir.inst.*;
 import backend.target.inst.MipsComment;
 import backend.target.inst.MipsInst;
 import backend.target.inst.MipsLabel;
+import backend.target.inst.MipsRawText;
 import backend.target.inst.MipsText;
 import backend.target.value.*;
 import frontend.parser.node.variable.InitVal;
+import stats.CompileStatistics;
 
 import java.util.*;
 import java.util.stream.Stream;
 
 public class Translator {
+    // 每个函数由一个单独的 Translator 翻译到自己的 asmTarget 中（见 translate），函数之间不共享下面的状态
     private Target asmTarget = new Target();
     private ValueManager valueManager = new ValueManager();
     private TempRegisterPool tempRegisterPool = new TempRegisterPool(
@@ -22,18 +26,85 @@ public class Translator {
     );
     private int memorySizeForLocal = 0;
     private Map<Value, Register> registerTempMap = new HashMap<>();
+    private final Map<BasicBlock, String> blockLabels = new HashMap<>();
+    // 当前块中不能直接使用变量寄存器的 load
+    private final Set<LoadInst> loadsToCopy = new HashSet<>();
+    // 条件跳转到有 phi 的块时，复制放在这条边单独的跳板上，跳板在函数的所有块之后输出
+    private final Map<String, EdgeCopies> edgeCopies = new LinkedHashMap<>();
+    // 单条指令内部使用的临时寄存器，每条指令翻译完后全部归还
+    private final Stack<Register> tempRegisters = new Stack<>();
+    private final Stack<Register> tempRegistersInUse = new Stack<>();
+    private Module irModule;
+    private CompileStatistics statistics = null;
+    private Map<Function, byte[]> precompiled = Map.of();
+    private final Map<Function, int[]> functionTextRanges = new LinkedHashMap<>(); // 函数 -> 在代码段中的 [起点, 终点)
+    private boolean parallel = false;
+
+    public Translator() {
+        Stream.of("t5", "t6", "t7").map(Register.REGS::get).forEach(tempRegisters::push);
+    }
+
+    // 翻译 parent 所在模块中的一个函数：全局变量的位置与 parent 共用（只读），统计单独记录，由 parent 并入
+    private Translator(Translator parent) {
+        this();
+        this.irModule = parent.irModule;
+        this.precompiled = parent.precompiled;
+        this.valueManager = new ValueManager(parent.valueManager);
+        this.statistics = parent.statistics == null ? null : new CompileStatistics();
+    }
 
     public Target getAsmTarget() {
         return asmTarget;
     }
 
+    // 设置后记录寄存器分配的耗时以及每个函数的溢出变量数、寄存器数、栈帧大小和指令数
+    public void setStatistics(CompileStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    // 为 true 时各函数并行翻译，输出与串行时相同
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    // 增量编译：这些函数直接使用缓存中的汇编文本，不再翻译
+    public void setPrecompiled(Map<Function, byte[]> precompiled) {
+        this.precompiled = precompiled;
+    }
+
+    // 本次翻译出的函数（不含库函数和缓存中的函数）
+    public Set<Function> getTranslatedFunctions() {
+        return functionTextRanges.keySet();
+    }
+
+    // 函数在代码段中的文本，从函数标签开始
+    public List<MipsText> getFunctionText(Function func) {
+        int[] range = functionTextRanges.get(func);
+        return asmTarget.getTextList().subList(range[0], range[1]);
+    }
+
     public void translate(Module irModule){
+        this.irModule = irModule;
+
         for (GlobalValue globalValue : irModule.getGlobalValues()){
             translateGlobalValue(globalValue);
         }
 
-        for (Function func : irModule.getFunctions()){
-            translateFunction(func);
+        List<Translator> functionTranslators = Parallel.map(irModule.getFunctions(), parallel, func -> {
+            Translator functionTranslator = new Translator(this);
+            functionTranslator.translateFunction(func);
+            return functionTranslator;
+        });
+
+        // 按函数在模块中的顺序拼接
+        for (Translator functionTranslator : functionTranslators) {
+            int offset = asmTarget.getTextList().size();
+            asmTarget.addTexts(functionTranslator.asmTarget.getTextList());
+            functionTranslator.functionTextRanges.forEach(
+                    (func, range) -> functionTextRanges.put(func, new int[]{range[0] + offset, range[1] + offset}));
+            if (statistics != null) {
+                statistics.merge(functionTranslator.statistics);
+            }
         }
     }
 
@@ -90,8 +161,25 @@ public class Translator {
             return;
         }
 
+        if (precompiled.containsKey(func)) {
+            asmTarget.addText(new MipsRawText(precompiled.get(func)));
+            return;
+        }
+
+        // 基本块标签按块在函数中的位置编号，与中间代码的命名无关，
+        // 同一个函数无论是否输出过中间代码、前面有哪些函数，翻译结果都相同，可以单独缓存
+        blockLabels.clear();
+        for (BasicBlock block : func.getBasicBlocks()) {
+            blockLabels.put(block, funcName + ".b" + blockLabels.size());
+        }
+        int funcStart = asmTarget.getTextList().size();
         asmTarget.addText(new MipsLabel(funcName));
+        int textStart = asmTarget.getTextList().size();
+        CompileStatistics.Timer timer = statistics == null ? null : statistics.start("register allocation");
         int totalMemorySize = valueManager.putLocal(func);
+        if (timer != null) {
+            timer.stop();
+        }
         memorySizeForLocal = totalMemorySize - func.calcParamSpace();
 
         if (memorySizeForLocal > 0){
@@ -99,7 +187,7 @@ public class Translator {
             asmTarget.addText(new MipsInst("addiu", sp, sp, new Immediate(-memorySizeForLocal)));
         }
 
-        Set<Register> tempRegisters = new HashSet<>(
+        Set<Register> tempRegisters = new LinkedHashSet<>(
                 Stream.of("s0", "s1", "s2", "s3", "s4", "s5", "s6", "s7",
                                 "t0", "t1", "t2", "t3", "t4", "t5", "t6")
                         .map(Register.REGS::get)
@@ -108,11 +196,31 @@ public class Translator {
         valueManager.getRegistersInUse().forEach(tempRegisters::remove);
         tempRegisterPool = new TempRegisterPool(asmTarget, new ArrayList<>(tempRegisters));
 
+        edgeCopies.clear();
         for (BasicBlock block : func.getBasicBlocks()) {
             tempRegisterPool.reset();
             registerTempMap.clear();
             translateBasicBlock(block);
         }
+        for (Map.Entry<String, EdgeCopies> entry : edgeCopies.entrySet()) {
+            EdgeCopies copies = entry.getValue();
+            asmTarget.addText(new MipsLabel(entry.getKey()));
+            translateParallelCopy(copies.dests(), copies.sources());
+            asmTarget.addText(new MipsInst("j", new Label(buildBlockLabelName(copies.successor()))));
+        }
+
+        if (statistics != null) {
+            int colorRegisterNum = (int) valueManager.getRegistersInUse().stream()
+                    .filter(register -> register.getRegisterName().matches("s\\d"))
+                    .count();
+            int instNum = (int) asmTarget.getTextList()
+                    .subList(textStart, asmTarget.getTextList().size())
+                    .stream()
+                    .filter(text -> text instanceof MipsInst)
+                    .count();
+            statistics.recordFunction(funcName, valueManager.getSpilledNum(), colorRegisterNum, totalMemorySize, instNum);
+        }
+        functionTextRanges.put(func, new int[]{funcStart, asmTarget.getTextList().size()});
 
         valueManager.clearLocals();
     }
@@ -121,11 +229,188 @@ public class Translator {
         MipsLabel label = new MipsLabel(buildBlockLabelName(block));
         asmTarget.addText(label);
 
+        findLoadsToCopy(block);
         for (Instruction instruction : block.getInstructions()) {
+            if (instruction == block.getTerminator() && instruction instanceof BrInst) {
+                translateBlockExit(block);
+            }
             translateInstruction(instruction);
         }
      }
 
+     // 变量 load 出的值一般直接使用变量所在的寄存器；在最后一次使用之前变量被重新赋值，
+     // 或者值在其他块中使用（寄存器到那时可能已经改变）时，要复制到该值自己的位置
+     private void findLoadsToCopy(BasicBlock block) {
+        loadsToCopy.clear();
+        // 从后往前扫描，记录在当前位置之后还会被使用的 load，按地址分组
+        Map<Value, Set<LoadInst>> liveLoads = new HashMap<>();
+        for (BasicBlock successor : block.getSuccessors()) {
+            for (PhiInst phi : successor.getPhis()) {
+                if (phi.getIncomingValueFor(block) instanceof LoadInst loadInst && loadInst.getBasicBlock() == block) {
+                    liveLoads.computeIfAbsent(loadInst.getPtr(), k -> new HashSet<>()).add(loadInst);
+                }
+            }
+        }
+        for (Instruction inst = block.getLastInstruction(); inst != null; inst = inst.getPrev()) {
+            if (inst instanceof StoreInst storeInst) {
+                loadsToCopy.addAll(liveLoads.getOrDefault(storeInst.getPtr(), Set.of()));
+            } else if (inst instanceof LoadInst loadInst) {
+                liveLoads.getOrDefault(loadInst.getPtr(), new HashSet<>()).remove(loadInst);
+                if (isUsedOutside(loadInst)) {
+                    loadsToCopy.add(loadInst);
+                }
+            }
+            if (inst instanceof PhiInst) {
+                continue;
+            }
+            for (Value operand : inst.getOperands()) {
+                if (operand instanceof LoadInst loadInst && loadInst.getBasicBlock() == block) {
+                    liveLoads.computeIfAbsent(loadInst.getPtr(), k -> new HashSet<>()).add(loadInst);
+                }
+            }
+        }
+     }
+
+     // 跳转之前：先把在其他块中使用的值写回栈上，再处理后继块中 phi 的复制。
+     // 无条件跳转的复制直接放在跳转前；条件跳转的每条边各自的复制记下来，放到跳板上
+     private void translateBlockExit(BasicBlock block) {
+        for (Instruction inst : block.getInstructions()) {
+            if (inst == block.getTerminator()) {
+                break;
+            }
+            if (valueManager.getTargetValue(inst) instanceof Offset offset && isUsedOutside(inst)) {
+                tempRegisterPool.writeBackToMemory(offset);
+            }
+        }
+
+        BrInst brInst = (BrInst) block.getTerminator();
+        if (brInst.getCond() == null) {
+            List<TargetValue> dests = new ArrayList<>();
+            List<TargetValue> sources = new ArrayList<>();
+            collectPhiCopies(block, brInst.getDest(), true, dests, sources);
+            translateParallelCopy(dests, sources);
+            return;
+        }
+        for (BasicBlock successor : List.of(brInst.getTrueBranch(), brInst.getFalseBranch())) {
+            String label = buildEdgeLabelName(block, successor);
+            if (successor.getPhis().isEmpty() || edgeCopies.containsKey(label)) {
+                continue;
+            }
+            List<TargetValue> dests = new ArrayList<>();
+            List<TargetValue> sources = new ArrayList<>();
+            collectPhiCopies(block, successor, false, dests, sources);
+            edgeCopies.put(label, new EdgeCopies(successor, dests, sources));
+        }
+     }
+
+     // 边 block -> successor 上的复制：目的是 phi 的位置，源是入口值在 block 末尾所在的位置。
+     // 跳板上临时寄存器池的缓存已经失效，栈上的源要先写回；源和目的相同的复制省略
+     private void collectPhiCopies(BasicBlock block, BasicBlock successor, boolean inline,
+                                   List<TargetValue> dests, List<TargetValue> sources) {
+        for (PhiInst phi : successor.getPhis()) {
+            Value value = phi.getIncomingValueFor(block);
+            TargetValue source;
+            if (value instanceof ImmediateValue immediateValue) {
+                source = new Immediate(immediateValue.getValue());
+            } else if (registerTempMap.containsKey(value)) {
+                source = registerTempMap.get(value);
+            } else {
+                source = valueManager.getTargetValue(value);
+                if (source instanceof Offset offset) {
+                    if (!inline) {
+                        tempRegisterPool.writeBackToMemory(offset);
+                    } else if (tempRegisterPool.getRegister(offset) != null) {
+                        source = tempRegisterPool.getRegister(offset);
+                    }
+                }
+            }
+
+            TargetValue dest = valueManager.getTargetValue(phi);
+            if (source != dest) {
+                dests.add(dest);
+                sources.add(source);
+            }
+        }
+     }
+
+     // 并行复制的顺序化：目的不再被读取的复制先做，剩下的都在环上，用 $v1 暂存环上一个值打断环。
+     // 同一个源复制到多个目的时，之后的复制从已经复制好的目的中读取；立即数的复制不读任何位置，放在最后
+     private void translateParallelCopy(List<TargetValue> dests, List<TargetValue> sources) {
+        Register cycleTemp = Register.REGS.get("v1");
+        Map<TargetValue, TargetValue> locations = new HashMap<>(); // 源 -> 它的值当前所在的位置
+        Map<TargetValue, TargetValue> preds = new HashMap<>();     // 目的 -> 源
+        Deque<TargetValue> ready = new ArrayDeque<>();
+        Deque<TargetValue> todo = new ArrayDeque<>();
+        Set<TargetValue> done = new HashSet<>();
+
+        for (int i = 0; i < dests.size(); i++) {
+            if (!(sources.get(i) instanceof Immediate)) {
+                locations.put(sources.get(i), sources.get(i));
+                preds.put(dests.get(i), sources.get(i));
+                todo.push(dests.get(i));
+            }
+        }
+        for (TargetValue dest : todo) {
+            if (!locations.containsKey(dest)) {
+                ready.push(dest);
+            }
+        }
+
+        while (!todo.isEmpty()) {
+            while (!ready.isEmpty()) {
+                TargetValue dest = ready.pop();
+                TargetValue source = preds.get(dest);
+                TargetValue location = locations.get(source);
+                translateCopy(dest, location);
+                done.add(dest);
+                locations.put(source, dest);
+                if (source == location && preds.containsKey(source) && !done.contains(source)) {
+                    ready.push(source);
+                }
+            }
+            TargetValue dest = todo.pop();
+            if (!done.contains(dest)) {
+                translateCopy(cycleTemp, dest);
+                locations.put(dest, cycleTemp);
+                ready.push(dest);
+            }
+        }
+
+        for (int i = 0; i < dests.size(); i++) {
+            if (sources.get(i) instanceof Immediate) {
+                translateCopy(dests.get(i), sources.get(i));
+            }
+        }
+     }
+
+     // 内存之间、立即数到内存的复制经过 $t7
+     private void translateCopy(TargetValue dest, TargetValue source) {
+        if (dest instanceof Register) {
+            assignToRegister((Register) dest, source);
+            return;
+        }
+        Register register;
+        if (source instanceof Register sourceRegister) {
+            register = sourceRegister;
+        } else {
+            register = Register.REGS.get("t7");
+            assignToRegister(register, source);
+        }
+        asmTarget.addText(new MipsInst("sw", register, dest));
+     }
+
+     // phi 的使用算在对应前驱的末尾
+     private static boolean isUsedOutside(Instruction inst) {
+        for (Use use : inst.getUseList()) {
+            Instruction user = (Instruction) use.getUser();
+            BasicBlock useBlock = user instanceof PhiInst phi ? phi.getIncomingBlock(use.getPos()) : user.getBasicBlock();
+            if (useBlock != inst.getBasicBlock()) {
+                return true;
+            }
+        }
+        return false;
+     }
+
      private void translateInstruction(Instruction instruction) {
         asmTarget.addText(new MipsComment(instruction));
         if(instruction instanceof BinaryInst inst){
@@ -149,7 +434,8 @@ public class Translator {
         } else if (instruction instanceof AllocInst inst) {
             translateAllocInst(inst);
         }
-        Register.freeAllTempRegister();
+        // phi 的值在前驱的出口已经复制到它的位置上，不需要生成代码
+        freeAllTempRegister();
      }
 
      private void translateBinaryInst(BinaryInst inst) {
@@ -163,7 +449,7 @@ public class Translator {
         }
 
         if (rightValue instanceof Immediate){
-            Register tmpReg = Register.allocTempRegister();
+            Register tmpReg = allocTempRegister();
             asmTarget.addText(new MipsInst("li", tmpReg, rightValue));
             rightValue = tmpReg;
         }
@@ -189,8 +475,8 @@ public class Translator {
 
      private void translateCallInst(CallInst inst) {
         Function func = inst.getFunction();
-        if (func == Function.BUILD_IN_PUTINT || func == Function.BUILD_IN_PUTCH){
-            asmTarget.addText(new MipsInst("li", Register.REGS.get("v0"), new Immediate(func == Function.BUILD_IN_PUTINT ? 1 : 11)));
+        if (func == irModule.getBuildInPutInt() || func == irModule.getBuildInPutCh()){
+            asmTarget.addText(new MipsInst("li", Register.REGS.get("v0"), new Immediate(func == irModule.getBuildInPutInt() ? 1 : 11)));
 
             Value inputVal = inst.getParams().get(0);
             TargetValue inputTargetValue = getTempRegister(inputVal);
@@ -207,7 +493,7 @@ public class Translator {
 
              asmTarget.addText(new MipsInst("syscall"));
              asmTarget.addText(new MipsInst("move", a0, t7));
-        } else if (func == Function.BUILD_IN_GETINT) {
+        } else if (func == irModule.getBuildInGetInt()) {
             asmTarget.addText(new MipsInst("li", Register.REGS.get("v0"), new Immediate(5)));
             asmTarget.addText(new MipsInst("syscall"));
 
@@ -220,19 +506,21 @@ public class Translator {
      }
 
      private void translateBrInst(BrInst inst) {
-        BasicBlock nextBlock = inst.getBasicBlock().getNextBasicBlock();
+        BasicBlock block = inst.getBasicBlock();
+        BasicBlock nextBlock = block.getNextBasicBlock();
         if(inst.getCond() != null){
             TargetValue cond = getTempRegister(inst.getCond());
             Register registerCond = convertToRegister(cond);
+            // 边上有复制时跳到跳板，也不能直接落到下一个块
             BasicBlock falseBranch = inst.getFalseBranch();
-            String falseBranchName = buildBlockLabelName(falseBranch);
+            String falseBranchName = buildBranchTargetName(block, falseBranch);
             BasicBlock trueBranch = inst.getTrueBranch();
-            String trueBranchName = buildBlockLabelName(trueBranch);
+            String trueBranchName = buildBranchTargetName(block, trueBranch);
 
-            if(nextBlock != falseBranch){
+            if(nextBlock != falseBranch || edgeCopies.containsKey(falseBranchName)){
                 asmTarget.addText(new MipsInst("beqz", registerCond, new Label(falseBranchName)));
             }
-            if(nextBlock != trueBranch){
+            if(nextBlock != trueBranch || edgeCopies.containsKey(trueBranchName)){
                 asmTarget.addText(new MipsInst("bnez", registerCond, new Label(trueBranchName)));
             }
         }else {
@@ -257,7 +545,7 @@ public class Translator {
          }
 
          if (rightValue instanceof Immediate){
-             Register register = Register.allocTempRegister();
+             Register register = allocTempRegister();
              asmTarget.addText(new MipsInst("li", register, rightValue));
              rightValue = register;
          }
@@ -274,8 +562,13 @@ public class Translator {
          asmTarget.addText(new MipsInst(instName, targetValue, leftValue, rightValue));
      }
 
+     // 地址是 alloca / 全局变量时按变量的位置访问，否则（getelementptr、循环中递增的指针等）地址在寄存器中
+     private static boolean isComputedAddress(Value ptr) {
+        return !(ptr instanceof AllocInst) && !(ptr instanceof GlobalValue);
+     }
+
      private void translateLoadInst(LoadInst inst) {
-        if(inst.getPtr() instanceof GetElementPtrInst){
+        if(isComputedAddress(inst.getPtr())){
             TargetValue ptr = getTempRegister(inst.getPtr());
             Register registerPtr = convertToRegister(ptr);
             TargetValue target = allocTempRegisterForInst(inst);
@@ -284,14 +577,16 @@ public class Translator {
         }else {
             TargetValue ptr = valueManager.getTargetValue(inst.getPtr());
 
-            if (ptr instanceof Register regPtr){
+            if (ptr instanceof Register regPtr && !loadsToCopy.contains(inst)){
                 registerTempMap.put(inst, regPtr);
                 return;
             }
 
             TargetValue target = allocTempRegisterForInst(inst);
 
-            if (ptr instanceof Offset || ptr instanceof Label){
+            if (ptr instanceof Register){
+                asmTarget.addText(new MipsInst("move", target, ptr));
+            } else if (ptr instanceof Offset || ptr instanceof Label){
                 asmTarget.addText(new MipsInst("lw", target, ptr));
             }else {
                 throw new RuntimeException();
@@ -304,11 +599,11 @@ public class Translator {
             return;
         }
 
-        if (inst.getPtr() instanceof GetElementPtrInst){
+        if (isComputedAddress(inst.getPtr())){
             TargetValue ptr = getTempRegister(inst.getPtr());
             TargetValue value = getTempRegister(inst.getValue());
             Register registerValue = convertToRegister(value);
-            Register registerPtr = (Register) ptr;
+            Register registerPtr = convertToRegister(ptr);
 
             asmTarget.addText(new MipsInst("sw", registerValue, new Offset(registerPtr, 0)));
         }else {
@@ -354,14 +649,16 @@ public class Translator {
          TargetValue target = allocTempRegisterForInst(inst);
          Register registerBase = (Register) target;
 
-         if(base instanceof LoadInst || base instanceof GetElementPtrInst){
-             TargetValue baseVal = getTempRegister(base);
-             asmTarget.addText(new MipsInst("move", registerBase, baseVal));
+         // 基址在寄存器中时不先复制，第一次加偏移时直接从基址寄存器算起
+         Register source;
+         if(isComputedAddress(base)){
+             source = convertToRegister(getTempRegister(base));
          }else {
              asmTarget.addText(new MipsInst("la", registerBase, valueManager.getTargetValue(base)));
+             source = registerBase;
          }
 
-         Register registerTemp = Register.allocTempRegister();
+         Register registerTemp = allocTempRegister();
          int currDim = 0;
          for (Value offset : offsets){
              if (offset instanceof ImmediateValue immediateValue && immediateValue.getValue() == 0){
@@ -375,16 +672,24 @@ public class Translator {
 
              TargetValue offsetVal = getTempRegister(offset);
 
-             if (offsetVal instanceof Immediate){
-                 asmTarget.addText(new MipsInst("li", registerTemp, offsetVal));
-                 asmTarget.addText(new MipsInst("mul", registerTemp, registerTemp, new Immediate(memSize)));
+             if (offsetVal instanceof Immediate immediate){
+                 int byteOffset = immediate.getValue() * memSize;
+                 if (byteOffset >= Short.MIN_VALUE && byteOffset <= Short.MAX_VALUE){
+                     asmTarget.addText(new MipsInst("addiu", registerBase, source, new Immediate(byteOffset)));
+                 }else {
+                     asmTarget.addText(new MipsInst("li", registerTemp, new Immediate(byteOffset)));
+                     asmTarget.addText(new MipsInst("addu", registerBase, source, registerTemp));
+                 }
              }else {
                  asmTarget.addText(new MipsInst("mul", registerTemp, offsetVal, new Immediate(memSize)));
+                 asmTarget.addText(new MipsInst("addu", registerBase, source, registerTemp));
              }
-
-             asmTarget.addText(new MipsInst("addu", registerBase, registerBase, registerTemp));
+             source = registerBase;
              currDim++;
          }
+         if (source != registerBase){
+             asmTarget.addText(new MipsInst("move", registerBase, source));
+         }
      }
 
      private void translateZExtInst(ZExtInst inst) {
@@ -451,7 +756,7 @@ public class Translator {
                 }else {
                     var registerParam = convertToRegister(targetParam);
                     asmTarget.addText(new MipsInst("sw", registerParam, new Offset(sp, base)));
-                    Register.freeAllTempRegister();
+                    freeAllTempRegister();
                 }
             }
         }
@@ -513,8 +818,18 @@ public class Translator {
         }
     }
 
-    private static String buildBlockLabelName(BasicBlock block) {
-        return block.getFunction().getName().substring(1) + "." + block.getName().substring(1);
+    private String buildBlockLabelName(BasicBlock block) {
+        return blockLabels.get(block);
+    }
+
+    private String buildEdgeLabelName(BasicBlock from, BasicBlock to) {
+        return buildBlockLabelName(from) + ".to" + to.getIndex();
+    }
+
+    // 条件跳转的目标：边上有复制时是跳板，否则是块本身
+    private String buildBranchTargetName(BasicBlock from, BasicBlock to) {
+        String edgeLabel = buildEdgeLabelName(from, to);
+        return edgeCopies.containsKey(edgeLabel) ? edgeLabel : buildBlockLabelName(to);
     }
 
     private TargetValue allocTempRegisterForInst(Value inst){
@@ -532,11 +847,11 @@ public class Translator {
 
     private Register convertToRegister(TargetValue targetValue) {
         if (isAddress(targetValue)) {
-            var newReg = Register.allocTempRegister();
+            var newReg = allocTempRegister();
             asmTarget.addText(new MipsInst("lw", newReg, targetValue));
             return newReg;
         } else if (isImmediate(targetValue)) {
-            var newReg = Register.allocTempRegister();
+            var newReg = allocTempRegister();
             asmTarget.addText(new MipsInst("li", newReg, targetValue));
             return newReg;
         } else if (targetValue instanceof Register register) {
@@ -546,6 +861,21 @@ public class Translator {
         }
     }
 
+    private Register allocTempRegister() {
+        if (tempRegisters.isEmpty()) {
+            return null;
+        }
+        Register reg = tempRegisters.pop();
+        tempRegistersInUse.push(reg);
+        return reg;
+    }
+
+    private void freeAllTempRegister() {
+        while (!tempRegistersInUse.isEmpty()) {
+            tempRegisters.push(tempRegistersInUse.pop());
+        }
+    }
+
     private boolean isImmediate(TargetValue value) {
         return value instanceof Immediate;
     }
@@ -553,4 +883,7 @@ public class Translator {
     private boolean isAddress(TargetValue value) {
         return value instanceof Label || value instanceof Offset;
     }
+
+    private record EdgeCopies(BasicBlock successor, List<TargetValue> dests, List<TargetValue> sources) {
+    }
 }
@@ -4,14 +4,27 @@ import backend.ir.*;
 import backend.ir.inst.*;
 import backend.optimize.ConflictGraph;
 import backend.optimize.ConflictGraphBuilder;
+import midend.LiveValueAnalyze;
 import midend.LiveVariableAnalyze;
+import midend.LoopInfo;
 import backend.target.value.*;
 
 import java.util.*;
 
 public class ValueManager {
     private Map<Value, TargetValue> globalValueMap = new HashMap<>();
-    private Map<Value, TargetValue> localValueMap = new HashMap<>();
+    private Map<Value, TargetValue> localValueMap = new LinkedHashMap<>();
+    // 最近一次 putLocal 中没有分到寄存器、只能放在栈上的标量局部变量个数（包括跨块活跃的 SSA 值）
+    private int spilledNum = 0;
+    private int spilledValueNum = 0;
+
+    public ValueManager() {
+    }
+
+    // 与 globals 共用全局变量的位置，翻译函数时只读，各函数的 ValueManager 可以在不同线程中使用
+    public ValueManager(ValueManager globals) {
+        this.globalValueMap = globals.globalValueMap;
+    }
 
     public TargetValue getTargetValue(Value value) {
         if (value instanceof ImmediateValue immediateValue){
@@ -34,18 +47,20 @@ public class ValueManager {
     }
 
     private int manageMemory(Function func, List<Register> registersToAlloc, GlobalRegisterManager globalRegisterManager){
+        spilledNum = 0;
+        spilledValueNum = 0;
         // 库函数（无基本块），直接返回0，无需内存管理
         if (func.getBasicBlocks().isEmpty() || func.getFirstBasicBlock() == null) {
             return 0;
         }
 
         int argNum = func.getArguments().size();
-        List<AllocInst> allAllocInsts = new ArrayList<>(
-                func.getFirstBasicBlock().getInstructions()
-                        .stream()
-                        .filter(inst -> inst instanceof AllocInst)
-                        .map(inst -> (AllocInst) inst)
-                        .toList());
+        List<AllocInst> allAllocInsts = new ArrayList<>();
+        for (Instruction inst : func.getFirstBasicBlock().getInstructions()) {
+            if (inst instanceof AllocInst allocInst) {
+                allAllocInsts.add(allocInst);
+            }
+        }
 
         List<AllocInst> argAllocInsts = allAllocInsts.subList(0, argNum);
         Collections.reverse(argAllocInsts);
@@ -57,6 +72,10 @@ public class ValueManager {
         }
 
         globalRegisterManager.manageGlobalRegister(registersToAlloc, varAllocInsts, func);
+        spilledNum = (int) varAllocInsts.stream()
+                .filter(inst -> inst.getDataType().getArrayDims().isEmpty())
+                .filter(inst -> !(localValueMap.get(inst) instanceof Register))
+                .count() + spilledValueNum;
 
         int numOfArgOnRegister = Math.min(argNum, 4);
         int memoryRequired = numOfArgOnRegister * 4;
@@ -131,27 +150,16 @@ public class ValueManager {
     }
 
     private void graphColorGlobalRegisterManage(List<Register> registers, List<AllocInst> varInsts, Function func){
-        LiveVariableAnalyze liveVariableAnalyze = new LiveVariableAnalyze(func);
-        liveVariableAnalyze.analyze();
+        LiveVariableAnalyze liveVariableAnalyze = LiveVariableAnalyze.of(func);
 
         varInsts = varInsts
                 .stream()
                 .filter(inst -> inst.getDataType().getArrayDims().isEmpty())
                 .toList();
 
-        Map<BasicBlock, Set<AllocInst>> inSets = liveVariableAnalyze.getInSets();
         Map<BasicBlock, Set<AllocInst>> outSets = liveVariableAnalyze.getOutSets();
-        Map<BasicBlock, Set<AllocInst>> activeSets = new HashMap<>();
-
-        for (BasicBlock block : func.getBasicBlocks()) {
-            Set<AllocInst> activeSet = new HashSet<AllocInst>();
-            activeSets.put(block, activeSet);
-            activeSet.addAll(inSets.get(block));
-            activeSet.addAll(outSets.get(block));
-        }
-
-        ConflictGraph conflictGraph = new ConflictGraphBuilder(varInsts, liveVariableAnalyze.getDefSets(), activeSets).getGraph();
-        ConflictGraph graphForColor = conflictGraph.copy();
+        ConflictGraph<AllocInst> conflictGraph = new ConflictGraphBuilder(varInsts, func.getBasicBlocks(), outSets).getGraph();
+        ConflictGraph<AllocInst> graphForColor = conflictGraph.copy();
         int degreeThreshold = registers.size();
         Stack<AllocInst> nodesToColor = new Stack<>();
 
@@ -200,12 +208,195 @@ public class ValueManager {
                 break;
             }
         }
+
+        // 变量没有用到的寄存器留给 SSA 值
+        List<Register> freeRegisters = new ArrayList<>(registers);
+        freeRegisters.removeAll(localValueMap.values());
+        colorSsaValues(freeRegisters, func);
+    }
+
+    // SSA 值的寄存器分配：phi 和跨块活跃的值参与着色，只在块内使用的值仍放在栈上，由临时寄存器缓存。
+    // phi 与入口值不冲突时合并为一个结点（共用寄存器），出 SSA 时这些复制就是自己到自己，不需要生成
+    private void colorSsaValues(List<Register> registers, Function func){
+        LiveValueAnalyze liveValueAnalyze = LiveValueAnalyze.of(func);
+        Map<BasicBlock, Set<Instruction>> outSets = liveValueAnalyze.getOutSets();
+
+        // 按指令顺序收集，保证结果与集合的遍历顺序无关
+        Set<Instruction> liveOutValues = new HashSet<>();
+        for (Set<Instruction> outSet : outSets.values()) {
+            liveOutValues.addAll(outSet);
+        }
+        Set<Instruction> candidateSet = new LinkedHashSet<>();
+        for (BasicBlock block : func.getBasicBlocks()) {
+            for (Instruction inst : block.getInstructions()) {
+                if (inst instanceof PhiInst || liveOutValues.contains(inst)) {
+                    candidateSet.add(inst);
+                }
+            }
+        }
+        if (candidateSet.isEmpty()) {
+            return;
+        }
+
+        ConflictGraph<Instruction> conflictGraph = buildValueConflictGraph(func, candidateSet, outSets);
+
+        // 溢出代价：定义和使用次数，按所在块的循环嵌套深度加权
+        LoopInfo loopInfo = LoopInfo.of(func);
+        Map<Instruction, Double> spillCosts = new HashMap<>();
+        for (Instruction inst : candidateSet) {
+            spillCosts.put(inst, (1 + inst.getUseNum()) * Math.pow(10, Math.min(loopInfo.getLoopDepth(inst.getBasicBlock()), 4)));
+        }
+
+        Map<Instruction, Instruction> leaders = new HashMap<>();
+        int degreeThreshold = registers.size();
+        for (BasicBlock block : func.getBasicBlocks()) {
+            for (PhiInst phi : block.getPhis()) {
+                for (int i = 0; i < phi.getIncomingNum(); i++) {
+                    if (phi.getIncomingValue(i) instanceof Instruction value && candidateSet.contains(value)) {
+                        coalesce(conflictGraph, leaders, spillCosts, findLeader(leaders, phi), findLeader(leaders, value), degreeThreshold);
+                    }
+                }
+            }
+        }
+
+        // 无法简化时选代价与度数之比最小的结点，仍然压栈，着色时邻居可能恰好用了相同的寄存器
+        ConflictGraph<Instruction> graphForColor = conflictGraph.copy();
+        Deque<Instruction> nodesToColor = new ArrayDeque<>();
+        while (!graphForColor.isEmpty()) {
+            Instruction candidate = null;
+            for (Instruction node : graphForColor.getNodes()) {
+                if (graphForColor.getConflict(node).size() < degreeThreshold) {
+                    candidate = node;
+                    break;
+                }
+            }
+            if (candidate == null) {
+                double minRatio = Double.MAX_VALUE;
+                for (Instruction node : graphForColor.getNodes()) {
+                    double ratio = spillCosts.get(node) / graphForColor.getConflict(node).size();
+                    if (candidate == null || ratio < minRatio) { // 没有可用寄存器时孤立结点的比值是无穷大
+                        minRatio = ratio;
+                        candidate = node;
+                    }
+                }
+            }
+            nodesToColor.push(candidate);
+            graphForColor.removeNode(candidate);
+        }
+
+        Map<Instruction, Register> colors = new HashMap<>();
+        while (!nodesToColor.isEmpty()) {
+            Instruction node = nodesToColor.pop();
+            Set<Register> preserveRegs = new HashSet<>();
+            for (Instruction conflictNode : conflictGraph.getConflict(node)) {
+                if (colors.containsKey(conflictNode)) {
+                    preserveRegs.add(colors.get(conflictNode));
+                }
+            }
+            for (Register register : registers) {
+                if (!preserveRegs.contains(register)) {
+                    colors.put(node, register);
+                    break;
+                }
+            }
+        }
+
+        for (Instruction inst : candidateSet) {
+            Register register = colors.get(findLeader(leaders, inst));
+            if (register != null) {
+                localValueMap.put(inst, register);
+            } else {
+                spilledValueNum++;
+            }
+        }
+    }
+
+    // 从后往前扫描每个块：定义点与此时活跃的值冲突；指令的操作数也算作活跃，
+    // 翻译时结果寄存器可能在读完所有操作数之前就被写入。同一块的 phi 在入口同时被写入，两两冲突
+    private static ConflictGraph<Instruction> buildValueConflictGraph(Function func, Set<Instruction> candidateSet,
+                                                                       Map<BasicBlock, Set<Instruction>> outSets) {
+        ConflictGraph<Instruction> graph = new ConflictGraph<>(new ArrayList<>(candidateSet));
+        for (BasicBlock block : func.getBasicBlocks()) {
+            Set<Instruction> live = new HashSet<>(outSets.get(block));
+            for (Instruction inst = block.getLastInstruction(); inst != null && !(inst instanceof PhiInst); inst = inst.getPrev()) {
+                live.remove(inst);
+                for (Value operand : inst.getOperands()) {
+                    if (LiveValueAnalyze.isTracked(operand)) {
+                        live.add((Instruction) operand);
+                    }
+                }
+                if (candidateSet.contains(inst)) {
+                    for (Instruction other : live) {
+                        if (candidateSet.contains(other)) {
+                            graph.addConflict(inst, other);
+                        }
+                    }
+                }
+            }
+
+            List<PhiInst> phis = block.getPhis();
+            phis.forEach(live::remove);
+            for (PhiInst phi : phis) {
+                for (Instruction other : live) {
+                    if (candidateSet.contains(other)) {
+                        graph.addConflict(phi, other);
+                    }
+                }
+                for (PhiInst otherPhi : phis) {
+                    if (otherPhi != phi) {
+                        graph.addConflict(phi, otherPhi);
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
+    private static Instruction findLeader(Map<Instruction, Instruction> leaders, Instruction inst) {
+        Instruction leader = inst;
+        while (leaders.containsKey(leader)) {
+            leader = leaders.get(leader);
+        }
+        if (leader != inst) {
+            leaders.put(inst, leader);
+        }
+        return leader;
+    }
+
+    // 保守合并（Briggs）：合并后度数不小于寄存器数的邻居少于寄存器数时才合并，不会使原本能着色的图无法着色
+    private static void coalesce(ConflictGraph<Instruction> graph, Map<Instruction, Instruction> leaders,
+                                 Map<Instruction, Double> spillCosts, Instruction a, Instruction b, int degreeThreshold) {
+        if (a == b || graph.getConflict(a).contains(b)) {
+            return;
+        }
+        Set<Instruction> neighbors = new HashSet<>(graph.getConflict(a));
+        neighbors.addAll(graph.getConflict(b));
+        int significantNum = 0;
+        for (Instruction neighbor : neighbors) {
+            if (graph.getConflict(neighbor).size() >= degreeThreshold) {
+                significantNum++;
+            }
+        }
+        if (significantNum >= degreeThreshold) {
+            return;
+        }
+
+        for (Instruction neighbor : graph.getConflict(b)) {
+            graph.addConflict(a, neighbor);
+        }
+        graph.removeNode(b);
+        leaders.put(b, a);
+        spillCosts.put(a, spillCosts.get(a) + spillCosts.get(b));
     }
 
     public void clearLocals(){
         localValueMap.clear();
     }
 
+    public int getSpilledNum(){
+        return spilledNum;
+    }
+
     public List<Register> getRegistersInUse(){
         return localValueMap.values().stream().filter(elm -> elm instanceof Register).map(elm -> (Register)elm).distinct().toList();
     }
@@ -224,11 +415,12 @@ public class ValueManager {
                 .toList();
 
         Map<AllocInst, Integer> refCounts = new HashMap<>();
+        LoopInfo loopInfo = LoopInfo.of(function);
 
         for (AllocInst inst : integerVarInsts){
             int refCount = 0;
             for (Use use : inst.getUseList()){
-                int loopWeight = ((Instruction) use.getUser()).getBasicBlock().getLoopNum();
+                int loopWeight = loopInfo.getLoopDepth(((Instruction) use.getUser()).getBasicBlock());
                 if(loopWeight > 0){
                     refCount += 5 * loopWeight;
                 }else {
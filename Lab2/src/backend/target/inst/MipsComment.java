@@ -1,10 +1,10 @@
 package backend.target.inst;
 
+import backend.Emitter;
 import backend.ir.inst.Instruction;
 
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.PrintStream;
+import java.nio.channels.Channels;
 
 // text中的注释
 public class MipsComment extends MipsText{
@@ -15,16 +15,12 @@ public class MipsComment extends MipsText{
     }
 
     public MipsComment(Instruction instruction){
-        String printText;
-
-        try(ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        PrintStream printStream = new PrintStream(outputStream, true)
-        ){
-            instruction.dump(printStream);
-            printText = outputStream.toString();
-        }catch(IOException e){
-            throw new RuntimeException(e);
-        }
+        // 一条指令的文本很短，用小缓冲区即可
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Emitter emitter = new Emitter(Channels.newChannel(outputStream), 128);
+        instruction.dump(emitter);
+        emitter.flush();
+        String printText = outputStream.toString();
         this.comment = printText.substring(0, printText.length() - 1);
     }
 
@@ -32,4 +28,9 @@ public class MipsComment extends MipsText{
     public String toString(){
         return "# " + comment;
     }
+
+    @Override
+    public void emit(Emitter out){
+        out.write("# ").write(comment);
+    }
 }
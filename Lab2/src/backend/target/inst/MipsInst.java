@@ -1,11 +1,18 @@
 package backend.target.inst;
 
+import backend.Emitter;
 import backend.target.value.TargetValue;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MipsInst extends MipsText{
+    // 指令名补齐到 6 列再加一个空格后的字节，同名指令共用一份
+    private static final Map<String, byte[]> MNEMONICS = new ConcurrentHashMap<>();
+
     private String instName;
     private List<TargetValue> values = new ArrayList<>();
 
@@ -20,4 +27,16 @@ public class MipsInst extends MipsText{
                 String.join(", ", values.stream().map(TargetValue::toString).toList());
         return sb;
     }
+
+    @Override
+    public void emit(Emitter out) {
+        out.write(MNEMONICS.computeIfAbsent(instName,
+                name -> String.format("%-6s ", name).getBytes(StandardCharsets.US_ASCII)));
+        for (int i = 0; i < values.size(); i++) {
+            if (i != 0) {
+                out.write(", ");
+            }
+            values.get(i).emit(out);
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package backend.target.inst;
 
+import backend.Emitter;
+
 // mips 标签
 public class MipsLabel extends MipsText{
     private String labelName;
@@ -12,4 +14,9 @@ public class MipsLabel extends MipsText{
     public String toString() {
         return labelName + ":";
     }
+
+    @Override
+    public void emit(Emitter out) {
+        out.write(labelName).write(':');
+    }
 }
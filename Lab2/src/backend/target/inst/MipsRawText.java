@@ -0,0 +1,24 @@
+package backend.target.inst;
+
+import backend.Emitter;
+
+import java.nio.charset.StandardCharsets;
+
+// 已经输出过的一段汇编文本（增量编译缓存中的函数），原样写出
+public class MipsRawText extends MipsText{
+    private final byte[] text;
+
+    public MipsRawText(byte[] text) {
+        this.text = text;
+    }
+
+    @Override
+    public String toString() {
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void emit(Emitter out) {
+        out.write(text);
+    }
+}
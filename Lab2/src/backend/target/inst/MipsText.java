@@ -1,4 +1,10 @@
 package backend.target.inst;
 
+import backend.Emitter;
+
 public class MipsText {
+    // 与 toString() 输出相同
+    public void emit(Emitter out) {
+        out.write(toString());
+    }
 }
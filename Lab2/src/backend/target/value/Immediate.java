@@ -1,5 +1,7 @@
 package backend.target.value;
 
+import backend.Emitter;
+
 public class Immediate extends TargetValue{
     private int value;
 
@@ -19,4 +21,9 @@ public class Immediate extends TargetValue{
     public String toString() {
         return Integer.toString(value);
     }
+
+    @Override
+    public void emit(Emitter out) {
+        out.write(value);
+    }
 }
@@ -1,5 +1,7 @@
 package backend.target.value;
 
+import backend.Emitter;
+
 public class Label extends TargetValue{
     private String labelName;
 
@@ -11,6 +13,11 @@ public class Label extends TargetValue{
         return labelName;
     }
 
+    @Override
+    public void emit(Emitter out){
+        out.write(labelName);
+    }
+
     public void setLabelName(String labelName){
         this.labelName = labelName;
     }
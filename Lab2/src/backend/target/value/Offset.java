@@ -1,5 +1,7 @@
 package backend.target.value;
 
+import backend.Emitter;
+
 // 内存偏移量
 public class Offset extends TargetValue{
     private Register base;
@@ -30,4 +32,11 @@ public class Offset extends TargetValue{
     public String toString() {
         return offset + "(" + base + ")";
     }
+
+    @Override
+    public void emit(Emitter out) {
+        out.write(offset).write('(');
+        base.emit(out);
+        out.write(')');
+    }
 }
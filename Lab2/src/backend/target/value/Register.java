@@ -1,15 +1,19 @@
 package backend.target.value;
 
+import backend.Emitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 
 public class Register extends TargetValue{
     private String registerName;
+    private byte[] bytes; // 输出用的 "$name"
 
     public Register(String registerName){
-        this.registerName = registerName;
+        setRegisterName(registerName);
     }
 
     public String getRegisterName(){
@@ -18,6 +22,7 @@ public class Register extends TargetValue{
 
     public void setRegisterName(String registerName){
         this.registerName = registerName;
+        this.bytes = ("$" + registerName).getBytes(StandardCharsets.US_ASCII);
     }
 
     @Override
@@ -25,9 +30,13 @@ public class Register extends TargetValue{
         return "$" + registerName;
     }
 
-    public static Map<String, Register> REGS = new HashMap<String, Register>();
-    private static Stack<Register> TEMP_REGS = new Stack<>();
-    private static Stack<Register> TEMP_REGS_USING = new Stack<>();
+    @Override
+    public void emit(Emitter out){
+        out.write(bytes);
+    }
+
+    // 所有寄存器共用这些对象，初始化后不再修改，可以在多个线程中读取
+    public static final Map<String, Register> REGS;
 
     static {
         List<String> registerNames = List.of(
@@ -37,29 +46,10 @@ public class Register extends TargetValue{
                 "sp", "fp", "ra"
         );
 
-        List<String> tempRegisterNames = List.of("t5", "t6", "t7");
-
+        Map<String, Register> registers = new HashMap<>();
         for (String registerName : registerNames){
-            Register reg = new Register(registerName);
-            REGS.put(registerName, reg);
-            if (tempRegisterNames.contains(registerName)){
-                TEMP_REGS.add(reg);
-            }
-        }
-    }
-
-    public static Register allocTempRegister(){
-        if (TEMP_REGS.isEmpty()){
-            return null;
-        }
-        Register reg = TEMP_REGS.pop();
-        TEMP_REGS_USING.push(reg);
-        return reg;
-    }
-
-    public static void freeAllTempRegister(){
-        while (!TEMP_REGS_USING.isEmpty()){
-            TEMP_REGS.push(TEMP_REGS_USING.pop());
+            registers.put(registerName, new Register(registerName));
         }
+        REGS = Collections.unmodifiableMap(registers);
     }
 }
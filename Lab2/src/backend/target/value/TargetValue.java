@@ -1,4 +1,10 @@
 package backend.target.value;
 
+import backend.Emitter;
+
 public class TargetValue {
+    // 与 toString() 输出相同，子类按需避免创建字符串
+    public void emit(Emitter out) {
+        out.write(toString());
+    }
 }
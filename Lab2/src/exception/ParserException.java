@@ -5,4 +5,8 @@ public class ParserException extends CompilerException{
     public ParserException() {
         super();
     }
+
+    public ParserException(String message) {
+        super(message);
+    }
 }
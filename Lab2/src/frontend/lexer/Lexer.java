@@ -1,370 +1,325 @@
 package frontend.lexer;
 
 import error.ErrorRecorder;
-import error.ErrorType;
 import exception.LexerException;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.Map;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * 词法分析：整个源文件先读进一个字节数组，按字符类别表驱动的状态机扫描，
+ * 关键字用完美哈希查表识别，标识符和数字的内容只记录位置，用到时才生成字符串
+ */
 public class Lexer {
-    private final Reader reader; //读取
     private final ErrorRecorder errorRecorder; //错误记录
     private int lineNum = 1; //当前行号
-    private int readIndex; // 主指针
-    private String code; //源代码
-    private Token token = null; //当前的token
+    private int readIndex = 0; // 主指针
+    private final byte[] code; //源代码
+    private final Charset charset; // 源代码的编码，字符串常量和非 ASCII 字符按它解码
+    // 当前的token，只记录类型和位置，getToken() 时才创建对象
+    private TokenType tokenType = null;
+    private int tokenStart;
+    private int tokenLength;
+    private String tokenText; // 字符串常量的内容，其他 token 为 null
+    private int tokenLine;
 
-    private boolean hasBackChar = false; //是否需要回退字符
-    private int backChar; // 需要回退的字符
+    // 字符类别
+    private static final byte OTHER = 0;
+    private static final byte LETTER = 1; // 字母或下划线（可做标识符开头）
+    private static final byte DIGIT = 2;
+    private static final byte SPACE = 3; // 除换行符外的空白符
+    private static final byte NEWLINE = 4;
+    private static final byte QUOTE = 5; // 双引号" 字符串常量
+    private static final byte SLASH = 6; // 除号，单行注释，多行注释
+    private static final byte SINGLE = 7; // 单字符的符号
+    private static final byte WITH_EQ = 8; // 后面可以跟 = 的符号：! < > =
+    private static final byte DOUBLE = 9; // 可以重复两次的符号：& |
+    private static final byte NON_ASCII = 10;
 
-    private final int EOF = -1;
+    private static final byte[] CHAR_CLASS = new byte[256];
+    private static final TokenType[] SINGLE_TYPE = new TokenType[128]; // 符号单独出现时的类型
+    private static final TokenType[] PAIR_TYPE = new TokenType[128]; // 符号后跟 = 或自身时的类型
 
-    // 关键字映射表
-    private final static Map<String, TokenType> keyWordTable = Map.ofEntries(
-            Map.entry("const", TokenType.CONSTTK),
-            Map.entry("int", TokenType.INTTK),
-            Map.entry("static", TokenType.STATICTK),
-            Map.entry("break", TokenType.BREAKTK),
-            Map.entry("continue", TokenType.CONTINUETK),
-            Map.entry("if", TokenType.IFTK),
-            Map.entry("main", TokenType.MAINTK),
-            Map.entry("else", TokenType.ELSETK),
-            Map.entry("for", TokenType.FORTK),
-            Map.entry("return", TokenType.RETURNTK),
-            Map.entry("void", TokenType.VOIDTK),
-            Map.entry("printf", TokenType.PRINTFTK)
-    );
+    // 关键字完美哈希表：(首字符 + 末字符 * 12 + 长度) & 15 在 12 个关键字上没有冲突
+    private static final byte[][] KEYWORD_BYTES = new byte[16][];
+    private static final TokenType[] KEYWORD_TYPES = new TokenType[16];
 
-    public Lexer(Reader reader, ErrorRecorder errorRecorder) {
-        this.reader = reader;
+    static {
+        for (int c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASS[c] = LETTER;
+            CHAR_CLASS[c - 'a' + 'A'] = LETTER;
+        }
+        CHAR_CLASS['_'] = LETTER;
+        for (int c = '0'; c <= '9'; c++) {
+            CHAR_CLASS[c] = DIGIT;
+        }
+        // 与 Character.isWhitespace 在 ASCII 范围内的结果一致
+        for (int c : new int[]{' ', '\t', 0x0B, '\f', '\r', 0x1C, 0x1D, 0x1E, 0x1F}) {
+            CHAR_CLASS[c] = SPACE;
+        }
+        CHAR_CLASS['\n'] = NEWLINE;
+        CHAR_CLASS['"'] = QUOTE;
+        CHAR_CLASS['/'] = SLASH;
+        for (int c = 0x80; c < 0x100; c++) {
+            CHAR_CLASS[c] = NON_ASCII;
+        }
+
+        TokenType[] singles = {TokenType.PLUS, TokenType.MINU, TokenType.MULT, TokenType.MOD,
+                TokenType.SEMICN, TokenType.COMMA, TokenType.LPARENT, TokenType.RPARENT,
+                TokenType.LBRACK, TokenType.RBRACK, TokenType.LBRACE, TokenType.RBRACE};
+        for (TokenType type : singles) {
+            char c = type.toString().charAt(0);
+            CHAR_CLASS[c] = SINGLE;
+            SINGLE_TYPE[c] = type;
+        }
+        SINGLE_TYPE['/'] = TokenType.DIV;
+
+        addPair(WITH_EQ, TokenType.NOT, TokenType.NEQ);
+        addPair(WITH_EQ, TokenType.LSS, TokenType.LEQ);
+        addPair(WITH_EQ, TokenType.GRE, TokenType.GEQ);
+        addPair(WITH_EQ, TokenType.ASSIGN, TokenType.EQL);
+        // 单独的 & | 不合法，生成一个非法类型，否则语法分析识别不到该字符
+        addPair(DOUBLE, TokenType.SINGLE_AND, TokenType.AND);
+        addPair(DOUBLE, TokenType.SINGLE_OR, TokenType.OR);
+
+        TokenType[] keywords = {TokenType.CONSTTK, TokenType.INTTK, TokenType.STATICTK, TokenType.BREAKTK,
+                TokenType.CONTINUETK, TokenType.IFTK, TokenType.MAINTK, TokenType.ELSETK,
+                TokenType.FORTK, TokenType.RETURNTK, TokenType.VOIDTK, TokenType.PRINTFTK};
+        for (TokenType type : keywords) {
+            byte[] bytes = type.toString().getBytes(StandardCharsets.US_ASCII);
+            int hash = keywordHash(bytes, 0, bytes.length);
+            if (KEYWORD_TYPES[hash] != null) {
+                throw new IllegalStateException("keyword hash collision: " + type);
+            }
+            KEYWORD_BYTES[hash] = bytes;
+            KEYWORD_TYPES[hash] = type;
+        }
+    }
+
+    private static void addPair(byte charClass, TokenType single, TokenType pair) {
+        char c = single.toString().charAt(0);
+        CHAR_CLASS[c] = charClass;
+        SINGLE_TYPE[c] = single;
+        PAIR_TYPE[c] = pair;
+    }
+
+    private static int keywordHash(byte[] bytes, int start, int length) {
+        return (bytes[start] + bytes[start + length - 1] * 12 + length) & 15;
+    }
+
+    // 按平台默认编码读入的源代码，与 InputStreamReader 的解码结果相同
+    public Lexer(byte[] code, ErrorRecorder errorRecorder) {
+        this(code, Charset.defaultCharset(), errorRecorder);
+    }
+
+    // 从字符流读入，先整体转成 UTF-8 字节再扫描
+    public Lexer(Reader reader, ErrorRecorder errorRecorder) throws IOException {
+        this(readAll(reader).getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, errorRecorder);
+    }
+
+    private Lexer(byte[] code, Charset charset, ErrorRecorder errorRecorder) {
+        this.code = code;
+        this.charset = charset;
         this.errorRecorder = errorRecorder;
     }
 
-    public boolean next() throws IOException, LexerException {
-        TokenType tokenType; //token类型
-        String content; //token的内容
+    private static String readAll(Reader reader) throws IOException {
         StringBuilder builder = new StringBuilder();
-        int c = getChar();
-        builder.append((char) c); //先加进去builder
+        char[] buffer = new char[8192];
+        int length;
+        while ((length = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, length);
+        }
+        return builder.toString();
+    }
 
-        //关键字或标识符
-        // 字母或下划线（可做标识符开头）
-        if(isLetter(c)){
-            c = getChar();
-            while(isLetter(c) || isDigit(c)){
-                builder.append((char) c);
-                c = getChar();
-            }
-            //不符合，回退
-            backChar(c);
-            content = builder.toString();//具体内容
-            // 是否为关键字，否则为标识符
-            // 找对应的类型，没找到默认IDENFR（标识符）
-            tokenType = keyWordTable.getOrDefault(content, TokenType.IDENFR);
-            token = new Token(content, tokenType, lineNum);
-        } else if (isPositiveDigit(c)) {// 数字（非0）
-            c = getChar();
-            while(isDigit(c)){
-                builder.append((char) c);
-                c = getChar();
-            }
-            backChar(c);//不再是数字，回退
-            content = builder.toString();
-            tokenType = TokenType.INTCON;
-            token = new Token(content, tokenType, lineNum);
-        } else if (c == '0') { // 开头是数字0
-            content = builder.toString(); // 0
-            tokenType = TokenType.INTCON;
-            token = new Token(content, tokenType, lineNum);
-        } else if (c == '\"') { //双引号" 字符串常量
-            c = getChar();
-            while (c != EOF && c != '\"'){
-                builder.append((char) c);
-                //“”中只能出现字符串或者%d或者\n
-                if(c == '%'){
-                    c = getChar();
-                    if (c == 'd') {
-                        builder.append((char) c);
-                    }else { //不合法（词法分析不会出现此处错误）
-                        builder.append((char) c);
-                    }
-                    if(c == '\"'){
-                        break; //字符串结束
-                    }
-                } else if (c == '\\') { // 斜杠\
-                    c = getChar();
-                    if (c == 'n') {
-                        builder.append((char) c);
-                    }else {
-                        builder.append((char) c);
-                        //errorRecorder.addError(ErrorType.ILLEGAL_SYMBOL, lineNum);
-                    }
-                    if(c == '\"'){
-                        break;
+    public boolean next() throws LexerException {
+        int end = code.length;
+        while (readIndex < end) {
+            int start = readIndex;
+            int c = code[readIndex] & 0xff;
+
+            switch (CHAR_CLASS[c]) {
+                case LETTER -> {
+                    // 关键字或标识符
+                    readIndex++;
+                    while (readIndex < end && (CHAR_CLASS[code[readIndex] & 0xff] == LETTER
+                            || CHAR_CLASS[code[readIndex] & 0xff] == DIGIT)) {
+                        readIndex++;
                     }
+                    TokenType keyword = findKeyword(start, readIndex - start);
+                    setToken(keyword != null ? keyword : TokenType.IDENFR, start, null);
+                    return true;
                 }
-                c= getChar();
-            }
-            if(c == '\"'){ //右双引号（字符串结束）
-                builder.append((char) c);
-                content = builder.toString();
-                tokenType = TokenType.STRCON;
-                token = new Token(content, tokenType, lineNum);
-            }
-            //其他情况不合法
-        } else if (c == '!') {
-            c = getChar(); // 判断下一个是否为 =
-            if(c == '='){
-                builder.append((char) c);
-                content = builder.toString();
-                tokenType = TokenType.NEQ; // !=
-                token = new Token(content, tokenType, lineNum);
-            }else {
-                backChar(c);//回退
-                content = builder.toString();
-                tokenType = TokenType.NOT; // !
-                token = new Token(content, tokenType, lineNum);
-            }
-        } else if (c == '&') {
-            c = getChar(); // 判断下一个是否为&
-            if(c == '&'){
-                builder.append((char) c);
-                content = builder.toString();
-                tokenType = TokenType.AND;
-                token = new Token(content, tokenType, lineNum);
-            }else{
-                //错误处理
-                //errorRecorder.addError(ErrorType.ILLEGAL_SYMBOL, lineNum);
-                // 错误处理加到语法分析中
-                // 回退字符
-                // 没有符合的字符类型创造一个非法类型，否则语法分析识别不到该字符
-                backChar(c);
-                content = builder.toString();
-                tokenType = TokenType.SINGLE_AND;
-                token = new Token(content, tokenType, lineNum);
-                //return next();
-            }
-        } else if (c == '|') {
-            c = getChar();
-            if(c == '|'){
-                builder.append((char) c);
-                content = builder.toString();
-                tokenType = TokenType.OR;
-                token = new Token(content, tokenType, lineNum);
-            }else {
-                //错误处理
-                //errorRecorder.addError(ErrorType.ILLEGAL_SYMBOL, lineNum);
-                backChar(c);
-                content = builder.toString();
-                tokenType = TokenType.SINGLE_OR;
-                token = new Token(content, tokenType, lineNum);
-                //return next();
-            }
-        } else if (c == '+') {
-            content = builder.toString();
-            tokenType = TokenType.PLUS;
-            token = new Token(content, tokenType, lineNum);
-        } else if (c == '-') {
-            content = builder.toString();
-            tokenType = TokenType.MINU;
-            token = new Token(content, tokenType, lineNum);
-        } else if (c == '*') {
-            content = builder.toString();
-            tokenType = TokenType.MULT;
-            token = new Token(content, tokenType, lineNum);
-        } else if (c == '/') { //除号，单行注释，多行注释
-            c = getChar();
-            if (c == '*') { // 多行注释
-                builder.append((char) c);
-                c = getChar();
-                while (c != EOF){
-                    while (c != '*'){
-                        builder.append((char) c);
-                        if(c == '\n'){
-                            lineNum++; //在注释中换行
+                case DIGIT -> {
+                    // 开头是0时只有一个0
+                    readIndex++;
+                    if (c != '0') {
+                        while (readIndex < end && CHAR_CLASS[code[readIndex] & 0xff] == DIGIT) {
+                            readIndex++;
                         }
-                        c = getChar();
                     }
-                    while (c == '*'){ // *后面可能有多个*
-                        builder.append((char) c);
-                        c = getChar();
-                    }
-                    if(c == '/'){ // 结尾
-                        builder.append((char) c);
-                        return next();
+                    setToken(TokenType.INTCON, start, null);
+                    return true;
+                }
+                case SPACE -> readIndex++;
+                case NEWLINE -> {
+                    lineNum++;
+                    readIndex++;
+                }
+                case QUOTE -> {
+                    return scanString(start);
+                }
+                case SLASH -> {
+                    int next = readIndex + 1 < end ? code[readIndex + 1] : -1;
+                    if (next == '*') { // 多行注释
+                        if (!skipBlockComment()) {
+                            return false;
+                        }
+                    } else if (next == '/') { // 单行注释，换行符留给下一次解析更新行号
+                        readIndex += 2;
+                        while (readIndex < end && code[readIndex] != '\n') {
+                            readIndex++;
+                        }
+                    } else {
+                        readIndex++;
+                        setToken(TokenType.DIV, start, null);
+                        return true;
                     }
                 }
-                backChar(c);
-            } else if (c == '/') { // 单行注释
-                builder.append((char) c);
-                c = getChar();
-                while (c != EOF && c != '\n'){
-                    builder.append((char) c);
-                    c = getChar();
+                case SINGLE -> {
+                    readIndex++;
+                    setToken(SINGLE_TYPE[c], start, null);
+                    return true;
                 }
-                backChar(c); // 回退换行符（留给下一次解析更新行号）
-                // 当前字符序列不需要生成 Token（如注释），或需要跳过无效字符，
-                // 必须递归调用 next() 继续解析下一个有效 Token，避免返回空 Token 或终止解析。
-                return next();
-            } else {
-                backChar(c); //不读下一个字符
-                content = builder.toString();
-                tokenType = TokenType.DIV;
-                token = new Token(content, tokenType, lineNum);
-            }
-        } else if (c == '%') {
-            content = builder.toString();
-            tokenType = TokenType.MOD;
-            token = new Token(content, tokenType, lineNum);
-        } else if (c == '<') { // <  <=
-            c = getChar();
-            if (c == '=') {
-                builder.append((char) c);
-                content = builder.toString();
-                tokenType = TokenType.LEQ;
-                token = new Token(content, tokenType, lineNum);
-            }else {
-                backChar(c);//回退
-                content = builder.toString();
-                tokenType = TokenType.LSS;
-                token = new Token(content, tokenType, lineNum);
-            }
-        } else if (c == '>') {
-            c = getChar();
-            if (c == '=') {
-                builder.append((char) c);
-                content = builder.toString();
-                tokenType = TokenType.GEQ;
-                token = new Token(content, tokenType, lineNum);
-            }else {
-                backChar(c);
-                content = builder.toString();
-                tokenType = TokenType.GRE;
-                token = new Token(content, tokenType, lineNum);
-            }
-        } else if (c == '=') {
-            c = getChar();
-            if (c == '=') {
-                builder.append((char) c);
-                content = builder.toString();
-                tokenType = TokenType.EQL;
-                token = new Token(content, tokenType, lineNum);
-            }else {
-                backChar(c);
-                content = builder.toString();
-                tokenType = TokenType.ASSIGN;
-                token = new Token(content, tokenType, lineNum);
+                case WITH_EQ, DOUBLE -> {
+                    int follow = CHAR_CLASS[c] == WITH_EQ ? '=' : c;
+                    TokenType type;
+                    if (readIndex + 1 < end && code[readIndex + 1] == follow) {
+                        readIndex += 2;
+                        type = PAIR_TYPE[c];
+                    } else {
+                        readIndex++;
+                        type = SINGLE_TYPE[c];
+                    }
+                    setToken(type, start, null);
+                    return true;
+                }
+                case NON_ASCII -> skipNonAsciiWhitespace();
+                default -> throw new LexerException();
             }
-        } else if (c == ';') {
-            content = builder.toString();
-            tokenType = TokenType.SEMICN;
-            token = new Token(content, tokenType, lineNum);
-        } else if (c == ',') {
-            content = builder.toString();
-            tokenType = TokenType.COMMA;
-            token = new Token(content, tokenType, lineNum);
-        } else if (c == '(') {
-            content = builder.toString();
-            tokenType = TokenType.LPARENT;
-            token = new Token(content, tokenType, lineNum);
-        }else if (c == ')') {
-            content = builder.toString();
-            tokenType = TokenType.RPARENT;
-            token = new Token(content, tokenType, lineNum);
-        }else if (c == '[') {
-            content = builder.toString();
-            tokenType = TokenType.LBRACK;
-            token = new Token(content, tokenType, lineNum);
-        }else if (c == ']') {
-            content = builder.toString();
-            tokenType = TokenType.RBRACK;
-            token = new Token(content, tokenType, lineNum);
-        }else if (c == '{') {
-            content = builder.toString();
-            tokenType = TokenType.LBRACE;
-            token = new Token(content, tokenType, lineNum);
-        }else if (c == '}') {
-            content = builder.toString();
-            tokenType = TokenType.RBRACE;
-            token = new Token(content, tokenType, lineNum);
-        } else if (c == '\n') {
-            lineNum++;
-            return next(); // 换行符不生成Token，继续解析下一行
-        } else if (isWhitespaceWithoutLine(c)) { //除换行符外的空白符
-            return next(); // 跳过空白符，继续解析下一个Token
-            // 若不调用 next()：会返回 true 但 token 为 null，解析器无法获取有效 Token。
-        } else if (c == EOF) {
-            //backChar(c);
-            return false;
-        }else {
-            //错误处理
-            throw new LexerException();
-        }
-        return true; 
-    }
-
-    /**
-     * 获取输入流中的字符，需要回退则返回回退的字符
-     * @return
-     */
-    private int getChar() throws IOException {
-        //有回退的字符优先读取回退的字符（字符相当于进行了缓存）
-        if (hasBackChar) {
-            hasBackChar = false; // 清除回退的字符
-            return backChar;//回退的字符
-        }else {
-            // 没有缓存的回退字符则正常读取
-            int nextChar = reader.read();// 下一个字符
-            return nextChar;
         }
+        return false;
     }
 
-    /**
-     * 回退字符
-     * @param c
-     * @throws IOException
-     */
-    private void backChar(int c) throws IOException {
-        // 相当于将需要回退的字符缓存起来，下次getchar优先读取
-        hasBackChar = true;
-        backChar = c;
-    }
-
-
-    private static boolean isDigit(int c){
-        return c >= '0' && c <= '9';
+    private void setToken(TokenType type, int start, String text) {
+        tokenType = type;
+        tokenStart = start;
+        tokenLength = readIndex - start;
+        tokenText = text;
+        tokenLine = lineNum;
     }
 
-    //开头不是0（验证数字）
-    private static boolean isPositiveDigit(int c){
-        return c >= '1' && c <= '9';
+    private TokenType findKeyword(int start, int length) {
+        int hash = keywordHash(code, start, length);
+        byte[] keyword = KEYWORD_BYTES[hash];
+        if (keyword == null || keyword.length != length) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            if (keyword[i] != code[start + i]) {
+                return null;
+            }
+        }
+        return KEYWORD_TYPES[hash];
     }
 
     /**
-     * 可以当做标识符的首字符
-     * @param c
-     * @return
+     * 字符串常量：%和\会连同后一个字符一起读入，
+     * 如果被带走的是右双引号，字符串在此结束，内容末尾再补一个双引号
+     * 没有右双引号时不生成新的 token
      */
-    private static boolean isLetter(int c){
-        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c == '_');
+    private boolean scanString(int start) {
+        int end = code.length;
+        readIndex++;
+        while (readIndex < end) {
+            byte c = code[readIndex];
+            if (c == '"') {
+                readIndex++;
+                setToken(TokenType.STRCON, start, new String(code, start, readIndex - start, charset));
+                return true;
+            }
+            if ((c == '%' || c == '\\') && readIndex + 1 < end) {
+                readIndex++;
+                if (code[readIndex] == '"') {
+                    readIndex++;
+                    setToken(TokenType.STRCON, start, new String(code, start, readIndex - start, charset) + "\"");
+                    return true;
+                }
+            }
+            readIndex++;
+        }
+        return true;
     }
 
-    // 32空格 33感叹号 排除了34（双引号 "）、35（井号 #）、36（美元符 $）、37（百分号 %）、38（与号 &）、39（单引号 '）
-    private static boolean isNormalLetter(int c){
-        return c == 32 || c == 33 || (c >= 40 && c <= 126);
+    // 跳过多行注释并更新行号，注释没有结束时返回 false
+    private boolean skipBlockComment() {
+        int end = code.length;
+        readIndex += 2;
+        while (readIndex < end) {
+            byte c = code[readIndex++];
+            if (c == '\n') {
+                lineNum++; //在注释中换行
+            } else if (c == '*' && readIndex < end && code[readIndex] == '/') {
+                readIndex++;
+                return true;
+            }
+        }
+        return false;
     }
 
-    // 除换行符以外的空白符
-    private static boolean isWhitespaceWithoutLine(int c){
-        return Character.isWhitespace(c) && c != '\n';
+    // 连续的非 ASCII 字节按源代码编码解码，全部是空白符时跳过，否则不合法
+    private void skipNonAsciiWhitespace() throws LexerException {
+        int start = readIndex;
+        while (readIndex < code.length && CHAR_CLASS[code[readIndex] & 0xff] == NON_ASCII) {
+            readIndex++;
+        }
+        String text = new String(code, start, readIndex - start, charset);
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                throw new LexerException();
+            }
+        }
     }
 
     public Token getToken(){
-        if(token != null){
-            return token;
+        if (tokenType == null) {
+            return null;
+        } else if (tokenText != null) {
+            return new Token(tokenText, tokenType, tokenLine);
+        } else if (tokenType == TokenType.IDENFR || tokenType == TokenType.INTCON) {
+            return new Token(code, tokenStart, tokenLength, tokenType, tokenLine);
+        }
+        return new Token(tokenType.toString(), tokenType, tokenLine);
+    }
+
+    // 一次做完词法分析，结果按列存放，不为每个 token 创建对象
+    public TokenList tokenize() throws LexerException {
+        TokenList tokenList = new TokenList(code);
+        while (next()) {
+            if (tokenType == null) {
+                continue;
+            }
+            if (tokenText != null) {
+                tokenList.addToken(tokenType, tokenText, tokenLine);
+            } else if (tokenType == TokenType.IDENFR || tokenType == TokenType.INTCON) {
+                tokenList.addToken(tokenType, tokenStart, tokenLength, tokenLine);
+            } else {
+                tokenList.addToken(tokenType, null, tokenLine);
+            }
         }
-        return null;
+        return tokenList;
     }
 }
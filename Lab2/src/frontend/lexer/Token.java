@@ -1,20 +1,43 @@
 package frontend.lexer;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Token类
  */
 public class Token {
-    private final String tokenContent; //具体内容
+    private String tokenContent; //具体内容
     private final TokenType tokenType; //token类型
     private final int lineNum; //所在行号
 
+    // 标识符和数字的内容在用到时才从源代码中取出
+    private final byte[] source;
+    private final int offset;
+    private final int length;
+
     public Token(String tokenContent, TokenType tokenType, int lineNum) {
         this.tokenContent = tokenContent;
         this.tokenType = tokenType;
         this.lineNum = lineNum;
+        this.source = null;
+        this.offset = 0;
+        this.length = 0;
+    }
+
+    // source[offset, offset + length) 只含 ASCII 字符
+    public Token(byte[] source, int offset, int length, TokenType tokenType, int lineNum) {
+        this.tokenContent = null;
+        this.tokenType = tokenType;
+        this.lineNum = lineNum;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
     }
 
     public String getTokenContent() {
+        if (tokenContent == null) {
+            tokenContent = new String(source, offset, length, StandardCharsets.ISO_8859_1);
+        }
         return tokenContent;
     }
     public TokenType getTokenType() {
@@ -1,16 +1,178 @@
 package frontend.lexer;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * 词法分析的结果，按列存放：每个 token 只占几个 int，不再为每个 token 创建对象
+ *
+ * 标识符和数字的内容是源代码中的一段，相同内容只保存一份（内容编号相同），
+ * 用到时才生成字符串；关键字和符号的内容就是 TokenType 的拼写。
+ * 下标超出范围时视为文件结束：类型为 null，行号为 0
+ */
 public class TokenList {
-    private List<Token> tokenList = new ArrayList<>();
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 256;
+
+    private byte[] source = null; // 源代码，标识符和数字的内容取自这里
+    private int size = 0;
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private int[] textIds = new int[INITIAL_CAPACITY]; // 内容编号，关键字和符号为 -1
+
+    // 内容表：编号 -> 源代码中的位置，字符串常量等不在源代码中的内容长度记为 -1，直接保存字符串
+    private int textNum = 0;
+    private int[] textStarts = new int[INITIAL_CAPACITY];
+    private int[] textLengths = new int[INITIAL_CAPACITY];
+    private String[] texts = new String[INITIAL_CAPACITY];
+    private int[] textHashes = new int[INITIAL_CAPACITY];
+    private int[] internTable = new int[INITIAL_CAPACITY * 2]; // 开放寻址，存放 编号 + 1
+
+    public TokenList() {
+    }
+
+    public TokenList(byte[] source) {
+        this.source = source;
+    }
+
+    // source[start, start + length) 为 ASCII 的标识符或数字
+    public void addToken(TokenType type, int start, int length, int line) {
+        add(type, line, internSlice(start, length));
+    }
+
+    // 关键字、符号，或不在源代码中的内容（如字符串常量）
+    public void addToken(TokenType type, String text, int line) {
+        add(type, line, hasFixedSpelling(type) ? -1 : addText(text));
+    }
 
     public void addToken(Token token) {
-        tokenList.add(token);
+        addToken(token.getTokenType(), token.getTokenContent(), token.getLineNum());
+    }
+
+    private void add(TokenType type, int line, int textId) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            textIds = Arrays.copyOf(textIds, capacity);
+        }
+        types[size] = type.ordinal();
+        lines[size] = line;
+        textIds[size] = textId;
+        size++;
+    }
+
+    private static boolean hasFixedSpelling(TokenType type) {
+        return type != TokenType.IDENFR && type != TokenType.INTCON && type != TokenType.STRCON;
+    }
+
+    private int internSlice(int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = hash * 31 + source[i];
+        }
+
+        int mask = internTable.length - 1;
+        int slot = hash & mask;
+        while (internTable[slot] != 0) {
+            int id = internTable[slot] - 1;
+            if (textHashes[id] == hash && textLengths[id] == length
+                    && Arrays.equals(source, textStarts[id], textStarts[id] + length, source, start, start + length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = newText(start, length, null, hash);
+        internTable[slot] = id + 1;
+        if (textNum * 2 > internTable.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private int addText(String text) {
+        return newText(0, -1, text, 0);
+    }
+
+    private int newText(int start, int length, String text, int hash) {
+        if (textNum == texts.length) {
+            int capacity = textNum * 2;
+            textStarts = Arrays.copyOf(textStarts, capacity);
+            textLengths = Arrays.copyOf(textLengths, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            textHashes = Arrays.copyOf(textHashes, capacity);
+        }
+        textStarts[textNum] = start;
+        textLengths[textNum] = length;
+        texts[textNum] = text;
+        textHashes[textNum] = hash;
+        return textNum++;
+    }
+
+    private void rehash() {
+        internTable = new int[internTable.length * 2];
+        int mask = internTable.length - 1;
+        for (int id = 0; id < textNum; id++) {
+            if (textLengths[id] >= 0) {
+                int slot = textHashes[id] & mask;
+                while (internTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                internTable[slot] = id + 1;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType getType(int index) {
+        return index >= 0 && index < size ? TYPES[types[index]] : null;
+    }
+
+    public int getLine(int index) {
+        return index >= 0 && index < size ? lines[index] : 0;
+    }
+
+    // 内容编号，内容相同的标识符编号相同；关键字和符号为 -1
+    public int getTextId(int index) {
+        return index >= 0 && index < size ? textIds[index] : -1;
+    }
+
+    public String getContent(int index) {
+        if (index < 0 || index >= size) {
+            return "EOF";
+        }
+        int id = textIds[index];
+        if (id < 0) {
+            return TYPES[types[index]].toString();
+        }
+        if (texts[id] == null) {
+            texts[id] = new String(source, textStarts[id], textLengths[id], StandardCharsets.ISO_8859_1);
+        }
+        return texts[id];
+    }
+
+    // 给仍然使用 Token 对象的代码生成的临时视图
+    public Token getToken(int index) {
+        return new Token(getContent(index), getType(index), getLine(index));
     }
 
     public List<Token> getTokenList() {
-        return tokenList;
+        return new AbstractList<>() {
+            @Override
+            public Token get(int index) {
+                return getToken(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
 }
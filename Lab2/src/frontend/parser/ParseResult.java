@@ -1,18 +1,17 @@
 package frontend.parser;
 
-import frontend.lexer.Token;
 import frontend.parser.node.Node;
 
 public class ParseResult {
-    private final Token nextToken; // 解析完该节点后下一个Token
+    private final int nextToken; // 解析完该节点后下一个Token的下标
     private final Node subtree; // 解析后的语法树
 
-    public ParseResult(Token nextToken, Node subtree) {
+    public ParseResult(int nextToken, Node subtree) {
         this.nextToken = nextToken;
         this.subtree = subtree;
     }
 
-    public Token getNextToken() {
+    public int getNextToken() {
         return nextToken;
     }
 
@@ -6,7 +6,7 @@ import error.ErrorType;
 import exception.LexerException;
 import exception.ParserException;
 import frontend.lexer.Lexer;
-import frontend.lexer.Token;
+import frontend.lexer.TokenList;
 import frontend.lexer.TokenType;
 import frontend.parser.node.CompUnit;
 import frontend.parser.node.Node;
@@ -23,34 +23,41 @@ import java.io.IOException;
 
 public class Parser {
     private PreReadBuffer buf;
+    private TokenList tokens; // token 用下标表示，类型、内容和行号从这里查
     private ErrorRecorder errorRecorder;
 
     public Parser(Lexer lexer, ErrorRecorder errorRecorder) throws IOException, LexerException {
-        this.buf = new PreReadBuffer(lexer, 3);
+        this(lexer.tokenize(), errorRecorder);
+    }
+
+    // 在已完成的词法分析结果上做语法分析
+    public Parser(TokenList tokenList, ErrorRecorder errorRecorder) throws IOException, LexerException {
+        this.buf = new PreReadBuffer(tokenList);
+        this.tokens = tokenList;
         this.errorRecorder = errorRecorder;
     }
 
-    private static boolean isMatch(Token token, TokenType type) {
-        return token.getTokenType() == type;
+    private boolean isMatch(int token, TokenType type) {
+        return tokens.getType(token) == type;
     }
-    private static boolean isNotMatch(Token token, TokenType type) {
-        return token.getTokenType() != type;
+    private boolean isNotMatch(int token, TokenType type) {
+        return tokens.getType(token) != type;
     }
     // 当语法规则要求必须出现某个 Token（缺失则为语法错误）时，用于强制校验。
-    private static void matchOrThrow(Token token, TokenType type, ParserException e) throws ParserException {
+    private void matchOrThrow(int token, TokenType type, ParserException e) throws ParserException {
         if (isNotMatch(token, type)) {
             throw e;
         }
     }
     // 直接匹配单个固定 Token 验证当前 Token 是否为目标类型，匹配成功则直接推进到下一个 Token，失败则抛出异常
-    private Token parseToken(Token token, TokenType type, ParserException onFail) throws LexerException, ParserException, IOException {
+    private int parseToken(int token, TokenType type, ParserException onFail) throws LexerException, ParserException, IOException {
         // parseToken 内部会调用 readNextToken() 推进到下一个 Token
         matchOrThrow(token, type, onFail);
         return buf.readNextToken(); // 返回下一个Token
     }
 
     public Node parse() throws LexerException, ParserException, IOException {
-        Token currToken = buf.readNextToken();
+        int currToken = buf.readNextToken();
         ParseResult result = parseCompUnit(currToken);
         currToken = result.getNextToken();
         matchOrThrow(currToken, null, new ParserException());  // if not reach end
@@ -58,51 +65,66 @@ public class Parser {
         return result.getSubtree();
     }
 
+    // 当前 token 所在的行，已经读到文件末尾时取最后一个 token 的行，用于报告无法恢复的语法错误
+    public int getCurrentLine() {
+        int token = Math.min(buf.mark(), tokens.size() - 1);
+        return tokens.getLine(token);
+    }
+
     //CompUnit解析器 CompUnit → {Decl} {FuncDef} MainFuncDef
-    private ParseResult parseCompUnit(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseCompUnit(int currToken) throws ParserException, IOException, LexerException {
         CompUnit compUnit = new CompUnit();
         ParseResult result;
-        Token preRead, prePreRead;
+        int preRead, prePreRead;
 
         // Decl  int a | int a()  共有三个字符（当前字符、预读第一个、预读第二个）
-        preRead = buf.readTokenByOffset(1);
-        prePreRead = buf.readTokenByOffset(2);
+        preRead = buf.peek(1);
+        prePreRead = buf.peek(2);
         while (isMatch(currToken, TokenType.CONSTTK)
         || (isMatch(currToken, TokenType.INTTK)
                 && isMatch(preRead, TokenType.IDENFR)
                 && isNotMatch(prePreRead, TokenType.LPARENT))  // const int | int a
         ){
             result = parseDecl(currToken); // 进入内部再解析
+            markRange(result, currToken);
             currToken = result.getNextToken(); // 返回 “解析完当前语法结构后的下一个待解析 Token”
             compUnit.decls.add((Decl) result.getSubtree()); // 返回 “当前语法结构对应的语法树节点” 用于组装成完整的抽象语法树
 
-            preRead = buf.readTokenByOffset(1);
-            prePreRead = buf.readTokenByOffset(2);
+            preRead = buf.peek(1);
+            prePreRead = buf.peek(2);
         }
 
         // FuncDef
-        preRead = buf.readTokenByOffset(1); // void 只能是FuncDef 上面情况不符合
+        preRead = buf.peek(1); // void 只能是FuncDef 上面情况不符合
         while (isMatch(currToken, TokenType.VOIDTK)
         || (isMatch(currToken, TokenType.INTTK)
                 && isMatch(preRead, TokenType.IDENFR))
         ){
             result = parseFuncDef(currToken);
+            markRange(result, currToken);
             currToken = result.getNextToken();
             compUnit.funcDefs.add((FuncDef) result.getSubtree());
 
-            preRead = buf.readTokenByOffset(1);
+            preRead = buf.peek(1);
         }
 
         // MainFuncDef
         result = parseMainFuncDef(currToken);
+        markRange(result, currToken);
         currToken = result.getNextToken();
         compUnit.mainFuncDef = (MainFuncDef) result.getSubtree();
 
         return new ParseResult(currToken, compUnit);
     }
 
+    // 记录顶层结构覆盖的 token 范围，增量编译按范围计算每个函数的指纹
+    private static void markRange(ParseResult result, int firstToken) {
+        result.getSubtree().firstToken = firstToken;
+        result.getSubtree().endToken = result.getNextToken();
+    }
+
     //Decl解析器 Decl → ConstDecl | VarDecl
-    private ParseResult parseDecl(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseDecl(int currToken) throws ParserException, IOException, LexerException {
         Decl decl;
         ParseResult result;
 
@@ -132,7 +154,7 @@ public class Parser {
     }
 
     // ConstDecl解析器 ConstDecl → 'const' BType ConstDef { ',' ConstDef } ';'
-    private ParseResult parseConstDecl(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseConstDecl(int currToken) throws ParserException, IOException, LexerException {
         ConstDecl constDecl = new ConstDecl();
         ParseResult result;
 
@@ -160,19 +182,19 @@ public class Parser {
             currToken = buf.readNextToken();
         }else {
             // 缺少分号
-            errorRecorder.addError(ErrorType.SEMICN_MISS, buf.readPreToken().getLineNum());
+            errorRecorder.addError(ErrorType.SEMICN_MISS, tokens.getLine(buf.readPreToken()));
         }
 
         return new ParseResult(currToken, constDecl);
     }
 
     //ConstDef解析器 ConstDef → Ident [ '[' ConstExp ']' ] '=' ConstInitVal
-    private ParseResult parseConstDef(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseConstDef(int currToken) throws ParserException, IOException, LexerException {
         ConstDef constDef = new ConstDef();
         ParseResult result;
 
-        constDef.ident = currToken.getTokenContent(); // 标识符具体内容
-        constDef.identLineNum = currToken.getLineNum();
+        constDef.ident = tokens.getContent(currToken); // 标识符具体内容
+        constDef.identLineNum = tokens.getLine(currToken);
         currToken = parseToken(currToken, TokenType.IDENFR, new ParserException());
         while (isMatch(currToken, TokenType.LBRACK)){
             currToken = buf.readNextToken();
@@ -184,7 +206,7 @@ public class Parser {
             if(isMatch(currToken, TokenType.RBRACK)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.RBRACK_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.RBRACK_MISS, tokens.getLine(buf.readPreToken()));
             }
         }
         currToken = parseToken(currToken, TokenType.ASSIGN, new ParserException());
@@ -197,7 +219,7 @@ public class Parser {
     }
 
     // ConstInitVal解析器 ConstInitVal → ConstExp | '{' [ ConstExp { ',' ConstExp } ] '}'
-    private ParseResult parseConstInitVal(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseConstInitVal(int currToken) throws ParserException, IOException, LexerException {
         ConstInitVal constInitVal;
         ParseResult result;
 
@@ -244,7 +266,7 @@ public class Parser {
     }
 
     // VarDecl解析器 VarDecl → [ 'static' ] BType VarDef { ',' VarDef } ';'
-    private ParseResult parseVarDecl(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseVarDecl(int currToken) throws ParserException, IOException, LexerException {
         VarDecl varDecl;
         ParseResult result;
 
@@ -275,19 +297,19 @@ public class Parser {
         if(isMatch(currToken, TokenType.SEMICN)){
             currToken = buf.readNextToken();
         }else {
-            errorRecorder.addError(ErrorType.SEMICN_MISS, buf.readPreToken().getLineNum());
+            errorRecorder.addError(ErrorType.SEMICN_MISS, tokens.getLine(buf.readPreToken()));
         }
 
         return new ParseResult(currToken, varDecl);
     }
 
     // VarDef解析器 VarDef → Ident [ '[' ConstExp ']' ] | Ident [ '[' ConstExp ']' ] '=' InitVal
-    private ParseResult parseVarDef(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseVarDef(int currToken) throws ParserException, IOException, LexerException {
         VarDef varDef = new VarDef();
         ParseResult result;
 
-        varDef.ident = currToken.getTokenContent();
-        varDef.identLineNum = currToken.getLineNum();
+        varDef.ident = tokens.getContent(currToken);
+        varDef.identLineNum = tokens.getLine(currToken);
         currToken = parseToken(currToken, TokenType.IDENFR, new ParserException());
 
         while (isMatch(currToken, TokenType.LBRACK)){
@@ -300,7 +322,7 @@ public class Parser {
             if(isMatch(currToken, TokenType.RBRACK)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.RBRACK_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.RBRACK_MISS, tokens.getLine(buf.readPreToken()));
             }
         }
 
@@ -317,7 +339,7 @@ public class Parser {
     }
 
     // InitVal 解析器 InitVal → Exp | '{' [ Exp { ',' Exp } ] '}'
-    private ParseResult parseInitVal(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseInitVal(int currToken) throws ParserException, IOException, LexerException {
         InitVal initVal;
         ParseResult result;
 
@@ -362,7 +384,7 @@ public class Parser {
     }
 
     // Exp 解析器 Exp → AddExp
-    private ParseResult parseExp(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseExp(int currToken) throws ParserException, IOException, LexerException {
         Exp exp = new Exp();
         ParseResult result;
 
@@ -374,7 +396,7 @@ public class Parser {
     }
 
     // AddExp 解析器 AddExp → MulExp | AddExp ('+' | '−') MulExp
-    private ParseResult parseAddExp(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseAddExp(int currToken) throws ParserException, IOException, LexerException {
         AddExp addExp = null;
         ParseResult result;
 
@@ -386,7 +408,7 @@ public class Parser {
         while(isMatch(currToken, TokenType.PLUS)
             || isMatch(currToken, TokenType.MINU)
         ){
-            TokenType op = currToken.getTokenType();
+            TokenType op = tokens.getType(currToken);
             currToken = buf.readNextToken();
 
             result = parseMulExp(currToken);
@@ -413,7 +435,7 @@ public class Parser {
     }
 
     // MulExp 解析器 MulExp → UnaryExp | MulExp ('*' | '/' | '%') UnaryExp
-    private ParseResult parseMulExp(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseMulExp(int currToken) throws ParserException, IOException, LexerException {
         MulExp mulExp = new MulExp(1);
         ParseResult result;
 
@@ -426,7 +448,7 @@ public class Parser {
                 || isMatch(currToken, TokenType.DIV)
                 || isMatch(currToken, TokenType.MOD)) {
             // 记录当前乘除模运算符
-            TokenType op = currToken.getTokenType();
+            TokenType op = tokens.getType(currToken);
             // 消耗运算符 Token，推进到下一个 Token
             currToken = buf.readNextToken();
 
@@ -449,11 +471,11 @@ public class Parser {
     }
 
     // UnaryExp 解析器 UnaryExp → PrimaryExp | Ident '(' [FuncRParams] ')' | UnaryOp UnaryExp
-    private ParseResult parseUnaryExp(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseUnaryExp(int currToken) throws ParserException, IOException, LexerException {
         UnaryExp unaryExp;
         ParseResult result;
 
-        Token preRead = buf.readTokenByOffset(1);
+        int preRead = buf.peek(1);
 
         if(isMatch(currToken, TokenType.LPARENT)
             || (isMatch(currToken, TokenType.IDENFR)
@@ -471,8 +493,8 @@ public class Parser {
                 && isMatch(preRead, TokenType.LPARENT)
         ) {
             UnaryExp unaryExpForFunc = new UnaryExp(2);
-            unaryExpForFunc.ident = currToken.getTokenContent();
-            unaryExpForFunc.identLineNum = currToken.getLineNum();
+            unaryExpForFunc.ident = tokens.getContent(currToken);
+            unaryExpForFunc.identLineNum = tokens.getLine(currToken);
 
             currToken = parseToken(currToken, TokenType.IDENFR, new ParserException());
             currToken = parseToken(currToken, TokenType.LPARENT,  new ParserException());
@@ -491,7 +513,7 @@ public class Parser {
             if(isMatch(currToken, TokenType.RPARENT)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.RPARENT_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.RPARENT_MISS, tokens.getLine(buf.readPreToken()));
             }
 
             unaryExp = unaryExpForFunc;
@@ -518,14 +540,14 @@ public class Parser {
     }
 
     // UnaryOp 解析器 UnaryOp → '+' | '−' | '!'
-    private ParseResult parseUnaryOp(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseUnaryOp(int currToken) throws ParserException, IOException, LexerException {
         UnaryOp unaryOp = new UnaryOp();
 
         if(isMatch(currToken, TokenType.PLUS)
             || isMatch(currToken, TokenType.MINU)
             || isMatch(currToken, TokenType.NOT)
         ){
-            unaryOp.op = currToken.getTokenType();
+            unaryOp.op = tokens.getType(currToken);
             currToken = buf.readNextToken();
         }else {
             throw new ParserException();
@@ -535,7 +557,7 @@ public class Parser {
     }
 
     // PrimaryExp 解析器 PrimaryExp → '(' Exp ')' | LVal | Number
-    private ParseResult parsePrimaryExp(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parsePrimaryExp(int currToken) throws ParserException, IOException, LexerException {
         PrimaryExp primaryExp;
         ParseResult result;
 
@@ -552,7 +574,7 @@ public class Parser {
             if (isMatch(currToken, TokenType.RPARENT)) {
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.RPARENT_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.RPARENT_MISS, tokens.getLine(buf.readPreToken()));
             }
         } else if (isMatch(currToken, TokenType.IDENFR)) {
             // PrimaryExp → LVal
@@ -575,12 +597,12 @@ public class Parser {
     }
 
     // LVal 解析器 LVal → Ident ['[' Exp ']']
-    private ParseResult parseLVal(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseLVal(int currToken) throws ParserException, IOException, LexerException {
         LVal lVal = new LVal();
         ParseResult result;
 
-        lVal.ident = currToken.getTokenContent();
-        lVal.identLineNum = currToken.getLineNum();
+        lVal.ident = tokens.getContent(currToken);
+        lVal.identLineNum = tokens.getLine(currToken);
         currToken = parseToken(currToken, TokenType.IDENFR, new ParserException());
 
         while (isMatch(currToken, TokenType.LBRACK)){
@@ -593,7 +615,7 @@ public class Parser {
             if (isMatch(currToken, TokenType.RBRACK)) {
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.RBRACK_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.RBRACK_MISS, tokens.getLine(buf.readPreToken()));
             }
         }
 
@@ -601,9 +623,9 @@ public class Parser {
     }
 
     // Number 解析器 Number → IntConst
-    private ParseResult parseNumber(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseNumber(int currToken) throws ParserException, IOException, LexerException {
         Number number = new Number();
-        number.intConst = currToken.getTokenContent();
+        number.intConst = tokens.getContent(currToken);
 
         currToken = parseToken(currToken, TokenType.INTCON, new ParserException());
 
@@ -611,7 +633,7 @@ public class Parser {
     }
 
     // ConstExp 解析器 ConstExp → AddExp
-    private ParseResult parseConstExp(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseConstExp(int currToken) throws ParserException, IOException, LexerException {
         ConstExp constExp = new ConstExp();
         ParseResult result;
 
@@ -623,17 +645,17 @@ public class Parser {
     }
 
     // BType 解析器 BType → 'int'
-    private ParseResult parseBType(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseBType(int currToken) throws ParserException, IOException, LexerException {
         BType bType = new BType();
 
-        bType.type = currToken.getTokenType();
+        bType.type = tokens.getType(currToken);
         currToken = parseToken(currToken, TokenType.INTTK, new ParserException());
 
         return new ParseResult(currToken, bType);
     }
 
     // FuncDef 解析器 FuncDef → FuncType Ident '(' [FuncFParams] ')' Block
-    private ParseResult parseFuncDef(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseFuncDef(int currToken) throws ParserException, IOException, LexerException {
         FuncDef funcDef = new FuncDef();
         ParseResult result;
 
@@ -641,8 +663,8 @@ public class Parser {
         currToken = result.getNextToken();
         funcDef.funcType = (FuncType) result.getSubtree();
 
-        funcDef.ident = currToken.getTokenContent();
-        funcDef.identLineNum = currToken.getLineNum();
+        funcDef.ident = tokens.getContent(currToken);
+        funcDef.identLineNum = tokens.getLine(currToken);
         currToken = parseToken(currToken, TokenType.IDENFR, new ParserException());
         currToken = parseToken(currToken, TokenType.LPARENT, new ParserException());
 
@@ -655,7 +677,7 @@ public class Parser {
         if (isMatch(currToken, TokenType.RPARENT)) {
             currToken = buf.readNextToken();
         }else {
-            errorRecorder.addError(ErrorType.RPARENT_MISS, buf.readPreToken().getLineNum());
+            errorRecorder.addError(ErrorType.RPARENT_MISS, tokens.getLine(buf.readPreToken()));
         }
 
         result = parseBlock(currToken);
@@ -667,11 +689,11 @@ public class Parser {
     }
 
     // FuncType 解析器 FuncType → 'void' | 'int'
-    private ParseResult parseFuncType(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseFuncType(int currToken) throws ParserException, IOException, LexerException {
         FuncType funcType = new FuncType();
 
         if(isMatch(currToken, TokenType.VOIDTK) || isMatch(currToken, TokenType.INTTK)){
-            funcType.type = currToken.getTokenType();
+            funcType.type = tokens.getType(currToken);
             currToken = buf.readNextToken();
         }else {
             throw new ParserException();
@@ -681,7 +703,7 @@ public class Parser {
     }
 
     // parseFuncFParams 解析器 FuncFParams → FuncFParam { ',' FuncFParam }
-    private ParseResult parseFuncFParams(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseFuncFParams(int currToken) throws ParserException, IOException, LexerException {
         FuncFParams funcFParams = new FuncFParams();
         ParseResult result;
 
@@ -701,7 +723,7 @@ public class Parser {
     }
 
     // FuncFParam 解析器 FuncFParam → BType Ident ['[' ']']
-    private ParseResult parseFuncFParam(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseFuncFParam(int currToken) throws ParserException, IOException, LexerException {
         FuncFParam funcFParam = new FuncFParam();
         ParseResult result;
 
@@ -709,8 +731,8 @@ public class Parser {
         currToken = result.getNextToken();
         funcFParam.type = (BType) result.getSubtree();
 
-        funcFParam.ident = currToken.getTokenContent();
-        funcFParam.identLineNum = currToken.getLineNum();
+        funcFParam.ident = tokens.getContent(currToken);
+        funcFParam.identLineNum = tokens.getLine(currToken);
         currToken = parseToken(currToken, TokenType.IDENFR, new ParserException());
 
         while (isMatch(currToken, TokenType.LBRACK)) {
@@ -722,7 +744,7 @@ public class Parser {
                 currToken = buf.readNextToken();
                 //funcFParam.count++; // 记录一对[]
             }else {
-                errorRecorder.addError(ErrorType.RBRACK_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.RBRACK_MISS, tokens.getLine(buf.readPreToken()));
             }
         }
 
@@ -730,7 +752,7 @@ public class Parser {
     }
 
     // FuncRParams 解析器 FuncRParams → Exp { ',' Exp }
-    private ParseResult parseFuncRParams(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseFuncRParams(int currToken) throws ParserException, IOException, LexerException {
         FuncRParams funcRParams = new FuncRParams();
         ParseResult result;
 
@@ -750,7 +772,7 @@ public class Parser {
     }
 
     // Block 解析器 Block → '{' { BlockItem } '}'
-    private ParseResult parseBlock(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseBlock(int currToken) throws ParserException, IOException, LexerException {
         Block block = new Block();
         ParseResult result;
 
@@ -760,14 +782,14 @@ public class Parser {
             currToken = result.getNextToken();
             block.blockItems.add((BlockItem) result.getSubtree());
         }
-        block.blockRLineNum = currToken.getLineNum();
+        block.blockRLineNum = tokens.getLine(currToken);
         currToken = buf.readNextToken();
 
         return new ParseResult(currToken, block);
     }
 
     // BlockItem 解析器 BlockItem → Decl | Stmt
-    private ParseResult parseBlockItem(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseBlockItem(int currToken) throws ParserException, IOException, LexerException {
         BlockItem blockItem;
         ParseResult result;
 
@@ -790,6 +812,35 @@ public class Parser {
         return new ParseResult(currToken, blockItem);
     }
 
+    /**
+     * 当前的标识符开头的语句是否为 LVal '=' ...
+     * 向后扫描一次：跳过标识符后成对的 [ ]，再看下一个是不是 '='；
+     * 下标中遇到 '=' 视为缺少 ']' 的赋值语句，遇到 ';' 或文件结束则不是赋值语句
+     */
+    private boolean isAssignStmt() {
+        int k = 1;
+        // 与 parseLVal 一致，跳过连续的每一维下标
+        while (buf.peekType(k) == TokenType.LBRACK) {
+            int depth = 0;
+            for (; ; k++) {
+                TokenType type = buf.peekType(k);
+                if (type == TokenType.LBRACK) {
+                    depth++;
+                } else if (type == TokenType.RBRACK) {
+                    if (--depth == 0) {
+                        k++;
+                        break;
+                    }
+                } else if (type == TokenType.ASSIGN) {
+                    return true;
+                } else if (type == TokenType.SEMICN || type == null) {
+                    return false;
+                }
+            }
+        }
+        return buf.peekType(k) == TokenType.ASSIGN;
+    }
+
     // Stmt 解析器
     /**
      * Stmt → LVal '=' Exp ';'
@@ -801,16 +852,14 @@ public class Parser {
      * | 'continue' ';'
      * | 'return' [Exp] ';'
      */
-    private ParseResult parseStmt(Token currToken) throws ParserException, IOException, LexerException {
+    private ParseResult parseStmt(int currToken) throws ParserException, IOException, LexerException {
         Stmt stmt;
         ParseResult result;
 
-        Token preRead = buf.readTokenByOffset(1);
+        int preRead = buf.peek(1);
 
         // Stmt → LVal '=' Exp ';'  IDENFR后不一定是 =
-        if(isMatch(currToken, TokenType.IDENFR)
-                && (buf.findUntil(TokenType.ASSIGN, TokenType.SEMICN))
-        ){
+        if(isMatch(currToken, TokenType.IDENFR) && isAssignStmt()){
             LVal tmpLVal;
             result = parseLVal(currToken);
             currToken = result.getNextToken();
@@ -834,7 +883,7 @@ public class Parser {
                 if (isMatch(currToken, TokenType.SEMICN)){
                     currToken = buf.readNextToken();
                 }else{
-                    errorRecorder.addError(ErrorType.SEMICN_MISS, buf.readPreToken().getLineNum());
+                    errorRecorder.addError(ErrorType.SEMICN_MISS, tokens.getLine(buf.readPreToken()));
                 }
             }else {
                 throw new ParserException();
@@ -856,7 +905,7 @@ public class Parser {
             if(isMatch(currToken, TokenType.SEMICN)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.SEMICN_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.SEMICN_MISS, tokens.getLine(buf.readPreToken()));
             }
         } else if (isMatch(currToken, TokenType.SEMICN)) {
             // Stmt → [Exp] ';' Exp不存在
@@ -883,7 +932,7 @@ public class Parser {
             if (isMatch(currToken, TokenType.RPARENT)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.RPARENT_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.RPARENT_MISS, tokens.getLine(buf.readPreToken()));
             }
 
             result = parseStmt(currToken);
@@ -912,7 +961,7 @@ public class Parser {
             if (isMatch(currToken, TokenType.SEMICN)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.SEMICN_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.SEMICN_MISS, tokens.getLine(buf.readPreToken()));
             }
 
             // [Cond]
@@ -931,7 +980,7 @@ public class Parser {
             if (isMatch(currToken, TokenType.SEMICN)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.SEMICN_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.SEMICN_MISS, tokens.getLine(buf.readPreToken()));
             }
 
             if (isMatch(currToken, TokenType.IDENFR)){
@@ -943,7 +992,7 @@ public class Parser {
             if (isMatch(currToken, TokenType.RPARENT)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.RPARENT_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.RPARENT_MISS, tokens.getLine(buf.readPreToken()));
             }
 
             result = parseStmt(currToken);
@@ -952,33 +1001,33 @@ public class Parser {
         } else if (isMatch(currToken, TokenType.BREAKTK)) {
             stmt = new Stmt(6);
             
-            stmt.tkLineNum = currToken.getLineNum();
-            stmt.type = currToken.getTokenType();
+            stmt.tkLineNum = tokens.getLine(currToken);
+            stmt.type = tokens.getType(currToken);
             
             currToken = buf.readNextToken();
             
             if (isMatch(currToken, TokenType.SEMICN)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.SEMICN_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.SEMICN_MISS, tokens.getLine(buf.readPreToken()));
             }
         } else if (isMatch(currToken, TokenType.CONTINUETK)) {
             stmt = new Stmt(6);
 
-            stmt.tkLineNum = currToken.getLineNum();
-            stmt.type = currToken.getTokenType();
+            stmt.tkLineNum = tokens.getLine(currToken);
+            stmt.type = tokens.getType(currToken);
 
             currToken = buf.readNextToken();
 
             if (isMatch(currToken, TokenType.SEMICN)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.SEMICN_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.SEMICN_MISS, tokens.getLine(buf.readPreToken()));
             }
         } else if (isMatch(currToken, TokenType.RETURNTK)) {
             // Stmt -> 'return' [Exp] ';'
             stmt = new Stmt(7);
-            stmt.returnLineNum = currToken.getLineNum();
+            stmt.returnLineNum = tokens.getLine(currToken);
             
             currToken = buf.readNextToken();
             if (isMatch(currToken, TokenType.LPARENT)
@@ -996,17 +1045,17 @@ public class Parser {
             if (isMatch(currToken, TokenType.SEMICN)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.SEMICN_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.SEMICN_MISS, tokens.getLine(buf.readPreToken()));
             }
         } else if (isMatch(currToken, TokenType.PRINTFTK)) {
             // Stmt -> 'printf''('StringConst {','Exp}')'';'
             stmt = new Stmt(8);
-            stmt.printfLineNum = currToken.getLineNum();
+            stmt.printfLineNum = tokens.getLine(currToken);
 
             currToken = buf.readNextToken();
             currToken = parseToken(currToken, TokenType.LPARENT, new ParserException());
 
-            stmt.stringConst = currToken.getTokenContent();
+            stmt.stringConst = tokens.getContent(currToken);
             currToken = parseToken(currToken, TokenType.STRCON, new ParserException());
 
             while (isMatch(currToken, TokenType.COMMA)){
@@ -1020,13 +1069,13 @@ public class Parser {
             if (isMatch(currToken, TokenType.RPARENT)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.RPARENT_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.RPARENT_MISS, tokens.getLine(buf.readPreToken()));
             }
 
             if (isMatch(currToken, TokenType.SEMICN)){
                 currToken = buf.readNextToken();
             }else {
-                errorRecorder.addError(ErrorType.SEMICN_MISS, buf.readPreToken().getLineNum());
+                errorRecorder.addError(ErrorType.SEMICN_MISS, tokens.getLine(buf.readPreToken()));
             }
         }else {
             throw new ParserException();
@@ -1036,7 +1085,7 @@ public class Parser {
     }
 
     // Cond 解析器 Cond → LOrExp
-    private ParseResult parseCond(Token currToken) throws ParserException, LexerException, IOException {
+    private ParseResult parseCond(int currToken) throws ParserException, LexerException, IOException {
         Cond cond = new Cond();
         ParseResult result;
 
@@ -1048,7 +1097,7 @@ public class Parser {
     }
 
     // ForStmt 解析器 ForStmt → LVal '=' Exp { ',' LVal '=' Exp }
-    private ParseResult parseForStmt(Token currToken) throws ParserException, LexerException, IOException {
+    private ParseResult parseForStmt(int currToken) throws ParserException, LexerException, IOException {
         ForStmt forStmt = new ForStmt();
         ParseResult result;
 
@@ -1081,7 +1130,7 @@ public class Parser {
     }
 
     // LOrExp 解析器 LOrExp → LAndExp | LOrExp '||' LAndExp
-    private ParseResult parseLOrExp(Token currToken) throws ParserException, LexerException, IOException {
+    private ParseResult parseLOrExp(int currToken) throws ParserException, LexerException, IOException {
         ParseResult result;
 
         result = parseLAndExp(currToken);
@@ -1091,7 +1140,7 @@ public class Parser {
 
         while (isMatch(currToken, TokenType.OR) || isMatch(currToken, TokenType.SINGLE_OR)){
             if (!isMatch(currToken, TokenType.OR)){
-                errorRecorder.addError(ErrorType.ILLEGAL_SYMBOL, currToken.getLineNum());
+                errorRecorder.addError(ErrorType.ILLEGAL_SYMBOL, tokens.getLine(currToken));
             }
             currToken = buf.readNextToken();
 
@@ -1111,7 +1160,7 @@ public class Parser {
     }
 
     // LAndExp 解析器 LAndExp → EqExp | LAndExp '&&' EqExp
-    private ParseResult parseLAndExp(Token currToken) throws ParserException, LexerException, IOException {
+    private ParseResult parseLAndExp(int currToken) throws ParserException, LexerException, IOException {
         ParseResult result;
 
         result = parseEqExp(currToken);
@@ -1122,7 +1171,7 @@ public class Parser {
         while (isMatch(currToken, TokenType.AND) || isMatch(currToken, TokenType.SINGLE_AND)){
             if (!isMatch(currToken, TokenType.AND)){
                 // a 类错误
-                errorRecorder.addError(ErrorType.ILLEGAL_SYMBOL, currToken.getLineNum());
+                errorRecorder.addError(ErrorType.ILLEGAL_SYMBOL, tokens.getLine(currToken));
             }
             currToken = buf.readNextToken();
 
@@ -1141,7 +1190,7 @@ public class Parser {
     }
 
     // EqExp 解析器 EqExp → RelExp | EqExp ('==' | '!=') RelExp
-    private ParseResult parseEqExp(Token currToken) throws ParserException, LexerException, IOException {
+    private ParseResult parseEqExp(int currToken) throws ParserException, LexerException, IOException {
         ParseResult result;
 
         result = parseRelExp(currToken);
@@ -1152,7 +1201,7 @@ public class Parser {
         while (isMatch(currToken, TokenType.EQL)
                 || isMatch(currToken, TokenType.NEQ)
         ){
-            TokenType op = currToken.getTokenType();
+            TokenType op = tokens.getType(currToken);
             currToken = buf.readNextToken();
 
             result = parseRelExp(currToken);
@@ -1171,7 +1220,7 @@ public class Parser {
     }
 
     // RelExp 解析器 RelExp → AddExp | RelExp ('<' | '>' | '<=' | '>=') AddExp
-    private ParseResult parseRelExp(Token currToken) throws ParserException, LexerException, IOException {
+    private ParseResult parseRelExp(int currToken) throws ParserException, LexerException, IOException {
         ParseResult result;
 
         result = parseAddExp(currToken);
@@ -1184,7 +1233,7 @@ public class Parser {
             || isMatch(currToken, TokenType.LEQ)
             || isMatch(currToken, TokenType.GEQ)
         ){
-            TokenType op = currToken.getTokenType();
+            TokenType op = tokens.getType(currToken);
             currToken = buf.readNextToken();
 
             result = parseAddExp(currToken);
@@ -1203,7 +1252,7 @@ public class Parser {
     }
 
     // MainFuncDef 解析器 MainFuncDef → 'int' 'main' '(' ')' Block
-    private ParseResult parseMainFuncDef(Token currToken) throws ParserException, LexerException, IOException {
+    private ParseResult parseMainFuncDef(int currToken) throws ParserException, LexerException, IOException {
         MainFuncDef mainFuncDef = new MainFuncDef();
         ParseResult result;
 
@@ -1214,7 +1263,7 @@ public class Parser {
         if (isMatch(currToken, TokenType.RPARENT)){
             currToken = buf.readNextToken();
         }else {
-            errorRecorder.addError(ErrorType.RPARENT_MISS, buf.readPreToken().getLineNum());
+            errorRecorder.addError(ErrorType.RPARENT_MISS, tokens.getLine(buf.readPreToken()));
         }
 
         result = parseBlock(currToken);
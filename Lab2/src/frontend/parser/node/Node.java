@@ -8,6 +8,10 @@ import java.util.function.Consumer;
 // Node（如 Exp、LVal）：是语法树的 “结构节点”，代表语法规则（如 Exp → 数字 + 数字），
 // 可能包含多个子节点（子 Node），本身不是 “可直接处理的最小单元”。
 public abstract class Node {
+    // 顶层的 Decl、FuncDef、MainFuncDef 在 TokenList 中的下标范围 [firstToken, endToken)，其余节点不记录
+    public int firstToken = -1;
+    public int endToken = -1;
+
     public abstract String getType();
 
     public abstract void walk(Consumer<TerminalSymbol> terminalConsumer, Consumer<NonTerminalSymbol> nonTerminalConsumer);
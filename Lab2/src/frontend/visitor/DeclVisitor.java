@@ -230,7 +230,6 @@ public class DeclVisitor extends SubVisitor{
         getCurrFunction().setName("main");
         functionSymbol.targetValue = getCurrFunction();
         setCurrBasicBlock(getCurrFunction().createBasicBlock());
-        getCurrBasicBlock().setLoopNum(isInLoop());
 
         getStmtVisitor().visitBlock(mainFuncDef.block);
 
@@ -259,9 +259,9 @@ public class ExpVisitor extends SubVisitor{
 
                 BasicBlock firstAndBlock = r2.andBlocks.get(0);
                 for (BasicBlock nearAndBlock : r1.nearAndBlocks) {
-                    if (nearAndBlock.getInstructions().isEmpty()) continue;
+                    if (nearAndBlock.getLastInstruction() == null) continue;
 
-                    BrInst brInst = (BrInst) nearAndBlock.getInstructions().get(nearAndBlock.getInstructions().size() - 1);
+                    BrInst brInst = (BrInst) nearAndBlock.getLastInstruction();
                     brInst.setFalseBranch(firstAndBlock); // 左为假，执行右表达式
                 }
             }
@@ -291,7 +291,6 @@ public class ExpVisitor extends SubVisitor{
                 getCurrBasicBlock().createBrInstWithCond(r.irValue, null, null);
                 visitResult.andBlocks.add(getCurrBasicBlock());
                 setCurrBasicBlock(getCurrFunction().createBasicBlock());
-                getCurrBasicBlock().setLoopNum(isInLoop());
             }else {
                 visitResult.andBlocks.add(getCurrBasicBlock());
             }
@@ -302,7 +301,7 @@ public class ExpVisitor extends SubVisitor{
 
             VisitResult r1 = visitLAndExp(lAndExp.lAndExp);
             BasicBlock lastAndBlock = r1.andBlocks.get(r1.andBlocks.size() - 1);
-            BrInst brInLastAndBlock = (BrInst) lastAndBlock.getInstructions().get(lastAndBlock.getInstructions().size() - 1);
+            BrInst brInLastAndBlock = (BrInst) lastAndBlock.getLastInstruction();
 
             brInLastAndBlock.setTrueBranch(getCurrBasicBlock()); // 左为真，执行右表达式
             visitResult.andBlocks.addAll(r1.andBlocks);
@@ -318,7 +317,6 @@ public class ExpVisitor extends SubVisitor{
                 getCurrBasicBlock().createBrInstWithCond(condValue, null, null);
                 visitResult.andBlocks.add(getCurrBasicBlock());
                 setCurrBasicBlock(getCurrFunction().createBasicBlock());
-                getCurrBasicBlock().setLoopNum(isInLoop());
             }
 
             visitResult.expType = r1.expType;
@@ -56,7 +56,6 @@ public class FuncVisitor extends SubVisitor{
         getCurrFunction().setName(functionSymbol.ident);
         functionSymbol.targetValue = getCurrFunction();
         setCurrBasicBlock(getCurrFunction().createBasicBlock());
-        getCurrBasicBlock().setLoopNum(isInLoop());
 
         if (funcDef.funcFParams != null){
             for (int i = getCurrFunction().getArguments().size() - 1; i >= 0; i--){
@@ -1,7 +1,6 @@
 package frontend.visitor;
 
 import backend.ir.BasicBlock;
-import backend.ir.Function;
 import backend.ir.ImmediateValue;
 import backend.ir.Value;
 import backend.ir.inst.BrInst;
@@ -79,7 +78,6 @@ public class StmtVisitor extends SubVisitor{
 
             BasicBlock lastBlockInTrue = getCurrBasicBlock();
             setCurrBasicBlock(getCurrFunction().createBasicBlock());
-            getCurrBasicBlock().setLoopNum(isInLoop());
 
             BasicBlock falseBlock = getCurrBasicBlock();
 
@@ -87,21 +85,20 @@ public class StmtVisitor extends SubVisitor{
                 visitStmt(stmt.elseStmt);
                 BasicBlock lastBlockInFalse = getCurrBasicBlock();
                 setCurrBasicBlock(getCurrFunction().createBasicBlock());
-                getCurrBasicBlock().setLoopNum(isInLoop());
 
                 lastBlockInFalse.createBrInstWithoutCond(getCurrBasicBlock());
             }
             lastBlockInTrue.createBrInstWithoutCond(getCurrBasicBlock());
 
             for (BasicBlock blockToTrue : r.blocksToTrue){
-                if (blockToTrue.getInstructions().isEmpty()) continue;
-                BrInst brInst = (BrInst) blockToTrue.getInstructions().get(blockToTrue.getInstructions().size() - 1);
+                if (blockToTrue.getLastInstruction() == null) continue;
+                BrInst brInst = (BrInst) blockToTrue.getLastInstruction();
                 brInst.setTrueBranch(trueBlock);
             }
 
             for (BasicBlock blockToFalse : r.blocksToFalse){
-                if (blockToFalse.getInstructions().isEmpty()) continue;
-                BrInst brInst = (BrInst) blockToFalse.getInstructions().get(blockToFalse.getInstructions().size() - 1);
+                if (blockToFalse.getLastInstruction() == null) continue;
+                BrInst brInst = (BrInst) blockToFalse.getLastInstruction();
                 brInst.setFalseBranch(falseBlock);
             }
         }else if (stmt.getUType() == 5){
@@ -115,7 +112,6 @@ public class StmtVisitor extends SubVisitor{
             }
 
             setCurrBasicBlock(getCurrFunction().createBasicBlock());
-            getCurrBasicBlock().setLoopNum(isInLoop());
 
             forStmt1Block.createBrInstWithoutCond(getCurrBasicBlock());
             BasicBlock loopEntryBlock = getCurrBasicBlock();
@@ -132,7 +128,6 @@ public class StmtVisitor extends SubVisitor{
 
             BasicBlock lastBlockInStmt = getCurrBasicBlock();
             setCurrBasicBlock(getCurrFunction().createBasicBlock());
-            getCurrBasicBlock().setLoopNum(isInLoop());
 
             lastBlockInStmt.createBrInstWithoutCond(getCurrBasicBlock());
             BasicBlock forStmt2Block = getCurrBasicBlock();
@@ -143,17 +138,16 @@ public class StmtVisitor extends SubVisitor{
             forStmt2Block.createBrInstWithoutCond(loopEntryBlock);
 
             setCurrBasicBlock(getCurrFunction().createBasicBlock());
-            getCurrBasicBlock().setLoopNum(isInLoop());
 
             BasicBlock loopExitBlock = getCurrBasicBlock();
 
             for(BasicBlock blockToTrue : condRt.blocksToTrue){
-                BrInst brInst = (BrInst) blockToTrue.getInstructions().get(blockToTrue.getInstructions().size() - 1);
+                BrInst brInst = (BrInst) blockToTrue.getLastInstruction();
                 brInst.setTrueBranch(stmtBlock);
             }
 
             for(BasicBlock blockToFalse : condRt.blocksToFalse){
-                BrInst brInst = (BrInst) blockToFalse.getInstructions().get(blockToFalse.getInstructions().size() - 1);
+                BrInst brInst = (BrInst) blockToFalse.getLastInstruction();
                 brInst.setFalseBranch(loopExitBlock);
             }
 
@@ -174,11 +168,9 @@ public class StmtVisitor extends SubVisitor{
             if (stmt.type == TokenType.CONTINUETK){
                 getContinueBrInsts().peek().add((BrInst) getCurrBasicBlock().createBrInstWithoutCond(null));
                 setCurrBasicBlock(getCurrFunction().createBasicBlock());
-                getCurrBasicBlock().setLoopNum(isInLoop());
             } else if (stmt.type == TokenType.BREAKTK) {
                 getBreakBrInsts().peek().add((BrInst) getCurrBasicBlock().createBrInstWithoutCond(null));
                 setCurrBasicBlock(getCurrFunction().createBasicBlock());
-                getCurrBasicBlock().setLoopNum(isInLoop());
             }else {
                 assert false;
             }
@@ -221,13 +213,13 @@ public class StmtVisitor extends SubVisitor{
                     for (int i = 1, j = 0; i < stmt.stringConst.length() - 1; i++) {
                         char ch = stmt.stringConst.charAt(i);
                         if (ch == '%') {
-                            getCurrBasicBlock().createCallInst(Function.BUILD_IN_PUTINT, List.of(expValues.get(j++)));
+                            getCurrBasicBlock().createCallInst(getIrModule().getBuildInPutInt(), List.of(expValues.get(j++)));
                             i++;
                         } else if (ch == '\\') {
-                            getCurrBasicBlock().createCallInst(Function.BUILD_IN_PUTCH, List.of(new ImmediateValue('\n')));
+                            getCurrBasicBlock().createCallInst(getIrModule().getBuildInPutCh(), List.of(new ImmediateValue('\n')));
                             i++;
                         } else {
-                            getCurrBasicBlock().createCallInst(Function.BUILD_IN_PUTCH, List.of(new ImmediateValue(ch)));
+                            getCurrBasicBlock().createCallInst(getIrModule().getBuildInPutCh(), List.of(new ImmediateValue(ch)));
                         }
                     }
                 } catch (IndexOutOfBoundsException e) {
@@ -68,6 +68,11 @@ public class Visitor {
         }
     }
 
+    // 全局根符号表，generateIR 之后即为完整的语义分析结果
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
     public Visitor(ErrorRecorder errorRecorder) {
         this.errorRecorder = errorRecorder;
 
@@ -0,0 +1,160 @@
+package incremental;
+
+import frontend.lexer.TokenList;
+import frontend.lexer.TokenType;
+import frontend.parser.node.CompUnit;
+import frontend.parser.node.Node;
+import frontend.parser.node.declaration.ConstDef;
+import frontend.parser.node.declaration.Decl;
+import frontend.parser.node.declaration.VarDef;
+import frontend.parser.node.function.FuncDef;
+import midend.OptimizeOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * 增量编译的函数级缓存：按内容寻址，文件名就是函数指纹，内容是该函数翻译出的汇编文本
+ *
+ * 指纹由函数自身的 token、它引用到的全局声明和被调函数的签名计算，
+ * 全局声明中的常量表达式引用的其他全局常量也算在内；开启优化时被调函数可能被内联，
+ * 改为计入被调函数的整个定义（以及它们引用到的声明和函数），同时计入优化参数；行号不参与计算，
+ * 只在上方增删行不会使缓存失效。函数内的局部变量与全局变量同名时也会把该全局声明算进去，只会多重编，不会用错缓存
+ */
+public class FunctionCache {
+    // 翻译或优化的结果发生变化时修改，让旧版本写下的缓存全部失效
+    private static final String FORMAT_VERSION = "2";
+
+    private final File cacheDir;
+    private final TokenList tokens;
+    private final OptimizeOptions optimizeOptions; // 为 null 表示不优化
+
+    private final Map<String, Node> globalDecls = new HashMap<>(); // 全局变量、常量名 -> 所在的 Decl
+    private final Map<String, Node> funcDefs = new HashMap<>(); // 函数名 -> FuncDef / MainFuncDef
+    private final Map<String, String> fingerprints = new HashMap<>();
+
+    public FunctionCache(File cacheDir, TokenList tokens, CompUnit compUnit, OptimizeOptions optimizeOptions) {
+        this.cacheDir = cacheDir;
+        this.tokens = tokens;
+        this.optimizeOptions = optimizeOptions;
+
+        for (Decl decl : compUnit.decls) {
+            if (decl.constDecl != null) {
+                for (ConstDef constDef : decl.constDecl.constDefs) {
+                    globalDecls.put(constDef.ident, decl);
+                }
+            } else {
+                for (VarDef varDef : decl.varDecl.varDefs) {
+                    globalDecls.put(varDef.ident, decl);
+                }
+            }
+        }
+        for (FuncDef funcDef : compUnit.funcDefs) {
+            funcDefs.put(funcDef.ident, funcDef);
+        }
+        funcDefs.put("main", compUnit.mainFuncDef);
+
+        for (Map.Entry<String, Node> entry : funcDefs.entrySet()) {
+            fingerprints.put(entry.getKey(), fingerprint(entry.getValue()));
+        }
+    }
+
+    // 缓存中该函数的汇编文本，指纹不同或没有缓存时返回 null
+    public byte[] load(String funcName) {
+        String fingerprint = fingerprints.get(funcName);
+        if (fingerprint == null) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(new File(cacheDir, fingerprint + ".s").toPath());
+        } catch (IOException e) {
+            return null; // 读不到就当作没有缓存，重新编译
+        }
+    }
+
+    // 先写临时文件再改名，并发的编译任务读到的总是完整的文件
+    public void store(String funcName, byte[] text) throws IOException {
+        String fingerprint = fingerprints.get(funcName);
+        if (fingerprint == null) {
+            return;
+        }
+        Files.createDirectories(cacheDir.toPath());
+        Path target = new File(cacheDir, fingerprint + ".s").toPath();
+        Path temp = Files.createTempFile(cacheDir.toPath(), fingerprint, ".tmp");
+        try {
+            Files.write(temp, text);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private String fingerprint(Node function) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update((FORMAT_VERSION + (optimizeOptions != null ? " O1 " + optimizeOptions : " O0")).getBytes(StandardCharsets.US_ASCII));
+        digestRange(digest, function.firstToken, function.endToken);
+
+        // 依赖按在源文件中的位置排序，与发现的先后无关；起始下标 -> 结束下标
+        TreeMap<Integer, Integer> dependencies = new TreeMap<>();
+        Set<Node> visited = new HashSet<>();
+        visited.add(function);
+        Deque<int[]> worklist = new ArrayDeque<>();
+        worklist.push(new int[]{function.firstToken, function.endToken});
+        while (!worklist.isEmpty()) {
+            int[] range = worklist.pop();
+            for (int i = range[0]; i < range[1]; i++) {
+                if (tokens.getType(i) != TokenType.IDENFR) {
+                    continue;
+                }
+                String ident = tokens.getContent(i);
+                Node decl = globalDecls.get(ident);
+                if (decl != null && visited.add(decl)) {
+                    dependencies.put(decl.firstToken, decl.endToken);
+                    worklist.push(new int[]{decl.firstToken, decl.endToken});
+                }
+                Node callee = funcDefs.get(ident);
+                if (callee != null && visited.add(callee)) {
+                    int end = optimizeOptions != null ? callee.endToken : findBlockStart(callee);
+                    dependencies.put(callee.firstToken, end);
+                    worklist.push(new int[]{callee.firstToken, end});
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, Integer> dependency : dependencies.entrySet()) {
+            digest.update((byte) -1);
+            digestRange(digest, dependency.getKey(), dependency.getValue());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // 函数签名到函数体的 '{' 为止
+    private int findBlockStart(Node function) {
+        int i = function.firstToken;
+        while (i < function.endToken && tokens.getType(i) != TokenType.LBRACE) {
+            i++;
+        }
+        return i;
+    }
+
+    private void digestRange(MessageDigest digest, int start, int end) {
+        for (int i = start; i < end; i++) {
+            TokenType type = tokens.getType(i);
+            digest.update((byte) type.ordinal());
+            if (type == TokenType.IDENFR || type == TokenType.INTCON || type == TokenType.STRCON) {
+                digest.update(tokens.getContent(i).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+        }
+    }
+}
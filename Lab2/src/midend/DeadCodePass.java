@@ -2,74 +2,56 @@ package midend;
 
 import backend.ir.BasicBlock;
 import backend.ir.Function;
-import backend.ir.Module;
 import backend.ir.Value;
 import backend.ir.inst.*;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
-public class DeadCodePass {
-    private Module module;
-
-    public DeadCodePass(Module module) {
-        this.module = module;
-    }
-
-    public Module pass(){
-        for (Function function : module.getFunctions()) {
-            passFunc(function);
-        }
-        return module;
+public class DeadCodePass extends FunctionPass {
+    @Override
+    public String getName() {
+        return "DeadCode";
     }
 
-    private void passFunc(Function function) {
-        Set<Instruction> initUsefulSet = new HashSet<>();
-
+    @Override
+    public boolean run(Function function) {
+        // 返回、跳转、调用、存储和 alloca 是有用的，有用指令的操作数也是有用的
+        Set<Instruction> usefulSet = new HashSet<>();
+        Deque<Instruction> worklist = new ArrayDeque<>();
         for (BasicBlock block : function.getBasicBlocks()) {
             for (Instruction instruction : block.getInstructions()) {
                 if (instruction instanceof ReturnInst
                     || instruction instanceof BrInst
                     || instruction instanceof CallInst
                     || instruction instanceof StoreInst
+                    || instruction instanceof AllocInst
                 ){
-                    initUsefulSet.add(instruction);
+                    usefulSet.add(instruction);
+                    worklist.push(instruction);
                 }
             }
         }
 
-        Set<Instruction> usefulSet = getUsefulClosure(initUsefulSet);
-        for (BasicBlock block : function.getBasicBlocks()) {
-            List<Instruction> instructions = block.getInstructions();
-            for (int i = 0; i < instructions.size(); i++) {
-                Instruction instruction = instructions.get(i);
-                if (!usefulSet.contains(instruction)
-                    && !(instruction instanceof AllocInst)
-                ) {
-                    instruction.replaceAllUseWith(null, false);
-                    i--;
+        // 每条指令至多入队一次
+        while (!worklist.isEmpty()) {
+            Instruction instruction = worklist.pop();
+            for (Value operand : instruction.getOperands()){
+                if (operand instanceof Instruction instOperand && usefulSet.add(instOperand)){
+                    worklist.push(instOperand);
                 }
             }
         }
-    }
-
-    private Set<Instruction> getUsefulClosure(Set<Instruction> initUsefulSet) {
-        Set<Instruction> usefulSet = new HashSet<>();
-        for (Instruction instruction : initUsefulSet) {
-            usefulSet.addAll(getUsefulClosure(instruction));
-        }
-        return usefulSet;
-    }
 
-    private Set<Instruction> getUsefulClosure(Instruction instruction) {
-        Set<Instruction> usefulSet = new HashSet<>();
-        usefulSet.add(instruction);
-        for (Value operand : instruction.getOperands()){
-            if (operand instanceof Instruction instOperand){
-                usefulSet.addAll(getUsefulClosure(instOperand));
+        // 无用指令只被无用指令使用，全部删除后 use 链表中不会留下已删除的指令
+        boolean changed = false;
+        for (BasicBlock block : function.getBasicBlocks()) {
+            for (Instruction instruction : block.getInstructions()) {
+                if (!usefulSet.contains(instruction)) {
+                    instruction.eraseFromParent();
+                    changed = true;
+                }
             }
         }
-        return usefulSet;
+        return changed;
     }
 }
@@ -1,65 +1,54 @@
 package midend;
 
 import backend.ir.*;
-import backend.ir.Module;
 import backend.ir.inst.AllocInst;
 import backend.ir.inst.Instruction;
 import backend.ir.inst.LoadInst;
 import backend.ir.inst.StoreInst;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class DeadStorePass {
-    private Module module;
+public class DeadStorePass extends FunctionPass {
     private Map<BasicBlock, Set<AllocInst>> outSets;
     private Set<AllocInst> varAllocInstSet;
+    private boolean changed;
 
-    public DeadStorePass(Module module) {
-        this.module = module;
+    @Override
+    public String getName() {
+        return "DeadStore";
     }
 
-    public Module pass(){
-        for (Function f : module.getFunctions()) {
-            passFunc(f);
-        }
-        return module;
-    }
+    @Override
+    public boolean run(Function f) {
+        outSets = LiveVariableAnalyze.of(f).getOutSets();
+        changed = false;
 
-    private void passFunc(Function f) {
-        if(f.isLibrary()){
-            return;
+        varAllocInstSet = new HashSet<>();
+        for (Instruction inst : f.getFirstBasicBlock().getInstructions()) {
+            if (inst instanceof AllocInst allocInst) {
+                IRType dataType = allocInst.getDataType();
+                if (dataType.getPtrNum() == 0 && dataType.getArrayDims().isEmpty()) {
+                    varAllocInstSet.add(allocInst);
+                }
+            }
         }
-        LiveVariableAnalyze analyze = new LiveVariableAnalyze(f);
-        analyze.analyze();
-        outSets = analyze.getOutSets();
-
-        varAllocInstSet = new HashSet<>(f.getFirstBasicBlock().getInstructions()
-                .stream()
-                .filter(inst -> inst instanceof AllocInst)
-                .map(inst -> (AllocInst) inst)
-                .filter(allocInst -> {
-                    IRType dataType = allocInst.getDataType();
-                    return dataType.getPtrNum() == 0 && dataType.getArrayDims().isEmpty();
-                })
-                .toList());
 
         for (BasicBlock block : f.getBasicBlocks()) {
             passBlock(block);
         }
+        return changed;
     }
 
     private void passBlock(BasicBlock block) {
         Set<AllocInst> outSet = outSets.get(block);
         Set<AllocInst> needStore = new HashSet<>(outSet);
 
-        List<Instruction> instructions = block.getInstructions();
-
-        for (int i = instructions.size() - 1; i >= 0; i--) {
-            Instruction inst = instructions.get(i);
-
+        // 从后往前，删除当前指令前先取出前一条
+        Instruction prev;
+        for (Instruction inst = block.getLastInstruction(); inst != null; inst = prev) {
+            prev = inst.getPrev();
             if (inst instanceof LoadInst loadInst){
                 Value ptr = loadInst.getPtr();
                 if (ptr instanceof AllocInst allocInst && varAllocInstSet.contains(allocInst)){
@@ -71,7 +60,8 @@ public class DeadStorePass {
                     if (needStore.contains(allocInst)){
                         needStore.remove(allocInst);
                     }else {
-                        inst.replaceAllUseWith(null, false);
+                        inst.eraseFromParent();
+                        changed = true;
                     }
                 }
             }
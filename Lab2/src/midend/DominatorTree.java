@@ -0,0 +1,273 @@
+package midend;
+
+import backend.ir.AnalysisKey;
+import backend.ir.BasicBlock;
+import backend.ir.Function;
+
+import java.util.*;
+
+/**
+ * 支配树（或后支配树）与支配边界，用 Cooper–Harvey–Kennedy 的迭代算法在逆后序上计算
+ *
+ * 只包含从入口可达的块；后支配树以一个虚拟出口为根，所有没有后继的块都连到它上面，
+ * 到不了任何出口的块（死循环）不在后支配树中。不在树中的块没有直接支配者，也不支配、不被支配。
+ * 通过 of / postOf 取得的结果缓存在 Function 上，控制流图变化后自动重新计算
+ */
+public class DominatorTree {
+    public static final AnalysisKey DOMINATOR_TREE = new AnalysisKey("dominator tree", true);
+    public static final AnalysisKey POST_DOMINATOR_TREE = new AnalysisKey("post-dominator tree", true);
+
+    private final boolean post;
+    // 结点按逆后序编号，0 号是根；后支配树的根是虚拟出口，对应的块为 null
+    private final BasicBlock[] nodes;
+    private final Map<BasicBlock, Integer> nodeIds = new HashMap<>();
+    private final int[] idoms;
+    private final List<List<BasicBlock>> children = new ArrayList<>();
+    // 支配树上先序遍历的进入、退出时间，用于 O(1) 判断支配关系
+    private final int[] enterTimes;
+    private final int[] exitTimes;
+    private final List<BasicBlock> preOrder = new ArrayList<>();
+    private Map<BasicBlock, Set<BasicBlock>> frontiers = null;
+
+    public static DominatorTree of(Function function) {
+        return function.getAnalysis(DOMINATOR_TREE, () -> new DominatorTree(function, false));
+    }
+
+    public static DominatorTree postOf(Function function) {
+        return function.getAnalysis(POST_DOMINATOR_TREE, () -> new DominatorTree(function, true));
+    }
+
+    public DominatorTree(Function function, boolean post) {
+        this.post = post;
+        List<BasicBlock> order = post ? reversePostOrderOfReverseGraph(function) : function.getReversePostOrder();
+
+        int offset = post ? 1 : 0;
+        nodes = new BasicBlock[order.size() + offset];
+        for (int i = 0; i < order.size(); i++) {
+            nodes[i + offset] = order.get(i);
+            nodeIds.put(order.get(i), i + offset);
+        }
+
+        idoms = computeIdoms();
+
+        for (int i = 0; i < nodes.length; i++) {
+            children.add(new ArrayList<>());
+        }
+        for (int i = 1; i < nodes.length; i++) {
+            if (idoms[i] >= 0) {
+                children.get(idoms[i]).add(nodes[i]);
+            }
+        }
+
+        enterTimes = new int[nodes.length];
+        exitTimes = new int[nodes.length];
+        numberTree();
+    }
+
+    public boolean isPostDominatorTree() {
+        return post;
+    }
+
+    // 根（入口块；后支配树的根是虚拟出口，返回 null）
+    public BasicBlock getRoot() {
+        return nodes.length == 0 ? null : nodes[0];
+    }
+
+    public boolean contains(BasicBlock block) {
+        return nodeIds.containsKey(block);
+    }
+
+    // 直接支配者；根、不在树中的块以及直接后支配者为虚拟出口的块返回 null
+    public BasicBlock getIDom(BasicBlock block) {
+        Integer id = nodeIds.get(block);
+        if (id == null || id == 0 || idoms[id] < 0) {
+            return null;
+        }
+        return nodes[idoms[id]];
+    }
+
+    // 支配树上的孩子，按逆后序排列；传入 null 取后支配树虚拟出口的孩子
+    public List<BasicBlock> getChildren(BasicBlock block) {
+        Integer id = block == null ? (post ? 0 : null) : nodeIds.get(block);
+        if (id == null) {
+            return List.of();
+        }
+        return Collections.unmodifiableList(children.get(id));
+    }
+
+    // a 支配 b（a == b 时也成立）
+    public boolean dominates(BasicBlock a, BasicBlock b) {
+        Integer idA = nodeIds.get(a), idB = nodeIds.get(b);
+        if (idA == null || idB == null) {
+            return a == b;
+        }
+        return enterTimes[idA] <= enterTimes[idB] && exitTimes[idB] <= exitTimes[idA];
+    }
+
+    public boolean strictlyDominates(BasicBlock a, BasicBlock b) {
+        return a != b && dominates(a, b);
+    }
+
+    // 支配边界：block 支配某个前驱、但不严格支配的块；后支配树上是反向图的支配边界（即控制依赖）
+    public Set<BasicBlock> getFrontier(BasicBlock block) {
+        if (frontiers == null) {
+            frontiers = computeFrontiers();
+        }
+        return frontiers.getOrDefault(block, Set.of());
+    }
+
+    // 支配树的先序，父结点总在孩子之前
+    public List<BasicBlock> getPreOrder() {
+        return Collections.unmodifiableList(preOrder);
+    }
+
+    // 结点在当前方向上的前驱（后支配树上是后继），只计树中的结点
+    private List<Integer> predecessorIds(int id) {
+        List<Integer> ids = new ArrayList<>();
+        if (post && id == 0) {
+            return ids;
+        }
+        BasicBlock block = nodes[id];
+        List<BasicBlock> predecessors = post ? block.getSuccessors() : block.getPredecessors();
+        for (BasicBlock predecessor : predecessors) {
+            Integer predecessorId = nodeIds.get(predecessor);
+            if (predecessorId != null) {
+                ids.add(predecessorId);
+            }
+        }
+        if (post && block.getSuccessors().isEmpty()) {
+            ids.add(0); // 出口块的后继是虚拟出口
+        }
+        return ids;
+    }
+
+    private int[] computeIdoms() {
+        int[] idoms = new int[nodes.length];
+        Arrays.fill(idoms, -1);
+        if (nodes.length == 0) {
+            return idoms;
+        }
+        idoms[0] = 0;
+
+        List<List<Integer>> predecessorIds = new ArrayList<>(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            predecessorIds.add(predecessorIds(i));
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < nodes.length; i++) {
+                int newIdom = -1;
+                for (int predecessor : predecessorIds.get(i)) {
+                    if (idoms[predecessor] < 0) {
+                        continue; // 还没有处理过的前驱
+                    }
+                    newIdom = newIdom < 0 ? predecessor : intersect(idoms, predecessor, newIdom);
+                }
+                if (newIdom >= 0 && idoms[i] != newIdom) {
+                    idoms[i] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+        return idoms;
+    }
+
+    // 逆后序编号越小离根越近，沿直接支配者上溯直到相遇
+    private static int intersect(int[] idoms, int a, int b) {
+        while (a != b) {
+            while (a > b) {
+                a = idoms[a];
+            }
+            while (b > a) {
+                b = idoms[b];
+            }
+        }
+        return a;
+    }
+
+    private void numberTree() {
+        if (nodes.length == 0) {
+            return;
+        }
+        int time = 0;
+        Deque<Integer> nodeStack = new ArrayDeque<>();
+        Deque<Iterator<BasicBlock>> childStack = new ArrayDeque<>();
+        enterTimes[0] = time++;
+        if (nodes[0] != null) {
+            preOrder.add(nodes[0]);
+        }
+        nodeStack.push(0);
+        childStack.push(children.get(0).iterator());
+        while (!nodeStack.isEmpty()) {
+            Iterator<BasicBlock> iterator = childStack.peek();
+            if (iterator.hasNext()) {
+                int child = nodeIds.get(iterator.next());
+                enterTimes[child] = time++;
+                preOrder.add(nodes[child]);
+                nodeStack.push(child);
+                childStack.push(children.get(child).iterator());
+            } else {
+                exitTimes[nodeStack.pop()] = time++;
+                childStack.pop();
+            }
+        }
+    }
+
+    private Map<BasicBlock, Set<BasicBlock>> computeFrontiers() {
+        Map<BasicBlock, Set<BasicBlock>> frontiers = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == null || idoms[i] < 0) {
+                continue;
+            }
+            List<Integer> predecessors = predecessorIds(i);
+            if (predecessors.size() < 2) {
+                continue;
+            }
+            for (int predecessor : predecessors) {
+                // 从前驱沿支配树上溯到 i 的直接支配者，途经的结点都以 i 为边界
+                int runner = predecessor;
+                while (runner != idoms[i]) {
+                    if (nodes[runner] != null) {
+                        frontiers.computeIfAbsent(nodes[runner], k -> new LinkedHashSet<>()).add(nodes[i]);
+                    }
+                    runner = idoms[runner];
+                }
+            }
+        }
+        return frontiers;
+    }
+
+    // 从所有出口块沿前驱反向做深度优先遍历得到的逆后序（不含虚拟出口），只包含从入口可达的块
+    private static List<BasicBlock> reversePostOrderOfReverseGraph(Function function) {
+        Set<BasicBlock> reachable = new HashSet<>(function.getReversePostOrder());
+        List<BasicBlock> postOrder = new ArrayList<>();
+        Set<BasicBlock> visited = new HashSet<>();
+        Deque<BasicBlock> blockStack = new ArrayDeque<>();
+        Deque<Iterator<BasicBlock>> predecessorStack = new ArrayDeque<>();
+
+        for (BasicBlock exit : function.getReversePostOrder()) {
+            if (!exit.getSuccessors().isEmpty() || !visited.add(exit)) {
+                continue;
+            }
+            blockStack.push(exit);
+            predecessorStack.push(exit.getPredecessors().iterator());
+            while (!blockStack.isEmpty()) {
+                Iterator<BasicBlock> predecessors = predecessorStack.peek();
+                if (predecessors.hasNext()) {
+                    BasicBlock predecessor = predecessors.next();
+                    if (reachable.contains(predecessor) && visited.add(predecessor)) {
+                        blockStack.push(predecessor);
+                        predecessorStack.push(predecessor.getPredecessors().iterator());
+                    }
+                } else {
+                    postOrder.add(blockStack.pop());
+                    predecessorStack.pop();
+                }
+            }
+        }
+        Collections.reverse(postOrder);
+        return postOrder;
+    }
+}
@@ -0,0 +1,35 @@
+package midend;
+
+import backend.ir.AnalysisKey;
+import backend.ir.Function;
+import backend.ir.Module;
+
+import java.util.Set;
+
+/**
+ * 逐个函数处理的优化遍。PassManager 按函数调度，函数被修改后，
+ * 没有列在 getPreservedAnalyses 中的分析结果失效（控制流图变化时所有分析都会失效）
+ */
+public abstract class FunctionPass implements Pass {
+    // 只对有函数体的非库函数调用，返回是否修改了函数
+    public abstract boolean run(Function function);
+
+    public Set<AnalysisKey> getPreservedAnalyses() {
+        return Set.of();
+    }
+
+    @Override
+    public boolean run(Module module) {
+        boolean changed = false;
+        for (Function function : module.getFunctions()) {
+            if (isOptimizable(function)) {
+                changed |= run(function);
+            }
+        }
+        return changed;
+    }
+
+    public static boolean isOptimizable(Function function) {
+        return !function.isLibrary() && !function.getBasicBlocks().isEmpty();
+    }
+}
@@ -0,0 +1,78 @@
+package midend;
+
+import backend.ir.*;
+import backend.ir.inst.*;
+
+import java.util.*;
+
+/**
+ * 全局值编号：沿支配树先序遍历，值表按作用域维护，离开一个块时撤销它加入的表项，
+ * 所以一条指令只会被支配它的等价指令代替。
+ *
+ * 只处理没有副作用、结果只取决于操作数的指令（算术、比较、地址计算、zext）；load 受 store 和调用影响，仍由 LVNPass 在块内处理。
+ * 编号方式见 ValueNumbering。
+ * 终结指令之后的指令不会执行，不能作为代替其他指令的值
+ */
+public class GVNPass extends FunctionPass {
+    private static final Set<AnalysisKey> PRESERVED_ANALYSES = Set.of(LiveVariableAnalyze.KEY);
+
+    private final ValueNumbering valueNumbering = new ValueNumbering();
+    private boolean changed;
+
+    @Override
+    public String getName() {
+        return "GVN";
+    }
+
+    // 只替换、删除纯计算的指令，不影响 load / store
+    @Override
+    public Set<AnalysisKey> getPreservedAnalyses() {
+        return PRESERVED_ANALYSES;
+    }
+
+    @Override
+    public boolean run(Function function) {
+        valueNumbering.clear();
+        changed = false;
+
+        DominatorTree tree = DominatorTree.of(function);
+        Deque<Integer> scopeMarks = new ArrayDeque<>();
+        Deque<Iterator<BasicBlock>> childStack = new ArrayDeque<>();
+
+        scopeMarks.push(valueNumbering.mark());
+        passBlock(tree.getRoot());
+        childStack.push(tree.getChildren(tree.getRoot()).iterator());
+        while (!childStack.isEmpty()) {
+            Iterator<BasicBlock> children = childStack.peek();
+            if (children.hasNext()) {
+                BasicBlock child = children.next();
+                scopeMarks.push(valueNumbering.mark());
+                passBlock(child);
+                childStack.push(tree.getChildren(child).iterator());
+            } else {
+                childStack.pop();
+                valueNumbering.rollback(scopeMarks.pop());
+            }
+        }
+        return changed;
+    }
+
+    private void passBlock(BasicBlock block) {
+        boolean reachable = true;
+        for (Instruction inst : block.getInstructions()) {
+            if (valueNumbering.buildKey(inst, -1)) {
+                Instruction leader = valueNumbering.findLeader();
+                if (leader != null) {
+                    inst.replaceAllUsesWith(leader);
+                    inst.eraseFromParent();
+                    changed = true;
+                } else if (reachable) {
+                    valueNumbering.addLeader(inst);
+                }
+            }
+            if (inst == block.getTerminator()) {
+                reachable = false;
+            }
+        }
+    }
+}
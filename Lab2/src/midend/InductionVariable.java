@@ -0,0 +1,88 @@
+package midend;
+
+import backend.ir.BasicBlock;
+import backend.ir.ImmediateValue;
+import backend.ir.Value;
+import backend.ir.inst.BinaryInst;
+import backend.ir.inst.BinaryInstOp;
+import backend.ir.inst.PhiInst;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基本归纳变量：循环首块中的 phi，从前置块流入初值，从唯一的 latch 流入 phi 加（减）一个非零常数的结果。
+ * 只识别有前置块和唯一 latch 的循环；强度削弱和循环展开据此分析地址的变化和循环次数
+ */
+public class InductionVariable {
+    private final PhiInst phi;
+    private final Value init;
+    private final BinaryInst update;
+    private final int step;
+
+    private InductionVariable(PhiInst phi, Value init, BinaryInst update, int step) {
+        this.phi = phi;
+        this.init = init;
+        this.update = update;
+        this.step = step;
+    }
+
+    // 循环的所有基本归纳变量，按 phi 的顺序
+    public static List<InductionVariable> find(Loop loop) {
+        List<InductionVariable> result = new ArrayList<>();
+        BasicBlock preheader = loop.getPreheader();
+        BasicBlock latch = loop.getLatch();
+        if (preheader == null || latch == null) {
+            return result;
+        }
+        for (PhiInst phi : loop.getHeader().getPhis()) {
+            if (phi.getIncomingNum() != 2) {
+                continue;
+            }
+            Value init = phi.getIncomingValueFor(preheader);
+            if (init == null || !(phi.getIncomingValueFor(latch) instanceof BinaryInst update)
+                    || !loop.contains(update.getBasicBlock())) {
+                continue;
+            }
+            int step = getStep(phi, update);
+            if (step != 0) {
+                result.add(new InductionVariable(phi, init, update, step));
+            }
+        }
+        return result;
+    }
+
+    // update 是 phi + c、c + phi 或 phi - c 时返回每次的增量，否则返回 0
+    private static int getStep(PhiInst phi, BinaryInst update) {
+        Value left = update.getLeftValue(), right = update.getRightValue();
+        if (update.getOp() == BinaryInstOp.ADD) {
+            if (left == phi && right instanceof ImmediateValue immediate) {
+                return immediate.getValue();
+            }
+            if (right == phi && left instanceof ImmediateValue immediate) {
+                return immediate.getValue();
+            }
+        } else if (update.getOp() == BinaryInstOp.SUB && left == phi && right instanceof ImmediateValue immediate) {
+            return -immediate.getValue();
+        }
+        return 0;
+    }
+
+    public PhiInst getPhi() {
+        return phi;
+    }
+
+    // 从前置块流入的初值
+    public Value getInit() {
+        return init;
+    }
+
+    // 从 latch 流入的下一次的值
+    public BinaryInst getUpdate() {
+        return update;
+    }
+
+    public int getStep() {
+        return step;
+    }
+}
@@ -0,0 +1,265 @@
+package midend;
+
+import backend.ir.*;
+import backend.ir.Module;
+import backend.ir.inst.*;
+
+import java.util.*;
+
+/**
+ * 函数内联：把调用换成被调函数的基本块的副本，省去 translateCommonFuncCall 中保存寄存器、传参和调整栈的开销
+ *
+ * 在 Mem2Reg 之前执行：被调函数的 alloca（包括形参的 alloca）复制到调用者的入口块，形参换成实参之后
+ * 它们就是普通的局部变量，由之后的 Mem2Reg 提升；返回值先存入一个新的 alloca，在调用之后的位置读出。
+ *
+ * 代价模型见 OptimizeOptions：被调函数越小、调用处的循环越深越容易内联，调用者过大后不再内联。
+ * 调用图的环中的函数（包括直接递归的函数）不会被内联；其余函数按调用图自底向上处理，
+ * 被调函数总是先完成了自己的内联，结果与处理哪些调用者无关（增量编译时只优化一部分函数）
+ */
+public class InlinePass implements Pass {
+    // 循环深度超过这个值不再增加内联的阈值
+    private static final int MAX_LOOP_DEPTH = 3;
+
+    private final OptimizeOptions options;
+    private final Map<Function, Set<Function>> callees = new HashMap<>();
+    private final Set<Function> recursiveFunctions = new HashSet<>();
+    private final Map<Function, Integer> sizes = new HashMap<>();
+
+    public InlinePass(OptimizeOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public String getName() {
+        return "Inline";
+    }
+
+    @Override
+    public boolean run(Module module) {
+        List<Function> bottomUpOrder = new ArrayList<>();
+        for (Function function : module.getFunctions()) {
+            if (FunctionPass.isOptimizable(function) && !sizes.containsKey(function)) {
+                findStronglyConnectedComponents(function, bottomUpOrder);
+            }
+        }
+
+        boolean changed = false;
+        for (Function function : bottomUpOrder) {
+            changed |= inlineCalls(function);
+        }
+        return changed;
+    }
+
+    // 有函数体的被调函数，按第一次调用的顺序
+    private Set<Function> getCallees(Function function) {
+        Set<Function> result = callees.get(function);
+        if (result == null) {
+            result = new LinkedHashSet<>();
+            for (BasicBlock block : function.getBasicBlocks()) {
+                for (Instruction inst : block.getInstructions()) {
+                    if (inst instanceof CallInst callInst && FunctionPass.isOptimizable(callInst.getFunction())) {
+                        result.add(callInst.getFunction());
+                    }
+                }
+            }
+            callees.put(function, result);
+        }
+        return result;
+    }
+
+    /**
+     * 从 root 出发用 Tarjan 算法求调用图的强连通分量，用显式栈代替递归。
+     * 分量按被调函数在前的顺序完成，依次加入 bottomUpOrder；多于一个函数的分量和调用自身的函数是递归的
+     */
+    private void findStronglyConnectedComponents(Function root, List<Function> bottomUpOrder) {
+        Map<Function, Integer> indices = new HashMap<>();
+        Map<Function, Integer> lowLinks = new HashMap<>();
+        Deque<Function> componentStack = new ArrayDeque<>();
+        Set<Function> onComponentStack = new HashSet<>();
+        Deque<Function> dfsStack = new ArrayDeque<>();
+        Deque<Iterator<Function>> calleeStack = new ArrayDeque<>();
+
+        indices.put(root, 0);
+        lowLinks.put(root, 0);
+        componentStack.push(root);
+        onComponentStack.add(root);
+        dfsStack.push(root);
+        calleeStack.push(getCallees(root).iterator());
+        while (!dfsStack.isEmpty()) {
+            Function function = dfsStack.peek();
+            Iterator<Function> calleeIterator = calleeStack.peek();
+            if (calleeIterator.hasNext()) {
+                Function callee = calleeIterator.next();
+                if (indices.containsKey(callee)) {
+                    if (onComponentStack.contains(callee)) {
+                        lowLinks.put(function, Math.min(lowLinks.get(function), indices.get(callee)));
+                    }
+                } else if (!sizes.containsKey(callee)) {
+                    // 已在之前的遍历中完成的函数不再访问
+                    int index = indices.size();
+                    indices.put(callee, index);
+                    lowLinks.put(callee, index);
+                    componentStack.push(callee);
+                    onComponentStack.add(callee);
+                    dfsStack.push(callee);
+                    calleeStack.push(getCallees(callee).iterator());
+                }
+                continue;
+            }
+
+            dfsStack.pop();
+            calleeStack.pop();
+            if (!dfsStack.isEmpty()) {
+                Function caller = dfsStack.peek();
+                lowLinks.put(caller, Math.min(lowLinks.get(caller), lowLinks.get(function)));
+            }
+            if (lowLinks.get(function).equals(indices.get(function))) {
+                List<Function> component = new ArrayList<>();
+                Function member;
+                do {
+                    member = componentStack.pop();
+                    onComponentStack.remove(member);
+                    component.add(member);
+                } while (member != function);
+                if (component.size() > 1 || getCallees(function).contains(function)) {
+                    recursiveFunctions.addAll(component);
+                }
+                for (Function completed : component) {
+                    sizes.put(completed, countSize(completed));
+                }
+                bottomUpOrder.addAll(component);
+            }
+        }
+    }
+
+    private static int countSize(Function function) {
+        int size = 0;
+        for (BasicBlock block : function.getBasicBlocks()) {
+            for (Instruction inst : block.getInstructions()) {
+                if (!(inst instanceof AllocInst)) {
+                    size++;
+                }
+            }
+        }
+        return size;
+    }
+
+    // 按代价模型内联 caller 中的调用，返回是否内联了
+    private boolean inlineCalls(Function caller) {
+        List<CallInst> calls = new ArrayList<>();
+        for (BasicBlock block : caller.getBasicBlocks()) {
+            for (Instruction inst : block.getInstructions()) {
+                if (inst instanceof CallInst callInst && FunctionPass.isOptimizable(callInst.getFunction())
+                        && !recursiveFunctions.contains(callInst.getFunction())) {
+                    calls.add(callInst);
+                }
+            }
+        }
+
+        // 内联会改变控制流图，先按原来的循环结构算好每个调用的循环深度
+        LoopInfo loopInfo = LoopInfo.of(caller);
+        int[] loopDepths = new int[calls.size()];
+        for (int i = 0; i < calls.size(); i++) {
+            loopDepths[i] = Math.min(loopInfo.getLoopDepth(calls.get(i).getBasicBlock()), MAX_LOOP_DEPTH);
+        }
+
+        int callerSize = sizes.get(caller);
+        boolean changed = false;
+        for (int i = 0; i < calls.size(); i++) {
+            CallInst call = calls.get(i);
+            int calleeSize = sizes.get(call.getFunction());
+            int loopDepth = loopDepths[i];
+            if (calleeSize > options.inlineThreshold + options.inlineLoopBonus * loopDepth
+                    || callerSize + calleeSize > options.inlineCallerLimit) {
+                continue;
+            }
+            inline(caller, call);
+            callerSize += calleeSize;
+            changed = true;
+        }
+        sizes.put(caller, callerSize);
+        return changed;
+    }
+
+    private void inline(Function caller, CallInst call) {
+        Function callee = call.getFunction();
+        BasicBlock callBlock = call.getBasicBlock();
+        List<BasicBlock> calleeBlocks = callee.getBasicBlocks();
+        List<BasicBlock> newBlocks = caller.createBasicBlocksAfter(callBlock, calleeBlocks.size() + 1);
+        BasicBlock continueBlock = newBlocks.get(calleeBlocks.size());
+
+        // 调用之后的指令（包括终结指令）移到 continueBlock，原来的后继改为从 continueBlock 流入
+        for (Instruction inst = call.getNext(); inst != null; ) {
+            Instruction next = inst.getNext();
+            inst.removeFromParent();
+            continueBlock.addInstruction(inst);
+            inst = next;
+        }
+        for (BasicBlock successor : continueBlock.getSuccessors()) {
+            for (PhiInst phi : successor.getPhis()) {
+                for (int i = 0; i < phi.getIncomingNum(); i++) {
+                    if (phi.getIncomingBlock(i) == callBlock) {
+                        phi.setIncomingBlock(i, continueBlock);
+                    }
+                }
+            }
+        }
+
+        Map<Value, Value> valueMap = new HashMap<>();
+        for (int i = 0; i < calleeBlocks.size(); i++) {
+            valueMap.put(calleeBlocks.get(i), newBlocks.get(i));
+        }
+        for (int i = 0; i < callee.getArguments().size(); i++) {
+            valueMap.put(callee.getArguments().get(i), call.getParams().get(i));
+        }
+
+        BasicBlock entry = caller.getFirstBasicBlock();
+        Instruction allocPos = entry.getFirstInstruction();
+        while (allocPos instanceof AllocInst) {
+            allocPos = allocPos.getNext();
+        }
+        AllocInst returnSlot = null;
+        if (callee.getRetType().getType() != IRTypeEnum.VOID) {
+            returnSlot = new AllocInst(callee.getRetType());
+            entry.addInstructionBefore(returnSlot, allocPos);
+        }
+
+        // 先复制所有指令，操作数暂时是被调函数中的值；之后统一替换，使用后面的块中定义的值也能替换
+        List<Instruction> copies = new ArrayList<>();
+        for (int i = 0; i < calleeBlocks.size(); i++) {
+            BasicBlock newBlock = newBlocks.get(i);
+            for (Instruction inst : calleeBlocks.get(i).getInstructions()) {
+                if (inst instanceof AllocInst allocInst) {
+                    AllocInst copy = new AllocInst(allocInst.getDataType());
+                    entry.addInstructionBefore(copy, allocPos);
+                    valueMap.put(inst, copy);
+                } else if (inst instanceof ReturnInst returnInst) {
+                    if (returnSlot != null) {
+                        Instruction store = new StoreInst(InstructionCloner.copyOperand(returnInst.getValue(), valueMap), returnSlot);
+                        newBlock.addInstruction(store);
+                        copies.add(store);
+                    }
+                    newBlock.addInstruction(new BrInst(continueBlock));
+                } else {
+                    Instruction copy = InstructionCloner.copyInstruction(inst, valueMap);
+                    newBlock.addInstruction(copy);
+                    valueMap.put(inst, copy);
+                    copies.add(copy);
+                }
+            }
+            // 没有终结指令的块顺序执行到下一个块
+            if (newBlock.getTerminator() == null) {
+                newBlock.addInstruction(new BrInst(newBlocks.get(i + 1)));
+            }
+        }
+        InstructionCloner.remapOperands(copies, valueMap);
+
+        callBlock.addInstruction(new BrInst(newBlocks.get(0)));
+        if (call.isUsed()) {
+            LoadInst result = new LoadInst(returnSlot);
+            continueBlock.addInstructionBefore(result, continueBlock.getFirstInstruction());
+            call.replaceAllUsesWith(result);
+        }
+        call.eraseFromParent();
+    }
+}
@@ -0,0 +1,245 @@
+package midend;
+
+import backend.ir.*;
+import backend.ir.inst.*;
+
+import java.util.*;
+
+/**
+ * 循环不变量外提：先给没有前置块（preheader）的循环建立前置块，再从内层循环到外层循环，
+ * 把操作数都在循环外定义的指令移到前置块末尾，内层循环提出的指令在外层循环中还可以继续外提。
+ *
+ * 算术、比较、地址计算和 zext 没有副作用，总是可以外提；除法和取余只在除数是非零常数，
+ * 或者指令在每次进入循环时都会执行（所在块支配循环的所有出口）时外提。
+ * load 要求循环中没有调用非库函数、没有可能写同一个对象的 store，并且地址本身就是 alloca / 全局变量，
+ * 或者指令每次进入循环都会执行，外提不会访问原来不会访问的地址
+ */
+public class LICMPass extends FunctionPass {
+    private boolean changed;
+
+    @Override
+    public String getName() {
+        return "LICM";
+    }
+
+    @Override
+    public boolean run(Function function) {
+        changed = false;
+
+        // 建立前置块会改变控制流图，之后重新取循环信息
+        for (Loop loop : LoopInfo.of(function).getLoops()) {
+            if (loop.getPreheader() == null && loop.getHeader() != function.getFirstBasicBlock()) {
+                createPreheader(function, loop);
+            }
+        }
+
+        LoopInfo loopInfo = LoopInfo.of(function);
+        DominatorTree tree = DominatorTree.of(function);
+        List<Loop> loops = loopInfo.getLoops();
+        for (int i = loops.size() - 1; i >= 0; i--) {
+            hoistLoop(loops.get(i), tree);
+        }
+        return changed;
+    }
+
+    // 新建一个块放在 header 之前，循环外的前驱都改为跳到它；header 的 phi 中从循环外流入的项合并为一项
+    private void createPreheader(Function function, Loop loop) {
+        BasicBlock header = loop.getHeader();
+        BasicBlock preheader = function.createBasicBlocksAfter(function.getBasicBlocks().get(header.getIndex() - 1), 1).get(0);
+
+        for (PhiInst phi : header.getPhis()) {
+            List<Value> values = new ArrayList<>();
+            List<BasicBlock> blocks = new ArrayList<>();
+            for (int i = phi.getIncomingNum() - 1; i >= 0; i--) {
+                if (!loop.contains(phi.getIncomingBlock(i))) {
+                    values.add(0, phi.getIncomingValue(i));
+                    blocks.add(0, phi.getIncomingBlock(i));
+                    phi.removeIncoming(i);
+                }
+            }
+            Value value = values.get(0);
+            for (Value other : values) {
+                if (other != value) {
+                    PhiInst newPhi = preheader.createPhiInst(phi.getType());
+                    for (int i = 0; i < values.size(); i++) {
+                        newPhi.addIncoming(values.get(i), blocks.get(i));
+                    }
+                    value = newPhi;
+                    break;
+                }
+            }
+            phi.addIncoming(value, preheader);
+        }
+
+        Set<BasicBlock> outsidePredecessors = new LinkedHashSet<>();
+        for (BasicBlock predecessor : header.getPredecessors()) {
+            if (!loop.contains(predecessor)) {
+                outsidePredecessors.add(predecessor);
+            }
+        }
+        for (BasicBlock predecessor : outsidePredecessors) {
+            BrInst brInst = (BrInst) predecessor.getTerminator();
+            if (brInst.getDest() == header) {
+                brInst.setDest(preheader);
+            }
+            if (brInst.getTrueBranch() == header) {
+                brInst.setTrueBranch(preheader);
+            }
+            if (brInst.getFalseBranch() == header) {
+                brInst.setFalseBranch(preheader);
+            }
+        }
+        preheader.createBrInstWithoutCond(header);
+        changed = true;
+    }
+
+    private void hoistLoop(Loop loop, DominatorTree tree) {
+        BasicBlock preheader = loop.getPreheader();
+        if (preheader == null) {
+            return;
+        }
+
+        // 循环中的出口：有后继在循环外或者返回的块
+        List<BasicBlock> exitingBlocks = new ArrayList<>();
+        boolean hasCall = false;
+        List<Value> storedObjects = new ArrayList<>();
+        for (BasicBlock block : loop.getBlocks()) {
+            if (block.getSuccessors().isEmpty()) {
+                exitingBlocks.add(block);
+            } else {
+                for (BasicBlock successor : block.getSuccessors()) {
+                    if (!loop.contains(successor)) {
+                        exitingBlocks.add(block);
+                        break;
+                    }
+                }
+            }
+            for (Instruction inst : block.getInstructions()) {
+                if (inst instanceof CallInst callInst && !callInst.getFunction().isLibrary()) {
+                    hasCall = true;
+                } else if (inst instanceof StoreInst storeInst) {
+                    storedObjects.add(getObject(storeInst.getPtr()));
+                }
+            }
+        }
+
+        Instruction insertPos = preheader.getTerminator();
+        for (BasicBlock block : loop.getBlocks()) {
+            Instruction next;
+            for (Instruction inst = block.getFirstInstruction(); inst != null && inst != block.getTerminator(); inst = next) {
+                next = inst.getNext();
+                if (!isInvariant(inst, loop)) {
+                    continue;
+                }
+                boolean alwaysExecuted = isAlwaysExecuted(block, exitingBlocks, tree);
+                if (canHoist(inst, alwaysExecuted, hasCall, storedObjects)) {
+                    inst.removeFromParent();
+                    preheader.addInstructionBefore(inst, insertPos);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // 操作数都在循环外定义（包括已经外提的指令）
+    private static boolean isInvariant(Instruction inst, Loop loop) {
+        if (inst instanceof PhiInst) {
+            return false;
+        }
+        for (Value operand : inst.getOperands()) {
+            if (operand instanceof Instruction operandInst && loop.contains(operandInst.getBasicBlock())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 所在块支配循环的所有出口：只要进入循环，离开之前一定会执行
+    private static boolean isAlwaysExecuted(BasicBlock block, List<BasicBlock> exitingBlocks, DominatorTree tree) {
+        if (exitingBlocks.isEmpty()) {
+            return false;
+        }
+        for (BasicBlock exitingBlock : exitingBlocks) {
+            if (!tree.dominates(block, exitingBlock)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean canHoist(Instruction inst, boolean alwaysExecuted, boolean hasCall, List<Value> storedObjects) {
+        if (inst instanceof BinaryInst binaryInst) {
+            BinaryInstOp op = binaryInst.getOp();
+            if (op == BinaryInstOp.SDIV || op == BinaryInstOp.SREM) {
+                return alwaysExecuted
+                        || binaryInst.getRightValue() instanceof ImmediateValue divisor && divisor.getValue() != 0;
+            }
+            return true;
+        }
+        if (inst instanceof ICmpInst || inst instanceof GetElementPtrInst || inst instanceof ZExtInst) {
+            return true;
+        }
+        if (inst instanceof LoadInst loadInst) {
+            Value ptr = loadInst.getPtr();
+            if (hasCall || !alwaysExecuted && !(ptr instanceof AllocInst) && !(ptr instanceof GlobalValue)) {
+                return false;
+            }
+            Value object = getObject(ptr);
+            for (Value storedObject : storedObjects) {
+                if (mayAlias(object, storedObject)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // 地址所指的对象：去掉 getelementptr 之后的基址。强度削弱产生的指针 phi 沿各个流入的值继续查找，
+    // 绕回 phi 自身的值不用考虑；流入的对象不止一个时返回 phi 本身，当作未知的对象
+    private static Value getObject(Value ptr) {
+        while (ptr instanceof GetElementPtrInst gepInst) {
+            ptr = gepInst.getElementBase();
+        }
+        if (!(ptr instanceof PhiInst phi)) {
+            return ptr;
+        }
+        Value object = null;
+        for (int i = 0; i < phi.getIncomingNum(); i++) {
+            Value incoming = phi.getIncomingValue(i);
+            while (incoming instanceof GetElementPtrInst gepInst) {
+                incoming = gepInst.getElementBase();
+            }
+            if (incoming == phi) {
+                continue;
+            }
+            if (incoming instanceof PhiInst || object != null && object != incoming) {
+                return phi;
+            }
+            object = incoming;
+        }
+        return object == null ? phi : object;
+    }
+
+    // alloca 和全局变量是各不相同的对象；数组形参以及从内存中读出的地址来自调用者，可能指向全局变量或者彼此重叠，
+    // 但不会指向本函数的 alloca；其他无法确定的地址可能指向任何对象
+    private static boolean mayAlias(Value object, Value other) {
+        if (object == other) {
+            return true;
+        }
+        if (!isKnownObject(object) || !isKnownObject(other)) {
+            return true;
+        }
+        boolean identified = object instanceof AllocInst || object instanceof GlobalValue;
+        boolean otherIdentified = other instanceof AllocInst || other instanceof GlobalValue;
+        if (identified && otherIdentified) {
+            return false;
+        }
+        return !(object instanceof AllocInst) && !(other instanceof AllocInst);
+    }
+
+    private static boolean isKnownObject(Value object) {
+        return object instanceof AllocInst || object instanceof GlobalValue
+                || object instanceof FunctionArgument || object instanceof LoadInst;
+    }
+}
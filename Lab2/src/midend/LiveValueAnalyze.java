@@ -0,0 +1,134 @@
+package midend;
+
+import backend.ir.AnalysisKey;
+import backend.ir.BasicBlock;
+import backend.ir.Function;
+import backend.ir.IRTypeEnum;
+import backend.ir.Value;
+import backend.ir.inst.*;
+
+import java.util.*;
+
+/**
+ * SSA 值（有结果的指令）的活跃分析，与按变量分析的 LiveVariableAnalyze 相对应
+ *
+ * phi 在所在块开头定义，不属于该块的 in 集合；phi 的入口值在对应前驱的末尾使用，属于前驱的 out 集合
+ */
+public class LiveValueAnalyze {
+    private Map<BasicBlock, Set<Instruction>> inSets = new HashMap<>();
+    private Map<BasicBlock, Set<Instruction>> outSets = new HashMap<>();
+
+    private List<BasicBlock> basicBlocks = new ArrayList<>();
+
+    public static final AnalysisKey KEY = new AnalysisKey("live values", false);
+
+    // 缓存在函数上的分析结果（已经 analyze），结果不能修改
+    public static LiveValueAnalyze of(Function function) {
+        return function.getAnalysis(KEY, () -> {
+            LiveValueAnalyze analyze = new LiveValueAnalyze(function);
+            analyze.analyze();
+            return analyze;
+        });
+    }
+
+    public LiveValueAnalyze(Function function) {
+        basicBlocks.addAll(function.getBasicBlocks());
+
+        for (BasicBlock block : function.getBasicBlocks()){
+            inSets.put(block, getUseSet(block));
+            outSets.put(block, getPhiUseSet(block));
+        }
+    }
+
+    // 参与分析的值：有结果且不是 alloca（alloca 的结果是栈上的固定地址）
+    public static boolean isTracked(Value value) {
+        return value instanceof Instruction inst
+                && !(inst instanceof AllocInst)
+                && inst.getType().getType() != IRTypeEnum.VOID;
+    }
+
+    // 块中使用、在其他块中定义的值（phi 的使用不算）
+    private Set<Instruction> getUseSet(BasicBlock block) {
+        Set<Instruction> useSet = new HashSet<>();
+
+        for (Instruction instruction : block.getInstructions()) {
+            if (instruction instanceof PhiInst) {
+                continue;
+            }
+            for (Value operand : instruction.getOperands()) {
+                if (isTracked(operand) && ((Instruction) operand).getBasicBlock() != block) {
+                    useSet.add((Instruction) operand);
+                }
+            }
+        }
+
+        return useSet;
+    }
+
+    // 后继中 phi 从本块流入的值
+    private Set<Instruction> getPhiUseSet(BasicBlock block) {
+        Set<Instruction> phiUseSet = new HashSet<>();
+
+        for (BasicBlock successor : block.getSuccessors()) {
+            for (PhiInst phi : successor.getPhis()) {
+                Value value = phi.getIncomingValueFor(block);
+                if (isTracked(value)) {
+                    phiUseSet.add((Instruction) value);
+                }
+            }
+        }
+
+        return phiUseSet;
+    }
+
+    // 与 LiveVariableAnalyze 相同的工作表算法
+    public void analyze(){
+        Deque<BasicBlock> worklist = new ArrayDeque<>();
+        Set<BasicBlock> inWorklist = new HashSet<>();
+        for (int i = basicBlocks.size() - 1; i >= 0; i--){
+            worklist.addLast(basicBlocks.get(i));
+            inWorklist.add(basicBlocks.get(i));
+        }
+
+        while (!worklist.isEmpty()){
+            BasicBlock block = worklist.pollFirst();
+            inWorklist.remove(block);
+            updateOutSet(block);
+            if (updateInSet(block)){
+                for (BasicBlock predecessor : block.getPredecessors()){
+                    if (inWorklist.add(predecessor)){
+                        worklist.addLast(predecessor);
+                    }
+                }
+            }
+        }
+    }
+
+    private void updateOutSet(BasicBlock block){
+        Set<Instruction> outSet = outSets.get(block);
+        for (BasicBlock nextBlock : block.getSuccessors()){
+            outSet.addAll(inSets.get(nextBlock));
+        }
+    }
+
+    // in = use ∪ (out - 本块定义的值)，返回 in 是否变大
+    private boolean updateInSet(BasicBlock block){
+        Set<Instruction> inSet = inSets.get(block);
+
+        boolean changed = false;
+        for (Instruction inst : outSets.get(block)){
+            if (inst.getBasicBlock() != block){
+                changed |= inSet.add(inst);
+            }
+        }
+        return changed;
+    }
+
+    public Map<BasicBlock, Set<Instruction>> getInSets(){
+        return inSets;
+    }
+
+    public Map<BasicBlock, Set<Instruction>> getOutSets(){
+        return outSets;
+    }
+}
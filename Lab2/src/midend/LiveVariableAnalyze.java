@@ -1,5 +1,6 @@
 package midend;
 
+import backend.ir.AnalysisKey;
 import backend.ir.BasicBlock;
 import backend.ir.Function;
 import backend.ir.FunctionArgument;
@@ -9,19 +10,26 @@ import backend.ir.inst.*;
 import java.util.*;
 
 public class LiveVariableAnalyze {
-    private Map<BasicBlock, List<BasicBlock>> dataFlowDiagram = new HashMap<>();
     private Map<BasicBlock, Set<AllocInst>> defSets = new HashMap<>();
     private Map<BasicBlock, Set<AllocInst>> inSets = new HashMap<>();
     private Map<BasicBlock, Set<AllocInst>> outSets = new HashMap<>();
 
     private List<BasicBlock> basicBlocks = new ArrayList<>();
-    private boolean updateInIterate = true;
+
+    public static final AnalysisKey KEY = new AnalysisKey("live variables", false);
+
+    // 缓存在函数上的分析结果（已经 analyze），结果不能修改
+    public static LiveVariableAnalyze of(Function function) {
+        return function.getAnalysis(KEY, () -> {
+            LiveVariableAnalyze analyze = new LiveVariableAnalyze(function);
+            analyze.analyze();
+            return analyze;
+        });
+    }
 
     public LiveVariableAnalyze(Function function) {
         basicBlocks.addAll(function.getBasicBlocks());
 
-        buildDataFlowDiagram(function);
-
         for (BasicBlock block : function.getBasicBlocks()){
             defSets.put(block, getDefSet(block));
             inSets.put(block, getUseSet(block));
@@ -29,29 +37,6 @@ public class LiveVariableAnalyze {
         }
     }
 
-    private void buildDataFlowDiagram(Function function) {
-        for (BasicBlock block : function.getBasicBlocks()){
-            List<BasicBlock> nextBlocks = getNextBlocks(block);
-            dataFlowDiagram.put(block, nextBlocks);
-        }
-    }
-
-    private List<BasicBlock> getNextBlocks(BasicBlock block) {
-        List<BasicBlock> nextBlocks = new ArrayList<>();
-        List<Instruction> instructions = block.getInstructions();
-        Instruction lastInstruction = instructions.get(instructions.size() - 1);
-
-        if (lastInstruction instanceof BrInst brInst){
-            if (brInst.getDest() != null){
-                nextBlocks.add(brInst.getDest());
-            }else {
-                nextBlocks.add(brInst.getTrueBranch());
-                nextBlocks.add(brInst.getFalseBranch());
-            }
-        }
-        return nextBlocks;
-    }
-
     private Set<AllocInst> getDefSet(BasicBlock block) {
         Set<AllocInst> defSet = new HashSet<>();
 
@@ -67,65 +52,69 @@ public class LiveVariableAnalyze {
         return defSet;
     }
 
+    // 块内先于定义的使用：同一块中 store 之后的 load 读到的是本块写入的值，不使变量在块入口活跃
     private Set<AllocInst> getUseSet(BasicBlock block) {
         Set<AllocInst> useSet = new HashSet<>();
+        Set<AllocInst> defined = new HashSet<>();
 
         for (Instruction instruction : block.getInstructions()) {
             if (instruction instanceof LoadInst loadInst){
                 Value ptr = loadInst.getPtr();
-                if (ptr instanceof AllocInst allocInst){
+                if (ptr instanceof AllocInst allocInst && !defined.contains(allocInst)){
                     useSet.add(allocInst);
                 }
+            }else if (instruction instanceof StoreInst storeInst && !(storeInst.getValue() instanceof FunctionArgument)){
+                if (storeInst.getPtr() instanceof AllocInst allocInst){
+                    defined.add(allocInst);
+                }
             }
         }
 
         return useSet;
     }
 
+    // 工作表算法：块的 in 集合变大时才重新计算它的前驱，后继取自控制流图
     public void analyze(){
-        while (!stop()){
-            updateInIterate = false;
-            iterate();
+        Deque<BasicBlock> worklist = new ArrayDeque<>();
+        Set<BasicBlock> inWorklist = new HashSet<>();
+        for (int i = basicBlocks.size() - 1; i >= 0; i--){
+            worklist.addLast(basicBlocks.get(i));
+            inWorklist.add(basicBlocks.get(i));
         }
-    }
-
-    private boolean stop(){
-        return !updateInIterate;
-    }
 
-    private void iterate(){
-        for (int i = basicBlocks.size() - 1; i >= 0; i--){
-            BasicBlock block = basicBlocks.get(i);
+        while (!worklist.isEmpty()){
+            BasicBlock block = worklist.pollFirst();
+            inWorklist.remove(block);
             updateOutSet(block);
-            updateInSet(block);
+            if (updateInSet(block)){
+                for (BasicBlock predecessor : block.getPredecessors()){
+                    if (inWorklist.add(predecessor)){
+                        worklist.addLast(predecessor);
+                    }
+                }
+            }
         }
     }
 
     private void updateOutSet(BasicBlock block){
-        List<BasicBlock> nextBlocks = dataFlowDiagram.get(block);
-
         Set<AllocInst> outSet = outSets.get(block);
-
-        for (BasicBlock nextBlock : nextBlocks){
-            int preSize = outSet.size();
+        for (BasicBlock nextBlock : block.getSuccessors()){
             outSet.addAll(inSets.get(nextBlock));
-            int curSize = outSet.size();
-            if (curSize != preSize){
-                updateInIterate = true;
-            }
         }
     }
 
-    private void updateInSet(BasicBlock block){
+    // in = use ∪ (out - def)，返回 in 是否变大
+    private boolean updateInSet(BasicBlock block){
         Set<AllocInst> inSet = inSets.get(block);
-        Set<AllocInst> outSet = outSets.get(block);
         Set<AllocInst> defSet = defSets.get(block);
 
-        Set<AllocInst> outSetCopy = new HashSet<>(outSet);
-        outSetCopy.removeAll(defSet);
-        Set<AllocInst> outWithoutDef = outSetCopy;
-
-        inSet.addAll(outWithoutDef);
+        boolean changed = false;
+        for (AllocInst allocInst : outSets.get(block)){
+            if (!defSet.contains(allocInst)){
+                changed |= inSet.add(allocInst);
+            }
+        }
+        return changed;
     }
 
     public Map<BasicBlock, Set<AllocInst>> getInSets(){
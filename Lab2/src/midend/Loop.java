@@ -0,0 +1,147 @@
+package midend;
+
+import backend.ir.BasicBlock;
+
+import java.util.*;
+
+/**
+ * 自然循环：首块 header 支配回边的起点（latch），循环由能不经过 header 到达某个 latch 的块组成。
+ * 同一个 header 的多条回边合为一个循环；内层循环的块也属于外层循环。
+ *
+ * 由 LoopInfo 构造，控制流图变化后失效，不能修改
+ */
+public class Loop {
+    private final BasicBlock header;
+    private Loop parent = null;
+    private final List<Loop> children = new ArrayList<>();
+    // 按逆后序排列，header 在最前
+    private final List<BasicBlock> blocks = new ArrayList<>();
+    private final Set<BasicBlock> blockSet = new HashSet<>();
+    private int depth = 0;
+
+    Loop(BasicBlock header) {
+        this.header = header;
+    }
+
+    public BasicBlock getHeader() {
+        return header;
+    }
+
+    // 外层循环，最外层循环返回 null
+    public Loop getParent() {
+        return parent;
+    }
+
+    void setParent(Loop parent) {
+        this.parent = parent;
+    }
+
+    // 直接嵌套在其中的循环，按首块的逆后序排列
+    public List<Loop> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    void addChild(Loop child) {
+        children.add(child);
+    }
+
+    // 嵌套深度，最外层循环为 1
+    public int getDepth() {
+        return depth;
+    }
+
+    void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public List<BasicBlock> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    void addBlock(BasicBlock block) {
+        blocks.add(block);
+        blockSet.add(block);
+    }
+
+    public boolean contains(BasicBlock block) {
+        return blockSet.contains(block);
+    }
+
+    // other 是这个循环或嵌套在其中的循环
+    public boolean contains(Loop other) {
+        for (Loop loop = other; loop != null; loop = loop.parent) {
+            if (loop == this) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 回边的起点：循环中 header 的前驱
+    public List<BasicBlock> getLatches() {
+        List<BasicBlock> latches = new ArrayList<>();
+        for (BasicBlock predecessor : header.getPredecessors()) {
+            if (contains(predecessor) && !latches.contains(predecessor)) {
+                latches.add(predecessor);
+            }
+        }
+        return latches;
+    }
+
+    // 只有一个 latch 时返回它，否则返回 null
+    public BasicBlock getLatch() {
+        List<BasicBlock> latches = getLatches();
+        return latches.size() == 1 ? latches.get(0) : null;
+    }
+
+    // 有后继在循环外的块
+    public List<BasicBlock> getExitingBlocks() {
+        List<BasicBlock> exitingBlocks = new ArrayList<>();
+        for (BasicBlock block : blocks) {
+            for (BasicBlock successor : block.getSuccessors()) {
+                if (!contains(successor)) {
+                    exitingBlocks.add(block);
+                    break;
+                }
+            }
+        }
+        return exitingBlocks;
+    }
+
+    // 循环外、有前驱在循环中的块，不重复
+    public List<BasicBlock> getExitBlocks() {
+        Set<BasicBlock> exitBlocks = new LinkedHashSet<>();
+        for (BasicBlock block : blocks) {
+            for (BasicBlock successor : block.getSuccessors()) {
+                if (!contains(successor)) {
+                    exitBlocks.add(successor);
+                }
+            }
+        }
+        return new ArrayList<>(exitBlocks);
+    }
+
+    // header 在循环外唯一的前驱，并且它只跳转到 header；没有这样的块时返回 null
+    public BasicBlock getPreheader() {
+        BasicBlock preheader = null;
+        for (BasicBlock predecessor : header.getPredecessors()) {
+            if (contains(predecessor)) {
+                continue;
+            }
+            if (preheader != null && preheader != predecessor) {
+                return null;
+            }
+            preheader = predecessor;
+        }
+        if (preheader == null || preheader.getSuccessors().size() != 1) {
+            return null;
+        }
+        return preheader;
+    }
+
+    // 用块的位置而不是名字，名字在第一次取用时才分配，调试输出不应改变编号
+    @Override
+    public String toString() {
+        return "loop at block " + header.getIndex() + " (depth " + depth + ", " + blocks.size() + " blocks)";
+    }
+}
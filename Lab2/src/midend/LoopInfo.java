@@ -0,0 +1,125 @@
+package midend;
+
+import backend.ir.AnalysisKey;
+import backend.ir.BasicBlock;
+import backend.ir.Function;
+
+import java.util.*;
+
+/**
+ * 循环嵌套森林：由回边（终点支配起点的边）找出自然循环，再按包含关系组织成树
+ *
+ * 在支配树上后序处理各个 header，内层循环总是先于外层循环建立；从 latch 沿前驱反向遍历到 header，
+ * 遇到已经属于某个循环的块时，把它当前最外层的循环作为孩子挂上，直接从那个循环的 header 继续。
+ * 不可规约的环（没有支配其他块的入口）不算循环；从入口不可达的块不属于任何循环。
+ * 通过 of 取得的结果缓存在 Function 上，只依赖控制流图
+ */
+public class LoopInfo {
+    public static final AnalysisKey KEY = new AnalysisKey("loops", true);
+
+    // 块所在的最内层循环
+    private final Map<BasicBlock, Loop> innermostLoops = new HashMap<>();
+    private final List<Loop> topLevelLoops = new ArrayList<>();
+    // 所有循环，外层循环在内层循环之前
+    private final List<Loop> loops = new ArrayList<>();
+
+    public static LoopInfo of(Function function) {
+        return function.getAnalysis(KEY, () -> new LoopInfo(function));
+    }
+
+    public LoopInfo(Function function) {
+        DominatorTree tree = DominatorTree.of(function);
+        List<BasicBlock> preOrder = tree.getPreOrder();
+        for (int i = preOrder.size() - 1; i >= 0; i--) {
+            discoverLoop(preOrder.get(i), tree);
+        }
+
+        // 按逆后序把每个块加入它所在的各层循环，块和孩子的顺序都与集合的遍历顺序无关
+        for (BasicBlock block : function.getReversePostOrder()) {
+            Loop loop = innermostLoops.get(block);
+            if (loop == null) {
+                continue;
+            }
+            if (loop.getHeader() == block) {
+                if (loop.getParent() == null) {
+                    topLevelLoops.add(loop);
+                    loop.setDepth(1);
+                } else {
+                    loop.getParent().addChild(loop);
+                    loop.setDepth(loop.getParent().getDepth() + 1);
+                }
+                loops.add(loop);
+            }
+            for (; loop != null; loop = loop.getParent()) {
+                loop.addBlock(block);
+            }
+        }
+    }
+
+    // header 有回边时建立以它为首块的循环
+    private void discoverLoop(BasicBlock header, DominatorTree tree) {
+        Deque<BasicBlock> worklist = new ArrayDeque<>();
+        for (BasicBlock predecessor : header.getPredecessors()) {
+            if (tree.contains(predecessor) && tree.dominates(header, predecessor)) {
+                worklist.push(predecessor);
+            }
+        }
+        if (worklist.isEmpty()) {
+            return;
+        }
+
+        Loop loop = new Loop(header);
+        innermostLoops.put(header, loop);
+        while (!worklist.isEmpty()) {
+            BasicBlock block = worklist.pop();
+            Loop subLoop = innermostLoops.get(block);
+            if (subLoop == null) {
+                innermostLoops.put(block, loop);
+                pushPredecessors(block, worklist, tree);
+                continue;
+            }
+            while (subLoop.getParent() != null) {
+                subLoop = subLoop.getParent();
+            }
+            if (subLoop == loop) {
+                continue;
+            }
+            subLoop.setParent(loop);
+            pushPredecessors(subLoop.getHeader(), worklist, tree);
+        }
+    }
+
+    // 内层循环 header 的前驱中属于内层循环的（回边起点）会在上面被跳过
+    private static void pushPredecessors(BasicBlock block, Deque<BasicBlock> worklist, DominatorTree tree) {
+        for (BasicBlock predecessor : block.getPredecessors()) {
+            if (tree.contains(predecessor)) {
+                worklist.push(predecessor);
+            }
+        }
+    }
+
+    // 块所在的最内层循环，不在循环中时返回 null
+    public Loop getLoopFor(BasicBlock block) {
+        return innermostLoops.get(block);
+    }
+
+    // 块所在循环的嵌套深度，不在循环中时为 0
+    public int getLoopDepth(BasicBlock block) {
+        Loop loop = innermostLoops.get(block);
+        return loop == null ? 0 : loop.getDepth();
+    }
+
+    public boolean isLoopHeader(BasicBlock block) {
+        Loop loop = innermostLoops.get(block);
+        return loop != null && loop.getHeader() == block;
+    }
+
+    public List<Loop> getTopLevelLoops() {
+        return Collections.unmodifiableList(topLevelLoops);
+    }
+
+    // 所有循环，外层循环在内层循环之前；需要先处理内层循环时倒序遍历
+    public List<Loop> getLoops() {
+        return Collections.unmodifiableList(loops);
+    }
+}
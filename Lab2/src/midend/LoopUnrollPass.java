@@ -0,0 +1,266 @@
+package midend;
+
+import backend.ir.*;
+import backend.ir.inst.*;
+
+import java.util.*;
+
+/**
+ * 循环展开，只处理最内层的、可以做循环次数分析（见 TripCount）并且首块中只有 phi、退出比较和跳转的循环。
+ *
+ * 次数是常数并且展开后不超过 unrollSizeLimit 条指令时完全展开：把循环体按次数复制到循环之前，
+ * 原来的循环第一次比较就不成立，之后由常量传播删除。
+ * 否则按 unrollFactor 部分展开：在原来的循环之前建立主循环，每轮顺序执行 unrollFactor 遍循环体，
+ * 归纳变量 i 满足 i + (unrollFactor - 1) * step 仍在边界内时才进入这一轮，剩下的不到 unrollFactor 次由原来的循环
+ * （余数循环）执行；边界不是常数时在前置块中检查 bound - (unrollFactor - 1) * step 是否溢出，溢出时直接进入余数循环。
+ * 副本中归纳变量的值直接写成主循环 phi 加常数，强度削弱可以让同一数组的访问共用一个指针。
+ * 每个函数因展开增加的指令不超过 unrollBudget 条
+ */
+public class LoopUnrollPass extends FunctionPass {
+    private final OptimizeOptions options;
+    private Function function;
+    private int budget;
+
+    // 当前处理的循环
+    private BasicBlock header;
+    private BasicBlock latch;
+    private BasicBlock bodyEntry;
+    private List<BasicBlock> body;
+    private List<InductionVariable> ivs;
+
+    public LoopUnrollPass(OptimizeOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public String getName() {
+        return "LoopUnroll";
+    }
+
+    @Override
+    public boolean run(Function function) {
+        this.function = function;
+        budget = options.unrollBudget;
+        boolean changed = false;
+        // 最内层循环互不相交，展开一个不会改变其他循环的块
+        for (Loop loop : LoopInfo.of(function).getLoops()) {
+            if (loop.getChildren().isEmpty()) {
+                changed |= unroll(loop);
+            }
+        }
+        return changed;
+    }
+
+    private boolean unroll(Loop loop) {
+        TripCount tripCount = TripCount.analyze(loop);
+        BasicBlock preheader = loop.getPreheader();
+        if (tripCount == null || preheader == null || !isSimpleHeader(loop, tripCount)) {
+            return false;
+        }
+        header = loop.getHeader();
+        latch = loop.getLatch();
+        body = new ArrayList<>(loop.getBlocks());
+        body.remove(header);
+        BrInst headerBr = (BrInst) header.getTerminator();
+        bodyEntry = loop.contains(headerBr.getTrueBranch()) ? headerBr.getTrueBranch() : headerBr.getFalseBranch();
+        ivs = InductionVariable.find(loop);
+
+        int size = 0;
+        for (BasicBlock block : body) {
+            size += block.getInstructionNum();
+        }
+        int limit = Math.min(options.unrollSizeLimit, budget);
+        long count = tripCount.getConstantTripCount();
+        if (count > 0 && count * size <= limit) {
+            unrollFully(preheader, (int) count);
+            budget -= (int) count * size;
+            return true;
+        }
+        int factor = options.unrollFactor;
+        if (factor < 2 || (long) factor * size > limit || count >= 0 && count < factor
+                || !unrollPartially(preheader, tripCount, factor)) {
+            return false;
+        }
+        budget -= factor * size;
+        return true;
+    }
+
+    // 首块中只有 phi、只被跳转使用的退出比较和跳转，循环体中不会使用首块中除 phi 以外的值；latch 不是首块
+    private static boolean isSimpleHeader(Loop loop, TripCount tripCount) {
+        BasicBlock header = loop.getHeader();
+        ICmpInst exitTest = tripCount.getExitTest();
+        if (loop.getLatch() == header || exitTest.getUseList().size() != 1) {
+            return false;
+        }
+        for (Instruction inst : header.getInstructions()) {
+            if (!(inst instanceof PhiInst) && inst != exitTest && inst != header.getTerminator()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 按顺序复制 count 遍循环体放在前置块之后，最后一遍流回首块
+    private void unrollFully(BasicBlock preheader, int count) {
+        Map<PhiInst, Value> phiValues = new HashMap<>();
+        for (PhiInst phi : header.getPhis()) {
+            phiValues.put(phi, phi.getIncomingValueFor(preheader));
+        }
+        Map<PhiInst, Value> ivBases = new HashMap<>();
+        for (InductionVariable iv : ivs) {
+            ivBases.put(iv.getPhi(), iv.getInit());
+        }
+
+        BasicBlock prevLatch = preheader;
+        BasicBlock after = preheader;
+        for (int i = 0; i < count; i++) {
+            List<BasicBlock> copy = copyBody(after, phiValues, ivBases, i + 1);
+            retarget(prevLatch, header, copy.get(body.indexOf(bodyEntry)));
+            prevLatch = copy.get(body.indexOf(latch));
+            after = copy.get(copy.size() - 1);
+        }
+        for (PhiInst phi : header.getPhis()) {
+            replaceIncoming(phi, preheader, phiValues.get(phi), prevLatch);
+        }
+    }
+
+    private boolean unrollPartially(BasicBlock preheader, TripCount tripCount, int factor) {
+        InductionVariable iv = tripCount.getInductionVariable();
+        Value bound = tripCount.getBound();
+        // 副本中归纳变量加到 factor 个步长
+        if (Math.abs((long) factor * iv.getStep()) > Integer.MAX_VALUE) {
+            return false;
+        }
+        int distance = (factor - 1) * iv.getStep();
+
+        // 主循环比较 i 与 bound - distance；边界是常数时直接算出，否则在前置块中计算并检查是否溢出
+        Value adjusted;
+        ICmpInst guard = null;
+        if (bound instanceof ImmediateValue immediate) {
+            long value = (long) immediate.getValue() - distance;
+            if (value != (int) value) {
+                return false;
+            }
+            adjusted = new ImmediateValue((int) value);
+        } else {
+            BinaryInst sub = new BinaryInst(BinaryInstOp.SUB, bound, new ImmediateValue(distance));
+            preheader.addInstructionBefore(sub, preheader.getTerminator());
+            adjusted = sub;
+            guard = new ICmpInst(iv.getStep() > 0 ? ICmpInstCond.SLE : ICmpInstCond.SGE, sub, bound);
+            preheader.addInstructionBefore(guard, preheader.getTerminator());
+        }
+
+        List<BasicBlock> newBlocks = function.createBasicBlocksAfter(preheader, 2);
+        BasicBlock mainPreheader = newBlocks.get(0);
+        BasicBlock mainHeader = newBlocks.get(1);
+        preheader.getTerminator().eraseFromParent();
+        preheader.addInstruction(guard == null ? new BrInst(mainPreheader) : new BrInst(guard, mainPreheader, header));
+        mainPreheader.addInstruction(new BrInst(mainHeader));
+
+        Map<PhiInst, PhiInst> mainPhis = new HashMap<>();
+        for (PhiInst phi : header.getPhis()) {
+            PhiInst mainPhi = mainHeader.createPhiInst(phi.getType());
+            mainPhi.addIncoming(phi.getIncomingValueFor(preheader), mainPreheader);
+            mainPhis.put(phi, mainPhi);
+        }
+        ICmpInst mainTest = new ICmpInst(tripCount.getCond(), mainPhis.get(iv.getPhi()), adjusted);
+        mainHeader.addInstruction(mainTest);
+
+        Map<PhiInst, Value> phiValues = new HashMap<>(mainPhis);
+        Map<PhiInst, Value> ivBases = new HashMap<>();
+        for (InductionVariable other : ivs) {
+            ivBases.put(other.getPhi(), mainPhis.get(other.getPhi()));
+        }
+        BasicBlock firstEntry = null;
+        BasicBlock prevLatch = null;
+        BasicBlock after = mainHeader;
+        for (int i = 0; i < factor; i++) {
+            List<BasicBlock> copy = copyBody(after, phiValues, ivBases, i + 1);
+            BasicBlock entry = copy.get(body.indexOf(bodyEntry));
+            if (prevLatch == null) {
+                firstEntry = entry;
+            } else {
+                retarget(prevLatch, header, entry);
+            }
+            prevLatch = copy.get(body.indexOf(latch));
+            after = copy.get(copy.size() - 1);
+        }
+        retarget(prevLatch, header, mainHeader);
+        mainHeader.addInstruction(new BrInst(mainTest, firstEntry, header));
+
+        for (PhiInst phi : header.getPhis()) {
+            PhiInst mainPhi = mainPhis.get(phi);
+            mainPhi.addIncoming(phiValues.get(phi), prevLatch);
+            if (guard == null) {
+                replaceIncoming(phi, preheader, mainPhi, mainHeader);
+            } else {
+                phi.addIncoming(mainPhi, mainHeader);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 复制一遍循环体（首块以外的块）放在 after 之后，首块的 phi 取 phiValues 中的值；
+     * 归纳变量在这一遍中的更新直接写成 ivBases 中的起点加 iteration 个步长。
+     * 跳回首块的边仍指向首块，由调用者改接。返回副本中的块（与 body 对应），phiValues 更新为流回首块的值
+     */
+    private List<BasicBlock> copyBody(BasicBlock after, Map<PhiInst, Value> phiValues, Map<PhiInst, Value> ivBases, int iteration) {
+        List<BasicBlock> newBlocks = function.createBasicBlocksAfter(after, body.size());
+        Map<Value, Value> valueMap = new HashMap<>(phiValues);
+        valueMap.put(header, header);
+        for (int i = 0; i < body.size(); i++) {
+            valueMap.put(body.get(i), newBlocks.get(i));
+        }
+        Map<Instruction, InductionVariable> updates = new HashMap<>();
+        for (InductionVariable iv : ivs) {
+            updates.put(iv.getUpdate(), iv);
+        }
+
+        List<Instruction> copies = new ArrayList<>();
+        for (int i = 0; i < body.size(); i++) {
+            for (Instruction inst : body.get(i).getInstructions()) {
+                InductionVariable iv = updates.get(inst);
+                Instruction copy = iv == null ? InstructionCloner.copyInstruction(inst, valueMap)
+                        : new BinaryInst(BinaryInstOp.ADD, ivBases.get(iv.getPhi()), new ImmediateValue(iv.getStep() * iteration));
+                newBlocks.get(i).addInstruction(copy);
+                valueMap.put(inst, copy);
+                copies.add(copy);
+            }
+        }
+        InstructionCloner.remapOperands(copies, valueMap);
+
+        Map<PhiInst, Value> nextValues = new HashMap<>();
+        for (PhiInst phi : header.getPhis()) {
+            Value value = phi.getIncomingValueFor(latch);
+            nextValues.put(phi, valueMap.getOrDefault(value, value));
+        }
+        phiValues.putAll(nextValues);
+        return newBlocks;
+    }
+
+    // 把 block 末尾跳到 from 的边改为跳到 to
+    private static void retarget(BasicBlock block, BasicBlock from, BasicBlock to) {
+        BrInst brInst = (BrInst) block.getTerminator();
+        if (brInst.getDest() == from) {
+            brInst.setDest(to);
+        }
+        if (brInst.getTrueBranch() == from) {
+            brInst.setTrueBranch(to);
+        }
+        if (brInst.getFalseBranch() == from) {
+            brInst.setFalseBranch(to);
+        }
+    }
+
+    // phi 中从 block 流入的项改为从 newBlock 流入 value
+    private static void replaceIncoming(PhiInst phi, BasicBlock block, Value value, BasicBlock newBlock) {
+        for (int i = 0; i < phi.getIncomingNum(); i++) {
+            if (phi.getIncomingBlock(i) == block) {
+                phi.setIncomingValue(i, value);
+                phi.setIncomingBlock(i, newBlock);
+                return;
+            }
+        }
+    }
+}
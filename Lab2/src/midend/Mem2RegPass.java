@@ -0,0 +1,245 @@
+package midend;
+
+import backend.ir.*;
+import backend.ir.inst.*;
+
+import java.util.*;
+
+/**
+ * 把标量局部变量从 alloca 提升为 SSA 值（mem2reg）
+ *
+ * 只提升直接被 load / store 访问、地址没有被传走的非数组变量；形参的 alloca 保持不变，
+ * 后端把它们直接放在 $a 寄存器或调用者的栈帧中。
+ * 先在变量赋值所在块的迭代支配边界上放置 phi，再沿支配树先序重命名：load 换成当前值，store 记下新值后删除。
+ * 终结指令之后的指令不会执行，其中的 store 不改变当前值；不可达块里的 load 换成 0
+ */
+public class Mem2RegPass extends FunctionPass {
+    @Override
+    public String getName() {
+        return "Mem2Reg";
+    }
+
+    @Override
+    public boolean run(Function function) {
+        Map<AllocInst, Integer> varIds = new HashMap<>();
+        List<AllocInst> vars = new ArrayList<>();
+        for (Instruction inst : function.getFirstBasicBlock().getInstructions()) {
+            if (inst instanceof AllocInst allocInst && isPromotable(allocInst)) {
+                varIds.put(allocInst, vars.size());
+                vars.add(allocInst);
+            }
+        }
+        if (vars.isEmpty()) {
+            return false;
+        }
+
+        DominatorTree tree = DominatorTree.of(function);
+        Map<PhiInst, Integer> phiVars = placePhis(tree, vars, varIds);
+        rename(function, tree, vars, varIds, phiVars);
+
+        for (AllocInst var : vars) {
+            var.eraseFromParent();
+        }
+        removeTrivialPhis(phiVars.keySet());
+        return true;
+    }
+
+    // 只被 load / store 作为地址使用，且没有存入形参
+    private static boolean isPromotable(AllocInst allocInst) {
+        IRType dataType = allocInst.getDataType();
+        if (dataType.getPtrNum() != 0 || !dataType.getArrayDims().isEmpty()) {
+            return false;
+        }
+        for (Use use : allocInst.getUseList()) {
+            if (use.getUser() instanceof LoadInst) {
+                continue;
+            }
+            if (use.getUser() instanceof StoreInst storeInst
+                    && storeInst.getPtr() == allocInst
+                    && storeInst.getValue() != allocInst
+                    && !(storeInst.getValue() instanceof FunctionArgument)) {
+                continue;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    // 在每个变量的赋值块的迭代支配边界上放 phi，返回 phi -> 变量编号
+    private static Map<PhiInst, Integer> placePhis(DominatorTree tree, List<AllocInst> vars, Map<AllocInst, Integer> varIds) {
+        List<Set<BasicBlock>> defBlocks = new ArrayList<>();
+        for (int i = 0; i < vars.size(); i++) {
+            defBlocks.add(new LinkedHashSet<>());
+        }
+        for (AllocInst var : vars) {
+            for (Use use : var.getUseList()) {
+                BasicBlock block = ((Instruction) use.getUser()).getBasicBlock();
+                if (use.getUser() instanceof StoreInst && tree.contains(block)) {
+                    defBlocks.get(varIds.get(var)).add(block);
+                }
+            }
+        }
+
+        Map<PhiInst, Integer> phiVars = new LinkedHashMap<>();
+        for (int id = 0; id < vars.size(); id++) {
+            Set<BasicBlock> hasPhi = new HashSet<>();
+            Deque<BasicBlock> worklist = new ArrayDeque<>(defBlocks.get(id));
+            Set<BasicBlock> visited = new HashSet<>(defBlocks.get(id));
+            while (!worklist.isEmpty()) {
+                BasicBlock block = worklist.pop();
+                for (BasicBlock frontier : tree.getFrontier(block)) {
+                    if (!hasPhi.add(frontier)) {
+                        continue;
+                    }
+                    phiVars.put(frontier.createPhiInst(vars.get(id).getDataType()), id);
+                    if (visited.add(frontier)) {
+                        worklist.push(frontier);
+                    }
+                }
+            }
+        }
+        return phiVars;
+    }
+
+    private static void rename(Function function, DominatorTree tree, List<AllocInst> vars,
+                               Map<AllocInst, Integer> varIds, Map<PhiInst, Integer> phiVars) {
+        // 每个变量的当前值，入口处未赋值的变量读到 0
+        Value[] currValues = new Value[vars.size()];
+        for (int i = 0; i < currValues.length; i++) {
+            currValues[i] = new ImmediateValue(0);
+        }
+        // 每个 phi 在各条入边上的值，前驱 -> 值
+        Map<PhiInst, Map<BasicBlock, Value>> incomingValues = new HashMap<>();
+        for (PhiInst phi : phiVars.keySet()) {
+            incomingValues.put(phi, new HashMap<>());
+        }
+
+        // 离开一个块时按记录撤销它对当前值的修改
+        Deque<Integer> undoVars = new ArrayDeque<>();
+        Deque<Value> undoValues = new ArrayDeque<>();
+        Deque<Integer> undoMarks = new ArrayDeque<>();
+        Deque<Iterator<BasicBlock>> childStack = new ArrayDeque<>();
+
+        BasicBlock entry = tree.getRoot();
+        undoMarks.push(undoValues.size());
+        renameBlock(entry, currValues, varIds, phiVars, incomingValues, undoVars, undoValues);
+        childStack.push(tree.getChildren(entry).iterator());
+        while (!childStack.isEmpty()) {
+            Iterator<BasicBlock> children = childStack.peek();
+            if (children.hasNext()) {
+                BasicBlock child = children.next();
+                undoMarks.push(undoValues.size());
+                renameBlock(child, currValues, varIds, phiVars, incomingValues, undoVars, undoValues);
+                childStack.push(tree.getChildren(child).iterator());
+            } else {
+                childStack.pop();
+                int mark = undoMarks.pop();
+                while (undoValues.size() > mark) {
+                    currValues[undoVars.pop()] = undoValues.pop();
+                }
+            }
+        }
+
+        // 不可达块中对变量的访问直接去掉
+        for (BasicBlock block : function.getBasicBlocks()) {
+            if (tree.contains(block)) {
+                continue;
+            }
+            for (Instruction inst : block.getInstructions()) {
+                if (inst instanceof LoadInst loadInst && loadInst.getPtr() instanceof AllocInst var && varIds.containsKey(var)) {
+                    inst.replaceAllUsesWith(new ImmediateValue(0));
+                    inst.eraseFromParent();
+                } else if (inst instanceof StoreInst storeInst && storeInst.getPtr() instanceof AllocInst var && varIds.containsKey(var)) {
+                    inst.eraseFromParent();
+                }
+            }
+        }
+
+        // 按前驱表的顺序填入 phi 的入口值，来自不可达前驱的值为 0
+        for (Map.Entry<PhiInst, Map<BasicBlock, Value>> phiEntry : incomingValues.entrySet()) {
+            PhiInst phi = phiEntry.getKey();
+            for (BasicBlock predecessor : phi.getBasicBlock().getPredecessors()) {
+                Value value = phiEntry.getValue().get(predecessor);
+                phi.addIncoming(value == null ? new ImmediateValue(0) : value, predecessor);
+            }
+        }
+    }
+
+    private static void renameBlock(BasicBlock block, Value[] currValues, Map<AllocInst, Integer> varIds,
+                                    Map<PhiInst, Integer> phiVars, Map<PhiInst, Map<BasicBlock, Value>> incomingValues,
+                                    Deque<Integer> undoVars, Deque<Value> undoValues) {
+        boolean reachable = true; // 终结指令之后的指令不会执行
+        for (Instruction inst : block.getInstructions()) {
+            if (inst instanceof PhiInst phi && phiVars.containsKey(phi)) {
+                setCurrValue(phiVars.get(phi), phi, currValues, undoVars, undoValues);
+            } else if (inst instanceof LoadInst loadInst && loadInst.getPtr() instanceof AllocInst var && varIds.containsKey(var)) {
+                inst.replaceAllUsesWith(currValues[varIds.get(var)]);
+                inst.eraseFromParent();
+            } else if (inst instanceof StoreInst storeInst && storeInst.getPtr() instanceof AllocInst var && varIds.containsKey(var)) {
+                if (reachable) {
+                    setCurrValue(varIds.get(var), storeInst.getValue(), currValues, undoVars, undoValues);
+                }
+                inst.eraseFromParent();
+            }
+            if (inst == block.getTerminator()) {
+                reachable = false;
+            }
+        }
+
+        for (BasicBlock successor : block.getSuccessors()) {
+            for (PhiInst phi : successor.getPhis()) {
+                Integer id = phiVars.get(phi);
+                if (id != null) {
+                    incomingValues.get(phi).put(block, currValues[id]);
+                }
+            }
+        }
+    }
+
+    private static void setCurrValue(int id, Value value, Value[] currValues, Deque<Integer> undoVars, Deque<Value> undoValues) {
+        undoVars.push(id);
+        undoValues.push(currValues[id]);
+        currValues[id] = value;
+    }
+
+    // 所有入口值都相同（或是 phi 自己）的 phi 用该值代替，替换后使用它的 phi 可能也变得多余
+    private static void removeTrivialPhis(Collection<PhiInst> phis) {
+        Deque<PhiInst> worklist = new ArrayDeque<>(phis);
+        Set<PhiInst> removed = new HashSet<>();
+        while (!worklist.isEmpty()) {
+            PhiInst phi = worklist.pop();
+            if (removed.contains(phi)) {
+                continue;
+            }
+            Value same = null;
+            boolean trivial = true;
+            for (int i = 0; i < phi.getIncomingNum(); i++) {
+                Value value = phi.getIncomingValue(i);
+                if (value == phi || value == same || isSameImmediate(value, same)) {
+                    continue;
+                }
+                if (same != null) {
+                    trivial = false;
+                    break;
+                }
+                same = value;
+            }
+            if (!trivial || same == null) {
+                continue;
+            }
+
+            for (Use use : phi.getUseList()) {
+                if (use.getUser() instanceof PhiInst user && user != phi) {
+                    worklist.push(user);
+                }
+            }
+            phi.replaceAllUsesWith(same);
+            phi.eraseFromParent();
+            removed.add(phi);
+        }
+    }
+
+    private static boolean isSameImmediate(Value a, Value b) {
+        return a instanceof ImmediateValue immA && b instanceof ImmediateValue immB && immA.getValue() == immB.getValue();
+    }
+}
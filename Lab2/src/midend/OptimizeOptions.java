@@ -0,0 +1,47 @@
+package midend;
+
+/**
+ * 优化遍的可调参数，对应命令行中的 -inline-threshold N 等选项（见 set）
+ */
+public class OptimizeOptions {
+    // 被调函数的指令数（不含 alloca）不超过 inlineThreshold + inlineLoopBonus * 调用处的循环深度时内联
+    public int inlineThreshold = 30;
+    public int inlineLoopBonus = 30;
+    // 调用者的指令数超过该值后不再向其中内联，限制代码膨胀
+    public int inlineCallerLimit = 3000;
+    // 部分展开时每轮执行的循环体遍数，小于 2 时不做部分展开
+    public int unrollFactor = 4;
+    // 展开后的循环体（完全展开时为全部副本）最多的指令数
+    public int unrollSizeLimit = 128;
+    // 每个函数因循环展开最多增加的指令数，限制代码膨胀
+    public int unrollBudget = 512;
+
+    // 识别并设置一个选项，不是优化选项或值不是整数时返回 false
+    public boolean set(String flag, String value) {
+        int intValue;
+        try {
+            intValue = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        switch (flag) {
+            case "-inline-threshold" -> inlineThreshold = intValue;
+            case "-inline-loop-bonus" -> inlineLoopBonus = intValue;
+            case "-inline-caller-limit" -> inlineCallerLimit = intValue;
+            case "-unroll-factor" -> unrollFactor = intValue;
+            case "-unroll-size-limit" -> unrollSizeLimit = intValue;
+            case "-unroll-budget" -> unrollBudget = intValue;
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 参与增量编译缓存的指纹，参数不同时生成的代码不同
+    @Override
+    public String toString() {
+        return "inline " + inlineThreshold + " " + inlineLoopBonus + " " + inlineCallerLimit
+                + " unroll " + unrollFactor + " " + unrollSizeLimit + " " + unrollBudget;
+    }
+}
@@ -0,0 +1,32 @@
+package midend;
+
+import backend.ir.Module;
+import stats.CompileStatistics;
+
+import java.util.List;
+
+/**
+ * 中端优化流程：先按代价模型内联函数调用，再把标量局部变量提升为 SSA 值，再对每个函数反复执行稀疏条件常量传播、全局值编号、
+ * 循环不变量外提、局部值编号（块内的 load）、死存储消除和死代码消除，直到不再变化；然后展开最内层循环，
+ * 展开后的代码（完全展开时归纳变量都是常数）再执行一遍上面的优化。最后对归纳变量做强度削弱，
+ * 它依赖前面外提和合并之后的地址，产生的重复计算和死代码再由一轮常量传播、值编号和死代码消除清理，调度见 PassManager。
+ * 各函数的优化互不依赖，parallel 为 true 时并行执行
+ */
+public class Optimizer {
+    public static Module optimize(Module module) {
+        return optimize(module, new OptimizeOptions(), null, false);
+    }
+
+    // statistics 不为 null 时记录每个优化遍的耗时和对中间代码的改动
+    public static Module optimize(Module module, OptimizeOptions options, CompileStatistics statistics, boolean parallel) {
+        return new PassManager(statistics, parallel)
+                .add(new InlinePass(options))
+                .addFunctionPass(Mem2RegPass::new)
+                .addFixpoint(List.of(SCCPPass::new, GVNPass::new, LICMPass::new, LVNPass::new, DeadStorePass::new, DeadCodePass::new))
+                .addFunctionPass(() -> new LoopUnrollPass(options))
+                .addFixpoint(List.of(SCCPPass::new, GVNPass::new, LICMPass::new, LVNPass::new, DeadStorePass::new, DeadCodePass::new))
+                .addFunctionPass(StrengthReducePass::new)
+                .addFixpoint(List.of(SCCPPass::new, GVNPass::new, LICMPass::new, DeadCodePass::new))
+                .run(module);
+    }
+}
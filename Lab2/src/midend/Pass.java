@@ -0,0 +1,13 @@
+package midend;
+
+import backend.ir.Module;
+
+/**
+ * 优化遍：由 PassManager 调度，返回是否修改了中间代码
+ */
+public interface Pass {
+    // 统计耗时和改动时使用的名字
+    String getName();
+
+    boolean run(Module module);
+}
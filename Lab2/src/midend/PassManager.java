@@ -0,0 +1,164 @@
+package midend;
+
+import backend.Parallel;
+import backend.ir.Function;
+import backend.ir.Module;
+import stats.CompileStatistics;
+import stats.IRSnapshot;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 按顺序执行优化遍，分为三种阶段：
+ * add 的模块级遍执行一次；addFunctionPass 的函数遍对每个函数执行一次；
+ * addFixpoint 的一组函数遍对每个函数反复执行，直到一整轮都没有修改（最多 MAX_ROUNDS 轮）。
+ * 一个遍上次执行之后函数没有被修改过时跳过它（按遍的名字记录，跨阶段有效），所以已经收敛的函数不会再被处理，
+ * 后面用于清理的不动点阶段在前面的遍没有修改函数时也不会重复执行。
+ *
+ * 相邻的函数级阶段按函数并行执行（见 Parallel），每个任务创建自己的遍对象，遍中的状态不会共享。
+ * 函数被修改后按遍声明保留的分析使缓存失效，见 Function.invalidateAnalyses。
+ * statistics 不为 null 时按遍的名字累计耗时（跨函数、跨轮次）和对中间代码的改动
+ */
+public class PassManager {
+    private static final int MAX_ROUNDS = 8;
+
+    private final CompileStatistics statistics;
+    private final boolean parallel;
+    private final List<Stage> stages = new ArrayList<>();
+
+    // modulePass 与 functionPasses 恰有一个不为 null
+    private record Stage(Pass modulePass, List<Supplier<? extends FunctionPass>> functionPasses, boolean fixpoint) {
+    }
+
+    public PassManager(CompileStatistics statistics, boolean parallel) {
+        this.statistics = statistics;
+        this.parallel = parallel;
+    }
+
+    public PassManager add(Pass pass) {
+        stages.add(new Stage(pass, null, false));
+        return this;
+    }
+
+    public PassManager addFunctionPass(Supplier<? extends FunctionPass> pass) {
+        stages.add(new Stage(null, List.of(pass), false));
+        return this;
+    }
+
+    // passes 按顺序组成一轮
+    public PassManager addFixpoint(List<Supplier<? extends FunctionPass>> passes) {
+        stages.add(new Stage(null, List.copyOf(passes), true));
+        return this;
+    }
+
+    public Module run(Module module) {
+        int start = 0;
+        while (start < stages.size()) {
+            if (stages.get(start).modulePass() != null) {
+                runOnModule(stages.get(start).modulePass(), module);
+                start++;
+                continue;
+            }
+            int end = start;
+            while (end < stages.size() && stages.get(end).modulePass() == null) {
+                end++;
+            }
+            runFunctionStages(stages.subList(start, end), module);
+            start = end;
+        }
+        return module;
+    }
+
+    private void runFunctionStages(List<Stage> functionStages, Module module) {
+        List<Function> functions = module.getFunctions().stream().filter(FunctionPass::isOptimizable).toList();
+        List<CompileStatistics> results = Parallel.map(functions, parallel, function -> {
+            CompileStatistics functionStatistics = statistics == null ? null : new CompileStatistics();
+            RunHistory history = new RunHistory();
+            for (Stage stage : functionStages) {
+                List<FunctionPass> passes = stage.functionPasses().stream().<FunctionPass>map(Supplier::get).toList();
+                if (stage.fixpoint()) {
+                    runToFixpoint(passes, function, history, functionStatistics);
+                } else {
+                    history.run(passes.get(0), function, functionStatistics);
+                }
+            }
+            return functionStatistics;
+        });
+        if (statistics != null) {
+            results.forEach(statistics::merge);
+        }
+    }
+
+    private static void runToFixpoint(List<FunctionPass> passes, Function function, RunHistory history,
+                                      CompileStatistics statistics) {
+        int round = 0;
+        boolean changed = true;
+        while (changed && round < MAX_ROUNDS) {
+            changed = false;
+            round++;
+            for (FunctionPass pass : passes) {
+                changed |= history.run(pass, function, statistics);
+            }
+        }
+        if (statistics != null) {
+            statistics.count("PassManager", "fixpoint rounds", round);
+        }
+    }
+
+    // 一个函数上各个遍的执行记录：changeNum 是函数被修改的次数，lastRuns 是各个遍上次执行结束时的 changeNum
+    private static final class RunHistory {
+        private int changeNum = 0;
+        private final Map<String, Integer> lastRuns = new HashMap<>();
+
+        // 函数在这个遍上次执行之后没有修改过时跳过它；返回这次是否修改了函数
+        boolean run(FunctionPass pass, Function function, CompileStatistics statistics) {
+            Integer lastRun = lastRuns.get(pass.getName());
+            if (lastRun != null && lastRun == changeNum) {
+                return false;
+            }
+            boolean changed = runOnFunction(pass, function, statistics);
+            if (changed) {
+                changeNum++;
+            }
+            lastRuns.put(pass.getName(), changeNum);
+            return changed;
+        }
+    }
+
+    private static boolean runOnFunction(FunctionPass pass, Function function, CompileStatistics statistics) {
+        if (statistics == null) {
+            boolean changed = pass.run(function);
+            if (changed) {
+                function.invalidateAnalyses(pass.getPreservedAnalyses());
+            }
+            return changed;
+        }
+
+        IRSnapshot before = new IRSnapshot(function);
+        CompileStatistics.Timer timer = statistics.start(pass.getName());
+        boolean changed = pass.run(function);
+        if (changed) {
+            function.invalidateAnalyses(pass.getPreservedAnalyses());
+        }
+        timer.stop();
+        IRSnapshot.recordDelta(statistics, pass.getName(), before, new IRSnapshot(function));
+        return changed;
+    }
+
+    // 模块级遍可能修改任何函数，在当前线程中执行
+    private void runOnModule(Pass pass, Module module) {
+        IRSnapshot before = statistics == null ? null : new IRSnapshot(module);
+        CompileStatistics.Timer timer = statistics == null ? null : statistics.start(pass.getName());
+        boolean changed = pass.run(module);
+        if (changed) {
+            for (Function function : module.getFunctions()) {
+                function.invalidateAnalyses(Set.of());
+            }
+        }
+        if (statistics != null) {
+            timer.stop();
+            IRSnapshot.recordDelta(statistics, pass.getName(), before, new IRSnapshot(module));
+        }
+    }
+}
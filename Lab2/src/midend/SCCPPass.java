@@ -0,0 +1,407 @@
+package midend;
+
+import backend.ir.*;
+import backend.ir.inst.*;
+
+import java.util.*;
+
+/**
+ * 稀疏条件常量传播（SCCP）
+ *
+ * 每个值处于三层格中的一层：未定（还没有执行到，不在 lattices 中）、常量、不是常量。
+ * 从入口出发，只沿可执行的边前进：条件跳转的条件是常量时只有一条边可执行，phi 只合并可执行边流入的值。
+ * 值在格中只会下降，下降时把使用它的指令放入 SSA 工作表；新的可执行边放入控制流工作表。
+ *
+ * 结束后把常量替换到使用处，条件为常量的跳转改为无条件跳转，删除不可执行的块；
+ * 同时保留原来常量折叠中的代数化简（x + 0、x * 1 等）。
+ * 块内 store 到 alloca 后紧接着的 load 取 store 的值（原常量传播的做法）
+ */
+public class SCCPPass extends FunctionPass {
+
+    private final Map<Instruction, Lattice> lattices = new HashMap<>();
+    private final Set<BasicBlock> executableBlocks = new HashSet<>();
+    private final Map<BasicBlock, Set<BasicBlock>> executableEdges = new HashMap<>();
+    private final Deque<BasicBlock[]> cfgWorklist = new ArrayDeque<>();
+    private final Deque<Instruction> ssaWorklist = new ArrayDeque<>();
+    // load -> 同一块中之前最后一次对同一个 alloca 的 store，以及反向的表
+    private final Map<LoadInst, StoreInst> forwardedStores = new HashMap<>();
+    private final Map<StoreInst, List<LoadInst>> forwardedLoads = new HashMap<>();
+    private boolean changed;
+
+    @Override
+    public String getName() {
+        return "SCCP";
+    }
+
+    @Override
+    public boolean run(Function function) {
+        changed = false;
+        lattices.clear();
+        executableBlocks.clear();
+        executableEdges.clear();
+        forwardedStores.clear();
+        forwardedLoads.clear();
+        findForwardedStores(function);
+
+        markBlockExecutable(function.getFirstBasicBlock());
+        do {
+            propagate();
+        } while (resolveUndefinedBranches());
+
+        rewrite(function);
+        return changed;
+    }
+
+    private void propagate() {
+        while (!cfgWorklist.isEmpty() || !ssaWorklist.isEmpty()) {
+            while (!cfgWorklist.isEmpty()) {
+                BasicBlock[] edge = cfgWorklist.pop();
+                if (executableBlocks.contains(edge[1])) {
+                    for (PhiInst phi : edge[1].getPhis()) {
+                        visit(phi);
+                    }
+                } else {
+                    markBlockExecutable(edge[1]);
+                }
+            }
+            while (!ssaWorklist.isEmpty()) {
+                Instruction inst = ssaWorklist.pop();
+                if (inst.getBasicBlock() != null && executableBlocks.contains(inst.getBasicBlock())) {
+                    visit(inst);
+                }
+            }
+        }
+    }
+
+    // 传播结束后条件仍未定的跳转（条件只依赖于未定的值）当作两条边都可执行，返回是否有这样的跳转
+    private boolean resolveUndefinedBranches() {
+        boolean resolved = false;
+        for (BasicBlock block : executableBlocks) {
+            if (block.getTerminator() instanceof BrInst brInst && brInst.getCond() instanceof Instruction cond
+                    && getLattice(cond) == Lattice.UNDEFINED) {
+                lattices.put(cond, Lattice.OVERDEFINED);
+                visit(brInst);
+                resolved = true;
+            }
+        }
+        return resolved;
+    }
+
+    private void findForwardedStores(Function function) {
+        for (BasicBlock block : function.getBasicBlocks()) {
+            Map<Value, StoreInst> lastStores = null;
+            for (Instruction inst : block.getInstructions()) {
+                if (inst instanceof StoreInst storeInst && storeInst.getPtr() instanceof AllocInst) {
+                    if (lastStores == null) {
+                        lastStores = new HashMap<>();
+                    }
+                    lastStores.put(storeInst.getPtr(), storeInst);
+                } else if (inst instanceof LoadInst loadInst && lastStores != null && lastStores.containsKey(loadInst.getPtr())) {
+                    StoreInst storeInst = lastStores.get(loadInst.getPtr());
+                    forwardedStores.put(loadInst, storeInst);
+                    forwardedLoads.computeIfAbsent(storeInst, k -> new ArrayList<>()).add(loadInst);
+                }
+                if (inst == block.getTerminator()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // 终结指令之后的指令不会执行，不计算
+    private void markBlockExecutable(BasicBlock block) {
+        executableBlocks.add(block);
+        for (Instruction inst : block.getInstructions()) {
+            visit(inst);
+            if (inst == block.getTerminator()) {
+                break;
+            }
+        }
+    }
+
+    private void markEdgeExecutable(BasicBlock from, BasicBlock to) {
+        if (executableEdges.computeIfAbsent(from, k -> new HashSet<>()).add(to)) {
+            cfgWorklist.push(new BasicBlock[]{from, to});
+        }
+    }
+
+    private boolean isEdgeExecutable(BasicBlock from, BasicBlock to) {
+        return executableEdges.getOrDefault(from, Set.of()).contains(to);
+    }
+
+    private void visit(Instruction inst) {
+        if (inst instanceof BrInst brInst) {
+            visitBrInst(brInst);
+            return;
+        }
+        if (inst instanceof StoreInst storeInst) {
+            ssaWorklist.addAll(forwardedLoads.getOrDefault(storeInst, List.of()));
+            return;
+        }
+        Lattice oldResult = lattices.get(inst);
+        if (oldResult == Lattice.OVERDEFINED || inst.getType().getType() == IRTypeEnum.VOID) {
+            return;
+        }
+
+        // 格只下降：已经是常量时只可能变为不是常量
+        Lattice result = evaluate(inst);
+        if (result == Lattice.UNDEFINED || (oldResult != null && result != Lattice.OVERDEFINED)) {
+            return;
+        }
+        lattices.put(inst, result);
+        for (Use use : inst.getUseList()) {
+            ssaWorklist.push((Instruction) use.getUser());
+        }
+    }
+
+    private void visitBrInst(BrInst brInst) {
+        BasicBlock block = brInst.getBasicBlock();
+        if (brInst.getCond() == null) {
+            markEdgeExecutable(block, brInst.getDest());
+            return;
+        }
+        Lattice cond = getLattice(brInst.getCond());
+        if (cond == Lattice.OVERDEFINED) {
+            markEdgeExecutable(block, brInst.getTrueBranch());
+            markEdgeExecutable(block, brInst.getFalseBranch());
+        } else if (cond != Lattice.UNDEFINED) {
+            markEdgeExecutable(block, cond.constant != 0 ? brInst.getTrueBranch() : brInst.getFalseBranch());
+        }
+    }
+
+    private Lattice evaluate(Instruction inst) {
+        if (inst instanceof PhiInst phi) {
+            Lattice result = Lattice.UNDEFINED;
+            for (int i = 0; i < phi.getIncomingNum(); i++) {
+                if (isEdgeExecutable(phi.getIncomingBlock(i), phi.getBasicBlock())) {
+                    result = Lattice.meet(result, getLattice(phi.getIncomingValue(i)));
+                }
+            }
+            return result;
+        }
+        if (inst instanceof BinaryInst binaryInst) {
+            return evaluateBinary(binaryInst);
+        }
+        if (inst instanceof ICmpInst iCmpInst) {
+            Lattice left = getLattice(iCmpInst.getLeftValue());
+            Lattice right = getLattice(iCmpInst.getRightValue());
+            if (left == Lattice.OVERDEFINED || right == Lattice.OVERDEFINED) {
+                return Lattice.OVERDEFINED;
+            }
+            if (left == Lattice.UNDEFINED || right == Lattice.UNDEFINED) {
+                return Lattice.UNDEFINED;
+            }
+            return Lattice.of(iCmpInst.getCond().evaluate(left.constant, right.constant) ? 1 : 0);
+        }
+        if (inst instanceof ZExtInst zExtInst) {
+            return getLattice(zExtInst.getValue());
+        }
+        if (inst instanceof LoadInst loadInst && forwardedStores.containsKey(loadInst)) {
+            return getLattice(forwardedStores.get(loadInst).getValue());
+        }
+        return Lattice.OVERDEFINED;
+    }
+
+    // 与原常量折叠一致：0 乘任何数为 0，x - x 为 0，x / x 为 1，0 除以任何数为 0
+    private Lattice evaluateBinary(BinaryInst binaryInst) {
+        Value leftValue = binaryInst.getLeftValue();
+        Value rightValue = binaryInst.getRightValue();
+        Lattice left = getLattice(leftValue);
+        Lattice right = getLattice(rightValue);
+        switch (binaryInst.getOp()) {
+            case MUL -> {
+                if (left.isConstant(0) || right.isConstant(0)) {
+                    return Lattice.of(0);
+                }
+            }
+            case SUB -> {
+                if (leftValue == rightValue) {
+                    return Lattice.of(0);
+                }
+            }
+            case SDIV -> {
+                if (leftValue == rightValue) {
+                    return Lattice.of(1);
+                }
+                if (left.isConstant(0)) {
+                    return Lattice.of(0);
+                }
+            }
+            default -> {
+            }
+        }
+
+        if (left == Lattice.OVERDEFINED || right == Lattice.OVERDEFINED) {
+            return Lattice.OVERDEFINED;
+        }
+        if (left == Lattice.UNDEFINED || right == Lattice.UNDEFINED) {
+            return Lattice.UNDEFINED;
+        }
+        int l = left.constant, r = right.constant;
+        return switch (binaryInst.getOp()) {
+            case ADD -> Lattice.of(l + r);
+            case SUB -> Lattice.of(l - r);
+            case MUL -> Lattice.of(l * r);
+            case SDIV -> r == 0 ? Lattice.OVERDEFINED : Lattice.of(l / r);
+            case SREM -> r == 0 ? Lattice.OVERDEFINED : Lattice.of(l % r);
+            case AND -> Lattice.of(l & r);
+            case OR -> Lattice.of(l | r);
+        };
+    }
+
+    private Lattice getLattice(Value value) {
+        if (value instanceof ImmediateValue immediateValue) {
+            return Lattice.of(immediateValue.getValue());
+        }
+        if (!(value instanceof Instruction inst)) {
+            return Lattice.OVERDEFINED;
+        }
+        return lattices.getOrDefault(inst, Lattice.UNDEFINED);
+    }
+
+    private void rewrite(Function function) {
+        for (BasicBlock block : function.getBasicBlocks()) {
+            if (!executableBlocks.contains(block)) {
+                continue;
+            }
+            // 终结指令之后的指令不会执行（如前端在 return 之后生成的跳转），其中的跳转目标可能是下面要删除的块
+            Instruction terminator = block.getTerminator();
+            while (terminator != null && terminator.getNext() != null) {
+                terminator.getNext().eraseFromParent();
+                changed = true;
+            }
+            for (Instruction inst : block.getInstructions()) {
+                Lattice lattice = lattices.get(inst);
+                if (lattice != null && lattice != Lattice.OVERDEFINED) {
+                    inst.replaceAllUsesWith(new ImmediateValue(lattice.constant));
+                    inst.eraseFromParent();
+                    changed = true;
+                }
+            }
+            if (block.getTerminator() instanceof BrInst brInst && brInst.getCond() != null) {
+                rewriteBrInst(brInst);
+            }
+        }
+
+        // 不可执行的块流入 phi 的项去掉，只剩一项的 phi 直接用该值代替
+        Set<BasicBlock> deadBlocks = new HashSet<>();
+        for (BasicBlock block : function.getBasicBlocks()) {
+            if (!executableBlocks.contains(block)) {
+                deadBlocks.add(block);
+            }
+        }
+        for (BasicBlock block : function.getBasicBlocks()) {
+            if (deadBlocks.contains(block)) {
+                continue;
+            }
+            for (PhiInst phi : block.getPhis()) {
+                for (int i = phi.getIncomingNum() - 1; i >= 0; i--) {
+                    if (deadBlocks.contains(phi.getIncomingBlock(i))) {
+                        phi.removeIncoming(i);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        if (!deadBlocks.isEmpty()) {
+            function.removeBasicBlocks(deadBlocks);
+            changed = true;
+        }
+
+        for (BasicBlock block : function.getBasicBlocks()) {
+            for (Instruction inst : block.getInstructions()) {
+                Value simplified = null;
+                if (inst instanceof PhiInst phi && phi.getIncomingNum() == 1) {
+                    simplified = phi.getIncomingValue(0);
+                } else if (inst instanceof BinaryInst binaryInst) {
+                    simplified = simplify(binaryInst);
+                }
+                if (simplified != null && simplified != inst) {
+                    inst.replaceAllUsesWith(simplified);
+                    inst.eraseFromParent();
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // 只有一条出边可执行的条件跳转改为无条件跳转，另一个目标中 phi 从本块流入的项去掉一项
+    private void rewriteBrInst(BrInst brInst) {
+        BasicBlock block = brInst.getBasicBlock();
+        BasicBlock trueBranch = brInst.getTrueBranch();
+        BasicBlock falseBranch = brInst.getFalseBranch();
+        boolean trueExecutable = isEdgeExecutable(block, trueBranch);
+        boolean falseExecutable = isEdgeExecutable(block, falseBranch);
+        if (trueBranch == falseBranch || trueExecutable == falseExecutable) {
+            if (trueBranch != falseBranch) {
+                return;
+            }
+            // 两个目标相同，条件不影响跳转
+            trueExecutable = true;
+        }
+
+        BasicBlock dest = trueExecutable ? trueBranch : falseBranch;
+        BasicBlock removed = trueExecutable ? falseBranch : trueBranch;
+        block.addInstructionBefore(new BrInst(dest), brInst);
+        brInst.eraseFromParent();
+        changed = true;
+        for (PhiInst phi : removed.getPhis()) {
+            for (int i = 0; i < phi.getIncomingNum(); i++) {
+                if (phi.getIncomingBlock(i) == block) {
+                    phi.removeIncoming(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    // 原常量折叠中的代数化简：x + 0、0 + x、x - 0、x * 1、1 * x、x / 1
+    private static Value simplify(BinaryInst binaryInst) {
+        Value leftValue = binaryInst.getLeftValue();
+        Value rightValue = binaryInst.getRightValue();
+        return switch (binaryInst.getOp()) {
+            case ADD -> isImmediate(leftValue, 0) ? rightValue : isImmediate(rightValue, 0) ? leftValue : null;
+            case SUB -> isImmediate(rightValue, 0) ? leftValue : null;
+            case MUL -> isImmediate(leftValue, 1) ? rightValue : isImmediate(rightValue, 1) ? leftValue : null;
+            case SDIV -> isImmediate(rightValue, 1) ? leftValue : null;
+            default -> null;
+        };
+    }
+
+    private static boolean isImmediate(Value value, int constant) {
+        return value instanceof ImmediateValue immediateValue && immediateValue.getValue() == constant;
+    }
+
+    // 格中的值；常量各自一个对象，未定和不是常量各用一个单例
+    private static final class Lattice {
+        static final Lattice UNDEFINED = new Lattice(0);
+        static final Lattice OVERDEFINED = new Lattice(0);
+
+        final int constant;
+
+        private Lattice(int constant) {
+            this.constant = constant;
+        }
+
+        static Lattice of(int constant) {
+            return new Lattice(constant);
+        }
+
+        boolean isConstant(int value) {
+            return this != UNDEFINED && this != OVERDEFINED && constant == value;
+        }
+
+        static Lattice meet(Lattice a, Lattice b) {
+            if (a == UNDEFINED) {
+                return b;
+            }
+            if (b == UNDEFINED) {
+                return a;
+            }
+            if (a == OVERDEFINED || b == OVERDEFINED || a.constant != b.constant) {
+                return OVERDEFINED;
+            }
+            return a;
+        }
+    }
+}
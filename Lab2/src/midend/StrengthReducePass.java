@@ -0,0 +1,513 @@
+package midend;
+
+import backend.ir.*;
+import backend.ir.inst.*;
+
+import java.util.*;
+
+/**
+ * 归纳变量强度削弱：循环中的 getelementptr 若只有一个下标随循环变化，并且它是某个基本归纳变量的线性函数，
+ * 就换成在首块用 phi 维护的指针：前置块中算出第一次的地址，归纳变量每次更新时指针加上固定的偏移，
+ * 省去每次访问时计算下标和地址的乘法、加法。同一数组上只差一个常数的下标（a[i]、a[i + 1]）共用一个指针，
+ * 其余的由它加常数偏移得到。
+ *
+ * 归纳变量只用于这些地址和循环条件时，把循环条件换成指针与终点地址的比较（线性函数测试替换），
+ * 原来的计数器由死代码消除删除。为了保证地址比较不会溢出，只替换初值和边界都是常数、只有这一个出口、
+ * 指针在每次迭代中都会被访问的循环，终点地址至多越过访问过的地址一次迭代的距离
+ */
+public class StrengthReducePass extends FunctionPass {
+    // 每个循环最多新建的指针数：指针在整个循环中活跃，太多时反而会溢出到栈上
+    private static final int MAX_POINTERS_PER_LOOP = 4;
+
+    private boolean changed;
+    private Loop loop;
+    private BasicBlock preheader;
+
+    @Override
+    public String getName() {
+        return "StrengthReduce";
+    }
+
+    @Override
+    public boolean run(Function function) {
+        changed = false;
+        LoopInfo loopInfo = LoopInfo.of(function);
+        DominatorTree tree = DominatorTree.of(function);
+        // 先处理内层循环：内层指针在前置块中的初始地址属于外层循环，还可以由外层循环继续削弱
+        List<Loop> loops = loopInfo.getLoops();
+        for (int i = loops.size() - 1; i >= 0; i--) {
+            reduceLoop(loops.get(i), loopInfo, tree);
+        }
+        return changed;
+    }
+
+    // 下标的系数：factor 与 values 中各个循环不变量的乘积
+    private record Scale(int factor, List<Value> values) {
+        Scale times(Value value) {
+            if (value instanceof ImmediateValue immediate) {
+                return new Scale(factor * immediate.getValue(), values);
+            }
+            List<Value> newValues = new ArrayList<>(values);
+            newValues.add(value);
+            return new Scale(factor, newValues);
+        }
+
+        Scale negate() {
+            return new Scale(-factor, values);
+        }
+    }
+
+    // offsets 中第 position 个下标 index = scale * 归纳变量 + 循环不变量，它加一时地址增加 elementCount 个元素
+    private record Candidate(GetElementPtrInst gep, InductionVariable iv, int position, Value index, Scale scale,
+                             int elementCount) {
+    }
+
+    private void reduceLoop(Loop loop, LoopInfo loopInfo, DominatorTree tree) {
+        this.loop = loop;
+        preheader = loop.getPreheader();
+        List<InductionVariable> ivs = InductionVariable.find(loop);
+        if (ivs.isEmpty()) {
+            return;
+        }
+
+        // 只处理最内层在这个循环中的地址，外层循环的地址在处理外层循环时考虑
+        List<Candidate> candidates = new ArrayList<>();
+        for (BasicBlock block : loop.getBlocks()) {
+            if (loopInfo.getLoopFor(block) != loop) {
+                continue;
+            }
+            for (Instruction inst = block.getFirstInstruction(); inst != null && inst != block.getTerminator(); inst = inst.getNext()) {
+                if (inst instanceof GetElementPtrInst gepInst) {
+                    Candidate candidate = analyze(gepInst, ivs);
+                    if (candidate != null) {
+                        candidates.add(candidate);
+                    }
+                }
+            }
+        }
+
+        // 选出共用指针的代表，其余地址记下与代表相差的循环不变量
+        List<Candidate> roots = new ArrayList<>();
+        Map<Candidate, Candidate> rootOf = new LinkedHashMap<>();
+        Map<Candidate, Map<List<Value>, Integer>> distances = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            boolean found = false;
+            for (Candidate root : roots) {
+                Map<List<Value>, Integer> distance = getDistance(candidate, root);
+                if (distance != null) {
+                    rootOf.put(candidate, root);
+                    distances.put(candidate, distance);
+                    found = true;
+                    break;
+                }
+            }
+            if (!found && roots.size() < MAX_POINTERS_PER_LOOP) {
+                roots.add(candidate);
+            }
+        }
+        if (roots.isEmpty()) {
+            return;
+        }
+
+        Map<Candidate, PhiInst> pointers = new HashMap<>();
+        Map<Candidate, GetElementPtrInst> nextPointers = new HashMap<>();
+        for (Candidate root : roots) {
+            reduce(root, pointers, nextPointers);
+        }
+        for (Map.Entry<Candidate, Candidate> entry : rootOf.entrySet()) {
+            Candidate candidate = entry.getKey();
+            Value offset = materialize(distances.get(candidate), candidate.elementCount);
+            GetElementPtrInst gepInst = new GetElementPtrInst(pointers.get(entry.getValue()), List.of(offset));
+            candidate.gep.getBasicBlock().addInstructionBefore(gepInst, candidate.gep);
+            replace(candidate.gep, gepInst);
+        }
+        changed = true;
+
+        Set<InductionVariable> replacedIvs = new HashSet<>();
+        for (Candidate root : roots) {
+            if (replacedIvs.add(root.iv) && !replaceExitTest(root, pointers.get(root), nextPointers.get(root), tree)) {
+                replacedIvs.remove(root.iv);
+            }
+        }
+    }
+
+    private Candidate analyze(GetElementPtrInst gepInst, List<InductionVariable> ivs) {
+        if (!isInvariant(gepInst.getElementBase()) || !gepInst.getType().getArrayDims().isEmpty()) {
+            return null;
+        }
+        int position = -1;
+        List<Value> offsets = gepInst.getOffsets();
+        for (int i = 0; i < offsets.size(); i++) {
+            if (!isInvariant(offsets.get(i))) {
+                if (position >= 0) {
+                    return null;
+                }
+                position = i;
+            }
+        }
+        if (position < 0) {
+            return null;
+        }
+        for (InductionVariable iv : ivs) {
+            Scale scale = getScale(offsets.get(position), iv.getPhi());
+            if (scale != null && (scale.factor != 0 || !scale.values.isEmpty())) {
+                return new Candidate(gepInst, iv, position, offsets.get(position), scale, getElementCount(gepInst, position));
+            }
+        }
+        return null;
+    }
+
+    // index 是归纳变量 phi 的线性函数时返回系数，否则返回 null
+    private Scale getScale(Value index, PhiInst phi) {
+        if (index == phi) {
+            return new Scale(1, List.of());
+        }
+        if (!(index instanceof BinaryInst binaryInst) || isInvariant(binaryInst)) {
+            return null;
+        }
+        Value left = binaryInst.getLeftValue(), right = binaryInst.getRightValue();
+        boolean leftInvariant = isInvariant(left);
+        if (leftInvariant == isInvariant(right)) {
+            return null;
+        }
+        Value invariant = leftInvariant ? left : right;
+        Scale scale = getScale(leftInvariant ? right : left, phi);
+        if (scale == null) {
+            return null;
+        }
+        return switch (binaryInst.getOp()) {
+            case ADD -> scale;
+            case SUB -> leftInvariant ? scale.negate() : scale;
+            case MUL -> scale.times(invariant);
+            default -> null;
+        };
+    }
+
+    // 两个地址只有变化的下标不同、并且相差一个循环不变量时返回 candidate 相对 root 的差（见 getDifference），否则返回 null
+    private Map<List<Value>, Integer> getDistance(Candidate candidate, Candidate root) {
+        if (candidate.iv != root.iv || candidate.position != root.position
+                || candidate.gep.getElementBase() != root.gep.getElementBase()) {
+            return null;
+        }
+        List<Value> offsets = candidate.gep.getOffsets(), rootOffsets = root.gep.getOffsets();
+        if (offsets.size() != rootOffsets.size()) {
+            return null;
+        }
+        for (int i = 0; i < offsets.size(); i++) {
+            if (i != candidate.position && !isSameValue(offsets.get(i), rootOffsets.get(i))) {
+                return null;
+            }
+        }
+        return getDifference(candidate.index, root.index);
+    }
+
+    /**
+     * 按表达式的结构求 x - y，结果是循环不变量的多项式：键是相乘的不变量（空表为常数项），值是系数。
+     * 展开后的循环体中同一数组的下标形如 n * (i + 2) + j 与 n * i + j，逐层找相同的一侧，剥去加减的常数；
+     * 不能确定时返回 null
+     */
+    private Map<List<Value>, Integer> getDifference(Value x, Value y) {
+        if (x == y) {
+            return new LinkedHashMap<>();
+        }
+        if (x instanceof ImmediateValue immediateX && y instanceof ImmediateValue immediateY) {
+            return addConstant(new LinkedHashMap<>(), immediateX.getValue() - immediateY.getValue());
+        }
+        if (x instanceof BinaryInst binaryX && y instanceof BinaryInst binaryY && binaryX.getOp() == binaryY.getOp()) {
+            Value leftX = binaryX.getLeftValue(), rightX = binaryX.getRightValue();
+            Value leftY = binaryY.getLeftValue(), rightY = binaryY.getRightValue();
+            Map<List<Value>, Integer> difference = switch (binaryX.getOp()) {
+                case ADD -> leftX == leftY ? getDifference(rightX, rightY) : rightX == rightY ? getDifference(leftX, leftY) : null;
+                case SUB -> rightX == rightY ? getDifference(leftX, leftY) : leftX == leftY ? negate(getDifference(rightX, rightY)) : null;
+                case MUL -> rightX == rightY && isInvariant(rightX) ? times(getDifference(leftX, leftY), rightX)
+                        : leftX == leftY && isInvariant(leftX) ? times(getDifference(rightX, rightY), leftX) : null;
+                default -> null;
+            };
+            if (difference != null) {
+                return difference;
+            }
+        }
+        Addend addendX = Addend.of(x);
+        if (addendX != null) {
+            return addConstant(getDifference(addendX.base, y), addendX.constant);
+        }
+        Addend addendY = Addend.of(y);
+        if (addendY != null) {
+            return addConstant(getDifference(x, addendY.base), -addendY.constant);
+        }
+        return null;
+    }
+
+    // v + c、c + v 或 v - c 拆成 v 与 c（或 -c）
+    private record Addend(Value base, int constant) {
+        static Addend of(Value value) {
+            if (!(value instanceof BinaryInst binaryInst)) {
+                return null;
+            }
+            Value left = binaryInst.getLeftValue(), right = binaryInst.getRightValue();
+            if (binaryInst.getOp() == BinaryInstOp.ADD) {
+                if (right instanceof ImmediateValue immediate) {
+                    return new Addend(left, immediate.getValue());
+                }
+                if (left instanceof ImmediateValue immediate) {
+                    return new Addend(right, immediate.getValue());
+                }
+            } else if (binaryInst.getOp() == BinaryInstOp.SUB && right instanceof ImmediateValue immediate) {
+                return new Addend(left, -immediate.getValue());
+            }
+            return null;
+        }
+    }
+
+    private static Map<List<Value>, Integer> addConstant(Map<List<Value>, Integer> polynomial, int constant) {
+        if (polynomial != null && constant != 0) {
+            polynomial.merge(List.of(), constant, Integer::sum);
+        }
+        return polynomial;
+    }
+
+    private static Map<List<Value>, Integer> negate(Map<List<Value>, Integer> polynomial) {
+        if (polynomial != null) {
+            polynomial.replaceAll((factors, coefficient) -> -coefficient);
+        }
+        return polynomial;
+    }
+
+    private static Map<List<Value>, Integer> times(Map<List<Value>, Integer> polynomial, Value value) {
+        if (polynomial == null) {
+            return null;
+        }
+        Map<List<Value>, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<List<Value>, Integer> term : polynomial.entrySet()) {
+            if (value instanceof ImmediateValue immediate) {
+                result.merge(term.getKey(), term.getValue() * immediate.getValue(), Integer::sum);
+            } else {
+                List<Value> factors = new ArrayList<>(term.getKey());
+                factors.add(value);
+                result.merge(factors, term.getValue(), Integer::sum);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isSameValue(Value a, Value b) {
+        return a == b || a instanceof ImmediateValue immediateA && b instanceof ImmediateValue immediateB
+                && immediateA.getValue() == immediateB.getValue();
+    }
+
+    // 在首块建立指针 phi：初值在前置块中计算，归纳变量更新之后加上一次迭代的偏移
+    private void reduce(Candidate root, Map<Candidate, PhiInst> pointers, Map<Candidate, GetElementPtrInst> nextPointers) {
+        InductionVariable iv = root.iv;
+        Value initPointer = createAddress(root, iv.getInit());
+
+        Value delta = materialize(root.scale, iv.getStep() * root.elementCount);
+
+        PhiInst pointer = loop.getHeader().createPhiInst(root.gep.getType());
+        GetElementPtrInst nextPointer = new GetElementPtrInst(pointer, List.of(delta));
+        BinaryInst update = iv.getUpdate();
+        update.getBasicBlock().addInstructionBefore(nextPointer, update.getNext());
+        pointer.addIncoming(initPointer, preheader);
+        pointer.addIncoming(nextPointer, loop.getLatch());
+
+        replace(root.gep, pointer);
+        pointers.put(root, pointer);
+        nextPointers.put(root, nextPointer);
+    }
+
+    // 在前置块中计算归纳变量取 value 时 root 的地址
+    private Value createAddress(Candidate root, Value value) {
+        List<Value> offsets = new ArrayList<>(root.gep.getOffsets());
+        offsets.set(root.position, cloneIndex(root.index, root.iv.getPhi(), value));
+        GetElementPtrInst address = new GetElementPtrInst(root.gep.getElementBase(), offsets);
+        preheader.addInstructionBefore(address, preheader.getTerminator());
+        return address;
+    }
+
+    // 在前置块中重新计算 index，其中的归纳变量换成 value
+    private Value cloneIndex(Value index, PhiInst phi, Value value) {
+        if (index == phi) {
+            return value;
+        }
+        if (isInvariant(index)) {
+            return index;
+        }
+        BinaryInst binaryInst = (BinaryInst) index;
+        return insertBinary(binaryInst.getOp(), cloneIndex(binaryInst.getLeftValue(), phi, value),
+                cloneIndex(binaryInst.getRightValue(), phi, value));
+    }
+
+    // 多项式乘以 multiplier 的值，不是常数时在前置块中计算
+    private Value materialize(Map<List<Value>, Integer> polynomial, int multiplier) {
+        Value sum = new ImmediateValue(0);
+        for (Map.Entry<List<Value>, Integer> term : polynomial.entrySet()) {
+            sum = insertBinary(BinaryInstOp.ADD, sum, materialize(new Scale(term.getValue(), term.getKey()), multiplier));
+        }
+        return sum;
+    }
+
+    // scale * multiplier，不是常数时在前置块中计算
+    private Value materialize(Scale scale, int multiplier) {
+        int factor = scale.factor * multiplier;
+        if (scale.values.isEmpty()) {
+            return new ImmediateValue(factor);
+        }
+        Value product = scale.values.get(0);
+        for (int i = 1; i < scale.values.size(); i++) {
+            product = insertBinary(BinaryInstOp.MUL, product, scale.values.get(i));
+        }
+        return factor == 1 ? product : insertBinary(BinaryInstOp.MUL, product, new ImmediateValue(factor));
+    }
+
+    // 下标中只有加、减、乘；代入常数后能直接化简的不生成指令，以免前置块中的指令妨碍外层循环的分析
+    private Value insertBinary(BinaryInstOp op, Value left, Value right) {
+        if (left instanceof ImmediateValue immediateLeft && right instanceof ImmediateValue immediateRight) {
+            int l = immediateLeft.getValue(), r = immediateRight.getValue();
+            return new ImmediateValue(op == BinaryInstOp.ADD ? l + r : op == BinaryInstOp.SUB ? l - r : l * r);
+        }
+        if (op == BinaryInstOp.MUL && (isImmediate(left, 0) || isImmediate(right, 0))) {
+            return new ImmediateValue(0);
+        }
+        if (op == BinaryInstOp.MUL && isImmediate(left, 1) || op == BinaryInstOp.ADD && isImmediate(left, 0)) {
+            return right;
+        }
+        if (isImmediate(right, op == BinaryInstOp.MUL ? 1 : 0)) {
+            return left;
+        }
+        BinaryInst binaryInst = new BinaryInst(op, left, right);
+        preheader.addInstructionBefore(binaryInst, preheader.getTerminator());
+        return binaryInst;
+    }
+
+    // 第 position 个下标加一时地址增加的元素个数
+    private static int getElementCount(GetElementPtrInst gepInst, int position) {
+        List<Integer> dims = gepInst.getElementBase().getType().getArrayDims();
+        int count = 1;
+        for (int i = position; i < dims.size(); i++) {
+            count *= dims.get(i);
+        }
+        return count;
+    }
+
+    // 用 value 代替地址，删除地址以及只被它使用的下标计算
+    private void replace(GetElementPtrInst gepInst, Value value) {
+        gepInst.replaceAllUsesWith(value);
+        Deque<Instruction> worklist = new ArrayDeque<>();
+        worklist.push(gepInst);
+        while (!worklist.isEmpty()) {
+            Instruction inst = worklist.pop();
+            if (inst.isUsed() || inst.getBasicBlock() == null) {
+                continue;
+            }
+            List<Value> operands = new ArrayList<>(inst.getOperands());
+            inst.eraseFromParent();
+            for (Value operand : operands) {
+                if (operand instanceof BinaryInst binaryInst && loop.contains(binaryInst.getBasicBlock())) {
+                    worklist.push(binaryInst);
+                }
+            }
+        }
+    }
+
+    /**
+     * 归纳变量只被更新、一条与常数的比较以及它自己的 phi 使用时，把比较换成指针的比较。
+     * 指针是 base + k * 归纳变量（k > 0）时两者等价；要求指针在每次迭代中都会被访问，
+     * 终点地址至多越过被访问的对象一次迭代的距离，比较不会溢出
+     */
+    private boolean replaceExitTest(Candidate root, PhiInst pointer, GetElementPtrInst nextPointer, DominatorTree tree) {
+        InductionVariable iv = root.iv;
+        if (!(iv.getInit() instanceof ImmediateValue init) || !root.scale.values.isEmpty() || root.scale.factor <= 0) {
+            return false;
+        }
+
+        ICmpInst exitTest = null;
+        for (Value value : List.of(iv.getPhi(), iv.getUpdate())) {
+            for (Use use : value.getUseList()) {
+                User user = use.getUser();
+                if (user == iv.getPhi() || user == iv.getUpdate()) {
+                    continue;
+                }
+                if (!(user instanceof ICmpInst iCmpInst) || exitTest != null && exitTest != iCmpInst) {
+                    return false;
+                }
+                exitTest = iCmpInst;
+            }
+        }
+        if (exitTest == null || !isOnlyExit(exitTest.getBasicBlock())) {
+            return false;
+        }
+
+        boolean ivOnLeft = exitTest.getLeftValue() == iv.getPhi() || exitTest.getLeftValue() == iv.getUpdate();
+        Value ivValue = ivOnLeft ? exitTest.getLeftValue() : exitTest.getRightValue();
+        if (!((ivOnLeft ? exitTest.getRightValue() : exitTest.getLeftValue()) instanceof ImmediateValue bound)) {
+            return false;
+        }
+        // 第一次比较为假时循环一次也不执行，指针从未被访问，不能保证终点地址有意义
+        if (ivValue == iv.getPhi() && !(ivOnLeft ? exitTest.getCond().evaluate(init.getValue(), bound.getValue())
+                : exitTest.getCond().evaluate(bound.getValue(), init.getValue()))) {
+            return false;
+        }
+        if (!isAccessedEveryIteration(pointer, tree)) {
+            return false;
+        }
+
+        // 终点地址由初始地址加上常数偏移得到，原来的下标计算已经删除
+        long offset = (long) (bound.getValue() - init.getValue()) * root.scale.factor * root.elementCount;
+        if (offset * 4 != (int) (offset * 4)) {
+            return false;
+        }
+        GetElementPtrInst boundPointer = new GetElementPtrInst(pointer.getIncomingValueFor(preheader),
+                List.of(new ImmediateValue((int) offset)));
+        preheader.addInstructionBefore(boundPointer, preheader.getTerminator());
+        Value pointerValue = ivValue == iv.getPhi() ? pointer : nextPointer;
+        ICmpInst newTest = ivOnLeft ? new ICmpInst(exitTest.getCond(), pointerValue, boundPointer)
+                : new ICmpInst(exitTest.getCond(), boundPointer, pointerValue);
+        exitTest.getBasicBlock().addInstructionBefore(newTest, exitTest);
+        exitTest.replaceAllUsesWith(newTest);
+        exitTest.eraseFromParent();
+        return true;
+    }
+
+    // 循环只从这个块离开（没有 break 和 return），于是从初值到边界的每次迭代都会完整执行
+    private boolean isOnlyExit(BasicBlock exitingBlock) {
+        if (!loop.getExitingBlocks().equals(List.of(exitingBlock))) {
+            return false;
+        }
+        for (BasicBlock block : loop.getBlocks()) {
+            if (block.getSuccessors().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 指针（或者由它加常数得到的地址）被 load / store 访问，并且访问所在的块支配 latch
+    private boolean isAccessedEveryIteration(PhiInst pointer, DominatorTree tree) {
+        BasicBlock latch = loop.getLatch();
+        Deque<Value> addresses = new ArrayDeque<>();
+        addresses.push(pointer);
+        while (!addresses.isEmpty()) {
+            Value address = addresses.pop();
+            for (Use use : address.getUseList()) {
+                User user = use.getUser();
+                if (user instanceof LoadInst loadInst && tree.dominates(loadInst.getBasicBlock(), latch)
+                        || user instanceof StoreInst storeInst && storeInst.getPtr() == address
+                        && tree.dominates(storeInst.getBasicBlock(), latch)) {
+                    return true;
+                }
+                if (address == pointer && user instanceof GetElementPtrInst gepInst && gepInst.getElementBase() == pointer
+                        && loop.contains(gepInst.getBasicBlock()) && gepInst.getOffsets().get(0) instanceof ImmediateValue) {
+                    addresses.push(gepInst);
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isImmediate(Value value, int constant) {
+        return value instanceof ImmediateValue immediate && immediate.getValue() == constant;
+    }
+
+    private boolean isInvariant(Value value) {
+        return !(value instanceof Instruction inst) || !loop.contains(inst.getBasicBlock());
+    }
+}
@@ -0,0 +1,109 @@
+package midend;
+
+import backend.ir.BasicBlock;
+import backend.ir.ImmediateValue;
+import backend.ir.Value;
+import backend.ir.inst.BrInst;
+import backend.ir.inst.ICmpInst;
+import backend.ir.inst.ICmpInstCond;
+import backend.ir.inst.Instruction;
+
+import java.util.List;
+
+/**
+ * 循环次数分析：循环只从首块离开（没有 break 和 return），首块末尾按基本归纳变量与循环不变量的比较决定是否继续。
+ * 继续的条件统一成“归纳变量 cond 边界”的形式，只接受随归纳变量单调变化的 <、<=（递增）和 >、>=（递减）；
+ * 初值和边界都是常数时可以算出执行次数
+ */
+public class TripCount {
+    private final InductionVariable iv;
+    private final ICmpInst exitTest;
+    private final ICmpInstCond cond;
+    private final Value bound;
+
+    private TripCount(InductionVariable iv, ICmpInst exitTest, ICmpInstCond cond, Value bound) {
+        this.iv = iv;
+        this.exitTest = exitTest;
+        this.cond = cond;
+        this.bound = bound;
+    }
+
+    // 循环不是上述形式时返回 null
+    public static TripCount analyze(Loop loop) {
+        BasicBlock header = loop.getHeader();
+        if (!loop.getExitingBlocks().equals(List.of(header))) {
+            return null;
+        }
+        for (BasicBlock block : loop.getBlocks()) {
+            if (block.getSuccessors().isEmpty()) {
+                return null;
+            }
+        }
+        if (!(header.getTerminator() instanceof BrInst brInst) || !(brInst.getCond() instanceof ICmpInst exitTest)
+                || exitTest.getBasicBlock() != header) {
+            return null;
+        }
+        ICmpInstCond cond = loop.contains(brInst.getTrueBranch()) ? exitTest.getCond() : exitTest.getCond().inverse();
+
+        for (InductionVariable iv : InductionVariable.find(loop)) {
+            Value bound;
+            ICmpInstCond ivCond;
+            if (exitTest.getLeftValue() == iv.getPhi()) {
+                bound = exitTest.getRightValue();
+                ivCond = cond;
+            } else if (exitTest.getRightValue() == iv.getPhi()) {
+                bound = exitTest.getLeftValue();
+                ivCond = cond.swap();
+            } else {
+                continue;
+            }
+            if (bound instanceof Instruction inst && loop.contains(inst.getBasicBlock())) {
+                return null;
+            }
+            boolean increasing = iv.getStep() > 0;
+            if (increasing && (ivCond == ICmpInstCond.SLT || ivCond == ICmpInstCond.SLE)
+                    || !increasing && (ivCond == ICmpInstCond.SGT || ivCond == ICmpInstCond.SGE)) {
+                return new TripCount(iv, exitTest, ivCond, bound);
+            }
+            return null;
+        }
+        return null;
+    }
+
+    // 控制循环的归纳变量
+    public InductionVariable getInductionVariable() {
+        return iv;
+    }
+
+    public ICmpInst getExitTest() {
+        return exitTest;
+    }
+
+    // 继续循环的条件，归纳变量在左边
+    public ICmpInstCond getCond() {
+        return cond;
+    }
+
+    public Value getBound() {
+        return bound;
+    }
+
+    // 初值和边界都是常数时返回循环体执行的次数，否则（或者归纳变量会溢出时）返回 -1
+    public long getConstantTripCount() {
+        if (!(iv.getInit() instanceof ImmediateValue init) || !(bound instanceof ImmediateValue boundValue)) {
+            return -1;
+        }
+        long step = Math.abs((long) iv.getStep());
+        long distance = iv.getStep() > 0 ? (long) boundValue.getValue() - init.getValue()
+                : (long) init.getValue() - boundValue.getValue();
+        long count;
+        if (cond == ICmpInstCond.SLT || cond == ICmpInstCond.SGT) {
+            count = distance <= 0 ? 0 : (distance + step - 1) / step;
+        } else {
+            count = distance < 0 ? 0 : distance / step + 1;
+        }
+        // 最后一次更新后的值也要在 int 范围内，否则原来的循环依赖溢出
+        long last = init.getValue() + count * iv.getStep();
+        return last == (int) last ? count : -1;
+    }
+}
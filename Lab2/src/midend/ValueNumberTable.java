@@ -0,0 +1,119 @@
+package midend;
+
+import java.util.Arrays;
+
+/**
+ * 值编号用的开放寻址散列表：键是一个运算编码和若干个整数（操作数的值编号），值是一个整数。
+ * 所有键的内容依次存放在同一个 int 数组中，不为每个键创建对象。
+ *
+ * 线性探查，表项超过槽数一半时扩容。按插入的逆序删除不会破坏其他键的探查序列，
+ * 所以用 mark / rollback 成批撤销最近插入的键（支配树上的作用域）
+ */
+class ValueNumberTable {
+    private int[] slots = new int[64];   // 表项编号 + 1，0 表示空槽
+    private int[] entryHashes = new int[32];
+    private int[] entryStarts = new int[32]; // 键在 keyPool 中的起点：运算编码、操作数个数、操作数
+    private int[] entryValues = new int[32];
+    private int entryNum = 0;
+    private int[] keyPool = new int[128];
+    private int keyPoolSize = 0;
+
+    // 不存在时返回 -1
+    public int get(int op, int[] operands, int operandNum) {
+        int hash = hash(op, operands, operandNum);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = slots[slot] - 1;
+            if (entryHashes[entry] == hash && keyEquals(entry, op, operands, operandNum)) {
+                return entryValues[entry];
+            }
+        }
+        return -1;
+    }
+
+    // 键不能已经存在
+    public void put(int op, int[] operands, int operandNum, int value) {
+        if ((entryNum + 1) * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        if (entryNum == entryStarts.length) {
+            entryHashes = Arrays.copyOf(entryHashes, entryNum * 2);
+            entryStarts = Arrays.copyOf(entryStarts, entryNum * 2);
+            entryValues = Arrays.copyOf(entryValues, entryNum * 2);
+        }
+        if (keyPoolSize + operandNum + 2 > keyPool.length) {
+            keyPool = Arrays.copyOf(keyPool, Math.max(keyPool.length * 2, keyPoolSize + operandNum + 2));
+        }
+
+        int entry = entryNum++;
+        entryHashes[entry] = hash(op, operands, operandNum);
+        entryStarts[entry] = keyPoolSize;
+        entryValues[entry] = value;
+        keyPool[keyPoolSize++] = op;
+        keyPool[keyPoolSize++] = operandNum;
+        System.arraycopy(operands, 0, keyPool, keyPoolSize, operandNum);
+        keyPoolSize += operandNum;
+        insertSlot(entry);
+    }
+
+    public int mark() {
+        return entryNum;
+    }
+
+    // 删除 mark 之后插入的键
+    public void rollback(int mark) {
+        int mask = slots.length - 1;
+        while (entryNum > mark) {
+            int entry = --entryNum;
+            int slot = entryHashes[entry] & mask;
+            while (slots[slot] != entry + 1) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = 0;
+            keyPoolSize = entryStarts[entry];
+        }
+    }
+
+    public void clear() {
+        rollback(0);
+    }
+
+    private boolean keyEquals(int entry, int op, int[] operands, int operandNum) {
+        int start = entryStarts[entry];
+        if (keyPool[start] != op || keyPool[start + 1] != operandNum) {
+            return false;
+        }
+        for (int i = 0; i < operandNum; i++) {
+            if (keyPool[start + 2 + i] != operands[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insertSlot(int entry) {
+        int mask = slots.length - 1;
+        int slot = entryHashes[entry] & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = entry + 1;
+    }
+
+    // 按插入顺序重新放入，保持逆序删除的性质
+    private void rehash(int slotNum) {
+        slots = new int[slotNum];
+        for (int entry = 0; entry < entryNum; entry++) {
+            insertSlot(entry);
+        }
+    }
+
+    private static int hash(int op, int[] operands, int operandNum) {
+        int hash = op * 31 + operandNum;
+        for (int i = 0; i < operandNum; i++) {
+            hash = hash * 31 + operands[i];
+        }
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,156 @@
+package midend;
+
+import backend.ir.ImmediateValue;
+import backend.ir.Value;
+import backend.ir.inst.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LVNPass 与 GVNPass 共用的值编号：每个值有一个整数编号，立即数按数值编号；
+ * 指令的键是（运算编码，操作数编号），在 ValueNumberTable 中映射到第一条计算它的指令（代表）的编号。
+ *
+ * 可交换运算的操作数按编号排序，比较把操作数排好后换成对称的条件。
+ * load 的键带上内存的版本号，store 或调用之后使用新的版本号，之前的 load 自然查不到，不需要逐项删除
+ */
+class ValueNumbering {
+    // 运算编码：BinaryInstOp、ICmpInstCond 各占一段，之后是其他运算
+    private static final int ICMP_BASE = BinaryInstOp.values().length;
+    private static final int GEP = ICMP_BASE + ICmpInstCond.values().length;
+    private static final int ZEXT = GEP + 1;
+    private static final int LOAD = GEP + 2;
+    private static final int IMMEDIATE = GEP + 3;
+
+    private final ValueNumberTable table = new ValueNumberTable();
+    private final Map<Value, Integer> valueNumbers = new HashMap<>();
+    private final List<Value> numberedValues = new ArrayList<>(); // 编号 -> 值，立即数对应 null
+
+    // 最近一次 buildKey 构造的键
+    private int keyOp;
+    private int[] keyOperands = new int[4];
+    private int keyOperandNum;
+    private final int[] immediateKey = new int[1];
+
+    /**
+     * 构造 inst 的键，inst 不参与编号时返回 false。
+     * memoryGeneration 为负数时 load 不参与编号
+     */
+    public boolean buildKey(Instruction inst, int memoryGeneration) {
+        if (inst instanceof BinaryInst binaryInst) {
+            setKey(binaryInst.getOp().ordinal(), number(binaryInst.getLeftValue()), number(binaryInst.getRightValue()));
+            if (isCommutative(binaryInst.getOp())) {
+                sortOperands();
+            }
+            return true;
+        }
+        if (inst instanceof ICmpInst iCmpInst) {
+            setKey(ICMP_BASE + iCmpInst.getCond().ordinal(), number(iCmpInst.getLeftValue()), number(iCmpInst.getRightValue()));
+            if (sortOperands()) {
+                keyOp = ICMP_BASE + mirror(iCmpInst.getCond()).ordinal();
+            }
+            return true;
+        }
+        if (inst instanceof LoadInst loadInst) {
+            if (memoryGeneration < 0) {
+                return false;
+            }
+            setKey(LOAD, number(loadInst.getPtr()), memoryGeneration);
+            return true;
+        }
+        if (inst instanceof GetElementPtrInst || inst instanceof ZExtInst) {
+            int operandNum = inst.getOperands().size();
+            if (keyOperands.length < operandNum) {
+                keyOperands = new int[operandNum];
+            }
+            for (int i = 0; i < operandNum; i++) {
+                keyOperands[i] = number(inst.getOperand(i));
+            }
+            keyOp = inst instanceof GetElementPtrInst ? GEP : ZEXT;
+            keyOperandNum = operandNum;
+            return true;
+        }
+        return false;
+    }
+
+    // 最近构造的键对应的代表，没有时返回 null
+    public Instruction findLeader() {
+        int leader = table.get(keyOp, keyOperands, keyOperandNum);
+        return leader < 0 ? null : (Instruction) numberedValues.get(leader);
+    }
+
+    // 以 inst 作为最近构造的键的代表
+    public void addLeader(Instruction inst) {
+        table.put(keyOp, keyOperands, keyOperandNum, number(inst));
+    }
+
+    public int mark() {
+        return table.mark();
+    }
+
+    public void rollback(int mark) {
+        table.rollback(mark);
+    }
+
+    public void clear() {
+        table.clear();
+        valueNumbers.clear();
+        numberedValues.clear();
+    }
+
+    private int number(Value value) {
+        if (value instanceof ImmediateValue immediateValue) {
+            immediateKey[0] = immediateValue.getValue();
+            int number = table.get(IMMEDIATE, immediateKey, 1);
+            if (number < 0) {
+                number = numberedValues.size();
+                numberedValues.add(null);
+                table.put(IMMEDIATE, immediateKey, 1, number);
+            }
+            return number;
+        }
+        Integer number = valueNumbers.get(value);
+        if (number == null) {
+            number = numberedValues.size();
+            numberedValues.add(value);
+            valueNumbers.put(value, number);
+        }
+        return number;
+    }
+
+    private void setKey(int op, int left, int right) {
+        keyOp = op;
+        keyOperands[0] = left;
+        keyOperands[1] = right;
+        keyOperandNum = 2;
+    }
+
+    // 两个操作数按编号排序，返回是否交换了
+    private boolean sortOperands() {
+        if (keyOperands[0] <= keyOperands[1]) {
+            return false;
+        }
+        int temp = keyOperands[0];
+        keyOperands[0] = keyOperands[1];
+        keyOperands[1] = temp;
+        return true;
+    }
+
+    private static boolean isCommutative(BinaryInstOp op) {
+        return op == BinaryInstOp.ADD || op == BinaryInstOp.MUL || op == BinaryInstOp.AND || op == BinaryInstOp.OR;
+    }
+
+    // 交换两个操作数后等价的条件
+    private static ICmpInstCond mirror(ICmpInstCond cond) {
+        return switch (cond) {
+            case EQ -> ICmpInstCond.EQ;
+            case NE -> ICmpInstCond.NE;
+            case SLT -> ICmpInstCond.SGT;
+            case SGT -> ICmpInstCond.SLT;
+            case SLE -> ICmpInstCond.SGE;
+            case SGE -> ICmpInstCond.SLE;
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package stats;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * 一次编译的统计信息：各阶段、各优化遍的耗时与内存分配（-time-passes），
+ * 以及优化遍对中间代码的改动和后端每个函数的寄存器分配、栈帧情况（-stats）
+ */
+public class CompileStatistics {
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // 同名的计时会累加到同一条记录上，例如不动点迭代中多次执行的同一个优化遍
+    private final Map<String, TimeRecord> timeRecords = new LinkedHashMap<>();
+    private int openTimers = 0;
+
+    // 分组 -> 计数器名 -> 值
+    private final Map<String, Map<String, Long>> counters = new LinkedHashMap<>();
+    private final List<FunctionRecord> functionRecords = new ArrayList<>();
+
+    private static class TimeRecord {
+        final int depth;
+        int count = 0;
+        long wallNanos = 0;
+        long allocatedBytes = 0;
+
+        TimeRecord(int depth) {
+            this.depth = depth;
+        }
+    }
+
+    private record FunctionRecord(String name, int spilled, int registers, int frameBytes, int instructions) {
+    }
+
+    public class Timer {
+        private final String name;
+        private final long startNanos;
+        private final long startBytes;
+
+        private Timer(String name) {
+            this.name = name;
+            timeRecords.computeIfAbsent(name, key -> new TimeRecord(openTimers));
+            openTimers++;
+            this.startBytes = threadBean.getCurrentThreadAllocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        public void stop() {
+            long wallNanos = System.nanoTime() - startNanos;
+            long allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+            openTimers--;
+
+            TimeRecord record = timeRecords.get(name);
+            record.count++;
+            record.wallNanos += wallNanos;
+            record.allocatedBytes += allocatedBytes;
+        }
+    }
+
+    // 开始计时，在 stop 之前开始的计时视为它的子项，报告中缩进显示
+    public Timer start(String name) {
+        return new Timer(name);
+    }
+
+    public void count(String group, String counter, long delta) {
+        counters.computeIfAbsent(group, key -> new LinkedHashMap<>()).merge(counter, delta, Long::sum);
+    }
+
+    public void recordFunction(String name, int spilled, int registers, int frameBytes, int instructions) {
+        functionRecords.add(new FunctionRecord(name, spilled, registers, frameBytes, instructions));
+    }
+
+    /**
+     * 并入一个并行任务单独记录的统计，任务中的计时作为当前正在计时的阶段的子项。
+     * 各任务按函数的顺序并入，报告与串行时的顺序相同；并行执行的遍的耗时是各线程耗时之和，可能超过外层阶段
+     */
+    public void merge(CompileStatistics other) {
+        for (Map.Entry<String, TimeRecord> entry : other.timeRecords.entrySet()) {
+            TimeRecord otherRecord = entry.getValue();
+            TimeRecord record = timeRecords.computeIfAbsent(entry.getKey(), key -> new TimeRecord(openTimers + otherRecord.depth));
+            record.count += otherRecord.count;
+            record.wallNanos += otherRecord.wallNanos;
+            record.allocatedBytes += otherRecord.allocatedBytes;
+        }
+        other.counters.forEach((group, groupCounters) -> groupCounters.forEach((counter, value) -> count(group, counter, value)));
+        functionRecords.addAll(other.functionRecords);
+    }
+
+    public void printTimeReport(PrintStream out) {
+        out.println("===== Compile Time Report =====");
+        out.printf("  %-32s %6s %12s %12s%n", "phase / pass", "runs", "wall(ms)", "alloc(KB)");
+        for (Map.Entry<String, TimeRecord> entry : timeRecords.entrySet()) {
+            TimeRecord record = entry.getValue();
+            String name = "  ".repeat(record.depth) + entry.getKey();
+            out.printf("  %-32s %6d %12.3f %12d%n", name, record.count, record.wallNanos / 1e6, record.allocatedBytes / 1024);
+        }
+    }
+
+    public void printStatistics(PrintStream out) {
+        out.println("===== Statistics =====");
+        for (Map.Entry<String, Map<String, Long>> group : counters.entrySet()) {
+            StringJoiner joiner = new StringJoiner(", ");
+            group.getValue().forEach((counter, value) -> joiner.add(counter + " " + value));
+            out.printf("  %-16s %s%n", group.getKey(), joiner);
+        }
+
+        if (!functionRecords.isEmpty()) {
+            out.println("===== Backend =====");
+            out.printf("  %-24s %8s %10s %12s %12s%n", "function", "spilled", "colorRegs", "frameBytes", "mipsInsts");
+            for (FunctionRecord record : functionRecords) {
+                out.printf("  %-24s %8d %10d %12d %12d%n",
+                        record.name, record.spilled, record.registers, record.frameBytes, record.instructions);
+            }
+        }
+    }
+}
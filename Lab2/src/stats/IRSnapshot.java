@@ -0,0 +1,79 @@
+package stats;
+
+import backend.ir.BasicBlock;
+import backend.ir.Function;
+import backend.ir.Module;
+import backend.ir.Use;
+import backend.ir.User;
+import backend.ir.inst.Instruction;
+import backend.ir.inst.LoadInst;
+import backend.ir.inst.StoreInst;
+
+import java.util.*;
+
+/**
+ * 中间代码在某一时刻的快照，用来计算一个优化遍前后的变化量
+ */
+public class IRSnapshot {
+    private final Set<Instruction> instructions = new HashSet<>();
+    // 快照时每条指令的使用者，用于区分“被其他值替换”和“直接删除”
+    private final Map<Instruction, List<User>> users = new HashMap<>();
+    private int blockNum = 0;
+    private int loadNum = 0;
+    private int storeNum = 0;
+
+    public IRSnapshot(Module module) {
+        for (Function function : module.getFunctions()) {
+            addFunction(function);
+        }
+    }
+
+    public IRSnapshot(Function function) {
+        addFunction(function);
+    }
+
+    private void addFunction(Function function) {
+        for (BasicBlock block : function.getBasicBlocks()) {
+            blockNum++;
+            for (Instruction instruction : block.getInstructions()) {
+                instructions.add(instruction);
+                if (!instruction.getUseList().isEmpty()) {
+                    users.put(instruction, instruction.getUseList().stream().map(Use::getUser).toList());
+                }
+                if (instruction instanceof LoadInst) {
+                    loadNum++;
+                } else if (instruction instanceof StoreInst) {
+                    storeNum++;
+                }
+            }
+        }
+    }
+
+    /**
+     * 把 before 到 after 的变化记到 statistics 的 group 分组下：
+     * 被删除的指令中，原来的使用者还在的算作被替换（常量传播、值编号等），其余算作删除
+     */
+    public static void recordDelta(CompileStatistics statistics, String group, IRSnapshot before, IRSnapshot after) {
+        int removed = 0;
+        int replaced = 0;
+        for (Instruction instruction : before.instructions) {
+            if (after.instructions.contains(instruction)) {
+                continue;
+            }
+            List<User> oldUsers = before.users.getOrDefault(instruction, List.of());
+            if (oldUsers.stream().anyMatch(user -> user instanceof Instruction inst && after.instructions.contains(inst))) {
+                replaced++;
+            } else {
+                removed++;
+            }
+        }
+
+        statistics.count(group, "runs", 1);
+        statistics.count(group, "insts removed", removed);
+        statistics.count(group, "insts replaced", replaced);
+        statistics.count(group, "insts added", after.instructions.stream().filter(inst -> !before.instructions.contains(inst)).count());
+        statistics.count(group, "loads eliminated", before.loadNum - after.loadNum);
+        statistics.count(group, "stores eliminated", before.storeNum - after.storeNum);
+        statistics.count(group, "blocks eliminated", before.blockNum - after.blockNum);
+    }
+}